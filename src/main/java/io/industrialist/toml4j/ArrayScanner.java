@@ -0,0 +1,76 @@
+package io.industrialist.toml4j;
+
+/**
+ * Tracks the bracket nesting of an array value spread over several lines, so that the parser
+ * knows when the array is complete without parsing it. Separators are counted per nesting level
+ * as they are seen, so array length, nesting and node count limits are enforced before the lines
+ * of an oversized array are buffered.
+ */
+class ArrayScanner {
+  private final ParseContext context;
+  private int depth;
+  private long separatorCount;
+  private long[] separatorCounts = new long[8];
+
+  ArrayScanner(ParseContext context) {
+    this.context = context;
+  }
+
+  void reset() {
+    depth = 0;
+    separatorCount = 0;
+  }
+
+  int getDepth() {
+    return depth;
+  }
+
+  void scan(String line) {
+    scan(line, true);
+  }
+
+  /**
+   * Tracks the nesting of an array that is being skipped, without enforcing any limits.
+   */
+  void skip(String line) {
+    scan(line, false);
+  }
+
+  private void scan(String line, boolean enforceLimits) {
+    boolean inString = false;
+    for (int i = 0; i < line.length(); i++) {
+      char ch = line.charAt(i);
+      if (inString) {
+        if (ch == '\\') {
+          i++; // Skip the escaped character
+        } else if (ch == '"') {
+          inString = false;
+        }
+      } else if (ch == '"') {
+        inString = true;
+      } else if (ch == '[') {
+        if (enforceLimits) {
+          openArray();
+        } else {
+          depth++;
+        }
+      } else if (ch == ']') {
+        depth--;
+      } else if (ch == ',' && depth > 0 && enforceLimits) {
+        // An array has at least as many elements as separators, barring a trailing one
+        context.checkArrayLength(++separatorCounts[depth]);
+        context.checkNodeCount(++separatorCount);
+      }
+    }
+  }
+
+  private void openArray() {
+    context.checkNestingDepth(++depth);
+    if (depth == separatorCounts.length) {
+      long[] grown = new long[separatorCounts.length * 2];
+      System.arraycopy(separatorCounts, 0, grown, 0, separatorCounts.length);
+      separatorCounts = grown;
+    }
+    separatorCounts[depth] = 0;
+  }
+}
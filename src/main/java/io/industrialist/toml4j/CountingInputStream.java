@@ -0,0 +1,60 @@
+package io.industrialist.toml4j;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts the bytes read, failing with a {@link ParseException} once more than {@code limit} bytes
+ * have been read.
+ */
+class CountingInputStream extends FilterInputStream {
+  private final long limit;
+  private long count;
+
+  CountingInputStream(InputStream inputStream, long limit) {
+    super(inputStream);
+    this.limit = limit;
+  }
+
+  long getCount() {
+    return count;
+  }
+
+  @Override
+  public int read() throws IOException {
+    int b = in.read();
+    if (b != -1) {
+      add(1);
+    }
+    return b;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    int read = in.read(b, off, len);
+    if (read > 0) {
+      add(read);
+    }
+    return read;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    long skipped = in.skip(n);
+    add(skipped);
+    return skipped;
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  private void add(long read) {
+    count += read;
+    if (count > limit) {
+      throw new ParseException("Document is larger than the maximum of " + limit + " bytes");
+    }
+  }
+}
@@ -0,0 +1,10 @@
+package io.industrialist.toml4j;
+
+import io.industrialist.toml4j.node.TomlNode;
+
+/**
+ * Builds a document from parse events, to be returned once the parse is over.
+ */
+interface DocumentBuilder extends TomlParseListener {
+  TomlNode getRoot();
+}
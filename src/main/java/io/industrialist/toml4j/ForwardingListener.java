@@ -0,0 +1,40 @@
+package io.industrialist.toml4j;
+
+import io.industrialist.toml4j.node.TomlNode;
+
+/**
+ * Passes each parse event on to two listeners, in order.
+ */
+class ForwardingListener implements TomlParseListener {
+  private final TomlParseListener first;
+  private final TomlParseListener second;
+
+  ForwardingListener(TomlParseListener first, TomlParseListener second) {
+    this.first = first;
+    this.second = second;
+  }
+
+  @Override
+  public void onTable(String[] keys) {
+    first.onTable(keys);
+    second.onTable(keys);
+  }
+
+  @Override
+  public void onArrayOfTables(String[] keys) {
+    first.onArrayOfTables(keys);
+    second.onArrayOfTables(keys);
+  }
+
+  @Override
+  public void onKeyValue(String key, TomlNode value) {
+    first.onKeyValue(key, value);
+    second.onKeyValue(key, value);
+  }
+
+  @Override
+  public void onEndOfDocument() {
+    first.onEndOfDocument();
+    second.onEndOfDocument();
+  }
+}
@@ -0,0 +1,37 @@
+package io.industrialist.toml4j;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A buffered output stream that formats numbers directly into its buffer.
+ */
+class GeneratorOutputStream extends BufferedOutputStream {
+  GeneratorOutputStream(OutputStream out) {
+    super(out);
+  }
+
+  void writeLong(long value) throws IOException {
+    reserve();
+    count = NumberFormatter.formatLong(value, buf, count);
+  }
+
+  void writeDouble(double value) throws IOException {
+    reserve();
+    count = NumberFormatter.formatDouble(value, buf, count);
+  }
+
+  // Drops what has been written since the last flush
+  void discard() {
+    count = 0;
+  }
+
+  // Makes room in the buffer for one number
+  private void reserve() throws IOException {
+    if (buf.length - count < NumberFormatter.MAX_LENGTH) {
+      out.write(buf, 0, count);
+      count = 0;
+    }
+  }
+}
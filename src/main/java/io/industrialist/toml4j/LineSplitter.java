@@ -0,0 +1,108 @@
+package io.industrialist.toml4j;
+
+/**
+ * Splits chunks of characters into lines the same way {@link java.io.BufferedReader#readLine()}
+ * does, carrying a partial line (and a pending "\r\n") over to the next chunk.
+ */
+class LineSplitter {
+  // A builder grown by a very long line is not kept for the next parse
+  private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+  private final TomlLineParser lineParser;
+  private final ParseContext context;
+  private int maxLineLength;
+  private final boolean trackOffsets;
+  private final StringBuilder lineBuilder = new StringBuilder(128);
+  private boolean skipLineFeed;
+  private long characterCount;
+  private long nextLineOffset;
+
+  LineSplitter(TomlLineParser lineParser, ParseContext context) {
+    this(lineParser, context, false);
+  }
+
+  /**
+   * Creates a line splitter that, if {@code trackOffsets} is set, records the UTF-8 byte offset
+   * of each line in the context before it is parsed.
+   */
+  LineSplitter(TomlLineParser lineParser, ParseContext context, boolean trackOffsets) {
+    this.lineParser = lineParser;
+    this.context = context;
+    this.trackOffsets = trackOffsets;
+    this.maxLineLength = context.limits.getMaxLineLength();
+  }
+
+  /**
+   * Prepares this splitter, and the context's limits, for another parse.
+   */
+  void reset() {
+    lineBuilder.setLength(0);
+    if (lineBuilder.capacity() > MAX_RETAINED_CAPACITY) {
+      lineBuilder.trimToSize();
+    }
+    skipLineFeed = false;
+    characterCount = 0;
+    nextLineOffset = 0;
+    maxLineLength = context.limits.getMaxLineLength();
+  }
+
+  long getCharacterCount() {
+    return characterCount;
+  }
+
+  void feed(char[] chars, int offset, int length) {
+    characterCount += length;
+    int end = offset + length;
+    int lineStart = offset;
+    for (int i = offset; i < end; i++) {
+      char ch = chars[i];
+      if (skipLineFeed) {
+        skipLineFeed = false;
+        if (ch == '\n') {
+          nextLineOffset++;
+          lineStart = i + 1;
+          continue;
+        }
+      }
+
+      if (ch == '\n' || ch == '\r') {
+        append(chars, lineStart, i - lineStart);
+        emitLine();
+        skipLineFeed = ch == '\r';
+        lineStart = i + 1;
+      }
+    }
+
+    append(chars, lineStart, end - lineStart);
+  }
+
+  void end() {
+    if (lineBuilder.length() > 0) {
+      emitLine();
+    }
+
+    lineParser.endOfInput();
+  }
+
+  private void append(char[] chars, int offset, int length) {
+    if (length > maxLineLength - lineBuilder.length()) {
+      throw new ParseException(
+          "Line " + (context.getLineNumber() + 1) + ": Line is longer than the maximum of "
+              + maxLineLength + " characters");
+    }
+
+    lineBuilder.append(chars, offset, length);
+  }
+
+  private void emitLine() {
+    String line = lineBuilder.toString();
+    lineBuilder.setLength(0);
+    if (trackOffsets) {
+      context.nextLine(nextLineOffset);
+      nextLineOffset += StringUtils.utf8Length(line) + 1; // Plus the line terminator
+    } else {
+      context.nextLine();
+    }
+    lineParser.parseLine(line);
+  }
+}
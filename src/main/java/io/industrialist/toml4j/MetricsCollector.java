@@ -0,0 +1,111 @@
+package io.industrialist.toml4j;
+
+import io.industrialist.toml4j.node.TomlNodeType;
+
+import java.util.Arrays;
+
+/**
+ * Collects the metrics of one parse or generation. Counting is always on since it is only an
+ * array increment; the clock is only read when timing is enabled.
+ */
+class MetricsCollector {
+  // Shared by every generation without a listener, so it keeps nothing and can be used by any
+  // number of threads at once
+  private static final MetricsCollector DISCARDING = new MetricsCollector(false) {
+    @Override
+    void countNode(TomlNodeType nodeType) {
+    }
+
+    @Override
+    void tableDepth(int depth) {
+    }
+
+    @Override
+    void addBytes(long count) {
+    }
+
+    @Override
+    void addCharacters(long count) {
+    }
+
+    @Override
+    void addLines(long count) {
+    }
+  };
+
+  private final boolean timed;
+  private final long[] nodeCounts = new long[TomlNodeType.values().length];
+  private final long[] phaseNanos = new long[TomlPhase.values().length];
+  private long bytes;
+  private long characters;
+  private long lines;
+  private int maxTableDepth;
+
+  MetricsCollector(boolean timed) {
+    this.timed = timed;
+  }
+
+  /**
+   * Clears everything collected so far, for reuse by another parse.
+   */
+  void reset() {
+    Arrays.fill(nodeCounts, 0);
+    Arrays.fill(phaseNanos, 0);
+    bytes = 0;
+    characters = 0;
+    lines = 0;
+    maxTableDepth = 0;
+  }
+
+  /**
+   * Returns a new timed collector, or for {@link TomlMetricsListener#NO_OP} a shared one that
+   * discards what it is given.
+   */
+  static MetricsCollector forListener(TomlMetricsListener metricsListener) {
+    if (metricsListener == TomlMetricsListener.NO_OP) {
+      return DISCARDING;
+    }
+    return new MetricsCollector(true);
+  }
+
+  long startTime() {
+    return timed ? System.nanoTime() : 0L;
+  }
+
+  void endTime(TomlPhase phase, long startTime) {
+    if (timed) {
+      phaseNanos[phase.ordinal()] += System.nanoTime() - startTime;
+    }
+  }
+
+  void countNode(TomlNodeType nodeType) {
+    nodeCounts[nodeType.ordinal()]++;
+  }
+
+  void tableDepth(int depth) {
+    if (depth > maxTableDepth) {
+      maxTableDepth = depth;
+    }
+  }
+
+  void addBytes(long count) {
+    bytes += count;
+  }
+
+  void addCharacters(long count) {
+    characters += count;
+  }
+
+  void addLines(long count) {
+    lines += count;
+  }
+
+  TomlMetrics toMetrics() {
+    long[] phases = phaseNanos.clone();
+    // Line matching is timed around whole lines, which includes the nested value decoding and
+    // tree building
+    phases[TomlPhase.LINE_MATCHING.ordinal()] -=
+        phases[TomlPhase.VALUE_DECODING.ordinal()] + phases[TomlPhase.TREE_BUILDING.ordinal()];
+    return new TomlMetrics(bytes, characters, lines, nodeCounts, phases, maxTableDepth);
+  }
+}
@@ -0,0 +1,257 @@
+package io.industrialist.toml4j;
+
+import java.math.BigInteger;
+
+/**
+ * Formats longs and doubles as ASCII straight into a byte array, without allocating. Doubles are
+ * written with the fewest digits that read back as the same value, using Giulietti's Schubfach
+ * algorithm, and in the same layout as {@link Double#toString(double)}: plain between 10^-3 and
+ * 10^7, otherwise in computerized scientific notation such as {@code 1.0E-5}.
+ */
+final class NumberFormatter {
+  /**
+   * Enough space for any value written by this class.
+   */
+  static final int MAX_LENGTH = 32;
+
+  private static final int P = 53;
+  private static final int Q_MIN = -1074;
+  private static final long C_MIN = 1L << (P - 1);
+  private static final int BQ_MASK = 0x7FF;
+  private static final long T_MASK = C_MIN - 1;
+  private static final long C_TINY = 3;
+  private static final long MASK_63 = 0x7FFFFFFFFFFFFFFFL;
+
+  private static final byte[] NAN = {'N', 'a', 'N'};
+  private static final byte[] INFINITY = {'I', 'n', 'f', 'i', 'n', 'i', 't', 'y'};
+
+  private NumberFormatter() {
+  }
+
+  /**
+   * Writes {@code value} in decimal at {@code position}, returning the position after it.
+   */
+  static int formatLong(long value, byte[] buffer, int position) {
+    if (value < 0) {
+      buffer[position++] = '-';
+    }
+    return writeDigits(value < 0 ? value : -value, buffer, position);
+  }
+
+  // Writes the digits of -negative
+  private static int writeDigits(long negative, byte[] buffer, int position) {
+    int length = 1;
+    for (long remaining = negative; remaining <= -10; remaining /= 10) {
+      length++;
+    }
+
+    int end = position + length;
+    for (int i = end - 1; i >= position; i--) {
+      buffer[i] = (byte) ('0' - (negative % 10));
+      negative /= 10;
+    }
+    return end;
+  }
+
+  /**
+   * Writes {@code value} at {@code position} with the fewest digits that round-trip, returning
+   * the position after it.
+   */
+  static int formatDouble(double value, byte[] buffer, int position) {
+    long bits = Double.doubleToRawLongBits(value);
+    long t = bits & T_MASK;
+    int bq = (int) (bits >>> (P - 1)) & BQ_MASK;
+    if (bq == BQ_MASK) {
+      if (t != 0) {
+        return copy(NAN, buffer, position);
+      }
+      if (bits < 0) {
+        buffer[position++] = '-';
+      }
+      return copy(INFINITY, buffer, position);
+    }
+
+    if (bits < 0) {
+      buffer[position++] = '-';
+    }
+    if (bq != 0) {
+      // Normal value, c * 2^q with q = -mq
+      int mq = -Q_MIN + 1 - bq;
+      long c = C_MIN | t;
+      if (0 < mq && mq < P) {
+        // An integer below 2^53 is its own shortest representation
+        long f = c >> mq;
+        if (f << mq == c) {
+          return writeDecimal(f, 0, buffer, position);
+        }
+      }
+      return toDecimal(-mq, c, 0, buffer, position);
+    }
+    if (t != 0) {
+      // Subnormal value
+      return t < C_TINY
+          ? toDecimal(Q_MIN, 10 * t, -1, buffer, position)
+          : toDecimal(Q_MIN, t, 0, buffer, position);
+    }
+    buffer[position++] = '0';
+    buffer[position++] = '.';
+    buffer[position++] = '0';
+    return position;
+  }
+
+  private static int toDecimal(int q, long c, int dk, byte[] buffer, int position) {
+    int out = (int) c & 0x1;
+    long cb = c << 2;
+    long cbr = cb + 2;
+    long cbl;
+    int k;
+    if (c != C_MIN || q == Q_MIN) {
+      cbl = cb - 2;
+      k = floorLog10Pow2(q);
+    } else {
+      // The predecessor is closer on a power of two boundary
+      cbl = cb - 1;
+      k = floorLog10ThreeQuartersPow2(q);
+    }
+    int h = q + floorLog2Pow10(-k) + 2;
+
+    long g1 = PowersOfTen.g1(k);
+    long g0 = PowersOfTen.g0(k);
+
+    long vb = roundOdd(g1, g0, cb << h);
+    long vbl = roundOdd(g1, g0, cbl << h);
+    long vbr = roundOdd(g1, g0, cbr << h);
+
+    long s = vb >> 2;
+    if (s >= 100) {
+      // Try one digit less first
+      long sp10 = 10 * NumberScanner.multiplyHigh(s, 115292150460684698L << 4);
+      long tp10 = sp10 + 10;
+      boolean upin = vbl + out <= sp10 << 2;
+      boolean wpin = (tp10 << 2) + out <= vbr;
+      if (upin != wpin) {
+        return writeDecimal(upin ? sp10 : tp10, k, buffer, position);
+      }
+    }
+    long t = s + 1;
+    boolean uin = vbl + out <= s << 2;
+    boolean win = (t << 2) + out <= vbr;
+    if (uin != win) {
+      return writeDecimal(uin ? s : t, k + dk, buffer, position);
+    }
+    long cmp = vb - ((s + t) << 1);
+    return writeDecimal(cmp < 0 || cmp == 0 && (s & 0x1) == 0 ? s : t, k + dk, buffer, position);
+  }
+
+  private static long roundOdd(long g1, long g0, long cp) {
+    long x1 = NumberScanner.multiplyHigh(g0, cp);
+    long y0 = g1 * cp;
+    long y1 = NumberScanner.multiplyHigh(g1, cp);
+    long z = (y0 >>> 1) + x1;
+    long vbp = y1 + (z >>> 63);
+    return vbp | (((z & MASK_63) + MASK_63) >>> 63);
+  }
+
+  // Writes f * 10^e, f > 0, in the layout of Double.toString
+  private static int writeDecimal(long f, int e, byte[] buffer, int position) {
+    while (f % 10 == 0) {
+      f /= 10;
+      e++;
+    }
+
+    // Write the digits at the end of the space and then move them into place
+    int digitsStart = position + MAX_LENGTH - 20;
+    int digitsEnd = writeDigits(-f, buffer, digitsStart);
+    int length = digitsEnd - digitsStart;
+    int exponent = e + length - 1; // Of the first digit
+
+    if (exponent >= -3 && exponent < 7) {
+      if (exponent >= 0) {
+        int integerDigits = exponent + 1;
+        for (int i = 0; i < integerDigits; i++) {
+          buffer[position++] = i < length ? buffer[digitsStart + i] : (byte) '0';
+        }
+        buffer[position++] = '.';
+        if (integerDigits >= length) {
+          buffer[position++] = '0';
+        } else {
+          for (int i = integerDigits; i < length; i++) {
+            buffer[position++] = buffer[digitsStart + i];
+          }
+        }
+      } else {
+        buffer[position++] = '0';
+        buffer[position++] = '.';
+        for (int i = exponent + 1; i < 0; i++) {
+          buffer[position++] = '0';
+        }
+        for (int i = 0; i < length; i++) {
+          buffer[position++] = buffer[digitsStart + i];
+        }
+      }
+      return position;
+    }
+
+    buffer[position++] = buffer[digitsStart];
+    buffer[position++] = '.';
+    if (length == 1) {
+      buffer[position++] = '0';
+    } else {
+      for (int i = 1; i < length; i++) {
+        buffer[position++] = buffer[digitsStart + i];
+      }
+    }
+    buffer[position++] = 'E';
+    return formatLong(exponent, buffer, position);
+  }
+
+  private static int copy(byte[] text, byte[] buffer, int position) {
+    System.arraycopy(text, 0, buffer, position, text.length);
+    return position + text.length;
+  }
+
+  private static int floorLog10Pow2(int e) {
+    return (int) (e * 661971961083L >> 41);
+  }
+
+  private static int floorLog10ThreeQuartersPow2(int e) {
+    return (int) (e * 661971961083L + -274743187321L >> 41);
+  }
+
+  private static int floorLog2Pow10(int e) {
+    return (int) (e * 913124641741L >> 38);
+  }
+
+  /**
+   * For k from -324 to 292, g = floor(10^-k / 2^r) + 1 where r is chosen so that
+   * 2^125 <= 10^-k / 2^r < 2^126, split into its upper and lower 63 bits. Computed the first time
+   * a double needs it.
+   */
+  private static class PowersOfTen {
+    private static final int K_MIN = -324;
+    private static final int K_MAX = 292;
+    private static final long[] G = new long[2 * (K_MAX - K_MIN + 1)];
+
+    static {
+      BigInteger mask = BigInteger.ONE.shiftLeft(63).subtract(BigInteger.ONE);
+      for (int k = K_MIN; k <= K_MAX; k++) {
+        int r = floorLog2Pow10(-k) - 125;
+        BigInteger numerator = BigInteger.TEN.pow(Math.max(-k, 0)).shiftLeft(Math.max(-r, 0));
+        BigInteger denominator = BigInteger.TEN.pow(Math.max(k, 0)).shiftLeft(Math.max(r, 0));
+        BigInteger g = numerator.divide(denominator).add(BigInteger.ONE);
+
+        int index = 2 * (k - K_MIN);
+        G[index] = g.shiftRight(63).longValue();
+        G[index + 1] = g.and(mask).longValue();
+      }
+    }
+
+    static long g1(int k) {
+      return G[2 * (k - K_MIN)];
+    }
+
+    static long g0(int k) {
+      return G[2 * (k - K_MIN) + 1];
+    }
+  }
+}
@@ -0,0 +1,372 @@
+package io.industrialist.toml4j;
+
+import java.math.BigInteger;
+
+/**
+ * Reads TOML integers and floats straight out of the source text in a single pass, without
+ * allocating. Integers may be decimal with an optional sign, or unsigned hexadecimal ({@code 0x}),
+ * octal ({@code 0o}) or binary ({@code 0b}); underscores are allowed between digits. Floats have
+ * a fraction, an exponent or both, and are correctly rounded with the Eisel-Lemire algorithm,
+ * falling back to {@link Double#parseDouble(String)} in the rare cases it cannot decide.
+ *
+ * <p>The result of a scan is left in {@link #longValue} or {@link #doubleValue}.
+ */
+class NumberScanner {
+  static final int NOT_A_NUMBER = 0;
+  static final int INTEGER = 1;
+  static final int FLOAT = 2;
+
+  private static final int MAX_SIGNIFICANT_DIGITS = 19;
+  private static final double[] POWERS_OF_TEN = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+      1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+  long longValue;
+  double doubleValue;
+
+  /**
+   * Scans the characters of {@code text} from {@code start} to {@code end}, returning
+   * {@link #INTEGER}, {@link #FLOAT} or, if they are not exactly one number,
+   * {@link #NOT_A_NUMBER}.
+   *
+   * @throws ParseException if they are an integer that does not fit in a long
+   */
+  int scan(CharSequence text, int start, int end) {
+    if (start >= end) {
+      return NOT_A_NUMBER;
+    }
+
+    int i = start;
+    char first = text.charAt(i);
+    if (first == '0' && end - i > 2) {
+      switch (text.charAt(i + 1)) {
+        case 'x':
+          return scanRadix(text, i + 2, end, 4);
+        case 'o':
+          return scanRadix(text, i + 2, end, 3);
+        case 'b':
+          return scanRadix(text, i + 2, end, 1);
+        default:
+          break;
+      }
+    }
+
+    boolean negative = first == '-';
+    if (negative || first == '+') {
+      i++;
+    }
+
+    // Integer part, accumulated negatively so that Long.MIN_VALUE fits
+    long integer = 0;
+    boolean overflow = false;
+    int integerStart = i;
+    i = skipDigits(text, i, end);
+    if (i < 0) {
+      return NOT_A_NUMBER;
+    }
+    if (i == end) {
+      for (int j = integerStart; j < end; j++) {
+        char ch = text.charAt(j);
+        if (ch == '_') {
+          continue;
+        }
+        int digit = ch - '0';
+        if (integer < Long.MIN_VALUE / 10 || integer * 10 < Long.MIN_VALUE + digit) {
+          overflow = true;
+          break;
+        }
+        integer = integer * 10 - digit;
+      }
+      if (overflow || (!negative && integer == Long.MIN_VALUE)) {
+        throw new ParseException("Integer value out of range: " + text.subSequence(start, end));
+      }
+      longValue = negative ? integer : -integer;
+      return INTEGER;
+    }
+
+    int integerEnd = i;
+    int fractionStart = -1;
+    int fractionEnd = -1;
+    if (text.charAt(i) == '.') {
+      fractionStart = i + 1;
+      i = skipDigits(text, fractionStart, end);
+      if (i < 0) {
+        return NOT_A_NUMBER;
+      }
+      fractionEnd = i;
+    }
+
+    long exponent = 0;
+    if (i < end) {
+      char ch = text.charAt(i);
+      if (ch != 'e' && ch != 'E') {
+        return NOT_A_NUMBER;
+      }
+      i++;
+      boolean negativeExponent = false;
+      if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+        negativeExponent = text.charAt(i) == '-';
+        i++;
+      }
+      int exponentStart = i;
+      i = skipDigits(text, exponentStart, end);
+      if (i != end) {
+        return NOT_A_NUMBER;
+      }
+      for (int j = exponentStart; j < end; j++) {
+        char digit = text.charAt(j);
+        if (digit != '_' && exponent < 100000) {
+          exponent = exponent * 10 + (digit - '0');
+        }
+      }
+      if (negativeExponent) {
+        exponent = -exponent;
+      }
+    }
+
+    // Collect up to 19 significant digits as an unsigned long, adjusting the exponent for the
+    // position of the decimal point
+    long significand = 0;
+    int significantDigits = 0;
+    boolean truncated = false;
+    for (int j = integerStart; j < integerEnd; j++) {
+      char ch = text.charAt(j);
+      if (ch == '_' || (ch == '0' && significantDigits == 0)) {
+        continue;
+      }
+      if (significantDigits < MAX_SIGNIFICANT_DIGITS) {
+        significand = significand * 10 + (ch - '0');
+        significantDigits++;
+      } else {
+        exponent++;
+        truncated |= ch != '0';
+      }
+    }
+    for (int j = fractionStart; j >= 0 && j < fractionEnd; j++) {
+      char ch = text.charAt(j);
+      if (ch == '_') {
+        continue;
+      }
+      if (ch == '0' && significantDigits == 0) {
+        exponent--;
+        continue;
+      }
+      if (significantDigits < MAX_SIGNIFICANT_DIGITS) {
+        significand = significand * 10 + (ch - '0');
+        significantDigits++;
+        exponent--;
+      } else {
+        truncated |= ch != '0';
+      }
+    }
+
+    double value = truncated ? Double.NaN : toDouble(significand, exponent);
+    if (Double.isNaN(value)) {
+      value = Double.parseDouble(withoutUnderscores(text, start, end));
+    } else if (negative) {
+      value = -value;
+    }
+    doubleValue = value;
+    return FLOAT;
+  }
+
+  // Returns the index after a run of digits with single underscores between them, or -1 if the
+  // run is empty or has a misplaced underscore
+  private static int skipDigits(CharSequence text, int i, int end) {
+    int start = i;
+    while (i < end) {
+      char ch = text.charAt(i);
+      if (ch >= '0' && ch <= '9') {
+        i++;
+      } else if (ch == '_' && i > start && i + 1 < end && isDigit(text.charAt(i + 1))) {
+        i++;
+      } else {
+        break;
+      }
+    }
+    return i == start ? -1 : i;
+  }
+
+  private static boolean isDigit(char ch) {
+    return ch >= '0' && ch <= '9';
+  }
+
+  private int scanRadix(CharSequence text, int start, int end, int bitsPerDigit) {
+    long value = 0;
+    int radix = 1 << bitsPerDigit;
+    for (int i = start; i < end; i++) {
+      char ch = text.charAt(i);
+      if (ch == '_' && i > start && i + 1 < end && text.charAt(i + 1) != '_') {
+        continue;
+      }
+
+      int digit = digit(ch);
+      if (digit < 0 || digit >= radix) {
+        return NOT_A_NUMBER;
+      }
+      if (value >>> (63 - bitsPerDigit) != 0) {
+        throw new ParseException(
+            "Integer value out of range: " + text.subSequence(start - 2, end));
+      }
+      value = (value << bitsPerDigit) | digit;
+    }
+
+    longValue = value;
+    return INTEGER;
+  }
+
+  private static int digit(char ch) {
+    if (ch >= '0' && ch <= '9') {
+      return ch - '0';
+    } else if (ch >= 'a' && ch <= 'f') {
+      return ch - 'a' + 10;
+    } else if (ch >= 'A' && ch <= 'F') {
+      return ch - 'A' + 10;
+    }
+    return -1;
+  }
+
+  private static String withoutUnderscores(CharSequence text, int start, int end) {
+    StringBuilder builder = new StringBuilder(end - start);
+    for (int i = start; i < end; i++) {
+      if (text.charAt(i) != '_') {
+        builder.append(text.charAt(i));
+      }
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Returns significand * 10^exponent correctly rounded, where significand is unsigned, or NaN
+   * if it cannot be decided cheaply.
+   */
+  static double toDouble(long significand, long exponent) {
+    if (significand == 0) {
+      return 0.0;
+    }
+
+    // Both operands are exact, so a single rounding gives the right answer
+    if (significand >= 0 && significand <= (1L << 53) && exponent >= -22 && exponent <= 22) {
+      return exponent < 0
+          ? significand / POWERS_OF_TEN[(int) -exponent]
+          : significand * POWERS_OF_TEN[(int) exponent];
+    }
+
+    return eiselLemire(significand, exponent);
+  }
+
+  // After "Number Parsing at a Gigabyte per Second", Lemire 2021, as in fast_float
+  private static double eiselLemire(long w, long q) {
+    if (q < PowersOfFive.SMALLEST_EXPONENT) {
+      return 0.0;
+    }
+    if (q > PowersOfFive.LARGEST_EXPONENT) {
+      return Double.POSITIVE_INFINITY;
+    }
+
+    int lz = Long.numberOfLeadingZeros(w);
+    w <<= lz;
+
+    int index = 2 * (int) (q - PowersOfFive.SMALLEST_EXPONENT);
+    long high = multiplyHigh(w, PowersOfFive.TABLE[index]);
+    long low = w * PowersOfFive.TABLE[index];
+    if ((high & 0x1FF) == 0x1FF) {
+      // The product may be off by one in the bits we keep; refine it with the next 64 bits
+      long secondHigh = multiplyHigh(w, PowersOfFive.TABLE[index + 1]);
+      low += secondHigh;
+      if (unsignedLessThan(low, secondHigh)) {
+        high++;
+      }
+      if (low == -1L && (q < -27 || q > 55)) {
+        return Double.NaN;
+      }
+    }
+
+    int upperBit = (int) (high >>> 63);
+    int shift = upperBit + 64 - 52 - 3;
+    long mantissa = high >>> shift;
+    int power2 = (int) (((152170 + 65536) * q) >> 16) + 63 + upperBit - lz + 1023;
+    if (power2 <= 0) {
+      // Subnormal
+      if (-power2 + 1 >= 64) {
+        return 0.0;
+      }
+      mantissa >>>= -power2 + 1;
+      mantissa += mantissa & 1;
+      mantissa >>>= 1;
+      power2 = mantissa < (1L << 52) ? 0 : 1;
+      return Double.longBitsToDouble(((long) power2 << 52) | (mantissa & ((1L << 52) - 1)));
+    }
+
+    // Round half to even when the value is exactly halfway between two doubles
+    if ((low == 0 || low == 1) && q >= -4 && q <= 23 && (mantissa & 3) == 1
+        && (mantissa << shift) == high) {
+      mantissa &= ~1L;
+    }
+    mantissa += mantissa & 1;
+    mantissa >>>= 1;
+    if (mantissa >= (2L << 52)) {
+      mantissa = 1L << 52;
+      power2++;
+    }
+    if (power2 >= 0x7FF) {
+      return Double.POSITIVE_INFINITY;
+    }
+    return Double.longBitsToDouble(((long) power2 << 52) | (mantissa & ((1L << 52) - 1)));
+  }
+
+  private static boolean unsignedLessThan(long x, long y) {
+    return (x ^ Long.MIN_VALUE) < (y ^ Long.MIN_VALUE);
+  }
+
+  // The high 64 bits of the unsigned 128-bit product of x and y
+  static long multiplyHigh(long x, long y) {
+    long x0 = x & 0xFFFFFFFFL;
+    long x1 = x >>> 32;
+    long y0 = y & 0xFFFFFFFFL;
+    long y1 = y >>> 32;
+    long p11 = x1 * y1;
+    long p01 = x0 * y1;
+    long p10 = x1 * y0;
+    long p00 = x0 * y0;
+    long middle = p10 + (p00 >>> 32) + (p01 & 0xFFFFFFFFL);
+    return p11 + (middle >>> 32) + (p01 >>> 32);
+  }
+
+  /**
+   * The 128-bit truncated significands of 5^q for q from -342 to 308, high word first, computed
+   * the first time a float needs them.
+   */
+  private static class PowersOfFive {
+    static final int SMALLEST_EXPONENT = -342;
+    static final int LARGEST_EXPONENT = 308;
+    static final long[] TABLE = new long[2 * (LARGEST_EXPONENT - SMALLEST_EXPONENT + 1)];
+
+    static {
+      BigInteger two127 = BigInteger.ONE.shiftLeft(127);
+      BigInteger mask = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+      for (int q = SMALLEST_EXPONENT; q <= LARGEST_EXPONENT; q++) {
+        BigInteger significand;
+        if (q < 0) {
+          BigInteger power = BigInteger.valueOf(5).pow(-q);
+          int z = power.bitLength();
+          int b = q >= -27 ? z + 127 : 2 * z + 128;
+          significand = BigInteger.ONE.shiftLeft(b).divide(power).add(BigInteger.ONE);
+        } else {
+          significand = BigInteger.valueOf(5).pow(q);
+          while (significand.compareTo(two127) < 0) {
+            significand = significand.shiftLeft(1);
+          }
+        }
+        int excess = significand.bitLength() - 128;
+        if (excess > 0) {
+          significand = significand.shiftRight(excess);
+        }
+
+        int index = 2 * (q - SMALLEST_EXPONENT);
+        TABLE[index] = significand.shiftRight(64).longValue();
+        TABLE[index + 1] = significand.and(mask).longValue();
+      }
+    }
+  }
+}
@@ -0,0 +1,212 @@
+package io.industrialist.toml4j;
+
+import io.industrialist.toml4j.node.TomlHashNode;
+import io.industrialist.toml4j.node.TomlNode;
+import io.industrialist.toml4j.node.TomlNodeType;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A table merged from the tables at the same path in several layers. A key resolves to the value
+ * in the topmost layer that has it, except that tables are merged with the tables below them,
+ * down to the first layer where the key is not a table. Resolved children are cached until
+ * {@link TomlOverlay#setLayer} invalidates them.
+ */
+final class OverlayNode extends TomlNode {
+  private final Object lock;
+  private final int[] layers;
+  private final ConcurrentMap<String, TomlNode> children =
+      new ConcurrentHashMap<String, TomlNode>();
+  private volatile TomlNode[] parts;
+
+  /**
+   * @param parts the tables being merged, topmost first
+   * @param layers the index of the layer each part comes from
+   */
+  OverlayNode(Object lock, TomlNode[] parts, int[] layers) {
+    this.lock = lock;
+    this.parts = parts;
+    this.layers = layers;
+  }
+
+  @Override
+  public TomlNodeType getNodeType() {
+    return TomlNodeType.HASH;
+  }
+
+  @Override
+  public TomlNode get(String key) {
+    TomlNode child = children.get(key);
+    if (child != null) {
+      return child;
+    }
+
+    synchronized (lock) {
+      child = children.get(key);
+      if (child == null) {
+        child = resolve(key);
+        if (child != null) {
+          children.put(key, child);
+        }
+      }
+      return child;
+    }
+  }
+
+  private TomlNode resolve(String key) {
+    TomlNode[] parts = this.parts;
+    List<TomlNode> tables = null;
+    List<Integer> tableLayers = null;
+    for (int i = 0; i < parts.length; i++) {
+      TomlNode child = parts[i].get(key);
+      if (child == null) {
+        continue;
+      }
+      if (!child.isHash()) {
+        if (tables == null) {
+          return child;
+        }
+        break;
+      }
+
+      if (tables == null) {
+        tables = new ArrayList<TomlNode>(parts.length - i);
+        tableLayers = new ArrayList<Integer>(parts.length - i);
+      }
+      tables.add(child);
+      tableLayers.add(layers[i]);
+    }
+
+    if (tables == null) {
+      return null;
+    }
+    if (tables.size() == 1) {
+      return tables.get(0);
+    }
+
+    int[] childLayers = new int[tableLayers.size()];
+    for (int i = 0; i < childLayers.length; i++) {
+      childLayers[i] = tableLayers.get(i);
+    }
+    return new OverlayNode(lock, tables.toArray(new TomlNode[tables.size()]), childLayers);
+  }
+
+  /**
+   * Replaces the part from {@code layer}, which was {@code oldPart} and is now {@code newPart},
+   * both tables, and drops the cached children that either of them has a value for. Cached
+   * tables that are tables in both are updated in place instead. Called with the lock held.
+   */
+  void replacePart(int layer, TomlNode oldPart, TomlNode newPart) {
+    TomlNode[] replaced = parts.clone();
+    for (int i = 0; i < layers.length; i++) {
+      if (layers[i] == layer) {
+        replaced[i] = newPart;
+      }
+    }
+    parts = replaced;
+
+    Iterator<Map.Entry<String, TomlNode>> entries = children.entrySet().iterator();
+    while (entries.hasNext()) {
+      Map.Entry<String, TomlNode> entry = entries.next();
+      String key = entry.getKey();
+      TomlNode oldChild = oldPart.get(key);
+      TomlNode newChild = newPart.get(key);
+      if (oldChild == null && newChild == null) {
+        continue;
+      }
+
+      TomlNode child = entry.getValue();
+      if (child instanceof OverlayNode && oldChild != null && oldChild.isHash()
+          && newChild != null && newChild.isHash() && ((OverlayNode) child).hasLayer(layer)) {
+        ((OverlayNode) child).replacePart(layer, oldChild, newChild);
+      } else {
+        entries.remove();
+      }
+    }
+  }
+
+  private boolean hasLayer(int layer) {
+    for (int i = 0; i < layers.length; i++) {
+      if (layers[i] == layer) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the number of resolved children cached here and below.
+   */
+  int cachedSize() {
+    int size = 0;
+    for (TomlNode child : children.values()) {
+      size++;
+      if (child instanceof OverlayNode) {
+        size += ((OverlayNode) child).cachedSize();
+      }
+    }
+    return size;
+  }
+
+  // Keys in the order a deep copy of the layers, bottom first, would have them
+  private Set<String> keys() {
+    TomlNode[] parts = this.parts;
+    Set<String> keys = new LinkedHashSet<String>();
+    for (int i = parts.length - 1; i >= 0; i--) {
+      for (Map.Entry<String, TomlNode> field : parts[i].fields()) {
+        keys.add(field.getKey());
+      }
+    }
+    return keys;
+  }
+
+  @Override
+  public int size() {
+    return keys().size();
+  }
+
+  @Override
+  public TomlNode get(int index) {
+    return null;
+  }
+
+  @Override
+  public Iterable<TomlNode> children() {
+    List<TomlNode> values = new ArrayList<TomlNode>();
+    for (String key : keys()) {
+      values.add(get(key));
+    }
+    return values;
+  }
+
+  @Override
+  public Iterable<Map.Entry<String, TomlNode>> fields() {
+    Map<String, TomlNode> fields = new LinkedHashMap<String, TomlNode>();
+    for (String key : keys()) {
+      fields.put(key, get(key));
+    }
+    return fields.entrySet();
+  }
+
+  @Override
+  public String asStringValue() {
+    return "";
+  }
+
+  @Override
+  public String toString() {
+    TomlHashNode hashNode = new TomlHashNode();
+    for (Map.Entry<String, TomlNode> field : fields()) {
+      hashNode.put(field.getKey(), field.getValue());
+    }
+    return hashNode.toString();
+  }
+}
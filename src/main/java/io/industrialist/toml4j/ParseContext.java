@@ -0,0 +1,122 @@
+package io.industrialist.toml4j;
+
+import io.industrialist.toml4j.node.TomlNodeType;
+
+/**
+ * The state shared by the stages of a single parse: metrics, limits and the position reached.
+ */
+class ParseContext {
+  MetricsCollector metrics;
+  TomlLimits limits;
+  private long lineNumber;
+  private long lineOffset = -1;
+  private long nodeCount;
+  private long keyStart;
+  private long keyEnd;
+  private long valueStart;
+  private long valueEnd;
+
+  ParseContext(MetricsCollector metrics, TomlLimits limits) {
+    this.metrics = metrics;
+    this.limits = limits;
+  }
+
+  /**
+   * Prepares this context for another parse.
+   */
+  void reset(MetricsCollector metrics, TomlLimits limits) {
+    this.metrics = metrics;
+    this.limits = limits;
+    lineNumber = 0;
+    lineOffset = -1;
+    nodeCount = 0;
+  }
+
+  long getLineNumber() {
+    return lineNumber;
+  }
+
+  /**
+   * Returns the byte offset of the current line within the UTF-8 encoded document, or -1 if
+   * offsets are not being tracked.
+   */
+  long getLineOffset() {
+    return lineOffset;
+  }
+
+  void nextLine() {
+    lineNumber++;
+  }
+
+  void nextLine(long lineOffset) {
+    lineNumber++;
+    this.lineOffset = lineOffset;
+  }
+
+  /**
+   * Records the byte ranges of the key and the value about to be reported, when offsets are
+   * being tracked.
+   */
+  void markKeyValue(long keyStart, long keyEnd, long valueStart, long valueEnd) {
+    this.keyStart = keyStart;
+    this.keyEnd = keyEnd;
+    this.valueStart = valueStart;
+    this.valueEnd = valueEnd;
+  }
+
+  long getKeyStart() {
+    return keyStart;
+  }
+
+  long getKeyEnd() {
+    return keyEnd;
+  }
+
+  long getValueStart() {
+    return valueStart;
+  }
+
+  long getValueEnd() {
+    return valueEnd;
+  }
+
+  void countNode(TomlNodeType nodeType) {
+    metrics.countNode(nodeType);
+    nodeCount++;
+    checkNodeCount(0);
+  }
+
+  /**
+   * Checks that {@code pendingNodes} more nodes would still fit in the document.
+   */
+  void checkNodeCount(long pendingNodes) {
+    if (nodeCount + pendingNodes > limits.getMaxNodeCount()) {
+      throw limitExceeded("Document has more than " + limits.getMaxNodeCount() + " nodes");
+    }
+  }
+
+  void checkNestingDepth(int depth) {
+    if (depth > limits.getMaxNestingDepth()) {
+      throw limitExceeded(
+          "Nesting is deeper than the maximum of " + limits.getMaxNestingDepth() + " levels");
+    }
+  }
+
+  void checkArrayLength(long length) {
+    if (length > limits.getMaxArrayLength()) {
+      throw limitExceeded(
+          "Array has more than the maximum of " + limits.getMaxArrayLength() + " elements");
+    }
+  }
+
+  void checkStringLength(long length) {
+    if (length > limits.getMaxStringLength()) {
+      throw limitExceeded(
+          "String is longer than the maximum of " + limits.getMaxStringLength() + " characters");
+    }
+  }
+
+  ParseException limitExceeded(String message) {
+    return new ParseException("Line " + lineNumber + ": " + message);
+  }
+}
@@ -0,0 +1,100 @@
+package io.industrialist.toml4j;
+
+/**
+ * The set of key paths to keep when parsing with {@link TomlParser#parse(String, Projection)}.
+ * Each path is a dotted key such as {@code "server.port"} and keeps that node together with
+ * everything below it; a trailing {@code ".*"} is accepted and means the same thing. Tables that
+ * lie outside every path are skipped without parsing their values.
+ */
+public class Projection {
+  enum Match {
+    /** The table and everything below it is selected. */
+    ALL,
+    /** The table lies on the way to a selected path, so only some of its keys are selected. */
+    PARTIAL,
+    /** Nothing in or below the table is selected. */
+    NONE
+  }
+
+  private final String[][] paths;
+
+  private Projection(String[][] paths) {
+    this.paths = paths;
+  }
+
+  public static Projection of(String... paths) {
+    if (paths == null) {
+      throw new NullPointerException("paths: null");
+    }
+
+    String[][] splitPaths = new String[paths.length][];
+    for (int i = 0; i < paths.length; i++) {
+      String path = paths[i];
+      if (path == null) {
+        throw new NullPointerException("path: null");
+      }
+      if (path.endsWith(".*")) {
+        path = path.substring(0, path.length() - 2);
+      }
+      if (path.length() == 0) {
+        throw new IllegalArgumentException("Empty path in projection");
+      }
+      splitPaths[i] = path.split("\\.");
+    }
+
+    return new Projection(splitPaths);
+  }
+
+  Match match(String[] tableKeys) {
+    Match match = Match.NONE;
+    for (String[] path : paths) {
+      int common = Math.min(path.length, tableKeys.length);
+      if (!startsWith(path, tableKeys, common)) {
+        continue;
+      }
+
+      if (path.length <= tableKeys.length) {
+        return Match.ALL;
+      }
+      match = Match.PARTIAL;
+    }
+
+    return match;
+  }
+
+  /**
+   * Returns whether {@code key} is selected within a table that {@link #match} found to be
+   * {@link Match#PARTIAL}.
+   */
+  boolean selects(String[] tableKeys, String key) {
+    for (String[] path : paths) {
+      if (path.length == tableKeys.length + 1 && path[tableKeys.length].equals(key)
+          && startsWith(path, tableKeys, tableKeys.length)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  private static boolean startsWith(String[] path, String[] keys, int length) {
+    for (int i = 0; i < length; i++) {
+      if (!path[i].equals(keys[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder projectionBuilder = new StringBuilder("Projection[");
+    for (int i = 0; i < paths.length; i++) {
+      if (i > 0) {
+        projectionBuilder.append(", ");
+      }
+      projectionBuilder.append(TomlTreeBuilder.join(paths[i]));
+    }
+    return projectionBuilder.append("]").toString();
+  }
+}
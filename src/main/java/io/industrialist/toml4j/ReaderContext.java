@@ -0,0 +1,90 @@
+package io.industrialist.toml4j;
+
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * The reusable parts of a parse: the line splitter and line parser with their scratch builders
+ * and matchers, and the byte and char buffers input is read through. One is kept per thread, so
+ * that repeated parses only allocate the lines they read and the tree they build.
+ */
+class ReaderContext {
+  static final int BUFFER_SIZE = 8192;
+
+  // Softly referenced so that idle threads give the buffers back under memory pressure
+  private static final ThreadLocal<SoftReference<ReaderContext>> CONTEXTS =
+      new ThreadLocal<SoftReference<ReaderContext>>();
+
+  final ParseContext parseContext;
+  final LineSplitter lineSplitter;
+  final TomlLineParser lineParser;
+  final ByteBuffer byteBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+  final CharBuffer charBuffer = CharBuffer.allocate(BUFFER_SIZE);
+  private final MetricsCollector untimedMetrics = new MetricsCollector(false);
+  private CharsetDecoder decoder;
+  private boolean inUse;
+
+  private ReaderContext() {
+    this.parseContext = new ParseContext(untimedMetrics, TomlLimits.UNLIMITED);
+    this.lineParser = new TomlLineParser(null, parseContext);
+    this.lineSplitter = new LineSplitter(lineParser, parseContext);
+  }
+
+  /**
+   * Returns this thread's context, prepared for a new parse, or a new one if it is already in
+   * use further up the stack. The caller then resets {@link #lineParser} with its listener, and
+   * calls {@link #release()} when the parse is over.
+   */
+  static ReaderContext acquire(TomlLimits limits, TomlMetricsListener metricsListener) {
+    SoftReference<ReaderContext> reference = CONTEXTS.get();
+    ReaderContext context = reference == null ? null : reference.get();
+    if (context == null) {
+      context = new ReaderContext();
+      CONTEXTS.set(new SoftReference<ReaderContext>(context));
+    } else if (context.inUse) {
+      context = new ReaderContext();
+    }
+
+    context.inUse = true;
+    context.reset(limits, metricsListener);
+    return context;
+  }
+
+  /**
+   * Returns a decoder for the platform's default charset, as used by
+   * {@link java.io.InputStreamReader}, reset for a new stream.
+   */
+  CharsetDecoder decoder() {
+    Charset charset = Charset.defaultCharset();
+    if (decoder == null || !decoder.charset().equals(charset)) {
+      decoder = charset.newDecoder()
+          .onMalformedInput(CodingErrorAction.REPLACE)
+          .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+    return decoder.reset();
+  }
+
+  void release() {
+    // Don't hold on to the listener and, through it, the tree that was built
+    lineParser.reset(null, null);
+    inUse = false;
+  }
+
+  private void reset(TomlLimits limits, TomlMetricsListener metricsListener) {
+    MetricsCollector metrics;
+    if (metricsListener == TomlMetricsListener.NO_OP) {
+      metrics = untimedMetrics;
+      metrics.reset();
+    } else {
+      metrics = MetricsCollector.forListener(metricsListener);
+    }
+    parseContext.reset(metrics, limits);
+    lineSplitter.reset();
+    byteBuffer.clear();
+    charBuffer.clear();
+  }
+}
@@ -1,101 +1,247 @@
 package io.industrialist.toml4j;
 
 public class StringUtils {
+  /**
+   * Returns {@code value} with the characters TOML requires escaped. A value with nothing to
+   * escape is returned as is, without copying.
+   */
   public static String escapeString(String value) {
-    StringBuilder unescapedStringBuilder = new StringBuilder();
-    for (int i = 0; i < value.length(); i++) {
+    int first = indexOfCharToEscape(value, 0);
+    if (first == -1) {
+      return value;
+    }
+
+    StringBuilder escapedStringBuilder = new StringBuilder(value.length() + 16);
+    escapedStringBuilder.append(value, 0, first);
+    escape(value, first, escapedStringBuilder);
+    return escapedStringBuilder.toString();
+  }
+
+  /**
+   * Appends {@code value} to {@code out} with the characters TOML requires escaped.
+   */
+  public static void escapeString(CharSequence value, StringBuilder out) {
+    int first = indexOfCharToEscape(value, 0);
+    if (first == -1) {
+      out.append(value);
+      return;
+    }
+
+    out.append(value, 0, first);
+    escape(value, first, out);
+  }
+
+  private static int indexOfCharToEscape(CharSequence value, int start) {
+    for (int i = start; i < value.length(); i++) {
+      char character = value.charAt(i);
+      if (character == '"' || character == '\\' || character < 0x20 && needsEscape(character)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean needsEscape(char character) {
+    switch (character) {
+      case '\u0008':
+      case '\t':
+      case '\n':
+      case '\f':
+      case '\r':
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private static void escape(CharSequence value, int start, StringBuilder out) {
+    for (int i = start; i < value.length(); i++) {
       char character = value.charAt(i);
       switch (character) {
         case '\u0008':
-          unescapedStringBuilder.append("\\b");
+          out.append("\\b");
           break;
         case '\t':
-          unescapedStringBuilder.append("\\t");
+          out.append("\\t");
           break;
         case '\n':
-          unescapedStringBuilder.append("\\n");
+          out.append("\\n");
           break;
         case '\f':
-          unescapedStringBuilder.append("\\f");
+          out.append("\\f");
           break;
         case '\r':
-          unescapedStringBuilder.append("\\r");
+          out.append("\\r");
           break;
         case '\"':
-          unescapedStringBuilder.append("\\\"");
+          out.append("\\\"");
           break;
         case '\\':
-          unescapedStringBuilder.append("\\\\");
+          out.append("\\\\");
           break;
         default:
-          unescapedStringBuilder.append(character);
+          out.append(character);
       }
     }
+  }
+
+  /**
+   * Returns {@code value} with its escape sequences decoded. A value without escape sequences is
+   * returned as is, without copying.
+   */
+  public static String unescapeString(String value) {
+    int first = value.indexOf('\\');
+    if (first == -1) {
+      return value;
+    }
 
+    StringBuilder unescapedStringBuilder = new StringBuilder(value.length());
+    unescape(value, 0, value.length(), unescapedStringBuilder);
     return unescapedStringBuilder.toString();
   }
 
-  public static String unescapeString(String value) {
-    StringBuilder unescapedStringBuilder = new StringBuilder();
-    for (int i = 0; i < value.length(); i++) {
-      char character = value.charAt(i);
-      if (character == '\\') {
-        i++; // Advance to character following escape character
-        if (i < value.length()) {
-          character = value.charAt(i);
-          switch (character) {
-            case 'b':
-              unescapedStringBuilder.append('\u0008');
-              break;
-            case 't':
-              unescapedStringBuilder.append('\t');
-              break;
-            case 'n':
-              unescapedStringBuilder.append('\n');
-              break;
-            case 'f':
-              unescapedStringBuilder.append('\f');
-              break;
-            case 'r':
-              unescapedStringBuilder.append('\r');
-              break;
-            case '"':
-              unescapedStringBuilder.append('\"');
-              break;
-            case '/':
-              unescapedStringBuilder.append('/');
-              break;
-            case '\\':
-              unescapedStringBuilder.append('\\');
-              break;
-            case 'u':
-              i++; // Advance to the start of the unicode code point.
-              int codePoint = readUnicodeCodePoint(value, i);
-              if (Character.isISOControl(codePoint)) {
-                throw new ParseException(
-                    "String value contains invalid unicode characters (control characters): "
-                        + value);
-              }
-              unescapedStringBuilder.append(Character.toChars(codePoint));
-              i += 3; // Advance to the end of the unicode code point.
-              break;
-            default:
-              throw new ParseException(
-                  "String value contains an invalid escape sequence: " + value);
+  /**
+   * Returns the characters of {@code source} from {@code start} to {@code end} with their escape
+   * sequences decoded.
+   */
+  public static String unescapeString(String source, int start, int end) {
+    int first = source.indexOf('\\', start);
+    if (first == -1 || first >= end) {
+      return source.substring(start, end);
+    }
+
+    StringBuilder unescapedStringBuilder = new StringBuilder(end - start);
+    unescape(source, start, end, unescapedStringBuilder);
+    return unescapedStringBuilder.toString();
+  }
+
+  /**
+   * Appends the characters of {@code source} from {@code start} to {@code end} to {@code out},
+   * with their escape sequences decoded.
+   */
+  public static void unescapeString(CharSequence source, int start, int end, StringBuilder out) {
+    unescape(source, start, end, out);
+  }
+
+  private static void unescape(CharSequence source, int start, int end, StringBuilder out) {
+    int chunkStart = start;
+    for (int i = start; i < end; i++) {
+      if (source.charAt(i) != '\\') {
+        continue;
+      }
+
+      out.append(source, chunkStart, i);
+      i++; // Advance to character following escape character
+      if (i >= end) {
+        throw invalidEscape(source, start, end);
+      }
+
+      switch (source.charAt(i)) {
+        case 'b':
+          out.append('\u0008');
+          break;
+        case 't':
+          out.append('\t');
+          break;
+        case 'n':
+          out.append('\n');
+          break;
+        case 'f':
+          out.append('\f');
+          break;
+        case 'r':
+          out.append('\r');
+          break;
+        case '"':
+          out.append('\"');
+          break;
+        case '/':
+          out.append('/');
+          break;
+        case '\\':
+          out.append('\\');
+          break;
+        case 'u':
+          int codePoint = readUnicodeCodePoint(source, i + 1, end);
+          if (codePoint < 0) {
+            throw invalidEscape(source, start, end);
           }
-        } else {
-          throw new ParseException("String value contains an invalid escape sequence: " + value);
-        }
-      } else {
-        unescapedStringBuilder.append(character);
+          if (Character.isISOControl(codePoint)) {
+            throw new ParseException(
+                "String value contains invalid unicode characters (control characters): "
+                    + source.subSequence(start, end));
+          }
+          out.append((char) codePoint);
+          i += 4; // Advance to the end of the unicode code point.
+          break;
+        default:
+          throw invalidEscape(source, start, end);
       }
+      chunkStart = i + 1;
     }
 
-    return unescapedStringBuilder.toString();
+    out.append(source, chunkStart, end);
+  }
+
+  // Decodes the four hex digits at index, or returns -1 if there aren't four
+  private static int readUnicodeCodePoint(CharSequence source, int index, int end) {
+    if (end - index < 4) {
+      return -1;
+    }
+
+    int codePoint = 0;
+    for (int i = index; i < index + 4; i++) {
+      int digit = hexDigit(source.charAt(i));
+      if (digit < 0) {
+        return -1;
+      }
+      codePoint = (codePoint << 4) | digit;
+    }
+    return codePoint;
+  }
+
+  private static int hexDigit(char character) {
+    if (character >= '0' && character <= '9') {
+      return character - '0';
+    } else if (character >= 'a' && character <= 'f') {
+      return character - 'a' + 10;
+    } else if (character >= 'A' && character <= 'F') {
+      return character - 'A' + 10;
+    }
+    return -1;
   }
 
-  private static int readUnicodeCodePoint(String value, int startIndex) {
-    String hexValue = value.substring(startIndex, startIndex + 4);
-    return Integer.parseInt(hexValue, 16);
+  private static ParseException invalidEscape(CharSequence source, int start, int end) {
+    return new ParseException(
+        "String value contains an invalid escape sequence: " + source.subSequence(start, end));
+  }
+
+  /**
+   * Returns the number of bytes {@code value} takes up when encoded as UTF-8.
+   */
+  public static long utf8Length(CharSequence value) {
+    return utf8Length(value, 0, value.length());
+  }
+
+  /**
+   * Returns the number of bytes the characters from {@code start} to {@code end} take in UTF-8.
+   */
+  public static long utf8Length(CharSequence value, int start, int end) {
+    long length = 0;
+    for (int i = start; i < end; i++) {
+      char character = value.charAt(i);
+      if (character < 0x80) {
+        length++;
+      } else if (character < 0x800) {
+        length += 2;
+      } else if (Character.isHighSurrogate(character) && i + 1 < end
+          && Character.isLowSurrogate(value.charAt(i + 1))) {
+        length += 4;
+        i++;
+      } else {
+        length += 3;
+      }
+    }
+    return length;
   }
 }
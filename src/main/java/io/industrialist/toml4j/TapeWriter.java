@@ -0,0 +1,119 @@
+package io.industrialist.toml4j;
+
+import io.industrialist.toml4j.node.TomlNode;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Appends values to a growing tape and character store, in the layout {@link TomlTape} reads.
+ */
+final class TapeWriter {
+  long[] tape = new long[64];
+  int length;
+  private char[] chars = new char[256];
+  private int charLength;
+  private final Map<String, Integer> keyOffsets = new HashMap<String, Integer>();
+
+  /**
+   * Returns the offset of {@code key} in the character store, adding it the first time it is
+   * seen.
+   */
+  int key(String key) {
+    Integer offset = keyOffsets.get(key);
+    if (offset == null) {
+      offset = writeText(key);
+      keyOffsets.put(key, offset);
+    }
+    return offset;
+  }
+
+  void writeValue(TomlNode node) {
+    switch (node.getNodeType()) {
+      case STRING:
+        append(TomlTape.word(TomlTape.STRING, writeText(node.stringValue())));
+        break;
+      case DATETIME:
+        append(TomlTape.word(TomlTape.DATETIME, writeText(node.asStringValue())));
+        break;
+      case INTEGER:
+        long value = node.longValue();
+        if (value >= TomlTape.MIN_INLINE_INTEGER && value <= TomlTape.MAX_INLINE_INTEGER) {
+          append(TomlTape.word(TomlTape.INTEGER, value));
+        } else {
+          append(TomlTape.word(TomlTape.LONG, 0));
+          append(value);
+        }
+        break;
+      case FLOAT:
+        append(TomlTape.word(TomlTape.FLOAT, 0));
+        append(Double.doubleToRawLongBits(node.doubleValue()));
+        break;
+      case BOOLEAN:
+        append(TomlTape.word(TomlTape.BOOLEAN, node.booleanValue() ? 1 : 0));
+        break;
+      case HASH:
+        int hashStart = startContainer(TomlTape.HASH);
+        for (Map.Entry<String, TomlNode> field : node.fields()) {
+          append(TomlTape.word(TomlTape.KEY, key(field.getKey())));
+          writeValue(field.getValue());
+        }
+        endContainer(hashStart, node.size());
+        break;
+      default:
+        int arrayStart = startContainer(
+            node.isArray() ? TomlTape.ARRAY : TomlTape.ARRAY_OF_TABLES);
+        for (TomlNode child : node.children()) {
+          writeValue(child);
+        }
+        endContainer(arrayStart, node.size());
+    }
+  }
+
+  /**
+   * Appends the header of a container, returning its position for {@link #endContainer}.
+   */
+  int startContainer(int tag) {
+    int start = length;
+    append(TomlTape.word(tag, 0));
+    append(0);
+    return start;
+  }
+
+  void endContainer(int start, int count) {
+    tape[start] = TomlTape.word(TomlTape.tag(tape[start]), length - start);
+    tape[start + 1] = count;
+  }
+
+  void append(long word) {
+    if (length == tape.length) {
+      tape = Arrays.copyOf(tape, length * 2);
+    }
+    tape[length++] = word;
+  }
+
+  private int writeText(String text) {
+    int offset = charLength;
+    int required = offset + 2 + text.length();
+    if (required > chars.length) {
+      chars = Arrays.copyOf(chars, Math.max(required, chars.length * 2));
+    }
+    chars[offset] = (char) (text.length() >>> 16);
+    chars[offset + 1] = (char) text.length();
+    text.getChars(0, text.length(), chars, offset + 2);
+    charLength = required;
+    return offset;
+  }
+
+  TomlTape toTape() {
+    return toTape(Arrays.copyOf(tape, length));
+  }
+
+  /**
+   * Returns {@code tape}, whose text is in this writer's character store, as a {@link TomlTape}.
+   */
+  TomlTape toTape(long[] tape) {
+    return new TomlTape(tape, Arrays.copyOf(chars, charLength));
+  }
+}
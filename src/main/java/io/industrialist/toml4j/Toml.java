@@ -1,7 +1,5 @@
 package io.industrialist.toml4j;
 
-import io.industrialist.toml4j.node.TomlArrayNode;
-import io.industrialist.toml4j.node.TomlHashNode;
 import io.industrialist.toml4j.node.TomlNode;
 
 import io.industrialist.toml4j.node.TomlStringNode;
@@ -15,12 +13,39 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 public class Toml {
+  // The parser keeps no state between parses, and reuses its buffers per thread
+  private static final TomlParser PARSER = new TomlParser();
+
   private final TomlNode rootNode;
+  // Every node reachable through tables by its full dotted key, once frozen, shared with the key
+  // groups taken from the document
+  private final Map<String, TomlNode> paths;
+  // Counts the keys read, if tracked, by their full key
+  private final TomlAccessTracker tracker;
+  // The full key of this key group, if tracked or frozen
+  private final String keyGroup;
+  // Set for views whose strings belong to other documents, such as an overlay's
+  private final boolean readOnly;
+
+  Toml(TomlNode tomlNode) {
+    this(tomlNode, false);
+  }
 
-  private Toml(TomlNode tomlNode) {
+  Toml(TomlNode tomlNode, boolean readOnly) {
+    this(tomlNode, null, null, null, readOnly);
+  }
+
+  private Toml(
+      TomlNode tomlNode, Map<String, TomlNode> paths, TomlAccessTracker tracker,
+      String keyGroup, boolean readOnly) {
     this.rootNode = tomlNode;
+    this.paths = paths;
+    this.tracker = tracker;
+    this.keyGroup = keyGroup;
+    this.readOnly = readOnly;
   }
 
   public static Toml from(TomlNode tomlNode) {
@@ -35,7 +60,7 @@ public class Toml {
       throw new NullPointerException("tomlInputStream: null");
     }
 
-    TomlNode tomlNode = new TomlParser().parse(tomlInputStream);
+    TomlNode tomlNode = PARSER.parse(tomlInputStream);
     return new Toml(tomlNode);
   }
 
@@ -44,10 +69,69 @@ public class Toml {
       throw new NullPointerException("tomlString: null");
     }
 
-    TomlNode tomlNode = new TomlParser().parse(tomlString);
+    TomlNode tomlNode = PARSER.parse(tomlString);
     return new Toml(tomlNode);
   }
 
+  /**
+   * Returns a merged view of {@code layers}, the last on top: its values override the ones
+   * below, and tables are merged key by key. Nothing is copied, see {@link TomlOverlay}.
+   */
+  public static TomlOverlay overlay(Toml... layers) {
+    if (layers == null) {
+      throw new NullPointerException("layers: null");
+    }
+    return TomlOverlay.of(layers);
+  }
+
+  TomlNode getRootNode() {
+    return rootNode;
+  }
+
+  /**
+   * Returns an immutable copy of this document, see {@link TomlNode#freeze()}. The dotted keys of
+   * its tables and values are indexed as well, so that each is looked up in one step. The copy
+   * can be shared between threads without synchronization.
+   */
+  public Toml freeze() {
+    if (paths != null) {
+      return this;
+    }
+
+    TomlNode frozenNode = rootNode.freeze();
+    Map<String, TomlNode> paths = new HashMap<String, TomlNode>();
+    indexPaths(frozenNode, keyGroup == null ? "" : keyGroup + ".", paths);
+    return new Toml(frozenNode, paths, tracker, keyGroup, readOnly);
+  }
+
+  /**
+   * Returns this document with every key read from it, and from its key groups, counted by
+   * {@code tracker}. Nothing is copied, and documents that are not tracked count nothing.
+   */
+  public Toml withTracker(TomlAccessTracker tracker) {
+    if (tracker == null) {
+      throw new NullPointerException("tracker: null");
+    }
+    return new Toml(rootNode, paths, tracker, keyGroup, readOnly);
+  }
+
+  // Keys that are empty or hold a dot cannot be reached through a dotted key, so they are left to
+  // get(String) to walk to
+  private static void indexPaths(TomlNode hashNode, String prefix, Map<String, TomlNode> paths) {
+    for (Map.Entry<String, TomlNode> field : hashNode.fields()) {
+      String key = field.getKey();
+      if (key.length() == 0 || key.indexOf('.') >= 0) {
+        continue;
+      }
+
+      String path = prefix + key;
+      paths.put(path, field.getValue());
+      if (field.getValue().isHash()) {
+        indexPaths(field.getValue(), path + ".", paths);
+      }
+    }
+  }
+
   public void writeTo(File file) throws IOException {
     if (file == null) {
       throw new NullPointerException("file: null");
@@ -89,6 +173,10 @@ public class Toml {
       throw new IllegalArgumentException("Matching value of key '" + old + "' is not a String");
     }
 
+    if (readOnly || !(stringNode instanceof TomlStringNode)) {
+      throw new UnsupportedOperationException("Matching value of key '" + old + "' is read-only");
+    }
+
     TomlStringNode newStringNode = (TomlStringNode) stringNode;
 
     newStringNode.setString(replacement);
@@ -187,6 +275,71 @@ public class Toml {
     return list;
   }
 
+  /**
+   * Returns a read-only view of the array at {@code key}. Unlike {@link #getList(String)} nothing
+   * is copied: elements are converted as they are read, nested arrays and tables are views too.
+   */
+  public List<Object> getListView(String key) {
+    TomlNode arrayNode = get(key);
+
+    if (arrayNode == null) {
+      return null;
+    }
+
+    if (!arrayNode.isArray() && !arrayNode.isArrayOfTables()) {
+      throw new IllegalArgumentException("Matching value of key '" + key + "' is not an Array");
+    }
+
+    return new TomlViews.ListView(arrayNode);
+  }
+
+  /**
+   * Returns a read-only view of the table at {@code key}. Nothing is copied: values are converted
+   * as they are read, nested arrays and tables are views too.
+   */
+  public Map<String, Object> getMapView(String key) {
+    TomlNode hashNode = get(key);
+
+    if (hashNode == null) {
+      return null;
+    }
+
+    if (!hashNode.isHash()) {
+      throw new IllegalArgumentException("Matching value of key '" + key + "' is not a Table");
+    }
+
+    return new TomlViews.MapView(hashNode);
+  }
+
+  /**
+   * Returns a sequential stream of the elements of the array, or of the tables of the array of
+   * tables, at {@code key}.
+   */
+  public Stream<TomlNode> stream(String key) {
+    TomlNode arrayNode = getArray(key);
+    return arrayNode == null ? null : arrayNode.stream();
+  }
+
+  /**
+   * Returns a parallel stream of the elements of the array, or of the tables of the array of
+   * tables, at {@code key}, which is split in halves between the threads of the common
+   * fork/join pool.
+   */
+  public Stream<TomlNode> parallelStream(String key) {
+    TomlNode arrayNode = getArray(key);
+    return arrayNode == null ? null : arrayNode.parallelStream();
+  }
+
+  private TomlNode getArray(String key) {
+    TomlNode arrayNode = get(key);
+
+    if (arrayNode != null && !arrayNode.isArray() && !arrayNode.isArrayOfTables()) {
+      throw new IllegalArgumentException("Matching value of key '" + key + "' is not an Array");
+    }
+
+    return arrayNode;
+  }
+
   public Toml getKeyGroup(String keyGroup) {
     TomlNode keyGroupNode = get(keyGroup);
 
@@ -198,10 +351,28 @@ public class Toml {
       throw new IllegalArgumentException("Invalid keygroup: " + keyGroup);
     }
 
-    return new Toml(keyGroupNode);
+    if (tracker == null && paths == null) {
+      return new Toml(keyGroupNode, readOnly);
+    }
+    return new Toml(keyGroupNode, paths, tracker, fullKey(keyGroup), readOnly);
+  }
+
+  private String fullKey(String key) {
+    return keyGroup == null ? key : new StringBuilder(keyGroup).append('.').append(key).toString();
   }
 
   private TomlNode get(String key) {
+    String fullKey = tracker != null || paths != null ? fullKey(key) : key;
+    if (tracker != null) {
+      tracker.record(fullKey);
+    }
+
+    if (paths != null) {
+      TomlNode pathNode = paths.get(fullKey);
+      if (pathNode != null || !hasEmptyKeyPart(fullKey)) {
+        return pathNode;
+      }
+    }
 
     TomlNode foundNode = null;
 
@@ -223,11 +394,13 @@ public class Toml {
     return foundNode;
   }
 
-  private List<Object> getAsList(TomlNode node) {
-    TomlArrayNode arrayNode = (TomlArrayNode) node;
+  private static boolean hasEmptyKeyPart(String key) {
+    return key.length() == 0 || key.startsWith(".") || key.endsWith(".") || key.contains("..");
+  }
 
+  private List<Object> getAsList(TomlNode node) {
     List<Object> list = new ArrayList<Object>();
-    for (TomlNode arrayValueNode : arrayNode.children()) {
+    for (TomlNode arrayValueNode : node.children()) {
       list.add(getValue(arrayValueNode));
     }
 
@@ -235,10 +408,8 @@ public class Toml {
   }
 
   private Map<String, Object> getAsMap(TomlNode node) {
-    TomlHashNode hashNode = (TomlHashNode) node;
-
     Map<String, Object> map = new HashMap<String, Object>();
-    for (Map.Entry<String, TomlNode> field : hashNode.fields()) {
+    for (Map.Entry<String, TomlNode> field : node.fields()) {
       map.put(field.getKey(), getValue(field.getValue()));
     }
 
@@ -0,0 +1,119 @@
+package io.industrialist.toml4j;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how often each key of a document is read, to find the configuration that is never read
+ * and the keys worth looking up faster. Reads are counted once a document is tracked with
+ * {@link Toml#withTracker(TomlAccessTracker)}:
+ *
+ * <pre>
+ * TomlAccessTracker tracker = new TomlAccessTracker();
+ * Toml config = Toml.from(configText).withTracker(tracker);
+ * ...
+ * List&lt;Map.Entry&lt;String, Long&gt;&gt; hottest = tracker.getHottest(10);
+ * </pre>
+ *
+ * Keys read through a key group are counted by their full dotted key, and keys that are not in
+ * the document are counted too. Each key has a counter of its own, striped across threads, so
+ * that threads reading the same key do not contend with each other. Instances are thread safe and
+ * may be shared by any number of documents.
+ */
+public final class TomlAccessTracker {
+  private static final Comparator<Map.Entry<String, Long>> HOTTEST_FIRST =
+      new Comparator<Map.Entry<String, Long>>() {
+        @Override
+        public int compare(Map.Entry<String, Long> a, Map.Entry<String, Long> b) {
+          int byCount = b.getValue().compareTo(a.getValue());
+          return byCount != 0 ? byCount : a.getKey().compareTo(b.getKey());
+        }
+      };
+
+  private final ConcurrentHashMap<String, LongAdder> counts =
+      new ConcurrentHashMap<String, LongAdder>();
+
+  void record(String key) {
+    // Looked up first, since adding locks the bin even when the key is there already
+    LongAdder count = counts.get(key);
+    if (count == null) {
+      LongAdder added = new LongAdder();
+      count = counts.putIfAbsent(key, added);
+      if (count == null) {
+        count = added;
+      }
+    }
+    count.increment();
+  }
+
+  /**
+   * Returns the number of times {@code key} has been read.
+   */
+  public long getCount(String key) {
+    if (key == null) {
+      throw new NullPointerException("key: null");
+    }
+    LongAdder count = counts.get(key);
+    return count == null ? 0 : count.sum();
+  }
+
+  /**
+   * Returns the number of times each key has been read, for the keys read at least once.
+   * Reads made while the counts are taken may or may not be included.
+   */
+  public Map<String, Long> getCounts() {
+    Map<String, Long> snapshot = new HashMap<String, Long>(counts.size() * 2);
+    for (Map.Entry<String, LongAdder> count : counts.entrySet()) {
+      snapshot.put(count.getKey(), count.getValue().sum());
+    }
+    return snapshot;
+  }
+
+  /**
+   * Returns the {@code n} keys read most often with their counts, the most often read first, and
+   * keys read as often in alphabetical order.
+   */
+  public List<Map.Entry<String, Long>> getHottest(int n) {
+    if (n < 0) {
+      throw new IllegalArgumentException("n: " + n);
+    }
+    if (n == 0) {
+      return Collections.emptyList();
+    }
+
+    // Holds the n hottest seen so far, the coldest of them at the head. It is sized by the keys
+    // there are, as n may be Integer.MAX_VALUE to ask for all of them.
+    int capacity = Math.max(1, Math.min(n, counts.size()));
+    PriorityQueue<Map.Entry<String, Long>> hottest = new PriorityQueue<Map.Entry<String, Long>>(
+        capacity, Collections.reverseOrder(HOTTEST_FIRST));
+    for (Map.Entry<String, LongAdder> count : counts.entrySet()) {
+      Map.Entry<String, Long> entry = new AbstractMap.SimpleImmutableEntry<String, Long>(
+          count.getKey(), count.getValue().sum());
+      if (hottest.size() < n) {
+        hottest.add(entry);
+      } else if (HOTTEST_FIRST.compare(entry, hottest.peek()) < 0) {
+        hottest.poll();
+        hottest.add(entry);
+      }
+    }
+
+    List<Map.Entry<String, Long>> report = new ArrayList<Map.Entry<String, Long>>(hottest);
+    Collections.sort(report, HOTTEST_FIRST);
+    return report;
+  }
+
+  /**
+   * Forgets every count.
+   */
+  public void reset() {
+    counts.clear();
+  }
+}
@@ -0,0 +1,364 @@
+package io.industrialist.toml4j;
+
+import io.industrialist.toml4j.node.TomlNode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends entries to the array of tables at the end of a file, such as a log of
+ * {@code [[events]]}, without reading or rewriting what the file already holds:
+ *
+ * <pre>
+ * TomlAppender appender = TomlAppender.open(file, "events", SyncPolicy.everyRecords(100));
+ * try {
+ *   appender.append(new TomlHashNode().put("id", 1).put("code", 200));
+ *   ...
+ * } finally {
+ *   appender.close();
+ * }
+ * </pre>
+ *
+ * Each entry is encoded on the calling thread and written to the file with a single write, in
+ * append mode, so entries from different threads never interleave. The {@link SyncPolicy}
+ * decides how often what has been written is forced to the disk. Threads that wait for the same
+ * force share it: one forces every entry written so far while the others wait for it to be done.
+ *
+ * <p>Instances are thread safe. An entry that fails to be written is cut from the file again.
+ * Once that fails as well, or forcing the file to the disk has failed, nothing more can be
+ * appended, since the file may end in part of an entry or the entries written before may have
+ * been lost.
+ */
+public final class TomlAppender implements Closeable {
+  // Encoders keep what they have grown to up to this size
+  private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+  // Shared by every appender, so that a thread keeps one encoder however many appenders it has
+  // used, and none of them is kept reachable by it
+  private static final ThreadLocal<Encoder> ENCODERS = new ThreadLocal<Encoder>() {
+    @Override
+    protected Encoder initialValue() {
+      return new Encoder();
+    }
+  };
+
+  private final FileOutputStream output;
+  private final FileChannel channel;
+  private final String path;
+  private final SyncPolicy policy;
+
+  // Guards everything below, and is waited on for forces to be done
+  private final Object lock = new Object();
+  private boolean empty;
+  private long written;
+  private long synced;
+  private boolean syncing;
+  private IOException failure;
+  private boolean closed;
+
+  private TomlAppender(FileOutputStream output, String path, SyncPolicy policy)
+      throws IOException {
+    this.output = output;
+    this.channel = output.getChannel();
+    this.path = path;
+    this.policy = policy;
+    this.empty = channel.size() == 0;
+    if (policy.intervalNanos != 0) {
+      Thread syncThread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          syncPeriodically();
+        }
+      }, "TomlAppender");
+      syncThread.setDaemon(true);
+      syncThread.start();
+    }
+  }
+
+  /**
+   * Opens {@code file} for appending entries to the array of tables at {@code path}, such as
+   * {@code "events"} for {@code [[events]]}, creating it if it does not exist.
+   */
+  public static TomlAppender open(File file, String path, SyncPolicy policy) throws IOException {
+    if (file == null) {
+      throw new NullPointerException("file: null");
+    }
+    if (path == null) {
+      throw new NullPointerException("path: null");
+    }
+    if (path.length() == 0) {
+      throw new IllegalArgumentException("Empty path");
+    }
+    if (policy == null) {
+      throw new NullPointerException("policy: null");
+    }
+    return new TomlAppender(new FileOutputStream(file, true), path, policy);
+  }
+
+  /**
+   * Appends {@code record} as the next entry, with the tables below it. Returns once the entry
+   * has been written, and, if the policy asks for it, forced to the disk.
+   */
+  public void append(TomlNode record) throws IOException {
+    if (record == null) {
+      throw new NullPointerException("record: null");
+    }
+    if (!record.isHash()) {
+      throw new IllegalArgumentException("record: " + record.getNodeType());
+    }
+
+    Encoder encoder = ENCODERS.get();
+    long sequence;
+    try {
+      encoder.encode(path, record);
+      synchronized (lock) {
+        checkOpen();
+        // Entries are separated by an empty line
+        ByteBuffer bytes = encoder.bytes(empty ? 1 : 0);
+        long size = channel.size();
+        try {
+          while (bytes.hasRemaining()) {
+            channel.write(bytes);
+          }
+        } catch (IOException e) {
+          discardPartialEntry(size, e);
+          throw e;
+        }
+        empty = false;
+        sequence = ++written;
+      }
+    } finally {
+      encoder.clear();
+    }
+
+    if (sequence % policy.records == 0) {
+      syncTo(sequence);
+    }
+  }
+
+  /**
+   * Forces every entry appended so far to the disk.
+   */
+  public void sync() throws IOException {
+    long sequence;
+    synchronized (lock) {
+      checkOpen();
+      sequence = written;
+    }
+    syncTo(sequence);
+  }
+
+  /**
+   * Forces the entries appended so far to the disk, and closes the file.
+   */
+  @Override
+  public void close() throws IOException {
+    long sequence;
+    synchronized (lock) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      sequence = written;
+      lock.notifyAll();
+    }
+
+    try {
+      syncTo(sequence);
+    } finally {
+      output.close();
+    }
+  }
+
+  // Cuts the file back to the size it had before an entry that was only partly written, or if
+  // that fails too, refuses every later entry, which would follow the fragment. Called with the
+  // lock held.
+  private void discardPartialEntry(long size, IOException writeFailure) {
+    try {
+      channel.truncate(size);
+    } catch (IOException e) {
+      writeFailure.addSuppressed(e);
+      if (failure == null) {
+        failure = writeFailure;
+      }
+      lock.notifyAll();
+    }
+  }
+
+  private void checkOpen() throws IOException {
+    if (failure != null) {
+      throw new IOException("Failed to write or sync an earlier entry", failure);
+    }
+    if (closed) {
+      throw new IOException("Appender closed");
+    }
+  }
+
+  // Returns once every entry up to sequence has been forced to the disk. The first thread to
+  // get here forces every entry written so far, which the threads that come after it wait for.
+  private void syncTo(long sequence) throws IOException {
+    for (; ; ) {
+      long target;
+      synchronized (lock) {
+        while (syncing && synced < sequence) {
+          try {
+            lock.wait();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a sync");
+          }
+        }
+        if (failure != null) {
+          throw new IOException("Failed to write or sync an earlier entry", failure);
+        }
+        if (synced >= sequence) {
+          return;
+        }
+        syncing = true;
+        target = written;
+      }
+
+      // Entries go on being written while the file is forced
+      IOException forceFailure = null;
+      try {
+        channel.force(false);
+      } catch (IOException e) {
+        forceFailure = e;
+      } finally {
+        synchronized (lock) {
+          syncing = false;
+          if (forceFailure == null) {
+            synced = target;
+          } else if (failure == null) {
+            failure = forceFailure;
+          }
+          lock.notifyAll();
+        }
+      }
+    }
+  }
+
+  private void syncPeriodically() {
+    try {
+      for (; ; ) {
+        long sequence;
+        synchronized (lock) {
+          long deadline = System.nanoTime() + policy.intervalNanos;
+          for (long wait = policy.intervalNanos; wait > 0 && !closed; ) {
+            TimeUnit.NANOSECONDS.timedWait(lock, wait);
+            wait = deadline - System.nanoTime();
+          }
+          if (closed || failure != null) {
+            return;
+          }
+          sequence = written;
+        }
+        syncTo(sequence);
+      }
+    } catch (InterruptedException e) {
+      // Stopped
+    } catch (IOException e) {
+      // Kept as the failure, reported to the threads appending
+    }
+  }
+
+  /**
+   * How often what has been appended is forced to the disk. Entries that have not been forced
+   * are left to the operating system, and lost if it stops before writing them; they are all
+   * forced when the appender is closed.
+   */
+  public static final class SyncPolicy {
+    /**
+     * Forces every entry before {@link #append(TomlNode)} returns.
+     */
+    public static final SyncPolicy EVERY_RECORD = new SyncPolicy(1, 0);
+
+    /**
+     * Only forces entries on {@link #sync()} and {@link #close()}.
+     */
+    public static final SyncPolicy ON_CLOSE = new SyncPolicy(Long.MAX_VALUE, 0);
+
+    private final long records;
+    private final long intervalNanos;
+
+    private SyncPolicy(long records, long intervalNanos) {
+      this.records = records;
+      this.intervalNanos = intervalNanos;
+    }
+
+    /**
+     * Forces the entries once every {@code records} entries, the append that completes the
+     * number returning once they have been forced.
+     */
+    public static SyncPolicy everyRecords(int records) {
+      if (records <= 0) {
+        throw new IllegalArgumentException("records: " + records);
+      }
+      return new SyncPolicy(records, 0);
+    }
+
+    /**
+     * Forces the entries written in each {@code interval} once it is over, from a background
+     * thread, so that appends do not wait for the disk.
+     */
+    public static SyncPolicy everyInterval(long interval, TimeUnit unit) {
+      if (unit == null) {
+        throw new NullPointerException("unit: null");
+      }
+      if (interval <= 0) {
+        throw new IllegalArgumentException("interval: " + interval);
+      }
+      return new SyncPolicy(Long.MAX_VALUE, Math.max(unit.toNanos(interval), 1));
+    }
+  }
+
+  // Encodes entries into a buffer kept by each thread between appends
+  private static final class Encoder {
+    private final MetricsCollector metrics = new MetricsCollector(false);
+    private final TomlGenerator generator = new TomlGenerator();
+    private Buffer buffer = new Buffer();
+    private GeneratorOutputStream outputStream = new GeneratorOutputStream(buffer);
+
+    void encode(String keyGroup, TomlNode record) throws IOException {
+      outputStream.write('\n');
+      generator.writeEntry(outputStream, keyGroup, record, metrics);
+      outputStream.flush();
+    }
+
+    ByteBuffer bytes(int offset) {
+      return buffer.bytes(offset);
+    }
+
+    // Also drops whatever is left of an entry that failed to encode
+    void clear() {
+      metrics.reset();
+      outputStream.discard();
+      if (buffer.capacity() > MAX_RETAINED_CAPACITY) {
+        buffer = new Buffer();
+        outputStream = new GeneratorOutputStream(buffer);
+      } else {
+        buffer.reset();
+      }
+    }
+  }
+
+  private static final class Buffer extends ByteArrayOutputStream {
+    Buffer() {
+      super(1024);
+    }
+
+    int capacity() {
+      return buf.length;
+    }
+
+    ByteBuffer bytes(int offset) {
+      return ByteBuffer.wrap(buf, offset, count - offset);
+    }
+  }
+}
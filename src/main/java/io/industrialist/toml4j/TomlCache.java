@@ -0,0 +1,221 @@
+package io.industrialist.toml4j;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches parsed documents by their content, for services that parse the same text over and over,
+ * such as a configuration read per request or shared by many tenants:
+ *
+ * <pre>
+ * TomlCache cache = new TomlCache(16 &lt;&lt; 20);
+ * Toml config = cache.get(configText);
+ * </pre>
+ *
+ * Documents are parsed with {@link Toml#from(String)} and {@linkplain Toml#freeze() frozen}, so
+ * every caller asking for the same text gets the same immutable instance. They are looked up by a
+ * 64-bit hash of their characters and compared in full before being returned. The cache holds up
+ * to a number of bytes, estimated for each document as its retained size, see
+ * {@link io.industrialist.toml4j.node.TomlNode#estimatedRetainedBytes()}, plus the text kept for
+ * the comparison, and evicts the least recently used documents beyond that.
+ *
+ * <p>Instances are thread safe. Threads asking for a document that is being parsed wait for that
+ * parse rather than parsing it again. A document that fails to parse is not cached.
+ */
+public final class TomlCache {
+  private final long maxBytes;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  // Guards everything below
+  private final Object lock = new Object();
+  // By content hash, least recently used first
+  private final LinkedHashMap<Long, Entry> entries =
+      new LinkedHashMap<Long, Entry>(16, 0.75f, true);
+  private long bytes;
+
+  public TomlCache(long maxBytes) {
+    if (maxBytes <= 0) {
+      throw new IllegalArgumentException("maxBytes: " + maxBytes);
+    }
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Returns the frozen document parsed from {@code tomlString}, parsing it unless it is cached or
+   * being parsed already.
+   */
+  public Toml get(String tomlString) throws IOException {
+    if (tomlString == null) {
+      throw new NullPointerException("tomlString: null");
+    }
+
+    Long hash = contentHash(tomlString);
+    Entry entry;
+    boolean load = false;
+    synchronized (lock) {
+      entry = entries.get(hash);
+      if (entry == null) {
+        entry = new Entry(tomlString);
+        entries.put(hash, entry);
+        load = true;
+      }
+    }
+
+    if (load) {
+      misses.incrementAndGet();
+      entry.task.run();
+      loaded(hash, entry);
+    } else if (!entry.source.equals(tomlString)) {
+      // Another document with the same hash, which is left to the one cached first
+      misses.incrementAndGet();
+      return Toml.from(tomlString).freeze();
+    } else {
+      hits.incrementAndGet();
+    }
+    return await(entry);
+  }
+
+  /**
+   * Removes every document from the cache. Documents being parsed are not added once done.
+   */
+  public void invalidateAll() {
+    synchronized (lock) {
+      entries.clear();
+      bytes = 0;
+    }
+  }
+
+  /**
+   * Returns the number of times a document was found in the cache, including the times it was
+   * being parsed by another thread and was waited for.
+   */
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  /**
+   * Returns the number of times a document was parsed.
+   */
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * Returns the number of documents removed to keep the cache within its size.
+   */
+  public long getEvictionCount() {
+    return evictions.get();
+  }
+
+  /**
+   * Returns the number of documents in the cache, including those being parsed.
+   */
+  public int getEntryCount() {
+    synchronized (lock) {
+      return entries.size();
+    }
+  }
+
+  /**
+   * Returns the estimated size of the documents in the cache.
+   */
+  public long getEstimatedBytes() {
+    synchronized (lock) {
+      return bytes;
+    }
+  }
+
+  private void loaded(Long hash, Entry entry) {
+    synchronized (lock) {
+      if (entries.get(hash) != entry) {
+        // Invalidated while it was parsed
+        return;
+      }
+      if (entry.parsedBytes == 0) {
+        entries.remove(hash);
+        return;
+      }
+
+      entry.bytes = entry.parsedBytes;
+      bytes += entry.bytes;
+      // Documents still being parsed take up nothing yet, and are left for their threads
+      for (Iterator<Entry> i = entries.values().iterator(); bytes > maxBytes && i.hasNext(); ) {
+        Entry eldest = i.next();
+        if (eldest.bytes != 0) {
+          i.remove();
+          bytes -= eldest.bytes;
+          evictions.incrementAndGet();
+        }
+      }
+    }
+  }
+
+  private static Toml await(Entry entry) throws IOException {
+    try {
+      return entry.task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the document to be parsed");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw (Error) cause;
+    }
+  }
+
+  // Hashes four characters at a time; documents are compared in full before one is returned, so
+  // the hash only has to tell different documents apart
+  static long contentHash(String text) {
+    int length = text.length();
+    long hash = length * 0x9E3779B97F4A7C15L;
+    int i = 0;
+    for (; i + 4 <= length; i += 4) {
+      long block = text.charAt(i) | (long) text.charAt(i + 1) << 16
+          | (long) text.charAt(i + 2) << 32 | (long) text.charAt(i + 3) << 48;
+      hash = Long.rotateLeft(hash ^ block * 0xC2B2AE3D27D4EB4FL, 31) * 0x9E3779B97F4A7C15L;
+    }
+    for (; i < length; i++) {
+      hash = Long.rotateLeft(hash ^ text.charAt(i) * 0xC2B2AE3D27D4EB4FL, 31)
+          * 0x9E3779B97F4A7C15L;
+    }
+
+    hash ^= hash >>> 33;
+    hash *= 0xFF51AFD7ED558CCDL;
+    hash ^= hash >>> 33;
+    hash *= 0xC4CEB9FE1A85EC53L;
+    return hash ^ hash >>> 33;
+  }
+
+  private static final class Entry implements Callable<Toml> {
+    final String source;
+    final FutureTask<Toml> task = new FutureTask<Toml>(this);
+    // Set by the thread parsing, and left at 0 if the parse failed
+    long parsedBytes;
+    // Set once counted in the size of the cache
+    long bytes;
+
+    Entry(String source) {
+      this.source = source;
+    }
+
+    @Override
+    public Toml call() throws IOException {
+      Toml toml = Toml.from(source).freeze();
+      parsedBytes = 2L * source.length() + toml.getRootNode().estimatedRetainedBytes();
+      return toml;
+    }
+  }
+}
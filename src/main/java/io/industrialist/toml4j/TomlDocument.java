@@ -0,0 +1,521 @@
+package io.industrialist.toml4j;
+
+import io.industrialist.toml4j.node.TomlBooleanNode;
+import io.industrialist.toml4j.node.TomlFloatNode;
+import io.industrialist.toml4j.node.TomlHashNode;
+import io.industrialist.toml4j.node.TomlIntegerNode;
+import io.industrialist.toml4j.node.TomlNode;
+import io.industrialist.toml4j.node.TomlStringNode;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A TOML document that remembers where each key and value is in its source, so that values can
+ * be changed without regenerating the document: comments, layout and every other byte are kept
+ * as they were.
+ *
+ * <pre>
+ * TomlDocument document = TomlDocument.open(new File("build.toml"));
+ * document.set("project.version", "1.4.1");
+ * document.save();
+ * </pre>
+ *
+ * <p>{@link #save()} patches the source file in place. When every change keeps the length of
+ * the value it replaces, only the changed bytes are written; otherwise the file is rewritten
+ * from the first change that moves the bytes after it, and the part before it is left alone.
+ *
+ * <p>Keys are addressed by their dotted path. An entry of an array of tables is selected by its
+ * index, counting from 0, as in {@code products[1].sku}. Only key/value pairs can be changed,
+ * not the elements of an array.
+ */
+public final class TomlDocument {
+  private static final int BUFFER_SIZE = 8192;
+
+  private final File source;
+  private final byte[] bytes;
+  private long sourceSize;
+  private long sourceLastModified;
+  private final TomlHashNode root;
+  private final Map<String, Entry> entries;
+  // Changes not yet saved, by the offset of the value they replace
+  private final TreeMap<Long, Patch> patches = new TreeMap<Long, Patch>();
+
+  private TomlDocument(File source, byte[] bytes, TomlHashNode root, Map<String, Entry> entries) {
+    this.source = source;
+    this.bytes = bytes;
+    this.root = root;
+    this.entries = entries;
+    if (source != null) {
+      sourceSize = source.length();
+      sourceLastModified = source.lastModified();
+    }
+  }
+
+  /**
+   * Parses a UTF-8 encoded TOML file, which {@link #save()} writes changes back to.
+   */
+  public static TomlDocument open(File source) throws IOException {
+    if (source == null) {
+      throw new NullPointerException("source: null");
+    }
+
+    InputStream inputStream = new FileInputStream(source);
+    try {
+      ParsedSource parsed = parse(inputStream);
+      return new TomlDocument(source, null, parsed.root, parsed.entries);
+    } finally {
+      inputStream.close();
+    }
+  }
+
+  public static TomlDocument parse(String tomlString) throws IOException {
+    if (tomlString == null) {
+      throw new NullPointerException("tomlString: null");
+    }
+
+    byte[] bytes = tomlString.getBytes("UTF8");
+    ParsedSource parsed = parse(new ByteArrayInputStream(bytes));
+    return new TomlDocument(null, bytes, parsed.root, parsed.entries);
+  }
+
+  private static ParsedSource parse(InputStream inputStream) throws IOException {
+    final ParseContext context =
+        new ParseContext(new MetricsCollector(false), TomlLimits.UNLIMITED);
+    final TomlTreeBuilder treeBuilder = new TomlTreeBuilder(context);
+    final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+    TomlParseListener spanRecorder = new TomlParseListener() {
+      private final Map<String, Integer> arraySizes = new HashMap<String, Integer>();
+      private String tablePath = "";
+
+      @Override
+      public void onTable(String[] keys) {
+        tablePath = path(keys, false);
+      }
+
+      @Override
+      public void onArrayOfTables(String[] keys) {
+        tablePath = path(keys, true);
+      }
+
+      @Override
+      public void onKeyValue(String key, TomlNode value) {
+        String path = tablePath.length() == 0 ? key : tablePath + "." + key;
+        entries.put(path, new Entry(context.getKeyStart(), context.getKeyEnd(),
+            context.getValueStart(), context.getValueEnd()));
+      }
+
+      @Override
+      public void onEndOfDocument() {
+      }
+
+      // Returns the path of the table the header opens, with the index of each array entry
+      private String path(String[] keys, boolean arrayOfTables) {
+        StringBuilder path = new StringBuilder();
+        for (int i = 0; i < keys.length; i++) {
+          if (i > 0) {
+            path.append('.');
+          }
+          path.append(keys[i]);
+
+          String arrayPath = path.toString();
+          Integer size = arraySizes.get(arrayPath);
+          if (arrayOfTables && i == keys.length - 1) {
+            size = size == null ? 1 : size + 1;
+            arraySizes.put(arrayPath, size);
+          }
+          if (size != null) {
+            path.append('[').append(size - 1).append(']');
+          }
+        }
+        return path.toString();
+      }
+    };
+
+    TomlLineParser lineParser =
+        new TomlLineParser(new ForwardingListener(treeBuilder, spanRecorder), context);
+    LineSplitter lineSplitter = new LineSplitter(lineParser, context, true);
+    Reader reader = new InputStreamReader(inputStream, "UTF8");
+    char[] buffer = new char[BUFFER_SIZE];
+    for (int read; (read = reader.read(buffer)) != -1; ) {
+      lineSplitter.feed(buffer, 0, read);
+    }
+    lineSplitter.end();
+
+    return new ParsedSource(treeBuilder.getRoot(), entries);
+  }
+
+  /**
+   * Returns the document's values, with the changes made so far.
+   */
+  public Toml toToml() {
+    return new Toml(root);
+  }
+
+  /**
+   * Returns where the key at {@code path} is in the source, or null if there is no such key.
+   * Offsets are in bytes, and account for changes that have been saved.
+   */
+  public Span getKeySpan(String path) {
+    Entry entry = entry(path);
+    return entry == null ? null : new Span(entry.keyStart, entry.keyEnd);
+  }
+
+  /**
+   * Returns where the value at {@code path} is in the source, or null if there is no such key.
+   */
+  public Span getValueSpan(String path) {
+    Entry entry = entry(path);
+    return entry == null ? null : new Span(entry.valueStart, entry.valueEnd);
+  }
+
+  public TomlDocument set(String path, String value) {
+    if (value == null) {
+      throw new NullPointerException("value: null");
+    }
+    return set(path, "\"" + StringUtils.escapeString(value) + "\"", TomlStringNode.valueOf(value));
+  }
+
+  public TomlDocument set(String path, long value) {
+    return set(path, String.valueOf(value), TomlIntegerNode.valueOf(value));
+  }
+
+  public TomlDocument set(String path, double value) {
+    if (Double.isNaN(value) || Double.isInfinite(value)) {
+      throw new IllegalArgumentException("Value cannot be written to TOML: " + value);
+    }
+    return set(path, String.valueOf(value), TomlFloatNode.valueOf(value));
+  }
+
+  public TomlDocument set(String path, boolean value) {
+    return set(path, String.valueOf(value), TomlBooleanNode.valueOf(value));
+  }
+
+  private TomlDocument set(String path, String text, TomlNode node) {
+    Entry entry = entry(path);
+    if (entry == null) {
+      throw new IllegalArgumentException("Matching value of key '" + path + "' is null");
+    }
+
+    byte[] replacement;
+    try {
+      replacement = text.getBytes("UTF8");
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    patches.put(entry.valueStart, new Patch(entry, replacement));
+
+    int keyStart = path.lastIndexOf('.') + 1;
+    TomlHashNode table = (TomlHashNode) resolve(path.substring(0, Math.max(keyStart - 1, 0)));
+    table.put(path.substring(keyStart), node);
+    return this;
+  }
+
+  /**
+   * Returns whether there are changes that have not been saved.
+   */
+  public boolean isModified() {
+    return !patches.isEmpty();
+  }
+
+  /**
+   * Writes the changes to the source file in place.
+   *
+   * @throws IOException if the file has been modified since it was opened, or cannot be written
+   */
+  public void save() throws IOException {
+    if (source == null) {
+      throw new IllegalStateException("Document was not opened from a file");
+    }
+    if (patches.isEmpty()) {
+      return;
+    }
+    if (source.length() != sourceSize || source.lastModified() != sourceLastModified) {
+      throw new IOException("File has been modified since it was opened: " + source);
+    }
+
+    RandomAccessFile file = new RandomAccessFile(source, "rw");
+    try {
+      List<Patch> moving = new ArrayList<Patch>();
+      for (Patch patch : patches.values()) {
+        if (moving.isEmpty() && patch.replacement.length == patch.length()) {
+          file.seek(patch.start);
+          file.write(patch.replacement);
+        } else {
+          moving.add(patch);
+        }
+      }
+      if (!moving.isEmpty()) {
+        new TailRewriter(file, sourceSize).rewrite(moving);
+      }
+    } finally {
+      file.close();
+    }
+
+    applied();
+    sourceSize = source.length();
+    sourceLastModified = source.lastModified();
+  }
+
+  /**
+   * Writes the source with the changes made so far to {@code outputStream}.
+   */
+  public void writeTo(OutputStream outputStream) throws IOException {
+    if (outputStream == null) {
+      throw new NullPointerException("outputStream: null");
+    }
+
+    InputStream inputStream =
+        source == null ? new ByteArrayInputStream(bytes) : new FileInputStream(source);
+    try {
+      byte[] buffer = new byte[BUFFER_SIZE];
+      long position = 0;
+      for (Patch patch : patches.values()) {
+        copy(inputStream, outputStream, patch.start - position, buffer);
+        outputStream.write(patch.replacement);
+        skip(inputStream, patch.length());
+        position = patch.end;
+      }
+      copy(inputStream, outputStream, Long.MAX_VALUE, buffer);
+    } finally {
+      inputStream.close();
+    }
+  }
+
+  // Moves the spans after each saved patch
+  private void applied() {
+    long[] starts = new long[patches.size()];
+    long[] shifts = new long[patches.size()];
+    int count = 0;
+    long shift = 0;
+    for (Patch patch : patches.values()) {
+      shift += patch.replacement.length - patch.length();
+      starts[count] = patch.start;
+      shifts[count++] = shift;
+      patch.entry.valueEnd = patch.start + patch.replacement.length;
+    }
+
+    for (Entry entry : entries.values()) {
+      long entryShift = 0;
+      for (int i = 0; i < count && starts[i] < entry.keyStart; i++) {
+        entryShift = shifts[i];
+      }
+      if (entryShift != 0) {
+        long valueLength = entry.valueEnd - entry.valueStart;
+        entry.keyStart += entryShift;
+        entry.keyEnd += entryShift;
+        entry.valueStart += entryShift;
+        entry.valueEnd = entry.valueStart + valueLength;
+      }
+    }
+    patches.clear();
+  }
+
+  private Entry entry(String path) {
+    if (path == null) {
+      throw new NullPointerException("path: null");
+    }
+    return entries.get(path);
+  }
+
+  // Walks path, whose array of tables entries are given by index, down from the root
+  private TomlNode resolve(String path) {
+    TomlNode node = root;
+    if (path.length() == 0) {
+      return node;
+    }
+
+    for (String key : path.split("\\.")) {
+      int bracket = key.indexOf('[');
+      if (bracket == -1) {
+        node = node.get(key);
+      } else {
+        node = node.get(key.substring(0, bracket))
+            .get(Integer.parseInt(key.substring(bracket + 1, key.length() - 1)));
+      }
+    }
+    return node;
+  }
+
+  private static void copy(InputStream inputStream, OutputStream outputStream, long length,
+      byte[] buffer) throws IOException {
+    for (long remaining = length; remaining > 0; ) {
+      int read = inputStream.read(buffer, 0, (int) Math.min(remaining, buffer.length));
+      if (read == -1) {
+        break;
+      }
+      outputStream.write(buffer, 0, read);
+      remaining -= read;
+    }
+  }
+
+  private static void skip(InputStream inputStream, long length) throws IOException {
+    for (long remaining = length; remaining > 0; ) {
+      long skipped = inputStream.skip(remaining);
+      if (skipped <= 0) {
+        throw new IOException("Source is shorter than when it was parsed");
+      }
+      remaining -= skipped;
+    }
+  }
+
+  /**
+   * A range of bytes in the source, from {@link #getStart()} up to but not including
+   * {@link #getEnd()}.
+   */
+  public static final class Span {
+    private final long start;
+    private final long end;
+
+    Span(long start, long end) {
+      this.start = start;
+      this.end = end;
+    }
+
+    public long getStart() {
+      return start;
+    }
+
+    public long getEnd() {
+      return end;
+    }
+
+    @Override
+    public String toString() {
+      return "[" + start + ", " + end + ")";
+    }
+  }
+
+  private static final class Entry {
+    long keyStart;
+    long keyEnd;
+    long valueStart;
+    long valueEnd;
+
+    Entry(long keyStart, long keyEnd, long valueStart, long valueEnd) {
+      this.keyStart = keyStart;
+      this.keyEnd = keyEnd;
+      this.valueStart = valueStart;
+      this.valueEnd = valueEnd;
+    }
+  }
+
+  private static final class Patch {
+    final Entry entry;
+    final long start;
+    final long end;
+    final byte[] replacement;
+
+    Patch(Entry entry, byte[] replacement) {
+      this.entry = entry;
+      this.start = entry.valueStart;
+      this.end = entry.valueEnd;
+      this.replacement = replacement;
+    }
+
+    long length() {
+      return end - start;
+    }
+  }
+
+  private static final class ParsedSource {
+    final TomlHashNode root;
+    final Map<String, Entry> entries;
+
+    ParsedSource(TomlHashNode root, Map<String, Entry> entries) {
+      this.root = root;
+      this.entries = entries;
+    }
+  }
+
+  /**
+   * Rewrites a file from its first patch that changes length, reading and writing the same
+   * file. Bytes are written only over ones that have been read, so when the patches lengthen
+   * the file, as much as they lengthen it by is held in memory, but no more.
+   */
+  private static final class TailRewriter {
+    private final RandomAccessFile file;
+    private final long length;
+    private final byte[] chunk = new byte[BUFFER_SIZE];
+    private byte[] pending = new byte[2 * BUFFER_SIZE];
+    private int pendingStart;
+    private int pendingEnd;
+    private long readPosition;
+    private long writePosition;
+
+    TailRewriter(RandomAccessFile file, long length) {
+      this.file = file;
+      this.length = length;
+    }
+
+    void rewrite(List<Patch> patches) throws IOException {
+      readPosition = patches.get(0).start;
+      writePosition = readPosition;
+      for (Patch patch : patches) {
+        readUpTo(patch.start);
+        // The replaced bytes are not needed, so they count as read
+        readPosition = patch.end;
+        append(patch.replacement, 0, patch.replacement.length);
+        flush();
+      }
+      readUpTo(length);
+      flush();
+      file.setLength(writePosition);
+    }
+
+    // Reads up to end, writing what can be written as it goes
+    private void readUpTo(long end) throws IOException {
+      while (readPosition < end) {
+        int length = (int) Math.min(chunk.length, end - readPosition);
+        file.seek(readPosition);
+        file.readFully(chunk, 0, length);
+        readPosition += length;
+        append(chunk, 0, length);
+        flush();
+      }
+    }
+
+    private void append(byte[] buffer, int offset, int length) {
+      if (pendingEnd + length > pending.length) {
+        int pendingLength = pendingEnd - pendingStart;
+        if (pendingLength + length > pending.length) {
+          byte[] grown = new byte[Math.max(2 * pending.length, pendingLength + length)];
+          System.arraycopy(pending, pendingStart, grown, 0, pendingLength);
+          pending = grown;
+        } else {
+          System.arraycopy(pending, pendingStart, pending, 0, pendingLength);
+        }
+        pendingStart = 0;
+        pendingEnd = pendingLength;
+      }
+      System.arraycopy(buffer, offset, pending, pendingEnd, length);
+      pendingEnd += length;
+    }
+
+    // Writes the pending bytes that only overwrite bytes already read, or all of them at the end
+    private void flush() throws IOException {
+      long writable = readPosition >= length ? Long.MAX_VALUE : readPosition - writePosition;
+      int count = (int) Math.min(pendingEnd - pendingStart, Math.max(writable, 0));
+      if (count == 0) {
+        return;
+      }
+      file.seek(writePosition);
+      file.write(pending, pendingStart, count);
+      writePosition += count;
+      pendingStart += count;
+    }
+  }
+}
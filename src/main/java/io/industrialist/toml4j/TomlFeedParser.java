@@ -0,0 +1,144 @@
+package io.industrialist.toml4j;
+
+import io.industrialist.toml4j.node.TomlNode;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * A non-blocking TOML parser that is fed UTF-8 input in chunks of any size, for example as they
+ * arrive on a channel. Table headers and key/value pairs are reported to the optional
+ * {@link TomlParseListener} as soon as the line holding them is complete; the whole tree is
+ * returned by {@link #endOfInput()}.
+ *
+ * <p>A chunk may end anywhere, including inside a UTF-8 sequence, a line or a multiline array.
+ * Instances are not thread safe and parse a single document.
+ */
+public class TomlFeedParser {
+  private static final Charset ENCODING = Charset.forName("UTF8");
+  private static final int BUFFER_SIZE = 8192;
+
+  private final CharsetDecoder decoder = ENCODING.newDecoder()
+      .onMalformedInput(CodingErrorAction.REPORT)
+      .onUnmappableCharacter(CodingErrorAction.REPORT);
+  // Holds an incomplete UTF-8 sequence (at most 3 bytes) until the next chunk completes it
+  private final ByteBuffer partialSequence = ByteBuffer.allocate(4);
+  private final CharBuffer charBuffer = CharBuffer.allocate(BUFFER_SIZE);
+
+  private final ParseContext context;
+  private final TomlTreeBuilder treeBuilder;
+  private final LineSplitter lineSplitter;
+
+  private long bytesConsumed;
+  private boolean ended;
+
+  public TomlFeedParser() {
+    this(null);
+  }
+
+  public TomlFeedParser(TomlParseListener listener) {
+    this(TomlLimits.UNLIMITED, listener);
+  }
+
+  public TomlFeedParser(TomlLimits limits, TomlParseListener listener) {
+    if (limits == null) {
+      throw new NullPointerException("limits: null");
+    }
+
+    this.context = new ParseContext(new MetricsCollector(false), limits);
+    this.treeBuilder = new TomlTreeBuilder(context);
+    TomlParseListener target =
+        listener == null ? treeBuilder : new ForwardingListener(treeBuilder, listener);
+    this.lineSplitter = new LineSplitter(new TomlLineParser(target, context), context);
+  }
+
+  /**
+   * Parses as much of {@code input} as possible, consuming all of its remaining bytes.
+   */
+  public void feed(ByteBuffer input) {
+    if (input == null) {
+      throw new NullPointerException("input: null");
+    }
+    if (ended) {
+      throw new IllegalStateException("endOfInput() has already been called");
+    }
+    if (input.remaining() > context.limits.getMaxDocumentBytes() - bytesConsumed) {
+      throw new ParseException("Document is larger than the maximum of "
+          + context.limits.getMaxDocumentBytes() + " bytes");
+    }
+
+    // Complete a sequence left over from the previous chunk one byte at a time
+    while (partialSequence.position() > 0 && input.hasRemaining()) {
+      partialSequence.put(input.get());
+      partialSequence.flip();
+      // Bytes already held in partialSequence were counted when they were set aside
+      decode(partialSequence, false, bytesConsumed - (partialSequence.remaining() - 1));
+      partialSequence.compact();
+      bytesConsumed++;
+    }
+
+    int start = input.position();
+    decode(input, false, bytesConsumed);
+    bytesConsumed += input.position() - start;
+
+    if (input.hasRemaining()) {
+      bytesConsumed += input.remaining();
+      partialSequence.put(input);
+    }
+  }
+
+  /**
+   * Signals that no more input will be fed and returns the root of the parsed document.
+   */
+  public TomlNode endOfInput() {
+    if (ended) {
+      throw new IllegalStateException("endOfInput() has already been called");
+    }
+    ended = true;
+
+    partialSequence.flip();
+    decode(partialSequence, true, bytesConsumed - partialSequence.remaining());
+    decoder.flush(charBuffer);
+    flushChars();
+
+    lineSplitter.end();
+    return treeBuilder.getRoot();
+  }
+
+  public long getBytesConsumed() {
+    return bytesConsumed;
+  }
+
+  public long getLinesConsumed() {
+    return context.getLineNumber();
+  }
+
+  /**
+   * Decodes {@code input}, where {@code offset} is the document offset of its current position.
+   */
+  private void decode(ByteBuffer input, boolean endOfInput, long offset) {
+    int start = input.position();
+    for (; ; ) {
+      CoderResult result = decoder.decode(input, charBuffer, endOfInput);
+      if (result.isError()) {
+        throw new ParseException(
+            "Invalid UTF-8 sequence near byte " + (offset + (input.position() - start)));
+      }
+
+      flushChars();
+      if (result.isUnderflow()) {
+        break;
+      }
+    }
+  }
+
+  private void flushChars() {
+    charBuffer.flip();
+    lineSplitter.feed(charBuffer.array(), charBuffer.arrayOffset(), charBuffer.remaining());
+    charBuffer.clear();
+  }
+}
@@ -1,11 +1,8 @@
 package io.industrialist.toml4j;
 
-import io.industrialist.toml4j.node.TomlArrayNode;
-import io.industrialist.toml4j.node.TomlHashNode;
 import io.industrialist.toml4j.node.TomlNode;
-import io.industrialist.toml4j.node.TomlTableArrayNode;
+import io.industrialist.toml4j.node.TomlNodeType;
 
-import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -17,6 +14,19 @@ import java.util.Map;
 public class TomlGenerator {
   private final static Charset ENCODING = Charset.forName("UTF8");
 
+  private final TomlMetricsListener metricsListener;
+
+  public TomlGenerator() {
+    this(TomlMetricsListener.NO_OP);
+  }
+
+  public TomlGenerator(TomlMetricsListener metricsListener) {
+    if (metricsListener == null) {
+      throw new NullPointerException("metricsListener: null");
+    }
+    this.metricsListener = metricsListener;
+  }
+
   public void writeTo(File file, TomlNode node) throws IOException {
     OutputStream outputStream = new FileOutputStream(file);
     try {
@@ -28,29 +38,93 @@ public class TomlGenerator {
   }
 
   public void writeTo(OutputStream outputStream, TomlNode node) throws IOException {
-    BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(outputStream);
+    MetricsCollector metrics = MetricsCollector.forListener(metricsListener);
+    if (metricsListener == TomlMetricsListener.NO_OP) {
+      writeBuffered(outputStream, node, metrics);
+      return;
+    }
+
+    CountingOutputStream countingOutputStream = new CountingOutputStream(outputStream);
+    long startTime = metrics.startTime();
+    writeBuffered(countingOutputStream, node, metrics);
+    metrics.endTime(TomlPhase.WRITE, startTime);
+    metrics.addBytes(countingOutputStream.getCount());
+    metricsListener.onGenerate(metrics.toMetrics());
+  }
+
+  private void writeBuffered(OutputStream outputStream, TomlNode node, MetricsCollector metrics)
+      throws IOException {
+    GeneratorOutputStream generatorOutputStream = new GeneratorOutputStream(outputStream);
     try {
-      writeTo(bufferedOutputStream, node);
+      writeTo(generatorOutputStream, node, metrics);
     } finally {
-      bufferedOutputStream.flush();
+      generatorOutputStream.flush();
     }
   }
 
-  private void writeTo(BufferedOutputStream outputStream, TomlNode node) throws IOException {
+  /**
+   * Writes {@code table} as one entry of the array of tables at {@code keyGroup}, every line
+   * ending with a newline. Its values are written before its tables, and the tables below it
+   * with their full key groups, so that the entry can be appended to any document.
+   */
+  void writeEntry(
+      GeneratorOutputStream outputStream, String keyGroup, TomlNode table,
+      MetricsCollector metrics) throws IOException {
+    String keyGroupLine =
+        new StringBuilder().append("[[").append(keyGroup).append("]]\n").toString();
+    writeTable(outputStream, keyGroupLine, keyGroup, table, 1, metrics);
+  }
+
+  private void writeTable(
+      GeneratorOutputStream outputStream, String keyGroupLine, String keyGroup, TomlNode table,
+      int depth, MetricsCollector metrics) throws IOException {
+    metrics.tableDepth(depth);
+    metrics.countNode(TomlNodeType.HASH);
+    outputStream.write(keyGroupLine.getBytes(ENCODING));
+
+    for (Map.Entry<String, TomlNode> entry : table.fields()) {
+      TomlNode node = entry.getValue();
+      if (node.isValueNode() || node.isArray()) {
+        String keyEquals = new StringBuilder().append(entry.getKey()).append(" = ").toString();
+        outputStream.write(keyEquals.getBytes(ENCODING));
+        writeTo(outputStream, node, metrics);
+        outputStream.write('\n');
+      }
+    }
+
+    for (Map.Entry<String, TomlNode> entry : table.fields()) {
+      TomlNode node = entry.getValue();
+      String childKeyGroup =
+          new StringBuilder(keyGroup).append(".").append(entry.getKey()).toString();
+      if (node.isHash()) {
+        String childKeyGroupLine =
+            new StringBuilder().append("[").append(childKeyGroup).append("]\n").toString();
+        writeTable(outputStream, childKeyGroupLine, childKeyGroup, node, depth + 1, metrics);
+      } else if (node.isArrayOfTables()) {
+        metrics.countNode(TomlNodeType.ARRAY_OF_TABLES);
+        String childKeyGroupLine =
+            new StringBuilder().append("[[").append(childKeyGroup).append("]]\n").toString();
+        for (TomlNode child : node.children()) {
+          writeTable(outputStream, childKeyGroupLine, childKeyGroup, child, depth + 1, metrics);
+        }
+      }
+    }
+  }
+
+  private void writeTo(GeneratorOutputStream outputStream, TomlNode node, MetricsCollector metrics)
+      throws IOException {
+    metrics.countNode(node.getNodeType());
     switch (node.getNodeType()) {
       case STRING:
-        String stringValue =
-            new StringBuilder().append("\"").append(StringUtils.escapeString(node.stringValue()))
-                .append("\"").toString();
-        outputStream.write(stringValue.getBytes(ENCODING));
+        outputStream.write('"');
+        outputStream.write(StringUtils.escapeString(node.stringValue()).getBytes(ENCODING));
+        outputStream.write('"');
         break;
       case INTEGER:
-        String longValue = String.valueOf(node.longValue());
-        outputStream.write(longValue.getBytes(ENCODING));
+        outputStream.writeLong(node.longValue());
         break;
       case FLOAT:
-        String doubleValue = String.valueOf(node.doubleValue());
-        outputStream.write(doubleValue.getBytes(ENCODING));
+        outputStream.writeDouble(node.doubleValue());
         break;
       case BOOLEAN:
         String booleanValue = String.valueOf(node.booleanValue());
@@ -61,24 +135,25 @@ public class TomlGenerator {
         outputStream.write(dateTimeValue.getBytes(ENCODING));
         break;
       case ARRAY:
-        writeArray(outputStream, (TomlArrayNode) node);
+        writeArray(outputStream, node, metrics);
         break;
       case HASH:
-        writeHash(outputStream, (TomlHashNode) node);
+        writeHash(outputStream, node, metrics);
         break;
       default:
         break;
     }
   }
 
-  private void writeArray(BufferedOutputStream outputStream, TomlArrayNode array)
+  private void writeArray(
+      GeneratorOutputStream outputStream, TomlNode array, MetricsCollector metrics)
       throws IOException {
     outputStream.write("[".getBytes(ENCODING));
 
     Iterator<TomlNode> values = array.children().iterator();
     for (; values.hasNext(); ) {
       TomlNode node = values.next();
-      writeTo(outputStream, node);
+      writeTo(outputStream, node, metrics);
       if (values.hasNext()) {
         outputStream.write(", ".getBytes(ENCODING));
       }
@@ -87,12 +162,16 @@ public class TomlGenerator {
     outputStream.write("]".getBytes(ENCODING));
   }
 
-  private void writeHash(BufferedOutputStream outputStream, TomlHashNode hash) throws IOException {
-    writeHash(outputStream, hash, (String) null);
+  private void writeHash(
+      GeneratorOutputStream outputStream, TomlNode hash, MetricsCollector metrics)
+      throws IOException {
+    writeHash(outputStream, hash, (String) null, 0, metrics);
   }
 
-  private void writeHash(BufferedOutputStream outputStream, TomlHashNode hash, String keyGroup)
-      throws IOException {
+  private void writeHash(
+      GeneratorOutputStream outputStream, TomlNode hash, String keyGroup, int depth,
+      MetricsCollector metrics) throws IOException {
+    metrics.tableDepth(depth);
     if (keyGroup != null) {
       String keyGroupLine =
           new StringBuilder().append("[").append(keyGroup).append("]\n").toString();
@@ -107,17 +186,20 @@ public class TomlGenerator {
       if (node.isValueNode() || node.isArray()) {
         String keyEquals = new StringBuilder().append(key).append(" = ").toString();
         outputStream.write(keyEquals.getBytes(ENCODING));
-        writeTo(outputStream, node);
+        writeTo(outputStream, node, metrics);
       } else if (node.isHash()) {
         String childKeyGroup =
             keyGroup == null ? key : new StringBuilder(keyGroup).append(".").append(key)
                 .toString();
-        writeHash(outputStream, (TomlHashNode) node, childKeyGroup);
+        metrics.countNode(TomlNodeType.HASH);
+        writeHash(outputStream, node, childKeyGroup, depth + 1, metrics);
       } else if (node.isArrayOfTables()) {
         String childKeyGroup =
             keyGroup == null ? key : new StringBuilder(keyGroup).append(".").append(key)
                 .toString();
-        writeArrayOfTables(outputStream, (TomlTableArrayNode) node, childKeyGroup);
+        metrics.countNode(TomlNodeType.ARRAY_OF_TABLES);
+        writeArrayOfTables(
+            outputStream, node, childKeyGroup, depth + 1, metrics);
       }
 
       if (fields.hasNext()) {
@@ -127,8 +209,9 @@ public class TomlGenerator {
   }
 
   private void writeArrayOfTables(
-      BufferedOutputStream outputStream, TomlTableArrayNode tableArray, String keyGroup)
-      throws IOException {
+      GeneratorOutputStream outputStream, TomlNode tableArray, String keyGroup,
+      int depth, MetricsCollector metrics) throws IOException {
+    metrics.tableDepth(depth);
     Iterator<TomlNode> children = tableArray.children().iterator();
     for (; children.hasNext(); ) {
       TomlNode node = children.next();
@@ -138,7 +221,8 @@ public class TomlGenerator {
             new StringBuilder().append("[[").append(keyGroup).append("]]\n").toString();
         outputStream.write(keyGroupLine.getBytes(ENCODING));
       }
-      writeHash(outputStream, (TomlHashNode) node);
+      metrics.countNode(TomlNodeType.HASH);
+      writeHash(outputStream, node, metrics);
 
       if (children.hasNext()) {
         outputStream.write("\n".getBytes(ENCODING));
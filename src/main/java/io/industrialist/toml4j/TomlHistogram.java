@@ -0,0 +1,85 @@
+package io.industrialist.toml4j;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock free histogram of non-negative values with power of two buckets. Bucket {@code i} counts
+ * the values that need exactly {@code i} bits, so bucket 0 holds zero, bucket 1 holds one, bucket
+ * 2 holds two and three, and so on.
+ */
+public class TomlHistogram {
+  private static final int BUCKET_COUNT = 64;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong sum = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+  public void record(long value) {
+    if (value < 0) {
+      value = 0;
+    }
+
+    buckets.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(value));
+    count.incrementAndGet();
+    sum.addAndGet(value);
+
+    long currentMax;
+    while (value > (currentMax = max.get())) {
+      if (max.compareAndSet(currentMax, value)) {
+        break;
+      }
+    }
+  }
+
+  public long getCount() {
+    return count.get();
+  }
+
+  public long getSum() {
+    return sum.get();
+  }
+
+  public long getMax() {
+    return max.get();
+  }
+
+  public double getMean() {
+    long currentCount = count.get();
+    return currentCount == 0 ? 0.0 : (double) sum.get() / currentCount;
+  }
+
+  public long getBucketCount(int bucket) {
+    return buckets.get(bucket);
+  }
+
+  /**
+   * Returns an upper bound for the given percentile (between 0 and 100), accurate to within a
+   * factor of two.
+   */
+  public long getPercentile(double percentile) {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("percentile: " + percentile);
+    }
+
+    long currentCount = count.get();
+    if (currentCount == 0) {
+      return 0;
+    }
+
+    long rank = (long) Math.ceil(currentCount * percentile / 100.0);
+    long seen = 0;
+    for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+      seen += buckets.get(bucket);
+      if (seen >= rank && seen > 0) {
+        return Math.min(bucketUpperBound(bucket), max.get());
+      }
+    }
+    return max.get();
+  }
+
+  private static long bucketUpperBound(int bucket) {
+    return (1L << bucket) - 1; // Wraps around to Long.MAX_VALUE for the last bucket
+  }
+}
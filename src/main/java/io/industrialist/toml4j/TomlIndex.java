@@ -0,0 +1,461 @@
+package io.industrialist.toml4j;
+
+import io.industrialist.toml4j.node.TomlNode;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A persistent index of the byte offsets of every table and array of tables entry in a TOML
+ * file, so that a single table can be read without parsing the whole document.
+ *
+ * <p>The index is kept in a sidecar file next to the source (by default the source name plus
+ * {@code ".idx"}). It is built the first time the source is opened and reused as long as the
+ * source's size, modification time and a hash of its first and last 64 KiB are unchanged;
+ * otherwise it is rebuilt. The sidecar is replaced atomically, so any number of processes may
+ * share it. If the sidecar cannot be written the index is kept in memory only.
+ *
+ * <pre>
+ * TomlNode acme = TomlIndex.open(new File("tenants.toml")).table("tenants.acme");
+ * </pre>
+ *
+ * <p>Keys at the root of the document, before the first table header, are not indexed. A table
+ * inside an array of tables is read from the array's last entry, as a header such as
+ * {@code [a.b]} refers to the last {@code [[a]]} before it.
+ */
+public class TomlIndex {
+  private static final int MAGIC = 0x544f4d49; // "TOMI"
+  private static final int VERSION = 1;
+  private static final int SAMPLE_SIZE = 64 * 1024;
+  private static final int BUFFER_SIZE = 8192;
+
+  private final File source;
+  private final File indexFile;
+
+  private long sourceSize;
+  private long sourceLastModified;
+  private long sourceHash;
+  // Sections in document order; a section runs from its header to the next header
+  private String[] paths;
+  private int[] ordinals; // -1 for a [table], otherwise the entry number of an [[array]]
+  private long[] offsets;
+  // Section numbers sorted by path, for prefix lookups
+  private Integer[] byPath;
+
+  private TomlIndex(File source, File indexFile) {
+    this.source = source;
+    this.indexFile = indexFile;
+  }
+
+  public static TomlIndex open(File source) throws IOException {
+    if (source == null) {
+      throw new NullPointerException("source: null");
+    }
+    return open(source, new File(source.getPath() + ".idx"));
+  }
+
+  public static TomlIndex open(File source, File indexFile) throws IOException {
+    if (source == null) {
+      throw new NullPointerException("source: null");
+    }
+    if (indexFile == null) {
+      throw new NullPointerException("indexFile: null");
+    }
+
+    TomlIndex index = new TomlIndex(source, indexFile);
+    index.load();
+    return index;
+  }
+
+  /**
+   * Reads the table at {@code path}, including all of its sub-tables, or returns null if the
+   * document has no such table. If {@code path} names an array of tables, the whole array is
+   * returned.
+   */
+  public TomlNode table(String path) throws IOException {
+    if (path == null) {
+      throw new NullPointerException("path: null");
+    }
+    refresh();
+
+    List<Integer> sections = new ArrayList<Integer>();
+    addSections(path, sections);
+    addSections(path + ".", sections);
+    // Sections before the last entry of an array of tables on the path belong to earlier entries
+    int first = firstOfLastEntries(path);
+    for (int i = sections.size() - 1; i >= 0; i--) {
+      if (sections.get(i) < first) {
+        sections.remove(i);
+      }
+    }
+    if (sections.isEmpty()) {
+      return null;
+    }
+
+    Collections.sort(sections);
+    return select(read(sections), path);
+  }
+
+  // Returns the section of the last entry of the deepest array of tables that path passes
+  // through, taking each array's last entry within the last entry of the array above it, or 0
+  private int firstOfLastEntries(String path) {
+    int first = 0;
+    List<Integer> entries = new ArrayList<Integer>();
+    for (int dot = path.indexOf('.'); dot >= 0; dot = path.indexOf('.', dot + 1)) {
+      entries.clear();
+      addSections(path.substring(0, dot), entries);
+      int last = -1;
+      for (int section : entries) {
+        if (ordinals[section] >= 0 && section >= first && section > last) {
+          last = section;
+        }
+      }
+      if (last >= 0) {
+        first = last;
+      }
+    }
+    return first;
+  }
+
+  /**
+   * Reads entry {@code ordinal} (counting from 0) of the array of tables at {@code path},
+   * including its sub-tables, or returns null if there is no such entry.
+   */
+  public TomlNode tableArrayEntry(String path, int ordinal) throws IOException {
+    if (path == null) {
+      throw new NullPointerException("path: null");
+    }
+    refresh();
+
+    int first = -1;
+    for (int i = 0; i < paths.length; i++) {
+      if (ordinals[i] == ordinal && paths[i].equals(path)) {
+        first = i;
+        break;
+      }
+    }
+    if (first == -1) {
+      return null;
+    }
+
+    List<Integer> sections = new ArrayList<Integer>();
+    sections.add(first);
+    String prefix = path + ".";
+    for (int i = first + 1; i < paths.length; i++) {
+      if (ordinals[i] >= 0 && paths[i].equals(path)) {
+        break;
+      }
+      if (paths[i].startsWith(prefix)) {
+        sections.add(i);
+      }
+    }
+
+    TomlNode node = select(read(sections), path);
+    return node == null ? null : node.get(0);
+  }
+
+  /**
+   * Returns the number of entries in the array of tables at {@code path}.
+   */
+  public int tableArraySize(String path) throws IOException {
+    if (path == null) {
+      throw new NullPointerException("path: null");
+    }
+    refresh();
+
+    int size = 0;
+    for (int i = 0; i < paths.length; i++) {
+      if (ordinals[i] >= 0 && paths[i].equals(path)) {
+        size = Math.max(size, ordinals[i] + 1);
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Returns the path of every table header in the document, in document order. Paths of
+   * arrays of tables appear once per entry.
+   */
+  public List<String> getTablePaths() throws IOException {
+    refresh();
+    return Collections.unmodifiableList(Arrays.asList(paths));
+  }
+
+  // Rebuilds the index if the source has changed since it was loaded
+  private void refresh() throws IOException {
+    if (source.length() != sourceSize || source.lastModified() != sourceLastModified) {
+      load();
+    }
+  }
+
+  private void load() throws IOException {
+    if (!source.isFile()) {
+      throw new IOException("No such file: " + source);
+    }
+
+    long size = source.length();
+    long lastModified = source.lastModified();
+    long hash = sampleHash(size);
+    if (readIndex(size, lastModified, hash)) {
+      return;
+    }
+
+    build();
+    sourceSize = size;
+    sourceLastModified = lastModified;
+    sourceHash = hash;
+    if (source.length() == size && source.lastModified() == lastModified) {
+      writeIndex();
+    }
+  }
+
+  private void build() throws IOException {
+    final ParseContext context =
+        new ParseContext(new MetricsCollector(false), TomlLimits.UNLIMITED);
+    final List<String> pathList = new ArrayList<String>();
+    final List<Integer> ordinalList = new ArrayList<Integer>();
+    final List<Long> offsetList = new ArrayList<Long>();
+    final Map<String, Integer> arraySizes = new HashMap<String, Integer>();
+
+    TomlParseListener listener = new TomlParseListener() {
+      @Override
+      public void onTable(String[] keys) {
+        add(TomlTreeBuilder.join(keys), -1);
+      }
+
+      @Override
+      public void onArrayOfTables(String[] keys) {
+        String path = TomlTreeBuilder.join(keys);
+        Integer size = arraySizes.get(path);
+        int ordinal = size == null ? 0 : size;
+        arraySizes.put(path, ordinal + 1);
+        add(path, ordinal);
+      }
+
+      @Override
+      public void onKeyValue(String key, TomlNode value) {
+      }
+
+      @Override
+      public void onEndOfDocument() {
+      }
+
+      private void add(String path, int ordinal) {
+        pathList.add(path);
+        ordinalList.add(ordinal);
+        offsetList.add(context.getLineOffset());
+      }
+    };
+
+    LineSplitter lineSplitter =
+        new LineSplitter(TomlLineParser.headersOnly(listener, context), context, true);
+    Reader reader = new InputStreamReader(new FileInputStream(source), "UTF8");
+    try {
+      char[] buffer = new char[BUFFER_SIZE];
+      for (int read; (read = reader.read(buffer)) != -1; ) {
+        lineSplitter.feed(buffer, 0, read);
+      }
+      lineSplitter.end();
+    } finally {
+      reader.close();
+    }
+
+    int count = pathList.size();
+    paths = pathList.toArray(new String[count]);
+    ordinals = new int[count];
+    offsets = new long[count];
+    for (int i = 0; i < count; i++) {
+      ordinals[i] = ordinalList.get(i);
+      offsets[i] = offsetList.get(i);
+    }
+    sortByPath();
+  }
+
+  private boolean readIndex(long size, long lastModified, long hash) {
+    if (!indexFile.isFile()) {
+      return false;
+    }
+
+    try {
+      DataInputStream in =
+          new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+      try {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION
+            || in.readLong() != size || in.readLong() != lastModified || in.readLong() != hash) {
+          return false;
+        }
+
+        int count = in.readInt();
+        String[] indexPaths = new String[count];
+        int[] indexOrdinals = new int[count];
+        long[] indexOffsets = new long[count];
+        for (int i = 0; i < count; i++) {
+          indexPaths[i] = in.readUTF();
+          indexOrdinals[i] = in.readInt();
+          indexOffsets[i] = in.readLong();
+        }
+
+        paths = indexPaths;
+        ordinals = indexOrdinals;
+        offsets = indexOffsets;
+        sourceSize = size;
+        sourceLastModified = lastModified;
+        sourceHash = hash;
+        sortByPath();
+        return true;
+      } finally {
+        in.close();
+      }
+    } catch (EOFException e) {
+      return false; // Truncated, rebuild it
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  private void writeIndex() {
+    File tempFile = null;
+    try {
+      File directory = indexFile.getAbsoluteFile().getParentFile();
+      tempFile = File.createTempFile(indexFile.getName(), ".tmp", directory);
+      DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+      try {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(sourceSize);
+        out.writeLong(sourceLastModified);
+        out.writeLong(sourceHash);
+        out.writeInt(paths.length);
+        for (int i = 0; i < paths.length; i++) {
+          out.writeUTF(paths[i]);
+          out.writeInt(ordinals[i]);
+          out.writeLong(offsets[i]);
+        }
+      } finally {
+        out.close();
+      }
+
+      if (!tempFile.renameTo(indexFile)) {
+        // Some platforms will not rename over an existing file
+        indexFile.delete();
+        if (!tempFile.renameTo(indexFile)) {
+          tempFile.delete();
+        }
+      }
+    } catch (IOException e) {
+      // The index still works from memory
+      if (tempFile != null) {
+        tempFile.delete();
+      }
+    }
+  }
+
+  private long sampleHash(long size) throws IOException {
+    CRC32 crc = new CRC32();
+    RandomAccessFile file = new RandomAccessFile(source, "r");
+    try {
+      byte[] buffer = new byte[(int) Math.min(size, SAMPLE_SIZE)];
+      file.readFully(buffer);
+      crc.update(buffer);
+      if (size > SAMPLE_SIZE) {
+        file.seek(Math.max(SAMPLE_SIZE, size - SAMPLE_SIZE));
+        int length = (int) Math.min(size - SAMPLE_SIZE, SAMPLE_SIZE);
+        file.readFully(buffer, 0, length);
+        crc.update(buffer, 0, length);
+      }
+    } finally {
+      file.close();
+    }
+    return crc.getValue();
+  }
+
+  private void sortByPath() {
+    byPath = new Integer[paths.length];
+    for (int i = 0; i < byPath.length; i++) {
+      byPath[i] = i;
+    }
+    Arrays.sort(byPath, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer left, Integer right) {
+        return paths[left].compareTo(paths[right]);
+      }
+    });
+  }
+
+  // Adds every section whose path equals key or, if key ends with '.', starts with it
+  private void addSections(String key, List<Integer> sections) {
+    boolean prefix = key.endsWith(".");
+    int low = 0;
+    int high = byPath.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (paths[byPath[middle]].compareTo(key) < 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+
+    for (int i = low; i < byPath.length; i++) {
+      String path = paths[byPath[i]];
+      if (prefix ? !path.startsWith(key) : !path.equals(key)) {
+        break;
+      }
+      sections.add(byPath[i]);
+    }
+  }
+
+  // Concatenates the given sections, which are in document order, and parses them
+  private TomlNode read(List<Integer> sections) throws IOException {
+    TomlFeedParser parser = new TomlFeedParser();
+    RandomAccessFile file = new RandomAccessFile(source, "r");
+    try {
+      long fileLength = file.length();
+      byte[] buffer = new byte[BUFFER_SIZE];
+      for (int section : sections) {
+        long end = section + 1 < offsets.length ? offsets[section + 1] : fileLength;
+        file.seek(offsets[section]);
+        for (long remaining = end - offsets[section]; remaining > 0; ) {
+          int length = (int) Math.min(remaining, buffer.length);
+          file.readFully(buffer, 0, length);
+          parser.feed(ByteBuffer.wrap(buffer, 0, length));
+          remaining -= length;
+        }
+      }
+    } finally {
+      file.close();
+    }
+    return parser.endOfInput();
+  }
+
+  private static TomlNode select(TomlNode root, String path) {
+    TomlNode node = root;
+    for (String key : path.split("\\.")) {
+      if (node != null && node.isArrayOfTables()) {
+        node = node.get(node.size() - 1);
+      }
+      node = node == null ? null : node.get(key);
+    }
+    return node;
+  }
+}
@@ -0,0 +1,938 @@
+package io.industrialist.toml4j;
+
+import io.industrialist.toml4j.node.TomlNode;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Converts between TOML and JSON without building a {@link TomlNode} tree.
+ *
+ * <p>TOML to JSON connects the parse events to a JSON writer. Each table is written as soon as
+ * its header is read, and closed once no later header can add to it. A TOML table can be added
+ * to further down the document, so when reading a file a first pass records the last header
+ * below each table path. Then only tables that are defined out of order are held back, as JSON
+ * text, until their parent can be closed. A stream can only be read once, so every table after
+ * the first top-level one is held back until the end. Only duplicate keys within a single table
+ * section are detected; parse the document with {@link TomlParser} for full checks.
+ *
+ * <p>JSON to TOML writes each object's keys as they are read. A table has to follow all of its
+ * parent's keys, so nested objects are held back, as TOML text, until their parent is complete.
+ * Objects inside arrays become arrays of tables, and JSON {@code null} cannot be represented.
+ *
+ * <p>Run from the command line as
+ * {@code TomlJsonTranscoder (to-json|to-toml) [input [output]]}, using the standard streams when
+ * no file is given.
+ */
+public final class TomlJsonTranscoder {
+  private static final int BUFFER_SIZE = 8192;
+
+  private TomlJsonTranscoder() {
+  }
+
+  /**
+   * Writes the TOML file as JSON, reading it twice: once for its table headers and once to
+   * convert it.
+   */
+  public static void tomlToJson(File toml, Writer json) throws IOException {
+    if (toml == null) {
+      throw new NullPointerException("toml: null");
+    }
+    if (json == null) {
+      throw new NullPointerException("json: null");
+    }
+
+    Map<String, Integer> lastHeaders = scanHeaders(toml);
+    InputStream inputStream = new FileInputStream(toml);
+    try {
+      tomlToJson(inputStream, json, lastHeaders);
+    } finally {
+      inputStream.close();
+    }
+  }
+
+  /**
+   * Writes the TOML stream as JSON in a single pass, holding back out of order tables in memory.
+   */
+  public static void tomlToJson(InputStream toml, Writer json) throws IOException {
+    if (toml == null) {
+      throw new NullPointerException("toml: null");
+    }
+    if (json == null) {
+      throw new NullPointerException("json: null");
+    }
+
+    tomlToJson(toml, json, null);
+  }
+
+  private static void tomlToJson(InputStream toml, Writer json, Map<String, Integer> lastHeaders)
+      throws IOException {
+    JsonEmitter emitter = new JsonEmitter(json, lastHeaders);
+    try {
+      new TomlParser().parse(toml, emitter);
+    } catch (WriteFailure e) {
+      throw e.getCause();
+    }
+    json.flush();
+  }
+
+  /**
+   * Writes the JSON document, which must be an object, as TOML.
+   */
+  public static void jsonToToml(Reader json, Writer toml) throws IOException {
+    if (json == null) {
+      throw new NullPointerException("json: null");
+    }
+    if (toml == null) {
+      throw new NullPointerException("toml: null");
+    }
+
+    JsonReader reader = new JsonReader(json);
+    if (reader.peek() != '{') {
+      throw reader.error("a JSON object");
+    }
+    writeTable(reader, toml, null);
+    if (reader.peek() != -1) {
+      throw reader.error("the end of the document");
+    }
+    toml.flush();
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1 || args.length > 3
+        || !args[0].equals("to-json") && !args[0].equals("to-toml")) {
+      System.err.println("Usage: TomlJsonTranscoder (to-json|to-toml) [input [output]]");
+      System.exit(2);
+      return;
+    }
+
+    OutputStream outputStream =
+        args.length > 2 ? new FileOutputStream(args[2]) : System.out;
+    Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, "UTF-8"));
+    try {
+      if (args[0].equals("to-json")) {
+        if (args.length > 1) {
+          tomlToJson(new File(args[1]), writer);
+        } else {
+          tomlToJson(new BufferedInputStream(System.in), writer);
+        }
+      } else {
+        InputStream inputStream = args.length > 1 ? new FileInputStream(args[1]) : System.in;
+        try {
+          jsonToToml(new InputStreamReader(inputStream, "UTF-8"), writer);
+        } finally {
+          inputStream.close();
+        }
+      }
+      writer.write('\n');
+    } finally {
+      writer.flush();
+      if (args.length > 2) {
+        writer.close();
+      }
+    }
+  }
+
+  // Records, for each table path, the number of the last header at or below it
+  private static Map<String, Integer> scanHeaders(File toml) throws IOException {
+    final Map<String, Integer> lastHeaders = new HashMap<String, Integer>();
+    ParseContext context = new ParseContext(new MetricsCollector(false), TomlLimits.UNLIMITED);
+    TomlParseListener listener = new TomlParseListener() {
+      private int headerCount;
+
+      @Override
+      public void onTable(String[] keys) {
+        header(keys);
+      }
+
+      @Override
+      public void onArrayOfTables(String[] keys) {
+        header(keys);
+      }
+
+      @Override
+      public void onKeyValue(String key, TomlNode value) {
+      }
+
+      @Override
+      public void onEndOfDocument() {
+      }
+
+      private void header(String[] keys) {
+        headerCount++;
+        StringBuilder path = new StringBuilder();
+        for (int i = 0; i < keys.length; i++) {
+          if (i > 0) {
+            path.append('.');
+          }
+          path.append(keys[i]);
+          lastHeaders.put(path.toString(), headerCount);
+        }
+      }
+    };
+
+    LineSplitter lineSplitter =
+        new LineSplitter(TomlLineParser.headersOnly(listener, context), context);
+    // The same charset TomlParser reads streams with
+    Reader reader = new InputStreamReader(new FileInputStream(toml));
+    try {
+      char[] buffer = new char[BUFFER_SIZE];
+      for (int read; (read = reader.read(buffer)) != -1; ) {
+        lineSplitter.feed(buffer, 0, read);
+      }
+      lineSplitter.end();
+    } finally {
+      reader.close();
+    }
+    return lastHeaders;
+  }
+
+  /**
+   * Writes {@code node} and everything below it as JSON.
+   */
+  static void writeJson(TomlNode node, Appendable out) throws IOException {
+    switch (node.getNodeType()) {
+      case STRING:
+        writeJsonString(node.stringValue(), out);
+        break;
+      case INTEGER:
+        out.append(String.valueOf(node.longValue()));
+        break;
+      case FLOAT:
+        double value = node.doubleValue();
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+          throw new ParseException("Float value cannot be represented in JSON: " + value);
+        }
+        out.append(String.valueOf(value));
+        break;
+      case BOOLEAN:
+        out.append(String.valueOf(node.booleanValue()));
+        break;
+      case DATETIME:
+        writeJsonString(node.asStringValue(), out);
+        break;
+      case HASH:
+        out.append('{');
+        boolean first = true;
+        for (Map.Entry<String, TomlNode> field : node.fields()) {
+          if (!first) {
+            out.append(',');
+          }
+          first = false;
+          writeJsonString(field.getKey(), out);
+          out.append(':');
+          writeJson(field.getValue(), out);
+        }
+        out.append('}');
+        break;
+      default:
+        out.append('[');
+        for (int i = 0; i < node.size(); i++) {
+          if (i > 0) {
+            out.append(',');
+          }
+          writeJson(node.get(i), out);
+        }
+        out.append(']');
+    }
+  }
+
+  private static void writeJsonString(String value, Appendable out) throws IOException {
+    out.append('"');
+    int chunkStart = 0;
+    for (int i = 0; i < value.length(); i++) {
+      char character = value.charAt(i);
+      if (character >= 0x20 && character != '"' && character != '\\') {
+        continue;
+      }
+
+      out.append(value, chunkStart, i);
+      switch (character) {
+        case '"':
+          out.append("\\\"");
+          break;
+        case '\\':
+          out.append("\\\\");
+          break;
+        case '\n':
+          out.append("\\n");
+          break;
+        case '\r':
+          out.append("\\r");
+          break;
+        case '\t':
+          out.append("\\t");
+          break;
+        default:
+          out.append("\\u00");
+          out.append(Character.forDigit(character >> 4, 16));
+          out.append(Character.forDigit(character & 0xF, 16));
+      }
+      chunkStart = i + 1;
+    }
+    out.append(value, chunkStart, value.length());
+    out.append('"');
+  }
+
+  /**
+   * Carries an {@link IOException} out of the parse listener, whose methods cannot throw it.
+   */
+  private static class WriteFailure extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    WriteFailure(IOException cause) {
+      super(cause);
+    }
+
+    @Override
+    public synchronized IOException getCause() {
+      return (IOException) super.getCause();
+    }
+  }
+
+  /**
+   * A table or array of tables being written. The tables from the root down to the one being
+   * written to are open in the output; the others are held back with their keys as JSON text
+   * until the open table they belong to is closed. Most tables are written as they are read, so
+   * the collections for held back parts are only created when needed.
+   */
+  private static final class Table {
+    final Table parent;
+    final String key;
+    // Only kept when there are last headers to look up
+    final String path;
+    final boolean array;
+    Map<String, Table> children;
+    // Entries of an array of tables that have not been written yet
+    List<Table> entries;
+    Table lastEntry;
+    StringBuilder members;
+    boolean open;
+    boolean written;
+
+    Table(Table parent, String key, String path, boolean array) {
+      this.parent = parent;
+      this.key = key;
+      this.path = path;
+      this.array = array;
+    }
+
+    boolean isInside(Table ancestor) {
+      for (Table table = parent; table != null; table = table.parent) {
+        if (table == ancestor) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    Table child(String key) {
+      return children == null ? null : children.get(key);
+    }
+
+    void putChild(Table child) {
+      if (children == null) {
+        children = new LinkedHashMap<String, Table>();
+      }
+      children.put(child.key, child);
+    }
+
+    void removeChild(Table child) {
+      if (children != null) {
+        children.remove(child.key);
+      }
+    }
+
+    boolean hasMembers() {
+      return members != null && members.length() > 0;
+    }
+  }
+
+  private static final class JsonEmitter implements TomlParseListener {
+    private final Writer out;
+    private final Map<String, Integer> lastHeaders;
+    private final List<Table> openTables = new ArrayList<Table>();
+    private final Set<String> sectionKeys = new HashSet<String>();
+    private Table current;
+    private int headerCount;
+
+    JsonEmitter(Writer out, Map<String, Integer> lastHeaders) throws IOException {
+      this.out = out;
+      this.lastHeaders = lastHeaders;
+      Table root = new Table(null, null, "", false);
+      root.open = true;
+      openTables.add(root);
+      current = root;
+      out.write('{');
+    }
+
+    @Override
+    public void onTable(String[] keys) {
+      try {
+        header(keys, false);
+      } catch (IOException e) {
+        throw new WriteFailure(e);
+      }
+    }
+
+    @Override
+    public void onArrayOfTables(String[] keys) {
+      try {
+        header(keys, true);
+      } catch (IOException e) {
+        throw new WriteFailure(e);
+      }
+    }
+
+    @Override
+    public void onKeyValue(String key, TomlNode value) {
+      if (!sectionKeys.add(key)) {
+        throw new ParseException("Duplicate key found");
+      }
+
+      try {
+        if (current == bottom()) {
+          separate(current);
+          writeJsonString(key, out);
+          out.write(':');
+          writeJson(value, out);
+        } else {
+          if (current.members == null) {
+            current.members = new StringBuilder();
+          }
+          StringBuilder members = current.members;
+          if (members.length() > 0) {
+            members.append(',');
+          }
+          writeJsonString(key, members);
+          members.append(':');
+          writeJson(value, members);
+        }
+      } catch (IOException e) {
+        throw new WriteFailure(e);
+      }
+    }
+
+    @Override
+    public void onEndOfDocument() {
+      try {
+        while (!openTables.isEmpty()) {
+          close();
+        }
+      } catch (IOException e) {
+        throw new WriteFailure(e);
+      }
+    }
+
+    private void header(String[] keys, boolean arrayOfTables) throws IOException {
+      headerCount++;
+      sectionKeys.clear();
+
+      Table arrayTable = null;
+      if (arrayOfTables) {
+        arrayTable = find(keys);
+        if (arrayTable != null && !arrayTable.array) {
+          throw new ParseException("Duplicate key found: " + TomlTreeBuilder.join(keys));
+        }
+      }
+      closeFinished(arrayTable);
+
+      Table table = openTables.get(0);
+      for (int i = 0; i < keys.length; i++) {
+        boolean last = i == keys.length - 1;
+        Table child = child(table, keys, i, last && arrayOfTables);
+        if (child.array && !last) {
+          child = child.lastEntry;
+          reopen(child);
+        } else if (child.array && arrayOfTables) {
+          child = newEntry(child);
+        } else if (last && child.array != arrayOfTables) {
+          throw new ParseException("Duplicate key found: " + TomlTreeBuilder.join(keys));
+        }
+        table = child;
+      }
+      current = table;
+    }
+
+    // Returns the table at keys if it is still being tracked
+    private Table find(String[] keys) {
+      Table table = openTables.get(0);
+      for (int i = 0; i < keys.length && table != null; i++) {
+        table = table.child(keys[i]);
+        if (table != null && table.array && i < keys.length - 1) {
+          table = table.lastEntry;
+        }
+      }
+      return table;
+    }
+
+    // Closes the open tables no later header can add to, bottom up
+    private void closeFinished(Table arrayTable) throws IOException {
+      while (openTables.size() > 1) {
+        Table table = bottom();
+        // A new entry of an array of tables finishes the entry before it
+        boolean finished = arrayTable != null && table.isInside(arrayTable)
+            || lastHeader(table.path) < headerCount;
+        if (!finished) {
+          break;
+        }
+        close();
+      }
+    }
+
+    private int lastHeader(String path) {
+      if (lastHeaders == null) {
+        return Integer.MAX_VALUE;
+      }
+      Integer lastHeader = lastHeaders.get(path);
+      return lastHeader == null ? Integer.MAX_VALUE : lastHeader;
+    }
+
+    private Table child(Table parent, String[] keys, int index, boolean array)
+        throws IOException {
+      Table child = parent.child(keys[index]);
+      if (child == null) {
+        String path = null;
+        if (lastHeaders != null) {
+          path = parent.path.length() == 0 ? keys[index] : parent.path + "." + keys[index];
+        }
+        child = new Table(parent, keys[index], path, array);
+        parent.putChild(child);
+      }
+      reopen(child);
+      return child;
+    }
+
+    private Table newEntry(Table arrayTable) throws IOException {
+      if (arrayTable.lastEntry != null && arrayTable.lastEntry.open) {
+        while (bottom() != arrayTable) {
+          close();
+        }
+      }
+
+      Table entry = new Table(arrayTable, null, arrayTable.path, false);
+      if (arrayTable.entries == null) {
+        arrayTable.entries = new ArrayList<Table>();
+      }
+      arrayTable.entries.add(entry);
+      arrayTable.lastEntry = entry;
+      reopen(entry);
+      return entry;
+    }
+
+    // Opens a held back table in the output if its parent is the table being written to
+    private void reopen(Table table) throws IOException {
+      if (table.open || table.parent != bottom()) {
+        return;
+      }
+
+      Table parent = table.parent;
+      if (parent.array) {
+        // The entries before this one are finished
+        for (Table entry : parent.entries) {
+          if (entry != table) {
+            separate(parent);
+            writeHeldBack(entry);
+          }
+        }
+        parent.entries.clear();
+        separate(parent);
+      } else {
+        // Keep the children that are still held back after it
+        parent.removeChild(table);
+        parent.putChild(table);
+        separate(parent);
+        writeJsonString(table.key, out);
+        out.write(':');
+      }
+
+      out.write(table.array ? '[' : '{');
+      if (table.hasMembers()) {
+        out.append(table.members);
+        table.members = null;
+        table.written = true;
+      }
+      table.open = true;
+      openTables.add(table);
+    }
+
+    private void close() throws IOException {
+      Table table = openTables.remove(openTables.size() - 1);
+      if (table.hasMembers()) {
+        separate(table);
+        out.append(table.members);
+      }
+      if (table.array && table.entries != null) {
+        for (Table entry : table.entries) {
+          separate(table);
+          writeHeldBack(entry);
+        }
+      } else if (table.children != null) {
+        for (Table child : table.children.values()) {
+          if (!child.open) {
+            separate(table);
+            writeJsonString(child.key, out);
+            out.write(':');
+            writeHeldBack(child);
+          }
+        }
+      }
+      out.write(table.array ? ']' : '}');
+
+      Table parent = table.parent;
+      if (parent != null) {
+        if (parent.array) {
+          parent.lastEntry = null;
+        } else {
+          parent.removeChild(table);
+        }
+      }
+    }
+
+    private void writeHeldBack(Table table) throws IOException {
+      out.write(table.array ? '[' : '{');
+      boolean first = true;
+      if (table.hasMembers()) {
+        out.append(table.members);
+        first = false;
+      }
+      if (table.array && table.entries != null) {
+        for (Table entry : table.entries) {
+          if (!first) {
+            out.write(',');
+          }
+          first = false;
+          writeHeldBack(entry);
+        }
+      } else if (table.children != null) {
+        for (Table child : table.children.values()) {
+          if (!first) {
+            out.write(',');
+          }
+          first = false;
+          writeJsonString(child.key, out);
+          out.write(':');
+          writeHeldBack(child);
+        }
+      }
+      out.write(table.array ? ']' : '}');
+    }
+
+    private void separate(Table table) throws IOException {
+      if (table.written) {
+        out.write(',');
+      }
+      table.written = true;
+    }
+
+    private Table bottom() {
+      return openTables.get(openTables.size() - 1);
+    }
+  }
+
+  // Writes the members of the object the reader is at, holding back nested objects
+  private static void writeTable(JsonReader reader, Appendable out, String path)
+      throws IOException {
+    StringBuilder tables = null;
+    reader.expect('{');
+    if (reader.peek() == '}') {
+      reader.expect('}');
+      return;
+    }
+
+    do {
+      String key = reader.readString();
+      checkKey(key);
+      reader.expect(':');
+      String childPath = path == null ? key : path + "." + key;
+
+      int next = reader.peek();
+      if (next == '{') {
+        tables = tables == null ? new StringBuilder() : tables;
+        tables.append("\n[").append(childPath).append("]\n");
+        writeTable(reader, tables, childPath);
+      } else if (next == '[') {
+        // Whether the array becomes [[tables]] depends on its first element
+        reader.expect('[');
+        if (reader.peek() == '{') {
+          tables = tables == null ? new StringBuilder() : tables;
+          do {
+            if (reader.peek() != '{') {
+              throw reader.error("an object in an array of objects");
+            }
+            tables.append("\n[[").append(childPath).append("]]\n");
+            writeTable(reader, tables, childPath);
+          } while (reader.next(',', ']'));
+        } else {
+          out.append(key).append(" = ");
+          writeArrayElements(reader, out, childPath);
+          out.append('\n');
+        }
+      } else {
+        out.append(key).append(" = ");
+        writeValue(reader, out, childPath);
+        out.append('\n');
+      }
+    } while (reader.next(',', '}'));
+
+    if (tables != null) {
+      out.append(tables);
+    }
+  }
+
+  private static void checkKey(String key) {
+    if (key.length() == 0) {
+      throw new ParseException("Empty key cannot be represented in TOML");
+    }
+    for (int i = 0; i < key.length(); i++) {
+      char character = key.charAt(i);
+      if (!(character >= 'a' && character <= 'z' || character >= 'A' && character <= 'Z'
+          || character >= '0' && character <= '9' || character == '_' || character == '-')) {
+        throw new ParseException("Key cannot be represented in TOML: " + key);
+      }
+    }
+  }
+
+  private static void writeValue(JsonReader reader, Appendable out, String path)
+      throws IOException {
+    int next = reader.peek();
+    switch (next) {
+      case '"':
+        out.append('"').append(StringUtils.escapeString(reader.readString())).append('"');
+        break;
+      case '[':
+        reader.expect('[');
+        writeArrayElements(reader, out, path);
+        break;
+      case 't':
+        reader.expectLiteral("true");
+        out.append("true");
+        break;
+      case 'f':
+        reader.expectLiteral("false");
+        out.append("false");
+        break;
+      case 'n':
+        reader.expectLiteral("null");
+        throw new ParseException("null cannot be represented in TOML: " + path);
+      default:
+        out.append(reader.readNumber());
+    }
+  }
+
+  // Writes the array whose opening bracket the reader has just consumed
+  private static void writeArrayElements(JsonReader reader, Appendable out, String path)
+      throws IOException {
+    out.append('[');
+    if (reader.peek() == ']') {
+      reader.expect(']');
+      out.append(" ]");
+      return;
+    }
+    out.append(' ');
+    do {
+      if (reader.peek() == '{') {
+        throw new ParseException("Object inside an array cannot be represented in TOML: "
+            + path);
+      }
+      writeValue(reader, out, path);
+    } while (reader.next(',', ']') && out.append(", ") != null);
+    out.append(" ]");
+  }
+
+  /**
+   * Reads JSON tokens from a {@link Reader} through a buffer.
+   */
+  private static final class JsonReader {
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder scratch = new StringBuilder();
+    private int position;
+    private int limit;
+    private long offset;
+
+    JsonReader(Reader reader) {
+      this.reader = reader;
+    }
+
+    // Returns the next character that is not whitespace without consuming it, or -1 at the end
+    int peek() throws IOException {
+      for (; ; ) {
+        if (position == limit && !fill()) {
+          return -1;
+        }
+        char character = buffer[position];
+        if (character != ' ' && character != '\t' && character != '\n' && character != '\r') {
+          return character;
+        }
+        position++;
+      }
+    }
+
+    private boolean fill() throws IOException {
+      offset += limit;
+      position = 0;
+      limit = 0;
+      int read = reader.read(buffer);
+      if (read <= 0) {
+        return false;
+      }
+      limit = read;
+      return true;
+    }
+
+    private int read() throws IOException {
+      if (position == limit && !fill()) {
+        return -1;
+      }
+      return buffer[position++];
+    }
+
+    void expect(char expected) throws IOException {
+      if (peek() != expected) {
+        throw error("'" + expected + "'");
+      }
+      position++;
+    }
+
+    void expectLiteral(String literal) throws IOException {
+      peek();
+      for (int i = 0; i < literal.length(); i++) {
+        if (read() != literal.charAt(i)) {
+          throw error(literal);
+        }
+      }
+    }
+
+    /**
+     * Consumes a separator, returning true, or a closing bracket, returning false.
+     */
+    boolean next(char separator, char close) throws IOException {
+      int character = peek();
+      if (character == separator) {
+        position++;
+        return true;
+      }
+      if (character == close) {
+        position++;
+        return false;
+      }
+      throw error("'" + separator + "' or '" + close + "'");
+    }
+
+    String readString() throws IOException {
+      expect('"');
+      scratch.setLength(0);
+      for (; ; ) {
+        int character = read();
+        if (character == '"') {
+          return scratch.toString();
+        }
+        if (character == -1 || character < 0x20) {
+          throw error("a closing '\"'");
+        }
+        if (character != '\\') {
+          scratch.append((char) character);
+          continue;
+        }
+
+        int escaped = read();
+        switch (escaped) {
+          case '"':
+          case '\\':
+          case '/':
+            scratch.append((char) escaped);
+            break;
+          case 'b':
+            scratch.append('\b');
+            break;
+          case 'f':
+            scratch.append('\f');
+            break;
+          case 'n':
+            scratch.append('\n');
+            break;
+          case 'r':
+            scratch.append('\r');
+            break;
+          case 't':
+            scratch.append('\t');
+            break;
+          case 'u':
+            int codeUnit = 0;
+            for (int i = 0; i < 4; i++) {
+              int digit = Character.digit(read(), 16);
+              if (digit < 0) {
+                throw error("four hex digits");
+              }
+              codeUnit = codeUnit << 4 | digit;
+            }
+            scratch.append((char) codeUnit);
+            break;
+          default:
+            throw error("an escape sequence");
+        }
+      }
+    }
+
+    // Returns the number in the form TOML writes it
+    String readNumber() throws IOException {
+      peek();
+      scratch.setLength(0);
+      boolean integer = true;
+      for (; ; ) {
+        if (position == limit && !fill()) {
+          break;
+        }
+        char character = buffer[position];
+        if (character == '.' || character == 'e' || character == 'E') {
+          integer = false;
+        } else if (!(character >= '0' && character <= '9' || character == '-'
+            || character == '+')) {
+          break;
+        }
+        scratch.append(character);
+        position++;
+      }
+
+      String number = scratch.toString();
+      try {
+        if (integer) {
+          return String.valueOf(Long.parseLong(number));
+        }
+        double value = Double.parseDouble(number);
+        if (Double.isInfinite(value)) {
+          throw new ParseException("Float value out of range: " + number);
+        }
+        return String.valueOf(value);
+      } catch (NumberFormatException e) {
+        if (integer && number.length() > 1 && number.matches("-?[0-9]+")) {
+          throw new ParseException("Integer value out of range: " + number);
+        }
+        throw error("a value");
+      }
+    }
+
+    ParseException error(String expected) {
+      return new ParseException(
+          "Invalid JSON at offset " + (offset + position) + ": expected " + expected);
+    }
+  }
+}
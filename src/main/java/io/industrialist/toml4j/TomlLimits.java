@@ -0,0 +1,121 @@
+package io.industrialist.toml4j;
+
+/**
+ * Upper bounds on what a parser accepts, for documents from untrusted sources. Each limit is
+ * checked as the input is read, so an oversized document fails with a {@link ParseException}
+ * before the offending line, string or array has been buffered in full.
+ *
+ * <p>Instances are immutable; start from {@link #UNLIMITED} and set the limits that matter:
+ *
+ * <pre>
+ * TomlLimits limits = TomlLimits.UNLIMITED.withMaxDocumentBytes(1 &lt;&lt; 20).withMaxNestingDepth(16);
+ * </pre>
+ */
+public class TomlLimits {
+  public static final TomlLimits UNLIMITED = new TomlLimits(
+      Long.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE,
+      Long.MAX_VALUE);
+
+  private final long maxDocumentBytes;
+  private final int maxLineLength;
+  private final int maxStringLength;
+  private final int maxArrayLength;
+  private final int maxNestingDepth;
+  private final long maxNodeCount;
+
+  private TomlLimits(
+      long maxDocumentBytes, int maxLineLength, int maxStringLength, int maxArrayLength,
+      int maxNestingDepth, long maxNodeCount) {
+    this.maxDocumentBytes = maxDocumentBytes;
+    this.maxLineLength = maxLineLength;
+    this.maxStringLength = maxStringLength;
+    this.maxArrayLength = maxArrayLength;
+    this.maxNestingDepth = maxNestingDepth;
+    this.maxNodeCount = maxNodeCount;
+  }
+
+  public long getMaxDocumentBytes() {
+    return maxDocumentBytes;
+  }
+
+  /**
+   * Returns the maximum number of characters in a line, excluding the line terminator.
+   */
+  public int getMaxLineLength() {
+    return maxLineLength;
+  }
+
+  /**
+   * Returns the maximum number of characters in a string value as written between its quotes.
+   */
+  public int getMaxStringLength() {
+    return maxStringLength;
+  }
+
+  public int getMaxArrayLength() {
+    return maxArrayLength;
+  }
+
+  /**
+   * Returns the maximum number of keys in a table header, which is also the maximum nesting of
+   * arrays within a value.
+   */
+  public int getMaxNestingDepth() {
+    return maxNestingDepth;
+  }
+
+  /**
+   * Returns the maximum number of nodes in the document, counting the root table.
+   */
+  public long getMaxNodeCount() {
+    return maxNodeCount;
+  }
+
+  public TomlLimits withMaxDocumentBytes(long maxDocumentBytes) {
+    checkPositive("maxDocumentBytes", maxDocumentBytes);
+    return new TomlLimits(
+        maxDocumentBytes, maxLineLength, maxStringLength, maxArrayLength, maxNestingDepth,
+        maxNodeCount);
+  }
+
+  public TomlLimits withMaxLineLength(int maxLineLength) {
+    checkPositive("maxLineLength", maxLineLength);
+    return new TomlLimits(
+        maxDocumentBytes, maxLineLength, maxStringLength, maxArrayLength, maxNestingDepth,
+        maxNodeCount);
+  }
+
+  public TomlLimits withMaxStringLength(int maxStringLength) {
+    checkPositive("maxStringLength", maxStringLength);
+    return new TomlLimits(
+        maxDocumentBytes, maxLineLength, maxStringLength, maxArrayLength, maxNestingDepth,
+        maxNodeCount);
+  }
+
+  public TomlLimits withMaxArrayLength(int maxArrayLength) {
+    checkPositive("maxArrayLength", maxArrayLength);
+    return new TomlLimits(
+        maxDocumentBytes, maxLineLength, maxStringLength, maxArrayLength, maxNestingDepth,
+        maxNodeCount);
+  }
+
+  public TomlLimits withMaxNestingDepth(int maxNestingDepth) {
+    checkPositive("maxNestingDepth", maxNestingDepth);
+    return new TomlLimits(
+        maxDocumentBytes, maxLineLength, maxStringLength, maxArrayLength, maxNestingDepth,
+        maxNodeCount);
+  }
+
+  public TomlLimits withMaxNodeCount(long maxNodeCount) {
+    checkPositive("maxNodeCount", maxNodeCount);
+    return new TomlLimits(
+        maxDocumentBytes, maxLineLength, maxStringLength, maxArrayLength, maxNestingDepth,
+        maxNodeCount);
+  }
+
+  private static void checkPositive(String name, long value) {
+    if (value <= 0) {
+      throw new IllegalArgumentException(name + ": " + value);
+    }
+  }
+}
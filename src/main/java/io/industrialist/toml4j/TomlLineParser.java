@@ -0,0 +1,295 @@
+package io.industrialist.toml4j;
+
+import io.industrialist.toml4j.node.TomlNode;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses a TOML document one line at a time and reports its structure to a
+ * {@link TomlParseListener}. A multiline array is held back until its closing line arrives, so
+ * lines may be handed over as soon as they are available.
+ */
+class TomlLineParser {
+  private static final Pattern TABLE_EXPRESSION =
+      Pattern.compile("\\[([\\w:.,?!@#]+(\\.\\[\\w:.,?!@#]+)*+([\\\"\\w:.,?!@#\\\"])*)]");
+  private static final Pattern ARRAY_OF_TABLES_EXPRESSION =
+      Pattern.compile("\\[\\[([\\w:.,?!@#]+(\\.\\[\\w:.,?!@#]+)*+([\\\"\\w:.,?!@#\\\"])*)]]");
+  private static final Pattern VALUE_EXPRESSION =
+      Pattern.compile("([^\\s][A-Za-z0-9_-]|[\\\"\\w:.,?!@#\\\"]+)\\s*=(.+)");
+  private static final String[] NO_KEYS = new String[0];
+  // A builder grown by a very large array is not kept for the next document
+  private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+  // Matchers are stateful, so each parser keeps its own rather than sharing them across threads.
+  private final Matcher tableExpressionMatcher = TABLE_EXPRESSION.matcher("");
+  private final Matcher arrayOfTablesExpressionMatcher = ARRAY_OF_TABLES_EXPRESSION.matcher("");
+  private final Matcher valueExpressionMatcher = VALUE_EXPRESSION.matcher("");
+
+  private final TomlValueReader valueReader;
+  private final ArrayScanner arrayScanner;
+  private final ParseContext context;
+  private final StringBuilder multilineArrayBuilder = new StringBuilder();
+  private TomlParseListener listener;
+  private MetricsCollector metrics;
+  private Projection projection;
+  private final boolean headersOnly;
+
+  private String[] tableKeys = NO_KEYS;
+  private Projection.Match tableMatch;
+  private boolean skippingArray;
+
+  private String multilineArrayKey;
+
+  // The line being parsed, and the byte ranges of a multiline array's key and start, for when
+  // the context tracks offsets
+  private String rawLine;
+  private long keyStart;
+  private long keyEnd;
+  private long valueStart;
+
+  TomlLineParser(TomlParseListener listener, ParseContext context) {
+    this(listener, context, null);
+  }
+
+  /**
+   * Creates a line parser that only reports the tables and values selected by
+   * {@code projection}, or everything if it is null.
+   */
+  TomlLineParser(TomlParseListener listener, ParseContext context, Projection projection) {
+    this(listener, context, projection, false);
+  }
+
+  private TomlLineParser(
+      TomlParseListener listener, ParseContext context, Projection projection,
+      boolean headersOnly) {
+    this.listener = listener;
+    this.context = context;
+    this.metrics = context.metrics;
+    this.projection = projection;
+    this.headersOnly = headersOnly;
+    this.valueReader = new TomlValueReader(context);
+    this.arrayScanner = new ArrayScanner(context);
+    if (headersOnly) {
+      this.tableMatch = Projection.Match.NONE;
+    } else {
+      this.tableMatch = projection == null ? Projection.Match.ALL : projection.match(tableKeys);
+    }
+  }
+
+  /**
+   * Creates a line parser that reports every table header but skips all values, for finding
+   * the sections of a document.
+   */
+  static TomlLineParser headersOnly(TomlParseListener listener, ParseContext context) {
+    return new TomlLineParser(listener, context, null, true);
+  }
+
+  /**
+   * Prepares this parser for another document, reporting to {@code listener}.
+   */
+  void reset(TomlParseListener listener, Projection projection) {
+    this.listener = listener;
+    this.projection = projection;
+    this.metrics = context.metrics;
+    tableKeys = NO_KEYS;
+    tableMatch = projection == null ? Projection.Match.ALL : projection.match(tableKeys);
+    skippingArray = false;
+    arrayScanner.reset();
+    multilineArrayKey = null;
+    rawLine = null;
+    multilineArrayBuilder.setLength(0);
+    if (multilineArrayBuilder.capacity() > MAX_RETAINED_CAPACITY) {
+      multilineArrayBuilder.trimToSize();
+    }
+  }
+
+  void parseLine(String line) {
+    long startTime = metrics.startTime();
+    try {
+      matchLine(line);
+    } finally {
+      metrics.endTime(TomlPhase.LINE_MATCHING, startTime);
+    }
+  }
+
+  void endOfInput() {
+    if (multilineArrayKey != null) {
+      throw new ParseException("Unclosed array");
+    }
+
+    long startTime = metrics.startTime();
+    listener.onEndOfDocument();
+    metrics.endTime(TomlPhase.TREE_BUILDING, startTime);
+  }
+
+  private void matchLine(String line) {
+    rawLine = line;
+    line = stripCommentAndWhitespace(line);
+    if (line.equals("")) {
+      return;
+    }
+
+    if (multilineArrayKey != null) {
+      continueMultilineArray(line);
+      return;
+    }
+
+    if (skippingArray) {
+      arrayScanner.skip(line);
+      skippingArray = arrayScanner.getDepth() > 0;
+      return;
+    }
+
+    boolean keyGroupLine = line.charAt(0) == '[';
+    if (keyGroupLine && tableExpressionMatcher.reset(line).matches()) {
+      String keyGroupPath = tableExpressionMatcher.group(1);
+      String[] keys = keyGroupPath.split("\\.");
+      context.checkNestingDepth(keys.length);
+
+      if (selectTable(keys)) {
+        long startTime = metrics.startTime();
+        listener.onTable(keys);
+        metrics.endTime(TomlPhase.TREE_BUILDING, startTime);
+      }
+    } else if (keyGroupLine && arrayOfTablesExpressionMatcher.reset(line).matches()) {
+      String keyGroupPath = arrayOfTablesExpressionMatcher.group(1);
+      String[] keys = keyGroupPath.split("\\.");
+      context.checkNestingDepth(keys.length);
+
+      if (selectTable(keys)) {
+        long startTime = metrics.startTime();
+        listener.onArrayOfTables(keys);
+        metrics.endTime(TomlPhase.TREE_BUILDING, startTime);
+      }
+    } else if (tableMatch == Projection.Match.NONE) {
+      skipValue(line);
+    } else if (valueExpressionMatcher.reset(line).matches()) {
+      String key = valueExpressionMatcher.group(1);
+      String value = valueExpressionMatcher.group(2).trim();
+
+      if (tableMatch == Projection.Match.PARTIAL && !projection.selects(tableKeys, key)) {
+        skipValue(value);
+        return;
+      }
+
+      boolean trackOffsets = context.getLineOffset() >= 0;
+      if (trackOffsets) {
+        int valueColumn = valueExpressionMatcher.start(2);
+        while (line.charAt(valueColumn) <= ' ') {
+          valueColumn++;
+        }
+        keyStart = byteOffset(line, valueExpressionMatcher.start(1));
+        keyEnd = byteOffset(line, valueExpressionMatcher.end(1));
+        valueStart = byteOffset(line, valueColumn);
+      }
+
+      // Hold back a multiline array until its closing line arrives
+      if (value.startsWith("[")) {
+        arrayScanner.reset();
+        arrayScanner.scan(value);
+        if (arrayScanner.getDepth() > 0) {
+          multilineArrayKey = key;
+          multilineArrayBuilder.append(value);
+          return;
+        }
+      }
+
+      if (trackOffsets) {
+        context.markKeyValue(keyStart, keyEnd, valueStart,
+            valueStart + StringUtils.utf8Length(value));
+      }
+      keyValue(key, value);
+    } else {
+      throw new ParseException("Invalid line: " + line + " - Please check toml file.");
+    }
+  }
+
+  private boolean selectTable(String[] keys) {
+    if (headersOnly) {
+      return true;
+    }
+
+    tableKeys = keys;
+    if (projection != null) {
+      tableMatch = projection.match(keys);
+    }
+    return tableMatch != Projection.Match.NONE;
+  }
+
+  // Only bracket nesting is tracked, to find where a skipped multiline array ends
+  private void skipValue(String value) {
+    arrayScanner.reset();
+    arrayScanner.skip(value);
+    skippingArray = arrayScanner.getDepth() > 0;
+  }
+
+  private void continueMultilineArray(String line) {
+    // Scan before appending so that an oversized array fails before it is buffered
+    arrayScanner.scan(line);
+    multilineArrayBuilder.append('\n').append(line);
+
+    if (arrayScanner.getDepth() <= 0) {
+      String key = multilineArrayKey;
+      String value = multilineArrayBuilder.toString();
+      multilineArrayKey = null;
+      multilineArrayBuilder.setLength(0);
+
+      if (context.getLineOffset() >= 0) {
+        int end = line.length();
+        while (line.charAt(end - 1) <= ' ') {
+          end--;
+        }
+        context.markKeyValue(keyStart, keyEnd, valueStart, byteOffset(line, end));
+      }
+      keyValue(key, value);
+    }
+  }
+
+  private void keyValue(String key, String value) {
+    long startTime = metrics.startTime();
+    TomlNode node = valueReader.read(value);
+    metrics.endTime(TomlPhase.VALUE_DECODING, startTime);
+
+    startTime = metrics.startTime();
+    listener.onKeyValue(key, node);
+    metrics.endTime(TomlPhase.TREE_BUILDING, startTime);
+  }
+
+  // Returns the byte offset in the document of column in the stripped current line
+  private long byteOffset(String line, int column) {
+    int leading = 0;
+    while (leading < rawLine.length() && rawLine.charAt(leading) <= ' ') {
+      leading++;
+    }
+    return context.getLineOffset() + StringUtils.utf8Length(rawLine, 0, leading + column);
+  }
+
+  // TODO: A key could probably have a '#' too.
+  private String stripCommentAndWhitespace(String line) {
+    String temp = line.trim();
+    // Only a table header may hold a '#' between its brackets
+    boolean keyGroupLine = multilineArrayKey == null && !skippingArray && temp.startsWith("[");
+    boolean inKeyGroup = false;
+    boolean inString = false;
+    for (int i = 0; i < temp.length(); i++) {
+      char ch = temp.charAt(i);
+      if (ch == '\"' && !inString) {
+        inString = true;
+      } else if (inString && ch == '\"' && i > 0 && temp.charAt(i - 1) != '\\') {
+        inString = false;
+      } else if (ch == '[' && !inKeyGroup && keyGroupLine) {
+        inKeyGroup = true;
+      } else if (inKeyGroup && ch == ']') {
+        inKeyGroup = false;
+      }
+
+      if (!inKeyGroup && !inString && ch == '#') {
+        temp = temp.substring(0, i);
+        break;
+      }
+    }
+
+    return temp;
+  }
+}
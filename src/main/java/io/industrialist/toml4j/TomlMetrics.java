@@ -0,0 +1,88 @@
+package io.industrialist.toml4j;
+
+import io.industrialist.toml4j.node.TomlNodeType;
+
+/**
+ * The metrics of a single parsed or generated document.
+ */
+public class TomlMetrics {
+  private final long bytes;
+  private final long characters;
+  private final long lines;
+  private final long[] nodeCounts;
+  private final long[] phaseNanos;
+  private final int maxTableDepth;
+
+  TomlMetrics(
+      long bytes, long characters, long lines, long[] nodeCounts, long[] phaseNanos,
+      int maxTableDepth) {
+    this.bytes = bytes;
+    this.characters = characters;
+    this.lines = lines;
+    this.nodeCounts = nodeCounts.clone();
+    this.phaseNanos = phaseNanos.clone();
+    this.maxTableDepth = maxTableDepth;
+  }
+
+  /**
+   * Returns the number of bytes read while parsing or written while generating.
+   */
+  public long getBytes() {
+    return bytes;
+  }
+
+  public long getCharacters() {
+    return characters;
+  }
+
+  public long getLines() {
+    return lines;
+  }
+
+  public long getNodeCount(TomlNodeType nodeType) {
+    return nodeCounts[nodeType.ordinal()];
+  }
+
+  public long getTotalNodeCount() {
+    long total = 0;
+    for (long nodeCount : nodeCounts) {
+      total += nodeCount;
+    }
+    return total;
+  }
+
+  public long getPhaseNanos(TomlPhase phase) {
+    return phaseNanos[phase.ordinal()];
+  }
+
+  public long getTotalNanos() {
+    long total = 0;
+    for (long nanos : phaseNanos) {
+      total += nanos;
+    }
+    return total;
+  }
+
+  /**
+   * Returns the number of keys in the longest table or array of tables header.
+   */
+  public int getMaxTableDepth() {
+    return maxTableDepth;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder metricsBuilder = new StringBuilder();
+    metricsBuilder.append("bytes=").append(bytes)
+        .append(", characters=").append(characters)
+        .append(", lines=").append(lines)
+        .append(", maxTableDepth=").append(maxTableDepth);
+    for (TomlNodeType nodeType : TomlNodeType.values()) {
+      metricsBuilder.append(", ").append(nodeType).append('=').append(getNodeCount(nodeType));
+    }
+    for (TomlPhase phase : TomlPhase.values()) {
+      metricsBuilder.append(", ").append(phase).append("Nanos=").append(getPhaseNanos(phase));
+    }
+    return metricsBuilder.toString();
+  }
+}
@@ -0,0 +1,111 @@
+package io.industrialist.toml4j;
+
+import io.industrialist.toml4j.node.TomlNodeType;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A {@link TomlMetricsListener} that aggregates the metrics of every document into running totals
+ * and histograms. It is thread safe and may be shared by any number of parsers and generators.
+ */
+public class TomlMetricsAggregator implements TomlMetricsListener {
+  private final AtomicLong documentsParsed = new AtomicLong();
+  private final AtomicLong documentsGenerated = new AtomicLong();
+  private final AtomicLong bytesRead = new AtomicLong();
+  private final AtomicLong linesRead = new AtomicLong();
+  private final AtomicLong bytesWritten = new AtomicLong();
+  private final AtomicLongArray nodesParsed = new AtomicLongArray(TomlNodeType.values().length);
+  private final AtomicLongArray phaseNanos = new AtomicLongArray(TomlPhase.values().length);
+
+  private final TomlHistogram parseNanos = new TomlHistogram();
+  private final TomlHistogram parsedBytes = new TomlHistogram();
+  private final TomlHistogram parsedNodes = new TomlHistogram();
+  private final TomlHistogram tableDepth = new TomlHistogram();
+  private final TomlHistogram generateNanos = new TomlHistogram();
+  private final TomlHistogram generatedBytes = new TomlHistogram();
+
+  @Override
+  public void onParse(TomlMetrics metrics) {
+    documentsParsed.incrementAndGet();
+    bytesRead.addAndGet(metrics.getBytes());
+    linesRead.addAndGet(metrics.getLines());
+    for (TomlNodeType nodeType : TomlNodeType.values()) {
+      nodesParsed.addAndGet(nodeType.ordinal(), metrics.getNodeCount(nodeType));
+    }
+    addPhaseNanos(metrics);
+
+    parseNanos.record(metrics.getTotalNanos());
+    parsedBytes.record(metrics.getBytes());
+    parsedNodes.record(metrics.getTotalNodeCount());
+    tableDepth.record(metrics.getMaxTableDepth());
+  }
+
+  @Override
+  public void onGenerate(TomlMetrics metrics) {
+    documentsGenerated.incrementAndGet();
+    bytesWritten.addAndGet(metrics.getBytes());
+    addPhaseNanos(metrics);
+
+    generateNanos.record(metrics.getTotalNanos());
+    generatedBytes.record(metrics.getBytes());
+  }
+
+  private void addPhaseNanos(TomlMetrics metrics) {
+    for (TomlPhase phase : TomlPhase.values()) {
+      phaseNanos.addAndGet(phase.ordinal(), metrics.getPhaseNanos(phase));
+    }
+  }
+
+  public long getDocumentsParsed() {
+    return documentsParsed.get();
+  }
+
+  public long getDocumentsGenerated() {
+    return documentsGenerated.get();
+  }
+
+  public long getBytesRead() {
+    return bytesRead.get();
+  }
+
+  public long getLinesRead() {
+    return linesRead.get();
+  }
+
+  public long getBytesWritten() {
+    return bytesWritten.get();
+  }
+
+  public long getNodesParsed(TomlNodeType nodeType) {
+    return nodesParsed.get(nodeType.ordinal());
+  }
+
+  public long getPhaseNanos(TomlPhase phase) {
+    return phaseNanos.get(phase.ordinal());
+  }
+
+  public TomlHistogram getParseNanos() {
+    return parseNanos;
+  }
+
+  public TomlHistogram getParsedBytes() {
+    return parsedBytes;
+  }
+
+  public TomlHistogram getParsedNodes() {
+    return parsedNodes;
+  }
+
+  public TomlHistogram getTableDepth() {
+    return tableDepth;
+  }
+
+  public TomlHistogram getGenerateNanos() {
+    return generateNanos;
+  }
+
+  public TomlHistogram getGeneratedBytes() {
+    return generatedBytes;
+  }
+}
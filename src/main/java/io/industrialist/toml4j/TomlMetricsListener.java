@@ -0,0 +1,24 @@
+package io.industrialist.toml4j;
+
+/**
+ * Receives the metrics of every document parsed by a {@link TomlParser} or generated by a
+ * {@link TomlGenerator}. Implementations are called on the parsing or generating thread and must
+ * be thread safe if they are shared.
+ *
+ * <p>Phase timings are only measured when a listener other than {@link #NO_OP} is configured.
+ */
+public interface TomlMetricsListener {
+  TomlMetricsListener NO_OP = new TomlMetricsListener() {
+    @Override
+    public void onParse(TomlMetrics metrics) {
+    }
+
+    @Override
+    public void onGenerate(TomlMetrics metrics) {
+    }
+  };
+
+  void onParse(TomlMetrics metrics);
+
+  void onGenerate(TomlMetrics metrics);
+}
@@ -0,0 +1,77 @@
+package io.industrialist.toml4j;
+
+import io.industrialist.toml4j.node.TomlNode;
+
+/**
+ * A merged, read-only view of several documents, created by {@link Toml#overlay(Toml...)}.
+ * Nothing is copied: each path is resolved against the layers the first time it is read, and the
+ * result is cached. Layers are treated as immutable, and replaced as a whole with
+ * {@link #setLayer(int, Toml)}, which only invalidates the paths the old or new layer has values
+ * for.
+ */
+public final class TomlOverlay extends Toml {
+  private final Object lock;
+  private final Toml[] layers;
+  private final OverlayNode overlayNode;
+
+  private TomlOverlay(Object lock, Toml[] layers, OverlayNode overlayNode) {
+    // Its values are the layers' own nodes, so they must not be changed through it
+    super(overlayNode, true);
+    this.lock = lock;
+    this.layers = layers;
+    this.overlayNode = overlayNode;
+  }
+
+  static TomlOverlay of(Toml[] layers) {
+    Toml[] copy = layers.clone();
+    TomlNode[] parts = new TomlNode[copy.length];
+    int[] layerIndexes = new int[copy.length];
+    for (int i = 0; i < copy.length; i++) {
+      checkLayer(copy[i]);
+      // Topmost first, which is the last layer given
+      parts[copy.length - 1 - i] = copy[i].getRootNode();
+      layerIndexes[copy.length - 1 - i] = i;
+    }
+
+    Object lock = new Object();
+    return new TomlOverlay(lock, copy, new OverlayNode(lock, parts, layerIndexes));
+  }
+
+  private static void checkLayer(Toml layer) {
+    if (layer == null) {
+      throw new NullPointerException("layer: null");
+    }
+    if (!layer.getRootNode().isHash()) {
+      throw new IllegalArgumentException("Layer is not a table");
+    }
+  }
+
+  public int getLayerCount() {
+    return layers.length;
+  }
+
+  public Toml getLayer(int index) {
+    synchronized (lock) {
+      return layers[index];
+    }
+  }
+
+  /**
+   * Replaces the layer at {@code index}, counting from the bottom. Cached paths the old and new
+   * layer have no values for are kept, and so are merged tables above and below them.
+   */
+  public void setLayer(int index, Toml layer) {
+    checkLayer(layer);
+    synchronized (lock) {
+      Toml oldLayer = layers[index];
+      layers[index] = layer;
+      overlayNode.replacePart(index, oldLayer.getRootNode(), layer.getRootNode());
+    }
+  }
+
+  int cachedSize() {
+    synchronized (lock) {
+      return overlayNode.cachedSize();
+    }
+  }
+}
@@ -0,0 +1,17 @@
+package io.industrialist.toml4j;
+
+import io.industrialist.toml4j.node.TomlNode;
+
+/**
+ * Receives the structure of a TOML document as it is parsed, one event per table header or
+ * key/value pair, in document order.
+ */
+public interface TomlParseListener {
+  void onTable(String[] keys);
+
+  void onArrayOfTables(String[] keys);
+
+  void onKeyValue(String key, TomlNode value);
+
+  void onEndOfDocument();
+}
@@ -1,245 +1,274 @@
 package io.industrialist.toml4j;
 
-import io.industrialist.toml4j.node.TomlArrayNode;
-import io.industrialist.toml4j.node.TomlBooleanNode;
-import io.industrialist.toml4j.node.TomlDateTimeNode;
-import io.industrialist.toml4j.node.TomlFloatNode;
-import io.industrialist.toml4j.node.TomlHashNode;
-import io.industrialist.toml4j.node.TomlIntegerNode;
 import io.industrialist.toml4j.node.TomlNode;
-import io.industrialist.toml4j.node.TomlNodeType;
-import io.industrialist.toml4j.node.TomlStringNode;
-import io.industrialist.toml4j.node.TomlTableArrayNode;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.StringReader;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
 
 public class TomlParser {
-  private static final Matcher tableExpressionMatcher = Pattern
-      .compile("\\[([\\w:.,?!@#]+(\\.\\[\\w:.,?!@#]+)*+([\\\"\\w:.,?!@#\\\"])*)]").matcher("");
-  private static final Matcher arrayOfTablesExpressionMatcher =
-      Pattern.compile("\\[\\[([\\w:.,?!@#]+(\\.\\[\\w:.,?!@#]+)*+([\\\"\\w:.,?!@#\\\"])*)]]")
-          .matcher("");
-  private static final Matcher valueExpressionMatcher =
-      Pattern.compile("([^\\s][A-Za-z0-9_-]|[\\\"\\w:.,?!@#\\\"]+)\\s*=(.+)").matcher("");
-
-  private static final Matcher stringValueMatcher = Pattern.compile("^\".*\"$").matcher("");
-  private static final Matcher integerValueMatcher = Pattern.compile("^-?\\d+$").matcher("");
-  private static final Matcher floatValueMatcher = Pattern.compile("^-?\\d+\\.\\d+?$").matcher("");
-  private static final Matcher booleanValueMatcher = Pattern.compile("^(true|false)$").matcher("");
-  private static final Matcher dateTimeValueMatcher =
-      Pattern.compile(
-          "^([\\+-]?\\d{4}(?!\\d{2}\\b))((-?)((0[1-9]|1[0-2])(\\3([12]\\d|0[1-9]|3[01]))?|W([0-4]\\d|5[0-2])(-?[1-7])?|(00[1-9]|0[1-9]\\d|[12]\\d{2}|3([0-5]\\d|6[1-6])))([T\\s]((([01]\\d|2[0-3])((:?)[0-5]\\d)?|24\\:?00)([\\.,]\\d+(?!:))?)?(\\17[0-5]\\d([\\.,]\\d+)?)?([zZ]|([\\+-])([01]\\d|2[0-3]):?([0-5]\\d)?)?)?)?$")
-          .matcher("");
-  private static final Matcher arrayValueMatcher = Pattern.compile("\\[(.*)\\]").matcher("");
+  private enum Result {
+    TREE, TAPE, NONE
+  }
+
+  private final TomlLimits limits;
+  private final TomlMetricsListener metricsListener;
+
+  public TomlParser() {
+    this(TomlLimits.UNLIMITED, TomlMetricsListener.NO_OP);
+  }
+
+  public TomlParser(TomlMetricsListener metricsListener) {
+    this(TomlLimits.UNLIMITED, metricsListener);
+  }
+
+  public TomlParser(TomlLimits limits) {
+    this(limits, TomlMetricsListener.NO_OP);
+  }
+
+  public TomlParser(TomlLimits limits, TomlMetricsListener metricsListener) {
+    if (limits == null) {
+      throw new NullPointerException("limits: null");
+    }
+    if (metricsListener == null) {
+      throw new NullPointerException("metricsListener: null");
+    }
+    this.limits = limits;
+    this.metricsListener = metricsListener;
+  }
 
   public TomlNode parse(String tomlString) throws IOException {
-    BufferedReader reader = new BufferedReader(new StringReader(tomlString));
-    try {
-      return parse(reader);
-    } finally {
-      reader.close();
+    return parseString(tomlString, null, Result.TREE, null);
+  }
+
+  /**
+   * Parses only the parts of the document selected by {@code projection}. Tables outside of the
+   * projection are skipped without decoding their values, and so are not checked for errors.
+   */
+  public TomlNode parse(String tomlString, Projection projection) throws IOException {
+    if (projection == null) {
+      throw new NullPointerException("projection: null");
     }
+    return parseString(tomlString, projection, Result.TREE, null);
   }
 
   public TomlNode parse(InputStream inputStream) throws IOException {
-    BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-    return parse(reader);
-  }
-
-  private TomlNode parse(BufferedReader reader) throws IOException {
-    TomlHashNode rootNode = new TomlHashNode();
-    // TODO: Need TomlContainerNode
-    TomlHashNode currentNode = rootNode;
-    String line;
-    while ((line = reader.readLine()) != null) {
-      line = stripCommentAndWhitespace(line);
-      if (line.equals("")) {
-        continue;
-      }
+    return parseStream(inputStream, null, Result.TREE, null);
+  }
 
-      if (tableExpressionMatcher.reset(line).matches()) {
-        String keyGroupPath = tableExpressionMatcher.group(1);
-        currentNode = rootNode;
-        for (String keyGroup : keyGroupPath.split("\\.")) {
-          TomlNode existingNode = currentNode.get(keyGroup);
-          if (existingNode != null && !existingNode.isHash()) {
-            throw new ParseException("Duplicate key found: " + keyGroupPath);
-          }
-
-          if (existingNode == null) {
-            existingNode = new TomlHashNode();
-            currentNode.put(keyGroup, existingNode);
-          }
-
-          currentNode = (TomlHashNode) existingNode;
-        }
-      } else if (arrayOfTablesExpressionMatcher.reset(line).matches()) {
-        String keyGroupPath = arrayOfTablesExpressionMatcher.group(1);
-        currentNode = rootNode;
-        String[] keys = keyGroupPath.split("\\.");
-        for (int i = 0; i < keys.length - 1; i++) {
-          String keyGroup = keys[i];
-          TomlNode existingNode = currentNode.get(keyGroup);
-          if (existingNode != null && !existingNode.isArrayOfTables()) {
-            throw new ParseException("Duplicate key found: " + keyGroupPath);
-          }
-
-          if (existingNode == null) {
-            existingNode = new TomlTableArrayNode();
-            currentNode.put(keyGroup, existingNode);
-          }
-
-          currentNode = (TomlHashNode) existingNode;
-        }
-
-        String finalKeyGroup = keys[keys.length - 1];
-        TomlNode existingNode = currentNode.get(finalKeyGroup);
-        if (existingNode != null && !existingNode.isArrayOfTables()) {
-          throw new ParseException("Duplicate key found: " + keyGroupPath);
-        }
-
-        if (existingNode == null) {
-          existingNode = new TomlTableArrayNode();
-          currentNode.put(finalKeyGroup, existingNode);
-        }
-
-        TomlHashNode tableArrayNode = new TomlHashNode();
-        ((TomlTableArrayNode) existingNode).add(tableArrayNode);
-
-        currentNode = (TomlHashNode) tableArrayNode;
-      } else if (valueExpressionMatcher.reset(line).matches()) {
-        String key = valueExpressionMatcher.group(1);
-        String value = valueExpressionMatcher.group(2).trim();
-
-        if (currentNode.contains(key)) {
-          throw new ParseException("Duplicate key found");
-        }
-
-        // Parse out whole multiline array
-        if (value.startsWith("[") && !value.endsWith("]")) {
-          value = parseMultilineArray(value, reader);
-        }
-
-        currentNode.put(key, parseValue(value));
-      } else {
-        throw new ParseException("Invalid line: " + line + " - Please check toml file.");
-      }
+  /**
+   * Parses only the parts of the document selected by {@code projection}. Tables outside of the
+   * projection are skipped without decoding their values, and so are not checked for errors.
+   */
+  public TomlNode parse(InputStream inputStream, Projection projection) throws IOException {
+    if (projection == null) {
+      throw new NullPointerException("projection: null");
     }
+    return parseStream(inputStream, projection, Result.TREE, null);
+  }
 
-    return rootNode;
+  /**
+   * Parses the document while checking it against the validator's schema. A
+   * {@link TomlSchema.Mode#FAIL_FAST} validator aborts the parse with a {@link ParseException} at
+   * the first violation; otherwise the violations are left in the validator.
+   */
+  public TomlNode parse(String tomlString, TomlSchemaValidator validator) throws IOException {
+    if (validator == null) {
+      throw new NullPointerException("validator: null");
+    }
+    return parseString(tomlString, null, Result.TREE, validator);
   }
 
-  private String parseMultilineArray(String firstLine, BufferedReader reader) throws IOException {
-    StringBuilder singleLineArrayBuilder = new StringBuilder(firstLine);
-    boolean arrayEndingFound = false;
-    String line;
-    while ((line = reader.readLine()) != null) {
-      line = stripCommentAndWhitespace(line);
-      if (line.equals("")) {
-        continue;
-      }
-      singleLineArrayBuilder.append(line);
+  /**
+   * Parses the document while checking it against the validator's schema, see
+   * {@link #parse(String, TomlSchemaValidator)}.
+   */
+  public TomlNode parse(InputStream inputStream, TomlSchemaValidator validator)
+      throws IOException {
+    if (validator == null) {
+      throw new NullPointerException("validator: null");
+    }
+    return parseStream(inputStream, null, Result.TREE, validator);
+  }
 
-      if (line.endsWith("]")) {
-        arrayEndingFound = true;
-        break;
-      }
+  /**
+   * Parses the document into a {@link TomlTape}, which takes a fraction of the memory of the
+   * tree {@link #parse(String)} builds.
+   */
+  public TomlNode parseCompact(String tomlString) throws IOException {
+    return parseString(tomlString, null, Result.TAPE, null);
+  }
+
+  public TomlNode parseCompact(String tomlString, Projection projection) throws IOException {
+    if (projection == null) {
+      throw new NullPointerException("projection: null");
     }
+    return parseString(tomlString, projection, Result.TAPE, null);
+  }
+
+  /**
+   * Parses the document into a {@link TomlTape}, which takes a fraction of the memory of the
+   * tree {@link #parse(InputStream)} builds.
+   */
+  public TomlNode parseCompact(InputStream inputStream) throws IOException {
+    return parseStream(inputStream, null, Result.TAPE, null);
+  }
 
-    if (!arrayEndingFound) {
-      throw new ParseException("Unclosed array");
+  public TomlNode parseCompact(InputStream inputStream, Projection projection)
+      throws IOException {
+    if (projection == null) {
+      throw new NullPointerException("projection: null");
     }
+    return parseStream(inputStream, projection, Result.TAPE, null);
+  }
+
+  /**
+   * Reports the document to {@code listener} without building anything. The checks that need
+   * the whole tree, such as for duplicate keys, are left to the listener.
+   */
+  void parse(InputStream inputStream, TomlParseListener listener) throws IOException {
+    parseStream(inputStream, null, Result.NONE, listener);
+  }
 
-    return singleLineArrayBuilder.toString();
-  }
-
-  private TomlNode parseValue(String value) {
-    if (stringValueMatcher.reset(value).matches()) {
-      value = value.substring(1, value.length() - 1); // Remove quotes
-      return TomlStringNode.valueOf(StringUtils.unescapeString(value));
-    } else if (integerValueMatcher.reset(value).matches()) {
-      return TomlIntegerNode.valueOf(Long.valueOf(value));
-    } else if (booleanValueMatcher.reset(value).matches()) {
-      return TomlBooleanNode.valueOf(Boolean.valueOf(value));
-    } else if (floatValueMatcher.reset(value).matches()) {
-      return TomlFloatNode.valueOf(Double.valueOf(value));
-    } else if (dateTimeValueMatcher.reset(value).matches()) {
-      return TomlDateTimeNode.valueOf(value);
-    } else if (arrayValueMatcher.reset(value).matches()) {
-      return parseArrayValue(value);
-    } else {
-      throw new ParseException("Invalid value: " + value);
+  private TomlNode parseString(
+      String tomlString, Projection projection, Result result, TomlParseListener listener)
+      throws IOException {
+    // A character takes at least one byte, so only measure when the string might be too large
+    long maxDocumentBytes = limits.getMaxDocumentBytes();
+    if (tomlString.length() > maxDocumentBytes
+        || ((long) tomlString.length() * 3 > maxDocumentBytes
+        && StringUtils.utf8Length(tomlString) > maxDocumentBytes)) {
+      throw new ParseException(
+          "Document is larger than the maximum of " + maxDocumentBytes + " bytes");
+    }
+
+    ReaderContext readerContext = ReaderContext.acquire(limits, metricsListener);
+    try {
+      ParseContext context = readerContext.parseContext;
+      if (metricsListener != TomlMetricsListener.NO_OP) {
+        context.metrics.addBytes(StringUtils.utf8Length(tomlString));
+      }
+
+      DocumentBuilder documentBuilder = start(readerContext, projection, result, listener);
+      char[] buffer = readerContext.charBuffer.array();
+      for (int offset = 0; offset < tomlString.length(); offset += buffer.length) {
+        int length = Math.min(buffer.length, tomlString.length() - offset);
+        tomlString.getChars(offset, offset + length, buffer, 0);
+        readerContext.lineSplitter.feed(buffer, 0, length);
+      }
+      end(readerContext);
+
+      report(context);
+      return documentBuilder == null ? null : documentBuilder.getRoot();
+    } finally {
+      readerContext.release();
     }
   }
 
-  private TomlNode parseArrayValue(String value) {
-    // Remove surrounding brackets '[' and ']'
-    value = value.substring(1, value.length() - 1);
-    TomlArrayNode arrayNode = new TomlArrayNode();
-    if (value.matches(".*(?:\\]),.*")) { // Nested arrays
-      // Split with lookbehind to keep brackets
-      TomlNodeType arrayType = null;
-      for (String nestedValue : value.split("(?<=(?:\\])),")) {
-        TomlNode nestedArrayNode = parseValue(nestedValue.trim());
-        if (arrayType == null) {
-          arrayType = nestedArrayNode.getNodeType();
-        }
-
-        if (!nestedArrayNode.getNodeType().equals(arrayType)) {
-          throw new ParseException("Cannot mix data types in an array");
-        }
-
-        arrayNode.add(nestedArrayNode);
+  private TomlNode parseStream(
+      InputStream inputStream, Projection projection, Result result,
+      TomlParseListener listener) throws IOException {
+    ReaderContext readerContext = ReaderContext.acquire(limits, metricsListener);
+    try {
+      ParseContext context = readerContext.parseContext;
+      CountingInputStream countingInputStream = null;
+      if (metricsListener != TomlMetricsListener.NO_OP
+          || limits.getMaxDocumentBytes() != Long.MAX_VALUE) {
+        countingInputStream = new CountingInputStream(inputStream, limits.getMaxDocumentBytes());
+        inputStream = countingInputStream;
       }
-    } else {
-      TomlNodeType arrayType = null;
-      for (String arrayValue : value.split("\\,")) {
-        TomlNode arrayValueNode = parseValue(arrayValue.trim());
-        if (arrayType == null) {
-          arrayType = arrayValueNode.getNodeType();
-        }
-
-        if (!arrayValueNode.getNodeType().equals(arrayType)) {
-          throw new ParseException("Cannot mix data types in an array");
-        }
-
-        arrayNode.add(arrayValueNode);
+
+      DocumentBuilder documentBuilder = start(readerContext, projection, result, listener);
+      read(readerContext, inputStream);
+      end(readerContext);
+
+      if (countingInputStream != null) {
+        context.metrics.addBytes(countingInputStream.getCount());
       }
+      report(context);
+      return documentBuilder == null ? null : documentBuilder.getRoot();
+    } finally {
+      readerContext.release();
     }
+  }
+
+  // Returns the builder for the result, or null when the listener is all there is
+  private static DocumentBuilder start(
+      ReaderContext readerContext, Projection projection, Result result,
+      TomlParseListener listener) {
+    if (result == Result.NONE) {
+      readerContext.lineParser.reset(listener, projection);
+      return null;
+    }
+
+    DocumentBuilder documentBuilder = result == Result.TAPE
+        ? new TomlTapeBuilder(readerContext.parseContext)
+        : new TomlTreeBuilder(readerContext.parseContext);
+    readerContext.lineParser.reset(
+        listener == null ? documentBuilder : new ForwardingListener(documentBuilder, listener),
+        projection);
+    return documentBuilder;
+  }
 
-    return arrayNode;
-  }
-
-  // TODO: A key could probably have a '#' too.
-  private String stripCommentAndWhitespace(String line) {
-    String temp = line.trim();
-    boolean inKeyGroup = false;
-    boolean inString = false;
-    for (int i = 0; i < temp.length(); i++) {
-      char ch = temp.charAt(i);
-      if (ch == '\"' && !inString) {
-        inString = true;
-      } else if (inString && ch == '\"' && i > 0 && temp.charAt(i - 1) != '\\') {
-        inString = false;
-      } else if (ch == '[' && !inKeyGroup) {
-        inKeyGroup = true;
-      } else if (inKeyGroup && ch == ']') {
-        inKeyGroup = false;
+  // Decodes the stream the way InputStreamReader does, through the context's buffers
+  private static void read(ReaderContext readerContext, InputStream inputStream)
+      throws IOException {
+    MetricsCollector metrics = readerContext.parseContext.metrics;
+    CharsetDecoder decoder = readerContext.decoder();
+    ByteBuffer byteBuffer = readerContext.byteBuffer;
+    for (; ; ) {
+      long startTime = metrics.startTime();
+      int read = inputStream.read(
+          byteBuffer.array(), byteBuffer.position(), byteBuffer.remaining());
+      metrics.endTime(TomlPhase.READ, startTime);
+      if (read == -1) {
+        break;
       }
 
-      if (!inKeyGroup && !inString && ch == '#') {
-        temp = temp.substring(0, i);
+      byteBuffer.position(byteBuffer.position() + read);
+      byteBuffer.flip();
+      decode(readerContext, decoder, false);
+      byteBuffer.compact();
+    }
+
+    byteBuffer.flip();
+    decode(readerContext, decoder, true);
+    CharBuffer charBuffer = readerContext.charBuffer;
+    decoder.flush(charBuffer);
+    charBuffer.flip();
+    readerContext.lineSplitter.feed(charBuffer.array(), 0, charBuffer.limit());
+    charBuffer.clear();
+  }
+
+  private static void decode(
+      ReaderContext readerContext, CharsetDecoder decoder, boolean endOfInput) {
+    CharBuffer charBuffer = readerContext.charBuffer;
+    for (; ; ) {
+      CoderResult result = decoder.decode(readerContext.byteBuffer, charBuffer, endOfInput);
+      charBuffer.flip();
+      readerContext.lineSplitter.feed(charBuffer.array(), 0, charBuffer.limit());
+      charBuffer.clear();
+      if (!result.isOverflow()) {
         break;
       }
     }
+  }
+
+  private static void end(ReaderContext readerContext) {
+    LineSplitter lineSplitter = readerContext.lineSplitter;
+    lineSplitter.end();
 
-    return temp;
-    // return commentMatcher.reset(line).replaceAll("").trim();
+    ParseContext context = readerContext.parseContext;
+    context.metrics.addCharacters(lineSplitter.getCharacterCount());
+    context.metrics.addLines(context.getLineNumber());
+  }
+
+  private void report(ParseContext context) {
+    if (metricsListener != TomlMetricsListener.NO_OP) {
+      metricsListener.onParse(context.metrics.toMetrics());
+    }
   }
 }
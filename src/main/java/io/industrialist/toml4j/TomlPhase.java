@@ -0,0 +1,17 @@
+package io.industrialist.toml4j;
+
+/**
+ * The phases that parse and generation time is broken down into.
+ */
+public enum TomlPhase {
+  /** Reading and decoding characters from the input. */
+  READ,
+  /** Stripping comments and matching lines against table and key/value expressions. */
+  LINE_MATCHING,
+  /** Decoding values, including strings, numbers and arrays. */
+  VALUE_DECODING,
+  /** Adding tables and values to the tree. */
+  TREE_BUILDING,
+  /** Generating and writing output. */
+  WRITE
+}
@@ -0,0 +1,640 @@
+package io.industrialist.toml4j;
+
+import io.industrialist.toml4j.node.TomlHashNode;
+import io.industrialist.toml4j.node.TomlNode;
+import io.industrialist.toml4j.node.TomlNodeType;
+
+import org.joda.time.DateTime;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A query over a {@link TomlNode} tree, compiled once from an expression and then run any number
+ * of times. For example
+ *
+ * <pre>
+ * TomlQuery query = TomlQuery.compile("servers[region = \"eu\" &amp;&amp; weight &gt;= 10].ip");
+ * for (TomlNode ip : query.select(rootNode)) { ... }
+ * </pre>
+ *
+ * <p>An expression is a sequence of steps, each applied to every node produced by the step before
+ * it:
+ * <ul>
+ * <li>{@code key} or {@code .key} selects a key of a table; {@code "quoted key"} works too. Applied
+ * to an array of tables it selects the key of every entry.</li>
+ * <li>{@code *} or {@code [*]} selects every value of a table or every element of an array.</li>
+ * <li>{@code [n]} selects element n of an array, counting from the end if negative.</li>
+ * <li>{@code [condition]} keeps the elements of an array, or the table itself, for which the
+ * condition holds. Conditions compare a relative path with a string, integer, float, boolean or
+ * date literal using {@code = != < <= > >=}, combine with {@code && || !} and parentheses, and a
+ * path on its own tests that the value exists and is not false.</li>
+ * <li>A final {@code {path, path}} projects each result onto a new table holding just those
+ * paths.</li>
+ * </ul>
+ *
+ * <p>Queries are immutable and thread safe, and compare equal when their expressions are equal,
+ * so compiled queries can be shared and cached. Running a query walks the tree directly, passing
+ * each result to a {@link Visitor} without collecting intermediate results.
+ */
+public final class TomlQuery {
+  /**
+   * Receives the results of a query.
+   */
+  public interface Visitor {
+    /**
+     * Returns false to stop the query.
+     */
+    boolean visit(TomlNode node);
+  }
+
+  private final String expression;
+  private final Step[] steps;
+  private final String[][] projection;
+  private final String[] projectionNames;
+
+  private TomlQuery(String expression, Step[] steps, String[][] projection,
+      String[] projectionNames) {
+    this.expression = expression;
+    this.steps = steps;
+    this.projection = projection;
+    this.projectionNames = projectionNames;
+  }
+
+  public static TomlQuery compile(String expression) {
+    if (expression == null) {
+      throw new NullPointerException("expression: null");
+    }
+    return new Compiler(expression).compile();
+  }
+
+  public String getExpression() {
+    return expression;
+  }
+
+  /**
+   * Passes every result of this query to {@code visitor}, in document order, until it returns
+   * false.
+   */
+  public void forEach(TomlNode root, Visitor visitor) {
+    if (root == null) {
+      throw new NullPointerException("root: null");
+    }
+    if (visitor == null) {
+      throw new NullPointerException("visitor: null");
+    }
+    run(root, 0, visitor);
+  }
+
+  public List<TomlNode> select(TomlNode root) {
+    final List<TomlNode> results = new ArrayList<TomlNode>();
+    forEach(root, new Visitor() {
+      @Override
+      public boolean visit(TomlNode node) {
+        results.add(node);
+        return true;
+      }
+    });
+    return results;
+  }
+
+  /**
+   * Returns the first result of this query, or null if there is none.
+   */
+  public TomlNode first(TomlNode root) {
+    final TomlNode[] result = new TomlNode[1];
+    forEach(root, new Visitor() {
+      @Override
+      public boolean visit(TomlNode node) {
+        result[0] = node;
+        return false;
+      }
+    });
+    return result[0];
+  }
+
+  private boolean run(TomlNode node, int step, Visitor visitor) {
+    if (step < steps.length) {
+      return steps[step].apply(node, this, step + 1, visitor);
+    }
+    if (projection == null) {
+      return visitor.visit(node);
+    }
+
+    TomlHashNode projected = new TomlHashNode();
+    for (int i = 0; i < projection.length; i++) {
+      TomlNode value = resolve(node, projection[i]);
+      if (value != null) {
+        projected.put(projectionNames[i], value);
+      }
+    }
+    return visitor.visit(projected);
+  }
+
+  private static TomlNode resolve(TomlNode node, String[] path) {
+    for (int i = 0; i < path.length && node != null; i++) {
+      node = node.get(path[i]);
+    }
+    return node;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof TomlQuery && expression.equals(((TomlQuery) o).expression);
+  }
+
+  @Override
+  public int hashCode() {
+    return expression.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return expression;
+  }
+
+  private abstract static class Step {
+    abstract boolean apply(TomlNode node, TomlQuery query, int next, Visitor visitor);
+  }
+
+  private static class KeyStep extends Step {
+    private final String key;
+
+    KeyStep(String key) {
+      this.key = key;
+    }
+
+    @Override
+    boolean apply(TomlNode node, TomlQuery query, int next, Visitor visitor) {
+      if (node.isArrayOfTables()) {
+        for (int i = 0; i < node.size(); i++) {
+          if (!apply(node.get(i), query, next, visitor)) {
+            return false;
+          }
+        }
+        return true;
+      }
+
+      TomlNode value = node.get(key);
+      return value == null || query.run(value, next, visitor);
+    }
+  }
+
+  private static class WildcardStep extends Step {
+    @Override
+    boolean apply(TomlNode node, TomlQuery query, int next, Visitor visitor) {
+      if (node.isHash()) {
+        for (TomlNode value : node.children()) {
+          if (!query.run(value, next, visitor)) {
+            return false;
+          }
+        }
+      } else if (node.isArray() || node.isArrayOfTables()) {
+        for (int i = 0; i < node.size(); i++) {
+          if (!query.run(node.get(i), next, visitor)) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+  }
+
+  private static class IndexStep extends Step {
+    private final int index;
+
+    IndexStep(int index) {
+      this.index = index;
+    }
+
+    @Override
+    boolean apply(TomlNode node, TomlQuery query, int next, Visitor visitor) {
+      if (!node.isArray() && !node.isArrayOfTables()) {
+        return true;
+      }
+
+      int i = index < 0 ? node.size() + index : index;
+      return i < 0 || i >= node.size() || query.run(node.get(i), next, visitor);
+    }
+  }
+
+  private static class FilterStep extends Step {
+    private final Condition condition;
+
+    FilterStep(Condition condition) {
+      this.condition = condition;
+    }
+
+    @Override
+    boolean apply(TomlNode node, TomlQuery query, int next, Visitor visitor) {
+      if (node.isArray() || node.isArrayOfTables()) {
+        for (int i = 0; i < node.size(); i++) {
+          TomlNode element = node.get(i);
+          if (condition.test(element) && !query.run(element, next, visitor)) {
+            return false;
+          }
+        }
+        return true;
+      }
+
+      return !condition.test(node) || query.run(node, next, visitor);
+    }
+  }
+
+  private abstract static class Condition {
+    abstract boolean test(TomlNode node);
+  }
+
+  private static class Not extends Condition {
+    private final Condition operand;
+
+    Not(Condition operand) {
+      this.operand = operand;
+    }
+
+    @Override
+    boolean test(TomlNode node) {
+      return !operand.test(node);
+    }
+  }
+
+  private static class And extends Condition {
+    private final Condition left;
+    private final Condition right;
+
+    And(Condition left, Condition right) {
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    boolean test(TomlNode node) {
+      return left.test(node) && right.test(node);
+    }
+  }
+
+  private static class Or extends Condition {
+    private final Condition left;
+    private final Condition right;
+
+    Or(Condition left, Condition right) {
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    boolean test(TomlNode node) {
+      return left.test(node) || right.test(node);
+    }
+  }
+
+  private static class Exists extends Condition {
+    private final String[] path;
+
+    Exists(String[] path) {
+      this.path = path;
+    }
+
+    @Override
+    boolean test(TomlNode node) {
+      TomlNode value = resolve(node, path);
+      return value != null && (!value.isBoolean() || value.booleanValue());
+    }
+  }
+
+  private static class Comparison extends Condition {
+    private final String[] path;
+    private final String operator;
+    private final TomlNodeType literalType;
+    private final String stringLiteral;
+    private final long longLiteral;
+    private final double doubleLiteral;
+    private final DateTime dateTimeLiteral; // Set when a string literal is also a valid date
+
+    Comparison(String[] path, String operator, TomlNodeType literalType, String stringLiteral,
+        long longLiteral, double doubleLiteral, DateTime dateTimeLiteral) {
+      this.path = path;
+      this.operator = operator;
+      this.literalType = literalType;
+      this.stringLiteral = stringLiteral;
+      this.longLiteral = longLiteral;
+      this.doubleLiteral = doubleLiteral;
+      this.dateTimeLiteral = dateTimeLiteral;
+    }
+
+    @Override
+    boolean test(TomlNode node) {
+      TomlNode value = resolve(node, path);
+      if (value == null) {
+        return false;
+      }
+
+      int order;
+      switch (value.getNodeType()) {
+        case STRING:
+          if (literalType != TomlNodeType.STRING) {
+            return false;
+          }
+          order = value.stringValue().compareTo(stringLiteral);
+          break;
+        case INTEGER:
+          if (literalType == TomlNodeType.INTEGER) {
+            order = compare(value.longValue(), longLiteral);
+          } else if (literalType == TomlNodeType.FLOAT) {
+            order = Double.compare(value.longValue(), doubleLiteral);
+          } else {
+            return false;
+          }
+          break;
+        case FLOAT:
+          if (literalType != TomlNodeType.INTEGER && literalType != TomlNodeType.FLOAT) {
+            return false;
+          }
+          order = Double.compare(value.doubleValue(), doubleLiteral);
+          break;
+        case BOOLEAN:
+          if (literalType != TomlNodeType.BOOLEAN) {
+            return false;
+          }
+          order = compare(value.booleanValue() ? 1 : 0, longLiteral);
+          break;
+        case DATETIME:
+          if (dateTimeLiteral == null) {
+            return false;
+          }
+          order = value.dateTimeValue().compareTo(dateTimeLiteral);
+          break;
+        default:
+          return false;
+      }
+
+      if (operator.equals("=")) {
+        return order == 0;
+      } else if (operator.equals("!=")) {
+        return order != 0;
+      } else if (operator.equals("<")) {
+        return order < 0;
+      } else if (operator.equals("<=")) {
+        return order <= 0;
+      } else if (operator.equals(">")) {
+        return order > 0;
+      } else {
+        return order >= 0;
+      }
+    }
+
+    private static int compare(long left, long right) {
+      return left < right ? -1 : (left == right ? 0 : 1);
+    }
+  }
+
+  private static class Compiler {
+    private final String expression;
+    private int position;
+
+    Compiler(String expression) {
+      this.expression = expression;
+    }
+
+    TomlQuery compile() {
+      List<Step> steps = new ArrayList<Step>();
+      skipWhitespace();
+      if (position < expression.length() && peek() != '[' && peek() != '{') {
+        steps.add(readKeyStep());
+      }
+
+      String[][] projection = null;
+      String[] projectionNames = null;
+      for (skipWhitespace(); position < expression.length(); skipWhitespace()) {
+        char ch = peek();
+        if (ch == '.') {
+          position++;
+          skipWhitespace();
+          steps.add(readKeyStep());
+        } else if (ch == '[') {
+          position++;
+          steps.add(readBracketStep());
+          expect(']');
+        } else if (ch == '{') {
+          position++;
+          List<String[]> paths = new ArrayList<String[]>();
+          List<String> names = new ArrayList<String>();
+          do {
+            int start = skipWhitespace();
+            paths.add(readPath());
+            names.add(expression.substring(start, position).trim());
+          } while (consume(','));
+          expect('}');
+          projection = paths.toArray(new String[paths.size()][]);
+          projectionNames = names.toArray(new String[names.size()]);
+          skipWhitespace();
+          if (position < expression.length()) {
+            throw error("Expected end of query");
+          }
+        } else {
+          throw error("Expected '.', '[' or '{'");
+        }
+      }
+
+      return new TomlQuery(
+          expression, steps.toArray(new Step[steps.size()]), projection, projectionNames);
+    }
+
+    private Step readKeyStep() {
+      if (consume('*')) {
+        return new WildcardStep();
+      }
+      return new KeyStep(readKey());
+    }
+
+    private Step readBracketStep() {
+      skipWhitespace();
+      if (consume('*')) {
+        return new WildcardStep();
+      }
+
+      int start = position;
+      if (position < expression.length() && (peek() == '-' || Character.isDigit(peek()))) {
+        position++;
+        while (position < expression.length() && Character.isDigit(peek())) {
+          position++;
+        }
+        skipWhitespace();
+        if (position < expression.length() && peek() == ']') {
+          try {
+            return new IndexStep(Integer.parseInt(expression.substring(start, position).trim()));
+          } catch (NumberFormatException e) {
+            position = start;
+            throw error("Invalid index");
+          }
+        }
+        position = start;
+      }
+
+      return new FilterStep(readOr());
+    }
+
+    private Condition readOr() {
+      Condition condition = readAnd();
+      while (consume("||")) {
+        condition = new Or(condition, readAnd());
+      }
+      return condition;
+    }
+
+    private Condition readAnd() {
+      Condition condition = readUnary();
+      while (consume("&&")) {
+        condition = new And(condition, readUnary());
+      }
+      return condition;
+    }
+
+    private Condition readUnary() {
+      if (consume('!')) {
+        return new Not(readUnary());
+      }
+      if (consume('(')) {
+        Condition condition = readOr();
+        expect(')');
+        return condition;
+      }
+
+      String[] path = readPath();
+      skipWhitespace();
+      String operator = null;
+      String[] operators = {"!=", "<=", ">=", "=", "<", ">"};
+      for (String candidate : operators) {
+        if (expression.startsWith(candidate, position)) {
+          operator = candidate;
+          position += candidate.length();
+          break;
+        }
+      }
+      if (operator == null) {
+        return new Exists(path);
+      }
+
+      return readLiteral(path, operator);
+    }
+
+    private Condition readLiteral(String[] path, String operator) {
+      skipWhitespace();
+      if (position >= expression.length()) {
+        throw error("Expected a value");
+      }
+
+      if (peek() == '"') {
+        String value = readQuoted();
+        DateTime dateTime = null;
+        try {
+          dateTime = DateTime.parse(value);
+        } catch (IllegalArgumentException e) {
+          // Only a string
+        }
+        return new Comparison(path, operator, TomlNodeType.STRING, value, 0, 0, dateTime);
+      }
+
+      int start = position;
+      while (position < expression.length()
+          && (Character.isLetterOrDigit(peek()) || "+-._".indexOf(peek()) >= 0)) {
+        position++;
+      }
+      String token = expression.substring(start, position);
+      if (token.equals("true") || token.equals("false")) {
+        long value = token.equals("true") ? 1 : 0;
+        return new Comparison(path, operator, TomlNodeType.BOOLEAN, null, value, value, null);
+      }
+      try {
+        if (token.indexOf('.') < 0 && token.indexOf('e') < 0 && token.indexOf('E') < 0) {
+          long value = Long.parseLong(token);
+          return new Comparison(path, operator, TomlNodeType.INTEGER, null, value, value, null);
+        }
+        double value = Double.parseDouble(token);
+        return new Comparison(path, operator, TomlNodeType.FLOAT, null, 0, value, null);
+      } catch (NumberFormatException e) {
+        position = start;
+        throw error("Invalid value");
+      }
+    }
+
+    private String[] readPath() {
+      List<String> keys = new ArrayList<String>();
+      skipWhitespace();
+      keys.add(readKey());
+      while (position < expression.length() && peek() == '.') {
+        position++;
+        keys.add(readKey());
+      }
+      return keys.toArray(new String[keys.size()]);
+    }
+
+    private String readKey() {
+      if (position < expression.length() && peek() == '"') {
+        return readQuoted();
+      }
+
+      int start = position;
+      while (position < expression.length()
+          && (Character.isLetterOrDigit(peek()) || peek() == '_' || peek() == '-')) {
+        position++;
+      }
+      if (position == start) {
+        throw error("Expected a key");
+      }
+      return expression.substring(start, position);
+    }
+
+    private String readQuoted() {
+      int start = ++position;
+      while (position < expression.length() && peek() != '"') {
+        position += peek() == '\\' ? 2 : 1;
+      }
+      if (position >= expression.length()) {
+        position = start - 1;
+        throw error("Unterminated string");
+      }
+      return StringUtils.unescapeString(expression, start, position++);
+    }
+
+    private int skipWhitespace() {
+      while (position < expression.length() && Character.isWhitespace(peek())) {
+        position++;
+      }
+      return position;
+    }
+
+    private char peek() {
+      return expression.charAt(position);
+    }
+
+    private boolean consume(char ch) {
+      skipWhitespace();
+      if (position < expression.length() && peek() == ch) {
+        position++;
+        return true;
+      }
+      return false;
+    }
+
+    private boolean consume(String token) {
+      skipWhitespace();
+      if (expression.startsWith(token, position)) {
+        position += token.length();
+        return true;
+      }
+      return false;
+    }
+
+    private void expect(char ch) {
+      if (!consume(ch)) {
+        throw error("Expected '" + ch + "'");
+      }
+    }
+
+    private ParseException error(String message) {
+      return new ParseException(
+          "Invalid query at position " + position + ": " + message + ": " + expression);
+    }
+  }
+}
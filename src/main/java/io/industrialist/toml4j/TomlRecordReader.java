@@ -0,0 +1,446 @@
+package io.industrialist.toml4j;
+
+import io.industrialist.toml4j.node.TomlHashNode;
+import io.industrialist.toml4j.node.TomlNode;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads the entries of one array of tables in a document one at a time, for files that hold
+ * more entries than fit in memory:
+ *
+ * <pre>
+ * TomlRecordReader reader = TomlRecordReader.open(inputStream, "events");
+ * try {
+ *   while (reader.hasNext()) {
+ *     TomlHashNode event = reader.next();
+ *     ...
+ *   }
+ * } finally {
+ *   reader.close();
+ * }
+ * </pre>
+ *
+ * Each entry, with the tables below it, is built as a table of its own and is not referenced
+ * once it has been returned, so the memory taken does not grow with the number of entries. The
+ * rest of the document is built as a tree, see {@link #getDocument()}.
+ *
+ * <p>Given a read-ahead, the input is parsed on a background thread that hands entries over in
+ * batches of up to that many, keeping one batch ready while another is read. Instances are not
+ * thread safe.
+ */
+public final class TomlRecordReader implements Iterator<TomlHashNode>, Closeable {
+  private static final Object END = new Object();
+
+  private final InputStream input;
+  private final RecordParser parser;
+  private final int batchSize;
+  // Holds batches of entries, then END or the failure that ended the parse
+  private final BlockingQueue<Object> readAhead;
+  private final Thread readAheadThread;
+  private Queue<TomlHashNode> batch = new ArrayDeque<TomlHashNode>();
+  private TomlHashNode next;
+  private boolean ended;
+
+  private TomlRecordReader(InputStream input, String[] path, int readAhead) {
+    this.input = input;
+    this.parser = new RecordParser(input, path);
+    this.batchSize = readAhead;
+    if (readAhead == 0) {
+      this.readAhead = null;
+      this.readAheadThread = null;
+    } else {
+      this.readAhead = new ArrayBlockingQueue<Object>(1);
+      this.readAheadThread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          readAhead();
+        }
+      }, "TomlRecordReader");
+      readAheadThread.setDaemon(true);
+      readAheadThread.start();
+    }
+  }
+
+  /**
+   * Opens a reader for the entries of the array of tables at {@code path}, such as
+   * {@code "events"} for {@code [[events]]}, reading them as they are asked for.
+   */
+  public static TomlRecordReader open(InputStream input, String path) {
+    return open(input, path, 0);
+  }
+
+  /**
+   * Opens a reader for the entries of the array of tables at {@code path}, parsing up to twice
+   * {@code readAhead} entries ahead on a background thread. A read-ahead of 0 reads on the
+   * calling thread instead.
+   */
+  public static TomlRecordReader open(InputStream input, String path, int readAhead) {
+    if (input == null) {
+      throw new NullPointerException("input: null");
+    }
+    if (path == null) {
+      throw new NullPointerException("path: null");
+    }
+    if (path.length() == 0) {
+      throw new IllegalArgumentException("Empty path");
+    }
+    if (readAhead < 0) {
+      throw new IllegalArgumentException("Negative read-ahead: " + readAhead);
+    }
+    return new TomlRecordReader(input, path.split("\\."), readAhead);
+  }
+
+  /**
+   * Returns the document without the entries that are read one at a time. It holds the tables
+   * that come before the first entry, waiting for them to be read if necessary, and once every
+   * entry has been read, the tables that come after.
+   */
+  public TomlNode getDocument() {
+    hasNext();
+    return parser.document.getRoot();
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (next == null && !ended) {
+      Object item = readAhead == null ? poll() : take();
+      if (item instanceof TomlHashNode) {
+        next = (TomlHashNode) item;
+      } else {
+        ended = true;
+        if (item == END) {
+          // Applied here rather than on the thread reading ahead, which has been done with the
+          // document ever since the first entry
+          parser.replayDeferred();
+        } else {
+          throwFailure((Throwable) item);
+        }
+      }
+    }
+    return next != null;
+  }
+
+  @Override
+  public TomlHashNode next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+
+    TomlHashNode record = next;
+    next = null;
+    return record;
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Stops reading, and closes the input stream.
+   */
+  @Override
+  public void close() throws IOException {
+    ended = true;
+    next = null;
+    batch.clear();
+    if (readAheadThread != null) {
+      readAheadThread.interrupt();
+    }
+    input.close();
+  }
+
+  private Object poll() {
+    try {
+      TomlHashNode record = parser.poll();
+      return record == null ? END : record;
+    } catch (IOException e) {
+      return e;
+    } catch (RuntimeException e) {
+      return e;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private Object take() {
+    try {
+      while (batch.isEmpty()) {
+        Object item = readAhead.take();
+        if (!(item instanceof Queue)) {
+          return item;
+        }
+        batch = (Queue<TomlHashNode>) item;
+      }
+      return batch.poll();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return new InterruptedIOException("Interrupted while waiting for the next entry");
+    }
+  }
+
+  // Hands a batch over once it is full, or once the entries read so far have all been added and
+  // the next would have to wait for more input
+  private void readAhead() {
+    try {
+      Queue<TomlHashNode> readBatch = new ArrayDeque<TomlHashNode>(batchSize);
+      for (; ; ) {
+        Object item = poll();
+        if (!(item instanceof TomlHashNode)) {
+          if (!readBatch.isEmpty()) {
+            readAhead.put(readBatch);
+          }
+          readAhead.put(item);
+          return;
+        }
+
+        readBatch.add((TomlHashNode) item);
+        if (readBatch.size() == batchSize || !parser.hasRecords()) {
+          readAhead.put(readBatch);
+          readBatch = new ArrayDeque<TomlHashNode>(batchSize);
+        }
+      }
+    } catch (InterruptedException e) {
+      // Closed
+    } catch (Error e) {
+      readAhead.offer(e);
+      throw e;
+    }
+  }
+
+  private static void throwFailure(Throwable failure) {
+    if (failure instanceof IOException) {
+      throw new ReadException((IOException) failure);
+    } else if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    }
+    throw (Error) failure;
+  }
+
+  /**
+   * Thrown by {@link #hasNext()} and {@link #next()} when the input cannot be read.
+   */
+  public static final class ReadException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    ReadException(IOException cause) {
+      super(cause);
+    }
+
+    @Override
+    public IOException getCause() {
+      return (IOException) super.getCause();
+    }
+  }
+
+  /**
+   * Reads the input a buffer at a time, until at least one entry is complete. The events of the
+   * tables outside the entries go to the document while no entry has been read, and are deferred
+   * after that.
+   */
+  private static final class RecordParser implements TomlParseListener {
+    private final InputStream input;
+    private final String[] path;
+    private final ParseContext context =
+        new ParseContext(new MetricsCollector(false), TomlLimits.UNLIMITED);
+    private final LineSplitter lineSplitter =
+        new LineSplitter(new TomlLineParser(this, context), context);
+    // Decoded the way TomlParser decodes a stream
+    private final CharsetDecoder decoder = Charset.defaultCharset().newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final ByteBuffer byteBuffer = ByteBuffer.allocate(ReaderContext.BUFFER_SIZE);
+    private final CharBuffer charBuffer = CharBuffer.allocate(ReaderContext.BUFFER_SIZE);
+
+    final TomlTreeBuilder document = new TomlTreeBuilder(context);
+    private final Queue<TomlHashNode> records = new ArrayDeque<TomlHashNode>();
+    private final List<Event> deferred = new ArrayList<Event>();
+    private TomlTreeBuilder record;
+    private boolean started;
+    private boolean ended;
+
+    RecordParser(InputStream input, String[] path) {
+      this.input = input;
+      this.path = path;
+    }
+
+    boolean hasRecords() {
+      return !records.isEmpty();
+    }
+
+    // Returns null once there are no more entries
+    TomlHashNode poll() throws IOException {
+      while (records.isEmpty() && !ended) {
+        read();
+      }
+      return records.poll();
+    }
+
+    private void read() throws IOException {
+      int read = input.read(byteBuffer.array(), byteBuffer.position(), byteBuffer.remaining());
+      if (read == -1) {
+        byteBuffer.flip();
+        decode(true);
+        decoder.flush(charBuffer);
+        flushChars();
+        lineSplitter.end();
+        return;
+      }
+
+      byteBuffer.position(byteBuffer.position() + read);
+      byteBuffer.flip();
+      decode(false);
+      byteBuffer.compact();
+    }
+
+    private void decode(boolean endOfInput) {
+      for (; ; ) {
+        CoderResult result = decoder.decode(byteBuffer, charBuffer, endOfInput);
+        flushChars();
+        if (!result.isOverflow()) {
+          break;
+        }
+      }
+    }
+
+    private void flushChars() {
+      charBuffer.flip();
+      lineSplitter.feed(charBuffer.array(), 0, charBuffer.limit());
+      charBuffer.clear();
+    }
+
+    void replayDeferred() {
+      for (Event event : deferred) {
+        if (event.keys == null) {
+          document.onKeyValue(event.key, event.value);
+        } else if (event.arrayOfTables) {
+          document.onArrayOfTables(event.keys);
+        } else {
+          document.onTable(event.keys);
+        }
+      }
+      deferred.clear();
+    }
+
+    @Override
+    public void onTable(String[] keys) {
+      if (keys.length == path.length && startsWithPath(keys)) {
+        throw new ParseException("Duplicate key found: " + TomlTreeBuilder.join(keys));
+      }
+      if (startsWithPath(keys)) {
+        recordTable(keys).onTable(tail(keys));
+        return;
+      }
+
+      endRecord();
+      if (started) {
+        deferred.add(new Event(keys, false, null, null));
+      } else {
+        document.onTable(keys);
+      }
+    }
+
+    @Override
+    public void onArrayOfTables(String[] keys) {
+      if (keys.length == path.length && startsWithPath(keys)) {
+        endRecord();
+        record = new TomlTreeBuilder(context);
+        started = true;
+        return;
+      }
+      if (startsWithPath(keys)) {
+        recordTable(keys).onArrayOfTables(tail(keys));
+        return;
+      }
+
+      endRecord();
+      if (started) {
+        deferred.add(new Event(keys, true, null, null));
+      } else {
+        document.onArrayOfTables(keys);
+      }
+    }
+
+    @Override
+    public void onKeyValue(String key, TomlNode value) {
+      if (record != null) {
+        record.onKeyValue(key, value);
+      } else if (started) {
+        deferred.add(new Event(null, false, key, value));
+      } else {
+        document.onKeyValue(key, value);
+      }
+    }
+
+    @Override
+    public void onEndOfDocument() {
+      endRecord();
+      ended = true;
+    }
+
+    private void endRecord() {
+      if (record != null) {
+        records.add(record.getRoot());
+        record = null;
+      }
+    }
+
+    // A table below an entry belongs to the entry being read
+    private TomlTreeBuilder recordTable(String[] keys) {
+      if (record == null) {
+        throw new ParseException("Duplicate key found: " + TomlTreeBuilder.join(keys));
+      }
+      return record;
+    }
+
+    private boolean startsWithPath(String[] keys) {
+      if (keys.length < path.length) {
+        return false;
+      }
+      for (int i = 0; i < path.length; i++) {
+        if (!keys[i].equals(path[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private String[] tail(String[] keys) {
+      String[] tail = new String[keys.length - path.length];
+      System.arraycopy(keys, path.length, tail, 0, tail.length);
+      return tail;
+    }
+  }
+
+  // A table header, if keys is set, or a key/value pair
+  private static final class Event {
+    final String[] keys;
+    final boolean arrayOfTables;
+    final String key;
+    final TomlNode value;
+
+    Event(String[] keys, boolean arrayOfTables, String key, TomlNode value) {
+      this.keys = keys;
+      this.arrayOfTables = arrayOfTables;
+      this.key = key;
+      this.value = value;
+    }
+  }
+}
@@ -0,0 +1,253 @@
+package io.industrialist.toml4j;
+
+import io.industrialist.toml4j.node.TomlNodeType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The expected shape of a document: which keys it must or may have, their types, and the ranges
+ * and lengths of their values. Paths are dotted keys, and pass through arrays of tables, so
+ * {@code "products.sku"} applies to every {@code [[products]]} entry.
+ *
+ * <p>A schema is checked while the document is parsed, by a {@link TomlSchemaValidator} listening
+ * to the parse events, rather than by walking the tree afterwards. The rules are compiled once
+ * as they are added into a tree of table states that the validator moves through as headers are
+ * read. Keys without a rule are allowed.
+ *
+ * <p>Instances are immutable; start from {@link #EMPTY}:
+ *
+ * <pre>
+ * TomlSchema schema = TomlSchema.EMPTY
+ *     .required("server.host", TomlNodeType.STRING)
+ *     .required("server.port", TomlNodeType.INTEGER).range("server.port", 1, 65535)
+ *     .optional("replicas", TomlNodeType.ARRAY).length("replicas", 1, 5);
+ * </pre>
+ */
+public final class TomlSchema {
+  public static final TomlSchema EMPTY = new TomlSchema(Collections.<Rule>emptyList());
+
+  public enum Mode {
+    /** Throw a {@link ParseException} at the first violation, which aborts the parse. */
+    FAIL_FAST,
+    /** Parse the whole document and collect every violation. */
+    COLLECT_ALL
+  }
+
+  private final List<Rule> rules;
+  private final State root;
+
+  private TomlSchema(List<Rule> rules) {
+    this.rules = rules;
+    this.root = compile(rules);
+  }
+
+  public TomlSchema required(String path, TomlNodeType type) {
+    return with(new Rule(split(path), checkType(type), true));
+  }
+
+  public TomlSchema optional(String path, TomlNodeType type) {
+    return with(new Rule(split(path), checkType(type), false));
+  }
+
+  /**
+   * Restricts the integer at {@code path} to {@code min} to {@code max}, inclusive.
+   */
+  public TomlSchema range(String path, long min, long max) {
+    if (min > max) {
+      throw new IllegalArgumentException("min > max: " + min + " > " + max);
+    }
+    Rule rule = rule(path, TomlNodeType.INTEGER).copy();
+    rule.minLong = min;
+    rule.maxLong = max;
+    return with(rule);
+  }
+
+  /**
+   * Restricts the float at {@code path} to {@code min} to {@code max}, inclusive.
+   */
+  public TomlSchema range(String path, double min, double max) {
+    if (!(min <= max)) {
+      throw new IllegalArgumentException("min > max: " + min + " > " + max);
+    }
+    Rule rule = rule(path, TomlNodeType.FLOAT).copy();
+    rule.minDouble = min;
+    rule.maxDouble = max;
+    return with(rule);
+  }
+
+  /**
+   * Restricts the number of characters of the string, elements of the array or entries of the
+   * array of tables at {@code path} to {@code min} to {@code max}, inclusive.
+   */
+  public TomlSchema length(String path, int min, int max) {
+    if (min < 0 || min > max) {
+      throw new IllegalArgumentException("Invalid length range: " + min + " to " + max);
+    }
+    Rule rule = rule(path, null).copy();
+    if (rule.type != TomlNodeType.STRING && rule.type != TomlNodeType.ARRAY
+        && rule.type != TomlNodeType.ARRAY_OF_TABLES) {
+      throw new IllegalArgumentException("Not a string or array: " + path);
+    }
+    rule.minLength = min;
+    rule.maxLength = max;
+    return with(rule);
+  }
+
+  public TomlSchemaValidator newValidator(Mode mode) {
+    if (mode == null) {
+      throw new NullPointerException("mode: null");
+    }
+    return new TomlSchemaValidator(root, mode);
+  }
+
+  private static String[] split(String path) {
+    if (path == null) {
+      throw new NullPointerException("path: null");
+    }
+    if (path.length() == 0) {
+      throw new IllegalArgumentException("Empty path in schema");
+    }
+    return path.split("\\.");
+  }
+
+  private static TomlNodeType checkType(TomlNodeType type) {
+    if (type == null) {
+      throw new NullPointerException("type: null");
+    }
+    return type;
+  }
+
+  private Rule rule(String path, TomlNodeType type) {
+    String joined = TomlTreeBuilder.join(split(path));
+    for (Rule rule : rules) {
+      if (rule.path.equals(joined)) {
+        if (type != null && rule.type != type) {
+          throw new IllegalArgumentException("Not of type " + type + ": " + path);
+        }
+        return rule;
+      }
+    }
+    throw new IllegalArgumentException("No rule for " + path);
+  }
+
+  // Adds the rule, replacing any earlier rule for the same path
+  private TomlSchema with(Rule rule) {
+    List<Rule> newRules = new ArrayList<Rule>(rules.size() + 1);
+    for (Rule existing : rules) {
+      if (!existing.path.equals(rule.path)) {
+        newRules.add(existing);
+      }
+    }
+    newRules.add(rule);
+    return new TomlSchema(Collections.unmodifiableList(newRules));
+  }
+
+  private static State compile(List<Rule> rules) {
+    State state = new State();
+    for (Rule rule : rules) {
+      state.add(rule, 0);
+    }
+    return state;
+  }
+
+  /**
+   * A constraint on the value at one path. Rules created for the tables on the way to a declared
+   * path have no type, and accept a table or an array of tables.
+   */
+  static final class Rule {
+    final String[] keys;
+    final String path;
+    TomlNodeType type;
+    boolean required;
+    long minLong = Long.MIN_VALUE;
+    long maxLong = Long.MAX_VALUE;
+    double minDouble = Double.NEGATIVE_INFINITY;
+    double maxDouble = Double.POSITIVE_INFINITY;
+    int minLength;
+    int maxLength = Integer.MAX_VALUE;
+
+    // Set when compiled
+    int index;
+    State table;
+
+    Rule(String[] keys, TomlNodeType type, boolean required) {
+      this.keys = keys;
+      this.path = TomlTreeBuilder.join(keys);
+      this.type = type;
+      this.required = required;
+    }
+
+    Rule copy() {
+      Rule copy = new Rule(keys, type, required);
+      copy.minLong = minLong;
+      copy.maxLong = maxLong;
+      copy.minDouble = minDouble;
+      copy.maxDouble = maxDouble;
+      copy.minLength = minLength;
+      copy.maxLength = maxLength;
+      return copy;
+    }
+
+    boolean isTable() {
+      return type == null || type == TomlNodeType.HASH || type == TomlNodeType.ARRAY_OF_TABLES;
+    }
+  }
+
+  /**
+   * The rules for the keys of one table, each numbered so that a table being validated can mark
+   * the keys it has seen in an array.
+   */
+  static final class State {
+    final Map<String, Rule> rules = new HashMap<String, Rule>();
+    final List<Rule> ordered = new ArrayList<Rule>();
+
+    void add(Rule rule, int depth) {
+      String key = rule.keys[depth];
+      Rule existing = rules.get(key);
+      if (depth == rule.keys.length - 1) {
+        Rule compiledRule = rule.copy();
+        if (existing != null) {
+          // Declared after a path below it, so keep the rules already compiled below
+          if (!compiledRule.isTable()) {
+            throw new IllegalArgumentException("Not a table: " + rule.path);
+          }
+          compiledRule.table = existing.table;
+          compiledRule.index = existing.index;
+          ordered.set(existing.index, compiledRule);
+        } else {
+          if (compiledRule.isTable()) {
+            compiledRule.table = new State();
+          }
+          put(key, compiledRule);
+        }
+        rules.put(key, compiledRule);
+        return;
+      }
+
+      if (existing == null) {
+        String[] keys = new String[depth + 1];
+        System.arraycopy(rule.keys, 0, keys, 0, keys.length);
+        existing = new Rule(keys, null, false);
+        existing.table = new State();
+        put(key, existing);
+      } else if (!existing.isTable()) {
+        throw new IllegalArgumentException("Not a table: " + existing.path);
+      }
+      // A table on the way to a required key is required too, unless declared otherwise
+      if (existing.type == null) {
+        existing.required |= rule.required;
+      }
+      existing.table.add(rule, depth + 1);
+    }
+
+    private void put(String key, Rule rule) {
+      rule.index = ordered.size();
+      ordered.add(rule);
+      rules.put(key, rule);
+    }
+  }
+}
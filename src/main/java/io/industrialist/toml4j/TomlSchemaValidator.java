@@ -0,0 +1,281 @@
+package io.industrialist.toml4j;
+
+import io.industrialist.toml4j.node.TomlNode;
+import io.industrialist.toml4j.node.TomlNodeType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Checks a document against a {@link TomlSchema} from its parse events. Pass it to
+ * {@link TomlParser#parse(String, TomlSchemaValidator)}, or as the listener of a
+ * {@link TomlFeedParser}. Type, range and length violations are found as soon as the key is
+ * read; a missing key once its table can no longer change, which for an entry of an array of
+ * tables is when the next entry starts, and otherwise at the end of the document.
+ *
+ * <p>Only the tables the schema has rules for are tracked. Instances are not thread safe and
+ * validate a single document.
+ */
+public final class TomlSchemaValidator implements TomlParseListener {
+  private final TomlSchema.Mode mode;
+  private final Table root;
+  private final List<Violation> violations = new ArrayList<Violation>();
+  private Table current;
+
+  TomlSchemaValidator(TomlSchema.State state, TomlSchema.Mode mode) {
+    this.mode = mode;
+    this.root = new Table(state, null);
+    this.current = root;
+  }
+
+  /**
+   * Returns the violations found so far, in the order they were found.
+   */
+  public List<Violation> getViolations() {
+    return Collections.unmodifiableList(violations);
+  }
+
+  public boolean isValid() {
+    return violations.isEmpty();
+  }
+
+  @Override
+  public void onTable(String[] keys) {
+    Table parent = resolveParent(keys);
+    if (parent == null) {
+      current = null;
+      return;
+    }
+
+    Object child = parent.child(keys[keys.length - 1], false);
+    current = child instanceof Table ? (Table) child : null;
+  }
+
+  @Override
+  public void onArrayOfTables(String[] keys) {
+    Table parent = resolveParent(keys);
+    if (parent == null) {
+      current = null;
+      return;
+    }
+
+    Object child = parent.child(keys[keys.length - 1], true);
+    current = child instanceof TableArray ? ((TableArray) child).newEntry() : null;
+  }
+
+  @Override
+  public void onKeyValue(String key, TomlNode value) {
+    if (current == null) {
+      return;
+    }
+
+    TomlSchema.Rule rule = current.state.rules.get(key);
+    if (rule == null) {
+      return;
+    }
+
+    current.seen[rule.index] = true;
+    String path = current.path(key);
+    if (rule.isTable()) {
+      violation(path, "Expected " + describe(rule) + " but was " + value.getNodeType());
+      return;
+    }
+    if (value.getNodeType() != rule.type) {
+      violation(path, "Expected " + rule.type + " but was " + value.getNodeType());
+      return;
+    }
+
+    switch (rule.type) {
+      case INTEGER:
+        long longValue = value.longValue();
+        if (longValue < rule.minLong || longValue > rule.maxLong) {
+          violation(path, "Expected a value from " + rule.minLong + " to " + rule.maxLong
+              + " but was " + longValue);
+        }
+        break;
+      case FLOAT:
+        double doubleValue = value.doubleValue();
+        if (!(doubleValue >= rule.minDouble && doubleValue <= rule.maxDouble)) {
+          violation(path, "Expected a value from " + rule.minDouble + " to " + rule.maxDouble
+              + " but was " + doubleValue);
+        }
+        break;
+      case STRING:
+        checkLength(rule, path, value.stringValue().length());
+        break;
+      case ARRAY:
+        checkLength(rule, path, value.size());
+        break;
+      default:
+        break;
+    }
+  }
+
+  @Override
+  public void onEndOfDocument() {
+    root.end();
+  }
+
+  // Walks every key but the last, into the latest entry of an array of tables
+  private Table resolveParent(String[] keys) {
+    Table table = root;
+    for (int i = 0; i < keys.length - 1 && table != null; i++) {
+      Object child = table.child(keys[i], false);
+      if (child instanceof TableArray) {
+        table = ((TableArray) child).entry;
+      } else {
+        table = (Table) child;
+      }
+    }
+    return table;
+  }
+
+  private void checkLength(TomlSchema.Rule rule, String path, int length) {
+    if (length < rule.minLength || length > rule.maxLength) {
+      violation(path, "Expected a length from " + rule.minLength + " to " + rule.maxLength
+          + " but was " + length);
+    }
+  }
+
+  private void violation(String path, String message) {
+    Violation violation = new Violation(path, message);
+    if (mode == TomlSchema.Mode.FAIL_FAST) {
+      throw new ParseException("Schema violation: " + violation);
+    }
+    violations.add(violation);
+  }
+
+  private static String describe(TomlSchema.Rule rule) {
+    return rule.type == null ? "a table" : rule.type.toString();
+  }
+
+  /**
+   * A table being validated, with the keys of its state seen so far and the tables below it.
+   */
+  private final class Table {
+    final TomlSchema.State state;
+    final String path;
+    final boolean[] seen;
+    final Object[] children;
+
+    Table(TomlSchema.State state, String path) {
+      this.state = state;
+      this.path = path;
+      this.seen = new boolean[state.ordered.size()];
+      this.children = new Object[state.ordered.size()];
+    }
+
+    String path(String key) {
+      return path == null ? key : path + "." + key;
+    }
+
+    /**
+     * Returns the table or array of tables at key, creating it if needed, or null if the schema
+     * has nothing to say about it.
+     */
+    Object child(String key, boolean arrayOfTables) {
+      TomlSchema.Rule rule = state.rules.get(key);
+      if (rule == null) {
+        return null;
+      }
+
+      Object child = children[rule.index];
+      if (child != null) {
+        return child;
+      }
+
+      seen[rule.index] = true;
+      String childPath = path(key);
+      TomlNodeType type = arrayOfTables ? TomlNodeType.ARRAY_OF_TABLES : TomlNodeType.HASH;
+      if (!rule.isTable() || (rule.type != null && rule.type != type)) {
+        violation(childPath, "Expected " + describe(rule) + " but was " + type);
+        return null;
+      }
+
+      child = arrayOfTables
+          ? new TableArray(rule, childPath) : new Table(rule.table, childPath);
+      children[rule.index] = child;
+      return child;
+    }
+
+    void end() {
+      List<TomlSchema.Rule> rules = state.ordered;
+      for (int i = 0; i < rules.size(); i++) {
+        TomlSchema.Rule rule = rules.get(i);
+        if (!seen[i]) {
+          if (rule.required) {
+            violation(path(rule.keys[rule.keys.length - 1]), "Missing required key");
+          }
+        } else if (children[i] instanceof Table) {
+          ((Table) children[i]).end();
+        } else if (children[i] instanceof TableArray) {
+          ((TableArray) children[i]).end();
+        }
+      }
+    }
+  }
+
+  /**
+   * An array of tables being validated. Only the latest entry can still change, so the ones
+   * before it are checked and dropped as soon as the next one starts.
+   */
+  private final class TableArray {
+    final TomlSchema.Rule rule;
+    final String path;
+    Table entry;
+    int size;
+
+    TableArray(TomlSchema.Rule rule, String path) {
+      this.rule = rule;
+      this.path = path;
+    }
+
+    Table newEntry() {
+      if (entry != null) {
+        entry.end();
+      }
+      if (size == rule.maxLength) {
+        checkLength(rule, path, size + 1);
+      }
+      entry = new Table(rule.table, path + "[" + size + "]");
+      size++;
+      return entry;
+    }
+
+    void end() {
+      if (entry != null) {
+        entry.end();
+      }
+      if (size < rule.minLength) {
+        checkLength(rule, path, size);
+      }
+    }
+  }
+
+  /**
+   * A value that does not match its rule, or a required key that is missing.
+   */
+  public static final class Violation {
+    private final String path;
+    private final String message;
+
+    Violation(String path, String message) {
+      this.path = path;
+      this.message = message;
+    }
+
+    public String getPath() {
+      return path;
+    }
+
+    public String getMessage() {
+      return message;
+    }
+
+    @Override
+    public String toString() {
+      return path + ": " + message;
+    }
+  }
+}
@@ -0,0 +1,415 @@
+package io.industrialist.toml4j;
+
+import io.industrialist.toml4j.node.TomlArrayNode;
+import io.industrialist.toml4j.node.TomlBooleanNode;
+import io.industrialist.toml4j.node.TomlDateTimeNode;
+import io.industrialist.toml4j.node.TomlFloatNode;
+import io.industrialist.toml4j.node.TomlHashNode;
+import io.industrialist.toml4j.node.TomlIntegerNode;
+import io.industrialist.toml4j.node.TomlNode;
+import io.industrialist.toml4j.node.TomlNodeType;
+import io.industrialist.toml4j.node.TomlStringNode;
+import io.industrialist.toml4j.node.TomlTableArrayNode;
+
+import org.joda.time.DateTime;
+
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A document stored as one {@code long[]} tape plus one {@code char[]} holding its keys and
+ * strings, instead of an object per value. The {@link TomlNode}s handed out are small views that
+ * navigate the tape, created as they are asked for.
+ *
+ * <p>Every value starts with a word whose top byte is its type:
+ * <ul>
+ * <li>integers that fit in 56 bits, booleans, strings, date-times and keys take one word, the
+ * rest of which is the value or the offset of the text in the character store,</li>
+ * <li>other integers and floats take a second word with the raw value,</li>
+ * <li>tables, arrays and arrays of tables take a word holding their length in words, a word
+ * holding their number of children, then the children. A table's children are each a key
+ * followed by its value.</li>
+ * </ul>
+ * Text in the character store is prefixed with its length in two chars, and keys are stored once
+ * however often they are used.
+ *
+ * <p>Looking up a key or an index scans the container, so the tape suits documents that are read
+ * through, or that are too large to keep as a tree, over ones that are probed at random.
+ */
+public final class TomlTape {
+  static final int HASH = 1;
+  static final int ARRAY = 2;
+  static final int ARRAY_OF_TABLES = 3;
+  static final int STRING = 4;
+  static final int INTEGER = 5;
+  static final int LONG = 6;
+  static final int FLOAT = 7;
+  static final int BOOLEAN = 8;
+  static final int DATETIME = 9;
+  static final int KEY = 10;
+
+  static final long PAYLOAD_MASK = (1L << 56) - 1;
+  static final long MIN_INLINE_INTEGER = -(1L << 55);
+  static final long MAX_INLINE_INTEGER = (1L << 55) - 1;
+
+  // Estimated sizes of this object and of a node, with compressed references
+  private static final int TAPE_BYTES = 24;
+  private static final int VIEW_BYTES = 24;
+
+  final long[] tape;
+  final char[] chars;
+
+  TomlTape(long[] tape, char[] chars) {
+    this.tape = tape;
+    this.chars = chars;
+  }
+
+  /**
+   * Returns a copy of {@code node} stored on a tape.
+   */
+  public static TomlNode copyOf(TomlNode node) {
+    if (node == null) {
+      throw new NullPointerException("node: null");
+    }
+
+    TapeWriter writer = new TapeWriter();
+    writer.writeValue(node);
+    return writer.toTape().root();
+  }
+
+  TomlNode root() {
+    return new Node(0);
+  }
+
+  static TomlTape tapeOf(TomlNode node) {
+    if (node == null) {
+      throw new NullPointerException("node: null");
+    }
+    if (!(node instanceof Node)) {
+      throw new IllegalArgumentException("Not a node on a tape: " + node.getNodeType());
+    }
+    return ((Node) node).tape();
+  }
+
+  static long word(int tag, long payload) {
+    return ((long) tag << 56) | (payload & PAYLOAD_MASK);
+  }
+
+  static int tag(long word) {
+    return (int) (word >>> 56);
+  }
+
+  static int payload(long word) {
+    return (int) (word & PAYLOAD_MASK);
+  }
+
+  // Returns the number of words taken by the value starting with word
+  static int width(long word) {
+    switch (tag(word)) {
+      case LONG:
+      case FLOAT:
+        return 2;
+      case HASH:
+      case ARRAY:
+      case ARRAY_OF_TABLES:
+        return payload(word);
+      default:
+        return 1;
+    }
+  }
+
+  private String text(int offset) {
+    int length = chars[offset] << 16 | chars[offset + 1];
+    return new String(chars, offset + 2, length);
+  }
+
+  private boolean textEquals(int offset, String value) {
+    int length = chars[offset] << 16 | chars[offset + 1];
+    if (length != value.length()) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (chars[offset + 2 + i] != value.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private final class Node extends TomlNode {
+    private final int position;
+
+    Node(int position) {
+      this.position = position;
+    }
+
+    TomlTape tape() {
+      return TomlTape.this;
+    }
+
+    @Override
+    public TomlNodeType getNodeType() {
+      switch (tag(tape[position])) {
+        case HASH:
+          return TomlNodeType.HASH;
+        case ARRAY:
+          return TomlNodeType.ARRAY;
+        case ARRAY_OF_TABLES:
+          return TomlNodeType.ARRAY_OF_TABLES;
+        case STRING:
+          return TomlNodeType.STRING;
+        case INTEGER:
+        case LONG:
+          return TomlNodeType.INTEGER;
+        case FLOAT:
+          return TomlNodeType.FLOAT;
+        case BOOLEAN:
+          return TomlNodeType.BOOLEAN;
+        default:
+          return TomlNodeType.DATETIME;
+      }
+    }
+
+    @Override
+    public boolean booleanValue() {
+      long word = tape[position];
+      return tag(word) == BOOLEAN && payload(word) != 0;
+    }
+
+    @Override
+    public long longValue() {
+      long word = tape[position];
+      switch (tag(word)) {
+        case INTEGER:
+          return word << 8 >> 8;
+        case LONG:
+          return tape[position + 1];
+        case FLOAT:
+          return (long) Double.longBitsToDouble(tape[position + 1]);
+        default:
+          return 0;
+      }
+    }
+
+    @Override
+    public double doubleValue() {
+      switch (tag(tape[position])) {
+        case INTEGER:
+        case LONG:
+          return longValue();
+        case FLOAT:
+          return Double.longBitsToDouble(tape[position + 1]);
+        default:
+          return 0.0;
+      }
+    }
+
+    @Override
+    public DateTime dateTimeValue() {
+      long word = tape[position];
+      return tag(word) == DATETIME ? DateTime.parse(text(payload(word))) : null;
+    }
+
+    @Override
+    public String stringValue() {
+      long word = tape[position];
+      return tag(word) == STRING ? text(payload(word)) : null;
+    }
+
+    @Override
+    public String asStringValue() {
+      long word = tape[position];
+      switch (tag(word)) {
+        case STRING:
+        case DATETIME:
+          return text(payload(word));
+        case INTEGER:
+        case LONG:
+          return String.valueOf(longValue());
+        case FLOAT:
+          return String.valueOf(doubleValue());
+        case BOOLEAN:
+          return String.valueOf(booleanValue());
+        default:
+          return "";
+      }
+    }
+
+    @Override
+    public int size() {
+      return isContainerNode() ? (int) tape[position + 1] : 0;
+    }
+
+    @Override
+    public TomlNode get(String key) {
+      if (tag(tape[position]) != HASH) {
+        return null;
+      }
+
+      int end = position + payload(tape[position]);
+      for (int i = position + 2; i < end; ) {
+        int value = i + 1;
+        if (textEquals(payload(tape[i]), key)) {
+          return new Node(value);
+        }
+        i = value + width(tape[value]);
+      }
+      return null;
+    }
+
+    @Override
+    public TomlNode get(int index) {
+      int tag = tag(tape[position]);
+      if (tag != ARRAY && tag != ARRAY_OF_TABLES) {
+        return null;
+      }
+      if (index < 0 || index >= size()) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+      }
+
+      int i = position + 2;
+      for (int skipped = 0; skipped < index; skipped++) {
+        i += width(tape[i]);
+      }
+      return new Node(i);
+    }
+
+    @Override
+    public Iterable<TomlNode> children() {
+      if (!isContainerNode()) {
+        return super.children();
+      }
+
+      final boolean keyed = tag(tape[position]) == HASH;
+      return new Iterable<TomlNode>() {
+        @Override
+        public Iterator<TomlNode> iterator() {
+          return new ChildIterator<TomlNode>(position, keyed) {
+            @Override
+            TomlNode next(int key, int value) {
+              return new Node(value);
+            }
+          };
+        }
+      };
+    }
+
+    @Override
+    public Iterable<Map.Entry<String, TomlNode>> fields() {
+      if (tag(tape[position]) != HASH) {
+        return super.fields();
+      }
+
+      return new Iterable<Map.Entry<String, TomlNode>>() {
+        @Override
+        public Iterator<Map.Entry<String, TomlNode>> iterator() {
+          return new ChildIterator<Map.Entry<String, TomlNode>>(position, true) {
+            @Override
+            Map.Entry<String, TomlNode> next(int key, int value) {
+              return new AbstractMap.SimpleImmutableEntry<String, TomlNode>(
+                  text(payload(tape[key])), new Node(value));
+            }
+          };
+        }
+      };
+    }
+
+    // The tape and character store are shared by every node on them, so only the root counts
+    // them; the nodes below count the words they take up
+    @Override
+    public long estimatedRetainedBytes() {
+      if (position == 0) {
+        return VIEW_BYTES + TAPE_BYTES + ((16 + 8L * tape.length + 7) & ~7L)
+            + ((16 + 2L * chars.length + 7) & ~7L);
+      }
+      return VIEW_BYTES + 8L * width(tape[position]);
+    }
+
+    @Override
+    public String toString() {
+      switch (tag(tape[position])) {
+        case STRING:
+          return new StringBuilder().append("\"").append(StringUtils.escapeString(stringValue()))
+              .append("\"").toString();
+        case HASH:
+        case ARRAY:
+        case ARRAY_OF_TABLES:
+          return toTree(this).toString();
+        default:
+          return asStringValue();
+      }
+    }
+  }
+
+  private abstract class ChildIterator<T> implements Iterator<T> {
+    private final int end;
+    private final boolean keyed;
+    private int next;
+
+    ChildIterator(int position, boolean keyed) {
+      this.end = position + payload(tape[position]);
+      this.keyed = keyed;
+      this.next = position + 2;
+    }
+
+    abstract T next(int key, int value);
+
+    @Override
+    public boolean hasNext() {
+      return next < end;
+    }
+
+    @Override
+    public T next() {
+      if (next >= end) {
+        throw new NoSuchElementException();
+      }
+
+      int key = next;
+      int value = keyed ? key + 1 : key;
+      next = value + width(tape[value]);
+      return next(key, value);
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  // Copies a node back into the object tree, which is what the tree's toString formats
+  private static TomlNode toTree(TomlNode node) {
+    switch (node.getNodeType()) {
+      case HASH:
+        TomlHashNode hashNode = new TomlHashNode();
+        for (Map.Entry<String, TomlNode> field : node.fields()) {
+          hashNode.put(field.getKey(), toTree(field.getValue()));
+        }
+        return hashNode;
+      case ARRAY:
+        TomlArrayNode arrayNode = new TomlArrayNode();
+        for (TomlNode child : node.children()) {
+          arrayNode.add(toTree(child));
+        }
+        return arrayNode;
+      case ARRAY_OF_TABLES:
+        TomlTableArrayNode tableArrayNode = new TomlTableArrayNode();
+        for (TomlNode child : node.children()) {
+          tableArrayNode.add((TomlHashNode) toTree(child));
+        }
+        return tableArrayNode;
+      case STRING:
+        return TomlStringNode.valueOf(node.stringValue());
+      case INTEGER:
+        return TomlIntegerNode.valueOf(node.longValue());
+      case FLOAT:
+        return TomlFloatNode.valueOf(node.doubleValue());
+      case BOOLEAN:
+        return TomlBooleanNode.valueOf(node.booleanValue());
+      default:
+        return TomlDateTimeNode.valueOf(node.asStringValue());
+    }
+  }
+}
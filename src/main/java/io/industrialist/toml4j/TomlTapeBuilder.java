@@ -0,0 +1,258 @@
+package io.industrialist.toml4j;
+
+import io.industrialist.toml4j.node.TomlNode;
+import io.industrialist.toml4j.node.TomlNodeType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds a {@link TomlTape} from parse events. Values are written to a staging tape as they are
+ * parsed, and tables only record where their values are, since a table can be reopened further
+ * down the document. The tables are laid out on the final tape at the end.
+ */
+class TomlTapeBuilder implements DocumentBuilder {
+  private final ParseContext context;
+  private final MetricsCollector metrics;
+  private final TapeWriter staging = new TapeWriter();
+  private final Table rootTable = new Table();
+  private Table currentTable = rootTable;
+  private TomlNode root;
+
+  TomlTapeBuilder(ParseContext context) {
+    this.context = context;
+    this.metrics = context.metrics;
+    context.countNode(TomlNodeType.HASH);
+  }
+
+  @Override
+  public TomlNode getRoot() {
+    if (root == null) {
+      long[] tape = new long[rootTable.width(staging)];
+      rootTable.layOut(staging, tape, 0);
+      root = staging.toTape(tape).root();
+    }
+    return root;
+  }
+
+  @Override
+  public void onTable(String[] keys) {
+    metrics.tableDepth(keys.length);
+    Table parentTable = resolveParent(keys);
+
+    int key = staging.key(keys[keys.length - 1]);
+    int index = parentTable.indexOf(key);
+    if (index >= 0 && !(parentTable.children[index] instanceof Table)) {
+      throw new ParseException("Duplicate key found: " + TomlTreeBuilder.join(keys));
+    }
+
+    if (index < 0) {
+      Table table = new Table();
+      context.countNode(TomlNodeType.HASH);
+      parentTable.add(key, -1, table);
+      currentTable = table;
+    } else {
+      currentTable = (Table) parentTable.children[index];
+    }
+  }
+
+  @Override
+  public void onArrayOfTables(String[] keys) {
+    metrics.tableDepth(keys.length);
+    Table parentTable = resolveParent(keys);
+
+    int key = staging.key(keys[keys.length - 1]);
+    int index = parentTable.indexOf(key);
+    if (index >= 0 && !(parentTable.children[index] instanceof TableArray)) {
+      throw new ParseException("Duplicate key found: " + TomlTreeBuilder.join(keys));
+    }
+
+    TableArray tableArray;
+    if (index < 0) {
+      tableArray = new TableArray();
+      context.countNode(TomlNodeType.ARRAY_OF_TABLES);
+      parentTable.add(key, -1, tableArray);
+    } else {
+      tableArray = (TableArray) parentTable.children[index];
+    }
+
+    Table table = new Table();
+    context.countNode(TomlNodeType.HASH);
+    tableArray.tables.add(table);
+    currentTable = table;
+  }
+
+  @Override
+  public void onKeyValue(String key, TomlNode value) {
+    int keyOffset = staging.key(key);
+    if (currentTable.indexOf(keyOffset) >= 0) {
+      throw new ParseException("Duplicate key found");
+    }
+
+    int start = staging.length;
+    staging.writeValue(value);
+    currentTable.add(keyOffset, start, null);
+  }
+
+  @Override
+  public void onEndOfDocument() {
+  }
+
+  // Walks every key but the last, as TomlTreeBuilder does
+  private Table resolveParent(String[] keys) {
+    Table table = rootTable;
+    for (int i = 0; i < keys.length - 1; i++) {
+      int key = staging.key(keys[i]);
+      int index = table.indexOf(key);
+
+      if (index < 0) {
+        Table child = new Table();
+        context.countNode(TomlNodeType.HASH);
+        table.add(key, -1, child);
+        table = child;
+      } else if (table.children[index] instanceof TableArray) {
+        List<Table> tables = ((TableArray) table.children[index]).tables;
+        table = tables.get(tables.size() - 1);
+      } else if (table.children[index] instanceof Table) {
+        table = (Table) table.children[index];
+      } else {
+        throw new ParseException("Duplicate key found: " + TomlTreeBuilder.join(keys));
+      }
+    }
+
+    return table;
+  }
+
+  /**
+   * The entries of a table in the order they were added: the offset of each key, and either the
+   * position of its value on the staging tape or the table or array of tables it holds. Keys are
+   * interned, so they are compared by offset, and through a hash index once there are enough of
+   * them for scanning to be slow.
+   */
+  private static final class Table {
+    private static final int SCAN_LIMIT = 8;
+
+    int size;
+    int[] keys = new int[4];
+    int[] starts = new int[4];
+    Object[] children = new Object[4];
+    private int[] index;
+
+    int indexOf(int key) {
+      if (index == null) {
+        for (int i = 0; i < size; i++) {
+          if (keys[i] == key) {
+            return i;
+          }
+        }
+        return -1;
+      }
+
+      int mask = index.length - 1;
+      for (int slot = hash(key) & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+        if (keys[index[slot] - 1] == key) {
+          return index[slot] - 1;
+        }
+      }
+      return -1;
+    }
+
+    void add(int key, int start, Object child) {
+      if (size == keys.length) {
+        keys = Arrays.copyOf(keys, size * 2);
+        starts = Arrays.copyOf(starts, size * 2);
+        children = Arrays.copyOf(children, size * 2);
+      }
+      keys[size] = key;
+      starts[size] = start;
+      children[size] = child;
+      size++;
+
+      if (index != null && size * 2 <= index.length) {
+        insert(size - 1);
+      } else if (size > SCAN_LIMIT) {
+        index = new int[Integer.highestOneBit(size) * 4];
+        for (int i = 0; i < size; i++) {
+          insert(i);
+        }
+      }
+    }
+
+    private void insert(int entry) {
+      int mask = index.length - 1;
+      int slot = hash(keys[entry]) & mask;
+      while (index[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      index[slot] = entry + 1;
+    }
+
+    private static int hash(int key) {
+      int hash = key * 0x9E3779B9;
+      return hash ^ (hash >>> 16);
+    }
+
+    int width(TapeWriter staging) {
+      int width = 2;
+      for (int i = 0; i < size; i++) {
+        width += 1 + childWidth(i, staging);
+      }
+      return width;
+    }
+
+    private int childWidth(int i, TapeWriter staging) {
+      Object child = children[i];
+      if (child == null) {
+        return TomlTape.width(staging.tape[starts[i]]);
+      }
+      return child instanceof Table
+          ? ((Table) child).width(staging) : ((TableArray) child).width(staging);
+    }
+
+    // Writes this table at position, returning the position after it
+    int layOut(TapeWriter staging, long[] tape, int position) {
+      int start = position;
+      position += 2;
+      for (int i = 0; i < size; i++) {
+        tape[position++] = TomlTape.word(TomlTape.KEY, keys[i]);
+        Object child = children[i];
+        if (child == null) {
+          int width = TomlTape.width(staging.tape[starts[i]]);
+          System.arraycopy(staging.tape, starts[i], tape, position, width);
+          position += width;
+        } else if (child instanceof Table) {
+          position = ((Table) child).layOut(staging, tape, position);
+        } else {
+          position = ((TableArray) child).layOut(staging, tape, position);
+        }
+      }
+      tape[start] = TomlTape.word(TomlTape.HASH, position - start);
+      tape[start + 1] = size;
+      return position;
+    }
+  }
+
+  private static final class TableArray {
+    final List<Table> tables = new ArrayList<Table>();
+
+    int width(TapeWriter staging) {
+      int width = 2;
+      for (Table table : tables) {
+        width += table.width(staging);
+      }
+      return width;
+    }
+
+    int layOut(TapeWriter staging, long[] tape, int position) {
+      int start = position;
+      position += 2;
+      for (Table table : tables) {
+        position = table.layOut(staging, tape, position);
+      }
+      tape[start] = TomlTape.word(TomlTape.ARRAY_OF_TABLES, position - start);
+      tape[start + 1] = tables.size();
+      return position;
+    }
+  }
+}
@@ -0,0 +1,118 @@
+package io.industrialist.toml4j;
+
+import io.industrialist.toml4j.node.TomlHashNode;
+import io.industrialist.toml4j.node.TomlNode;
+import io.industrialist.toml4j.node.TomlNodeType;
+import io.industrialist.toml4j.node.TomlTableArrayNode;
+
+/**
+ * Builds the {@link TomlNode} tree from parse events.
+ */
+class TomlTreeBuilder implements DocumentBuilder {
+  private final TomlHashNode rootNode = new TomlHashNode();
+  private final ParseContext context;
+  private final MetricsCollector metrics;
+  private TomlHashNode currentNode = rootNode;
+
+  TomlTreeBuilder(ParseContext context) {
+    this.context = context;
+    this.metrics = context.metrics;
+    context.countNode(TomlNodeType.HASH);
+  }
+
+  @Override
+  public TomlHashNode getRoot() {
+    return rootNode;
+  }
+
+  @Override
+  public void onTable(String[] keys) {
+    metrics.tableDepth(keys.length);
+    TomlHashNode parentNode = resolveParent(keys);
+
+    String finalKeyGroup = keys[keys.length - 1];
+    TomlNode existingNode = parentNode.get(finalKeyGroup);
+    if (existingNode != null && !existingNode.isHash()) {
+      throw new ParseException("Duplicate key found: " + join(keys));
+    }
+
+    if (existingNode == null) {
+      existingNode = new TomlHashNode();
+      context.countNode(TomlNodeType.HASH);
+      parentNode.put(finalKeyGroup, existingNode);
+    }
+
+    currentNode = (TomlHashNode) existingNode;
+  }
+
+  @Override
+  public void onArrayOfTables(String[] keys) {
+    metrics.tableDepth(keys.length);
+    TomlHashNode parentNode = resolveParent(keys);
+
+    String finalKeyGroup = keys[keys.length - 1];
+    TomlNode existingNode = parentNode.get(finalKeyGroup);
+    if (existingNode != null && !existingNode.isArrayOfTables()) {
+      throw new ParseException("Duplicate key found: " + join(keys));
+    }
+
+    if (existingNode == null) {
+      existingNode = new TomlTableArrayNode();
+      context.countNode(TomlNodeType.ARRAY_OF_TABLES);
+      parentNode.put(finalKeyGroup, existingNode);
+    }
+
+    TomlHashNode tableArrayNode = new TomlHashNode();
+    context.countNode(TomlNodeType.HASH);
+    ((TomlTableArrayNode) existingNode).add(tableArrayNode);
+
+    currentNode = tableArrayNode;
+  }
+
+  @Override
+  public void onKeyValue(String key, TomlNode value) {
+    if (currentNode.contains(key)) {
+      throw new ParseException("Duplicate key found");
+    }
+
+    currentNode.put(key, value);
+  }
+
+  @Override
+  public void onEndOfDocument() {
+  }
+
+  // Walks every key but the last, descending into the most recent entry of an array of tables.
+  private TomlHashNode resolveParent(String[] keys) {
+    TomlHashNode node = rootNode;
+    for (int i = 0; i < keys.length - 1; i++) {
+      String keyGroup = keys[i];
+      TomlNode existingNode = node.get(keyGroup);
+
+      if (existingNode == null) {
+        existingNode = new TomlHashNode();
+        context.countNode(TomlNodeType.HASH);
+        node.put(keyGroup, existingNode);
+      } else if (existingNode.isArrayOfTables()) {
+        existingNode = existingNode.get(existingNode.size() - 1);
+      } else if (!existingNode.isHash()) {
+        throw new ParseException("Duplicate key found: " + join(keys));
+      }
+
+      node = (TomlHashNode) existingNode;
+    }
+
+    return node;
+  }
+
+  static String join(String[] keys) {
+    StringBuilder pathBuilder = new StringBuilder();
+    for (int i = 0; i < keys.length; i++) {
+      if (i > 0) {
+        pathBuilder.append('.');
+      }
+      pathBuilder.append(keys[i]);
+    }
+    return pathBuilder.toString();
+  }
+}
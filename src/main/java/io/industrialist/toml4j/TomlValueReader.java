@@ -0,0 +1,188 @@
+package io.industrialist.toml4j;
+
+import io.industrialist.toml4j.node.TomlArrayNode;
+import io.industrialist.toml4j.node.TomlBooleanNode;
+import io.industrialist.toml4j.node.TomlDateTimeNode;
+import io.industrialist.toml4j.node.TomlFloatNode;
+import io.industrialist.toml4j.node.TomlIntegerNode;
+import io.industrialist.toml4j.node.TomlNode;
+import io.industrialist.toml4j.node.TomlNodeType;
+import io.industrialist.toml4j.node.TomlStringNode;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A recursive descent reader for the value side of a key/value pair. Arrays are read in a single
+ * pass over the text, element by element, so strings holding ',' or ']' and arbitrarily nested
+ * arrays are handled without splitting or rescanning.
+ */
+class TomlValueReader {
+  private static final Pattern BOOLEAN_VALUE = Pattern.compile("^(true|false)$");
+  private static final Pattern DATE_TIME_VALUE =
+      Pattern.compile(
+          "^([\\+-]?\\d{4}(?!\\d{2}\\b))((-?)((0[1-9]|1[0-2])(\\3([12]\\d|0[1-9]|3[01]))?|W([0-4]\\d|5[0-2])(-?[1-7])?|(00[1-9]|0[1-9]\\d|[12]\\d{2}|3([0-5]\\d|6[1-6])))([T\\s]((([01]\\d|2[0-3])((:?)[0-5]\\d)?|24\\:?00)([\\.,]\\d+(?!:))?)?(\\17[0-5]\\d([\\.,]\\d+)?)?([zZ]|([\\+-])([01]\\d|2[0-3]):?([0-5]\\d)?)?)?)?$");
+
+  private final Matcher booleanValueMatcher = BOOLEAN_VALUE.matcher("");
+  private final Matcher dateTimeValueMatcher = DATE_TIME_VALUE.matcher("");
+
+  private final NumberScanner numberScanner = new NumberScanner();
+  private final ParseContext context;
+
+  private String text;
+  private int position;
+  private int arrayDepth;
+
+  TomlValueReader(ParseContext context) {
+    this.context = context;
+  }
+
+  TomlNode read(String value) {
+    text = value;
+    position = 0;
+    arrayDepth = 0;
+    try {
+      TomlNode node = readValue(false);
+
+      skipWhitespace();
+      if (position < text.length()) {
+        throw new ParseException("Invalid value: " + value);
+      }
+
+      return node;
+    } finally {
+      text = null;
+    }
+  }
+
+  private TomlNode readValue(boolean inArray) {
+    if (position >= text.length()) {
+      throw new ParseException("Missing value");
+    }
+
+    switch (text.charAt(position)) {
+      case '"':
+        return readString();
+      case '[':
+        return readArray();
+      default:
+        return readScalar(inArray);
+    }
+  }
+
+  private TomlNode readString() {
+    int start = ++position; // Skip the opening quote
+    boolean escaped = false;
+    while (position < text.length()) {
+      char ch = text.charAt(position);
+      if (ch == '\\') {
+        escaped = true;
+        position += 2; // Skip the escaped character
+      } else if (ch == '"') {
+        context.checkStringLength(position - start);
+        String value = escaped
+            ? StringUtils.unescapeString(text, start, position)
+            : text.substring(start, position);
+        position++;
+        context.countNode(TomlNodeType.STRING);
+        return TomlStringNode.valueOf(value);
+      } else {
+        position++;
+      }
+    }
+
+    throw new ParseException("Unterminated string: " + text.substring(start - 1));
+  }
+
+  private TomlNode readArray() {
+    position++; // Skip '['
+    context.checkNestingDepth(++arrayDepth);
+    context.countNode(TomlNodeType.ARRAY);
+    TomlArrayNode arrayNode = new TomlArrayNode();
+    TomlNodeType arrayType = null;
+    for (; ; ) {
+      skipWhitespace();
+      if (position >= text.length()) {
+        throw new ParseException("Unclosed array");
+      }
+      if (text.charAt(position) == ']') {
+        position++;
+        arrayDepth--;
+        return arrayNode;
+      }
+
+      context.checkArrayLength(arrayNode.size() + 1);
+      TomlNode arrayValueNode = readValue(true);
+      if (arrayType == null) {
+        arrayType = arrayValueNode.getNodeType();
+      } else if (arrayValueNode.getNodeType() != arrayType) {
+        throw new ParseException("Cannot mix data types in an array");
+      }
+      arrayNode.add(arrayValueNode);
+
+      skipWhitespace();
+      if (position >= text.length()) {
+        throw new ParseException("Unclosed array");
+      }
+      char ch = text.charAt(position);
+      if (ch == ',') {
+        position++;
+      } else if (ch != ']') {
+        throw new ParseException("Expected ',' or ']' in array but found '" + ch + "'");
+      }
+    }
+  }
+
+  private TomlNode readScalar(boolean inArray) {
+    int start = position;
+    int end = text.length();
+    if (inArray) {
+      end = start;
+      while (end < text.length() && text.charAt(end) != ',' && text.charAt(end) != ']') {
+        end++;
+      }
+    }
+    position = end;
+
+    while (start < end && text.charAt(start) <= ' ') {
+      start++;
+    }
+    while (end > start && text.charAt(end - 1) <= ' ') {
+      end--;
+    }
+    TomlNode node = parseScalar(start, end);
+    context.countNode(node.getNodeType());
+    return node;
+  }
+
+  private TomlNode parseScalar(int start, int end) {
+    // Numbers are read in place; only other values need a substring
+    switch (numberScanner.scan(text, start, end)) {
+      case NumberScanner.INTEGER:
+        return TomlIntegerNode.valueOf(numberScanner.longValue);
+      case NumberScanner.FLOAT:
+        return TomlFloatNode.valueOf(numberScanner.doubleValue);
+      default:
+        break;
+    }
+
+    String value = text.substring(start, end);
+    if (booleanValueMatcher.reset(value).matches()) {
+      return TomlBooleanNode.valueOf(Boolean.valueOf(value));
+    } else if (dateTimeValueMatcher.reset(value).matches()) {
+      return TomlDateTimeNode.valueOf(value);
+    } else {
+      throw new ParseException("Invalid value: " + value);
+    }
+  }
+
+  private void skipWhitespace() {
+    while (position < text.length()) {
+      char ch = text.charAt(position);
+      if (ch != ' ' && ch != '\t' && ch != '\n' && ch != '\r') {
+        break;
+      }
+      position++;
+    }
+  }
+}
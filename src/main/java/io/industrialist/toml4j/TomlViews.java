@@ -0,0 +1,132 @@
+package io.industrialist.toml4j;
+
+import io.industrialist.toml4j.node.TomlNode;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * Read-only {@link java.util.List} and {@link Map} views backed directly by container nodes.
+ * Values are converted when they are read, so creating a view is O(1) whatever the size of the
+ * subtree, and a view reflects later changes to the nodes behind it.
+ */
+final class TomlViews {
+  private TomlViews() {
+  }
+
+  /**
+   * Returns the Java value of {@code node}: a String, Long, Double, Boolean or DateTime for a
+   * value, a List view for an array or array of tables, and a Map view for a table.
+   */
+  static Object valueOf(TomlNode node) {
+    switch (node.getNodeType()) {
+      case STRING:
+        return node.stringValue();
+      case INTEGER:
+        return node.longValue();
+      case FLOAT:
+        return node.doubleValue();
+      case BOOLEAN:
+        return node.booleanValue();
+      case DATETIME:
+        return node.dateTimeValue();
+      case ARRAY:
+      case ARRAY_OF_TABLES:
+        return new ListView(node);
+      case HASH:
+        return new MapView(node);
+      default:
+        throw new IllegalStateException("Invalid value node type: '" + node.getNodeType() + "'");
+    }
+  }
+
+  static class ListView extends AbstractList<Object> implements RandomAccess {
+    private final TomlNode node;
+
+    ListView(TomlNode node) {
+      this.node = node;
+    }
+
+    @Override
+    public Object get(int index) {
+      if (index < 0 || index >= node.size()) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + node.size());
+      }
+      return valueOf(node.get(index));
+    }
+
+    @Override
+    public int size() {
+      return node.size();
+    }
+  }
+
+  static class MapView extends AbstractMap<String, Object> {
+    private final TomlNode node;
+    private Set<Map.Entry<String, Object>> entrySet;
+
+    MapView(TomlNode node) {
+      this.node = node;
+    }
+
+    @Override
+    public Object get(Object key) {
+      if (!(key instanceof String)) {
+        return null;
+      }
+      TomlNode value = node.get((String) key);
+      return value == null ? null : valueOf(value);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return key instanceof String && node.contains((String) key);
+    }
+
+    @Override
+    public int size() {
+      return node.size();
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+      if (entrySet == null) {
+        entrySet = new AbstractSet<Map.Entry<String, Object>>() {
+          @Override
+          public Iterator<Map.Entry<String, Object>> iterator() {
+            final Iterator<Map.Entry<String, TomlNode>> fields = node.fields().iterator();
+            return new Iterator<Map.Entry<String, Object>>() {
+              @Override
+              public boolean hasNext() {
+                return fields.hasNext();
+              }
+
+              @Override
+              public Map.Entry<String, Object> next() {
+                Map.Entry<String, TomlNode> field = fields.next();
+                return new SimpleImmutableEntry<String, Object>(
+                    field.getKey(), valueOf(field.getValue()));
+              }
+
+              @Override
+              public void remove() {
+                throw new UnsupportedOperationException();
+              }
+            };
+          }
+
+          @Override
+          public int size() {
+            return node.size();
+          }
+        };
+      }
+      return entrySet;
+    }
+  }
+}
@@ -0,0 +1,65 @@
+package io.industrialist.toml4j.node;
+
+/**
+ * Estimates of the heap taken by the objects nodes are made of, for a 64-bit JVM with compressed
+ * references: a 12 byte object header, 4 byte references, a 16 byte array header, and objects
+ * padded to a multiple of 8 bytes.
+ */
+final class Footprint {
+  static final int OBJECT_HEADER = 12;
+  static final int REFERENCE = 4;
+  static final int ARRAY_HEADER = 16;
+
+  // From Java 9 a string only needs one byte per character if all of them fit in Latin-1
+  private static final boolean COMPACT_STRINGS =
+      !System.getProperty("java.specification.version", "1.").startsWith("1.");
+  private static final int STRING = 24;
+  private static final int ARRAY_LIST = 24;
+
+  private Footprint() {
+  }
+
+  static long align(long bytes) {
+    return (bytes + 7) & ~7L;
+  }
+
+  /**
+   * Returns the size of {@code value} and the array holding its characters.
+   */
+  static long stringBytes(String value) {
+    int bytesPerChar = 2;
+    if (COMPACT_STRINGS) {
+      bytesPerChar = 1;
+      for (int i = 0; i < value.length(); i++) {
+        if (value.charAt(i) > 0xFF) {
+          bytesPerChar = 2;
+          break;
+        }
+      }
+    }
+    return STRING + align(ARRAY_HEADER + (long) bytesPerChar * value.length());
+  }
+
+  static long referenceArrayBytes(int length) {
+    return align(ARRAY_HEADER + (long) REFERENCE * length);
+  }
+
+  static long intArrayBytes(int length) {
+    return align(ARRAY_HEADER + 4L * length);
+  }
+
+  /**
+   * Returns the size of an {@link java.util.ArrayList} holding {@code size} elements, which
+   * were added one by one, not counting the elements.
+   */
+  static long arrayListBytes(int size) {
+    if (size == 0) {
+      return ARRAY_LIST;
+    }
+    int capacity = 10;
+    while (capacity < size) {
+      capacity += capacity >> 1;
+    }
+    return ARRAY_LIST + referenceArrayBytes(capacity);
+  }
+}
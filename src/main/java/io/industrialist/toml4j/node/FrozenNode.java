@@ -0,0 +1,386 @@
+package io.industrialist.toml4j.node;
+
+import io.industrialist.toml4j.StringUtils;
+
+import org.joda.time.DateTime;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+/**
+ * The immutable nodes {@link TomlNode#freeze()} copies a document into. Every field is final and
+ * nothing is computed lazily, so a frozen document can be shared between threads without
+ * synchronization once it has been published.
+ */
+abstract class FrozenNode extends TomlNode {
+  // Multipliers tried in turn for each table, looking for one under which no two keys share a
+  // slot. If none is found the slots are doubled, up to MAX_SPREAD times their usual number.
+  private static final int[] MULTIPLIERS = {
+      0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F, 0x165667B1, 0xD3A2646D, 0xFD7046C5,
+      0xB55A4F09};
+  private static final int MAX_SPREAD = 4;
+
+  private final TomlNodeType nodeType;
+
+  FrozenNode(TomlNodeType nodeType) {
+    this.nodeType = nodeType;
+  }
+
+  static TomlNode of(TomlNode node) {
+    switch (node.getNodeType()) {
+      case HASH:
+        return new Table(node);
+      case ARRAY:
+      case ARRAY_OF_TABLES:
+        return new Sequence(node);
+      case STRING:
+        return new Text(TomlNodeType.STRING, node.stringValue(), null);
+      case DATETIME:
+        return new Text(TomlNodeType.DATETIME, node.asStringValue(), node.dateTimeValue());
+      // These nodes are immutable already
+      case INTEGER:
+        return node instanceof TomlIntegerNode ? node : TomlIntegerNode.valueOf(node.longValue());
+      case FLOAT:
+        return node instanceof TomlFloatNode ? node : TomlFloatNode.valueOf(node.doubleValue());
+      default:
+        return node instanceof TomlBooleanNode ? node
+            : TomlBooleanNode.valueOf(node.booleanValue());
+    }
+  }
+
+  @Override
+  public final TomlNodeType getNodeType() {
+    return nodeType;
+  }
+
+  @Override
+  public TomlNode freeze() {
+    return this;
+  }
+
+  @Override
+  public TomlNode get(int index) {
+    return null;
+  }
+
+  @Override
+  public String asStringValue() {
+    return "";
+  }
+
+  static Spliterator<TomlNode> immutableSpliterator(TomlNode[] values) {
+    return Spliterators.spliterator(
+        values, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+  }
+
+  /**
+   * A table. Its keys are hashed into slots with a multiplier picked so that no two share a slot,
+   * when one is found, so that a lookup reads a single slot. Otherwise lookups probe the slots
+   * that follow, as in {@link TomlHashNode}.
+   */
+  static final class Table extends FrozenNode {
+    private final String[] keys;
+    private final int[] hashes;
+    private final TomlNode[] values;
+    // Holds the position of each key plus one, with 0 marking an empty slot
+    private final int[] slots;
+    private final int multiplier;
+    private final int shift;
+    private final boolean perfect;
+
+    Table(TomlNode node) {
+      super(TomlNodeType.HASH);
+
+      List<String> keyList = new ArrayList<String>(node.size());
+      List<TomlNode> valueList = new ArrayList<TomlNode>(node.size());
+      for (Map.Entry<String, TomlNode> field : node.fields()) {
+        keyList.add(field.getKey());
+        valueList.add(field.getValue().freeze());
+      }
+      keys = keyList.toArray(new String[keyList.size()]);
+      values = valueList.toArray(new TomlNode[valueList.size()]);
+      hashes = new int[keys.length];
+      for (int i = 0; i < keys.length; i++) {
+        hashes[i] = keys[i].hashCode();
+      }
+
+      int length = Integer.highestOneBit(Math.max(keys.length, 1) * 4 - 1);
+      int[] perfectSlots = null;
+      int perfectMultiplier = MULTIPLIERS[0];
+      search:
+      for (int spread = 1; spread <= MAX_SPREAD; spread *= 2) {
+        for (int candidate : MULTIPLIERS) {
+          perfectSlots = fill(length * spread, candidate, false);
+          if (perfectSlots != null) {
+            perfectMultiplier = candidate;
+            break search;
+          }
+        }
+      }
+
+      perfect = perfectSlots != null;
+      slots = perfect ? perfectSlots : fill(length, perfectMultiplier, true);
+      multiplier = perfectMultiplier;
+      shift = Integer.numberOfLeadingZeros(slots.length - 1);
+    }
+
+    // Returns null if two keys share a slot and probing is not allowed
+    private int[] fill(int length, int multiplier, boolean probe) {
+      int[] slots = new int[length];
+      int shift = Integer.numberOfLeadingZeros(length - 1);
+      for (int i = 0; i < keys.length; i++) {
+        int slot = (hashes[i] * multiplier) >>> shift;
+        while (slots[slot] != 0) {
+          if (!probe) {
+            return null;
+          }
+          slot = (slot + 1) & (length - 1);
+        }
+        slots[slot] = i + 1;
+      }
+      return slots;
+    }
+
+    @Override
+    public boolean isHash() {
+      return true;
+    }
+
+    @Override
+    public boolean isContainerNode() {
+      return true;
+    }
+
+    @Override
+    public boolean isValueNode() {
+      return false;
+    }
+
+    @Override
+    public int size() {
+      return keys.length;
+    }
+
+    @Override
+    public TomlNode get(String key) {
+      if (key == null) {
+        return null;
+      }
+
+      int hashCode = key.hashCode();
+      int mask = slots.length - 1;
+      for (int slot = (hashCode * multiplier) >>> shift; ; slot = (slot + 1) & mask) {
+        int position = slots[slot] - 1;
+        if (position < 0) {
+          return null;
+        }
+        if (hashes[position] == hashCode && keys[position].equals(key)) {
+          return values[position];
+        }
+        if (perfect) {
+          return null;
+        }
+      }
+    }
+
+    @Override
+    public Iterable<TomlNode> children() {
+      return new Iterable<TomlNode>() {
+        @Override
+        public Iterator<TomlNode> iterator() {
+          return Arrays.asList(values).iterator();
+        }
+      };
+    }
+
+    @Override
+    public Spliterator<TomlNode> spliterator() {
+      return immutableSpliterator(values);
+    }
+
+    @Override
+    public Iterable<Map.Entry<String, TomlNode>> fields() {
+      return new Iterable<Map.Entry<String, TomlNode>>() {
+        @Override
+        public Iterator<Map.Entry<String, TomlNode>> iterator() {
+          return new Iterator<Map.Entry<String, TomlNode>>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+              return next < keys.length;
+            }
+
+            @Override
+            public Map.Entry<String, TomlNode> next() {
+              if (next >= keys.length) {
+                throw new NoSuchElementException();
+              }
+              Map.Entry<String, TomlNode> field =
+                  new AbstractMap.SimpleImmutableEntry<String, TomlNode>(keys[next], values[next]);
+              next++;
+              return field;
+            }
+
+            @Override
+            public void remove() {
+              throw new UnsupportedOperationException();
+            }
+          };
+        }
+      };
+    }
+
+    @Override
+    long ownBytes() {
+      return Footprint.align(Footprint.OBJECT_HEADER + 5 * Footprint.REFERENCE + 4 + 4 + 1)
+          + 2 * Footprint.referenceArrayBytes(keys.length) + Footprint.intArrayBytes(keys.length)
+          + Footprint.intArrayBytes(slots.length);
+    }
+
+    @Override
+    public String toString() {
+      return TomlHashNode.toString(fields());
+    }
+  }
+
+  /**
+   * An array, or an array of tables.
+   */
+  static final class Sequence extends FrozenNode {
+    private final TomlNode[] values;
+
+    Sequence(TomlNode node) {
+      super(node.getNodeType());
+
+      List<TomlNode> valueList = new ArrayList<TomlNode>(node.size());
+      for (TomlNode child : node.children()) {
+        valueList.add(child.freeze());
+      }
+      values = valueList.toArray(new TomlNode[valueList.size()]);
+    }
+
+    @Override
+    public boolean isContainerNode() {
+      return true;
+    }
+
+    @Override
+    public boolean isValueNode() {
+      return false;
+    }
+
+    @Override
+    public int size() {
+      return values.length;
+    }
+
+    @Override
+    public TomlNode get(int index) {
+      return values[index];
+    }
+
+    @Override
+    public Iterable<TomlNode> children() {
+      return new Iterable<TomlNode>() {
+        @Override
+        public Iterator<TomlNode> iterator() {
+          return Arrays.asList(values).iterator();
+        }
+      };
+    }
+
+    @Override
+    public Spliterator<TomlNode> spliterator() {
+      return immutableSpliterator(values);
+    }
+
+    @Override
+    long ownBytes() {
+      return Footprint.align(Footprint.OBJECT_HEADER + 2 * Footprint.REFERENCE)
+          + Footprint.referenceArrayBytes(values.length);
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder arrayBuilder = new StringBuilder();
+      arrayBuilder.append("[");
+      for (int i = 0; i < values.length; i++) {
+        if (i > 0) {
+          arrayBuilder.append(", ");
+        }
+        arrayBuilder.append(values[i].toString());
+      }
+      return arrayBuilder.append("]").toString();
+    }
+  }
+
+  /**
+   * A string, or a date-time, which is parsed once when it is frozen.
+   */
+  static final class Text extends FrozenNode {
+    // The fields of a DateTime, its chronology being shared
+    private static final int DATE_TIME_BYTES = 24;
+
+    private final String value;
+    private final DateTime dateTime;
+
+    Text(TomlNodeType nodeType, String value, DateTime dateTime) {
+      super(nodeType);
+      this.value = value;
+      this.dateTime = dateTime;
+    }
+
+    @Override
+    public boolean isValueNode() {
+      return true;
+    }
+
+    @Override
+    public boolean isContainerNode() {
+      return false;
+    }
+
+    @Override
+    public String stringValue() {
+      return getNodeType() == TomlNodeType.STRING ? value : null;
+    }
+
+    @Override
+    public DateTime dateTimeValue() {
+      return dateTime;
+    }
+
+    @Override
+    public String asStringValue() {
+      return value;
+    }
+
+    @Override
+    long ownBytes() {
+      return Footprint.align(Footprint.OBJECT_HEADER + 3 * Footprint.REFERENCE)
+          + (dateTime == null ? 0 : DATE_TIME_BYTES);
+    }
+
+    @Override
+    long textBytes() {
+      return Footprint.stringBytes(value);
+    }
+
+    @Override
+    public String toString() {
+      if (getNodeType() == TomlNodeType.DATETIME) {
+        return value;
+      }
+      return new StringBuilder().append("\"").append(StringUtils.escapeString(value)).append("\"")
+          .toString();
+    }
+  }
+}
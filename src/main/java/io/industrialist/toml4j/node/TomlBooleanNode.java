@@ -11,6 +11,16 @@ public class TomlBooleanNode extends TomlValueNode {
     return new TomlBooleanNode(value);
   }
 
+  @Override
+  long ownBytes() {
+    return Footprint.align(Footprint.OBJECT_HEADER + 1);
+  }
+
+  @Override
+  long textBytes() {
+    return 0;
+  }
+
   @Override
   public TomlNodeType getNodeType() {
     return TomlNodeType.BOOLEAN;
@@ -24,6 +24,16 @@ public class TomlDateTimeNode extends TomlValueNode {
     return DateTime.parse(value);
   }
 
+  @Override
+  long ownBytes() {
+    return Footprint.align(Footprint.OBJECT_HEADER + Footprint.REFERENCE);
+  }
+
+  @Override
+  long textBytes() {
+    return Footprint.stringBytes(value);
+  }
+
   @Override
   public TomlNodeType getNodeType() {
     return TomlNodeType.DATETIME;
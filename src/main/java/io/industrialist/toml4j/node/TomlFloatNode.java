@@ -11,6 +11,16 @@ public class TomlFloatNode extends TomlValueNode {
     return new TomlFloatNode(value);
   }
 
+  @Override
+  long ownBytes() {
+    return Footprint.align(Footprint.OBJECT_HEADER + 8);
+  }
+
+  @Override
+  long textBytes() {
+    return 0;
+  }
+
   @Override
   public TomlNodeType getNodeType() {
     return TomlNodeType.FLOAT;
@@ -1,11 +1,33 @@
 package io.industrialist.toml4j.node;
 
+import java.util.AbstractMap;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
 
+/**
+ * A table. Its keys, their hashes and its values are kept in insertion order in parallel arrays,
+ * which are scanned to find a key while the table is small. Once it grows past
+ * {@value #MAX_SCANNED} keys, an open addressing index from the hash of each key to its position
+ * in the arrays is added.
+ */
 public class TomlHashNode extends TomlNode {
-  Map<String, TomlNode> hash = new LinkedHashMap<String, TomlNode>();
+  private static final int MAX_SCANNED = 8;
+  private static final int INITIAL_CAPACITY = 4;
+  private static final String[] NO_KEYS = {};
+  private static final TomlNode[] NO_VALUES = {};
+  private static final int[] NO_HASHES = {};
+
+  private String[] keys = NO_KEYS;
+  private TomlNode[] values = NO_VALUES;
+  private int[] hashes = NO_HASHES;
+  private int size;
+  // Holds the position of each key plus one in the slot its hash probes to first or after,
+  // with 0 marking an empty slot. Only present once the table is too large to scan.
+  private int[] index;
 
   @Override
   public TomlNodeType getNodeType() {
@@ -14,7 +36,7 @@ public class TomlHashNode extends TomlNode {
 
   @Override
   public int size() {
-    return hash.size();
+    return size;
   }
 
   public TomlHashNode put(String key, long value) {
@@ -22,9 +44,7 @@ public class TomlHashNode extends TomlNode {
       throw new NullPointerException("key:null");
     }
 
-    hash.put(key, TomlIntegerNode.valueOf(value));
-
-    return this;
+    return put(key, TomlIntegerNode.valueOf(value));
   }
 
   public TomlHashNode put(String key, TomlNode node) {
@@ -35,14 +55,24 @@ public class TomlHashNode extends TomlNode {
       throw new NullPointerException("value:null");
     }
 
-    hash.put(key, node);
+    int position = indexOf(key);
+    if (position < 0) {
+      append(key, node);
+    } else {
+      values[position] = node;
+    }
 
     return this;
   }
 
   @Override
   public TomlNode get(String key) {
-    return hash.get(key);
+    if (key == null) {
+      return null;
+    }
+
+    int position = indexOf(key);
+    return position < 0 ? null : values[position];
   }
 
   @Override
@@ -50,6 +80,105 @@ public class TomlHashNode extends TomlNode {
     return null;
   }
 
+  private int indexOf(String key) {
+    return index == null ? scan(key) : probe(key);
+  }
+
+  // Both compare the hashes first, as keys often share a prefix
+  private int scan(String key) {
+    int hashCode = key.hashCode();
+    for (int i = 0; i < size; i++) {
+      if (hashes[i] == hashCode && keys[i].equals(key)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private int probe(String key) {
+    int hashCode = key.hashCode();
+    int mask = index.length - 1;
+    for (int slot = slot(hashCode, mask); index[slot] != 0; slot = (slot + 1) & mask) {
+      int position = index[slot] - 1;
+      if (hashes[position] == hashCode && keys[position].equals(key)) {
+        return position;
+      }
+    }
+    return -1;
+  }
+
+  private void append(String key, TomlNode node) {
+    if (size == keys.length) {
+      int capacity = size == 0 ? INITIAL_CAPACITY : size * 2;
+      String[] newKeys = new String[capacity];
+      TomlNode[] newValues = new TomlNode[capacity];
+      int[] newHashes = new int[capacity];
+      System.arraycopy(keys, 0, newKeys, 0, size);
+      System.arraycopy(values, 0, newValues, 0, size);
+      System.arraycopy(hashes, 0, newHashes, 0, size);
+      keys = newKeys;
+      values = newValues;
+      hashes = newHashes;
+    }
+    keys[size] = key;
+    hashes[size] = key.hashCode();
+    values[size] = node;
+    size++;
+
+    if (index != null && size * 2 <= index.length) {
+      insert(index, size - 1);
+    } else if (size > MAX_SCANNED) {
+      // Rebuild the index at two to four times the size, so that it stays at most half full
+      int[] newIndex = new int[Integer.highestOneBit(size * 4 - 1)];
+      for (int i = 0; i < size; i++) {
+        insert(newIndex, i);
+      }
+      index = newIndex;
+    }
+  }
+
+  private void insert(int[] index, int position) {
+    int mask = index.length - 1;
+    int slot = slot(hashes[position], mask);
+    while (index[slot] != 0) {
+      slot = (slot + 1) & mask;
+    }
+    index[slot] = position + 1;
+  }
+
+  // Keys such as "server1" and "server2" have consecutive hashes, which would fill runs of slots
+  // if the low bits were used directly, so the hash is mixed into the top bits first
+  private static int slot(int hashCode, int mask) {
+    return (hashCode * 0x9E3779B9) >>> Integer.numberOfLeadingZeros(mask);
+  }
+
+  @Override
+  public long estimatedRetainedBytes() {
+    long bytes = ownBytes();
+    for (int i = 0; i < size; i++) {
+      bytes += Footprint.stringBytes(keys[i]) + values[i].estimatedRetainedBytes();
+    }
+    return bytes;
+  }
+
+  @Override
+  long ownBytes() {
+    long bytes = Footprint.align(Footprint.OBJECT_HEADER + 4 * Footprint.REFERENCE + 4 + 8);
+    if (keys.length > 0) {
+      bytes += 2 * Footprint.referenceArrayBytes(keys.length)
+          + Footprint.intArrayBytes(keys.length);
+    }
+    if (index != null) {
+      bytes += Footprint.intArrayBytes(index.length);
+    }
+    return bytes;
+  }
+
+  @Override
+  long textBytes() {
+    return 0;
+  }
+
   @Override
   public String asStringValue() {
     return "";
@@ -60,26 +189,45 @@ public class TomlHashNode extends TomlNode {
     return new Iterable<TomlNode>() {
       @Override
       public Iterator<TomlNode> iterator() {
-        return hash.values().iterator();
+        return new FieldIterator<TomlNode>() {
+          @Override
+          TomlNode next(int position) {
+            return values[position];
+          }
+        };
       }
     };
   }
 
+  @Override
+  public Spliterator<TomlNode> spliterator() {
+    return Spliterators.spliterator(values, 0, size, Spliterator.ORDERED | Spliterator.NONNULL);
+  }
+
   @Override
   public Iterable<Map.Entry<String, TomlNode>> fields() {
     return new Iterable<Map.Entry<String, TomlNode>>() {
       @Override
       public Iterator<Map.Entry<String, TomlNode>> iterator() {
-        return hash.entrySet().iterator();
+        return new FieldIterator<Map.Entry<String, TomlNode>>() {
+          @Override
+          Map.Entry<String, TomlNode> next(int position) {
+            return new Field(keys[position], values[position]);
+          }
+        };
       }
     };
   }
 
   @Override
   public String toString() {
+    return toString(fields());
+  }
+
+  static String toString(Iterable<Map.Entry<String, TomlNode>> fields) {
     StringBuilder hashBuilder = new StringBuilder();
 
-    for (Map.Entry<String, TomlNode> entry : hash.entrySet()) {
+    for (Map.Entry<String, TomlNode> entry : fields) {
       TomlNode node = entry.getValue();
       String key = entry.getKey();
       if (node.isValueNode() || node.isArray()) {
@@ -94,7 +242,7 @@ public class TomlHashNode extends TomlNode {
     return hashBuilder.deleteCharAt(hashBuilder.length() - 1).toString();
   }
 
-  private StringBuilder generateKeyGroups(String key, TomlNode node) {
+  private static StringBuilder generateKeyGroups(String key, TomlNode node) {
     StringBuilder keyGroupBuilder = new StringBuilder();
     if (node.isHash()) {
       keyGroupBuilder.append("[").append(key).append("]").append("\n");
@@ -117,4 +265,89 @@ public class TomlHashNode extends TomlNode {
 
     return keyGroupBuilder;
   }
+
+  // Removes the key at position, moving the ones after it down
+  private void removeAt(int position) {
+    int moved = size - position - 1;
+    System.arraycopy(keys, position + 1, keys, position, moved);
+    System.arraycopy(values, position + 1, values, position, moved);
+    System.arraycopy(hashes, position + 1, hashes, position, moved);
+    size--;
+    keys[size] = null;
+    values[size] = null;
+
+    // Positions after the removed key have changed, so the index is rebuilt at its current size
+    if (size <= MAX_SCANNED) {
+      index = null;
+    } else if (index != null) {
+      int[] newIndex = new int[index.length];
+      for (int i = 0; i < size; i++) {
+        insert(newIndex, i);
+      }
+      index = newIndex;
+    }
+  }
+
+  /**
+   * An entry of {@link #fields()} that writes {@link #setValue} through to the table, as long as
+   * its key is still in it.
+   */
+  private final class Field extends AbstractMap.SimpleEntry<String, TomlNode> {
+    private static final long serialVersionUID = 1L;
+
+    Field(String key, TomlNode value) {
+      super(key, value);
+    }
+
+    @Override
+    public TomlNode setValue(TomlNode value) {
+      if (value == null) {
+        throw new NullPointerException("value:null");
+      }
+      int position = indexOf(getKey());
+      if (position < 0) {
+        throw new IllegalStateException("Key was removed: " + getKey());
+      }
+      values[position] = value;
+      return super.setValue(value);
+    }
+  }
+
+  private abstract class FieldIterator<T> implements Iterator<T> {
+    private int expectedSize = size;
+    private int next;
+    private boolean removable;
+
+    abstract T next(int position);
+
+    @Override
+    public boolean hasNext() {
+      return next < size;
+    }
+
+    @Override
+    public T next() {
+      if (size != expectedSize) {
+        throw new ConcurrentModificationException();
+      }
+      if (next >= size) {
+        throw new NoSuchElementException();
+      }
+      removable = true;
+      return next(next++);
+    }
+
+    @Override
+    public void remove() {
+      if (!removable) {
+        throw new IllegalStateException();
+      }
+      if (size != expectedSize) {
+        throw new ConcurrentModificationException();
+      }
+      removable = false;
+      removeAt(--next);
+      expectedSize = size;
+    }
+  }
 }
@@ -0,0 +1,106 @@
+package io.industrialist.toml4j.node;
+
+import java.util.Map;
+
+/**
+ * A breakdown of the estimated heap taken up by a document: the nodes of each type with the
+ * structures holding their children, the keys, and the text of strings and date-times. For a
+ * tree built by the parser the parts add up to the root's
+ * {@link TomlNode#estimatedRetainedBytes()}.
+ *
+ * <pre>
+ * TomlMemorySummary summary = TomlMemorySummary.of(tomlNode);
+ * if (summary.getTotalBytes() &gt; tenantQuota) {
+ *   ...
+ * }
+ * </pre>
+ */
+public final class TomlMemorySummary {
+  private final long[] nodeCounts = new long[TomlNodeType.values().length];
+  private final long[] nodeBytes = new long[TomlNodeType.values().length];
+  private long keyCount;
+  private long keyBytes;
+  private long stringBytes;
+
+  private TomlMemorySummary() {
+  }
+
+  public static TomlMemorySummary of(TomlNode node) {
+    if (node == null) {
+      throw new NullPointerException("node: null");
+    }
+
+    TomlMemorySummary summary = new TomlMemorySummary();
+    summary.add(node);
+    return summary;
+  }
+
+  private void add(TomlNode node) {
+    int type = node.getNodeType().ordinal();
+    nodeCounts[type]++;
+    nodeBytes[type] += node.ownBytes();
+    stringBytes += node.textBytes();
+
+    if (node.isHash()) {
+      for (Map.Entry<String, TomlNode> field : node.fields()) {
+        keyCount++;
+        keyBytes += Footprint.stringBytes(field.getKey());
+        add(field.getValue());
+      }
+    } else {
+      for (TomlNode child : node.children()) {
+        add(child);
+      }
+    }
+  }
+
+  public long getTotalBytes() {
+    long total = keyBytes + stringBytes;
+    for (long bytes : nodeBytes) {
+      total += bytes;
+    }
+    return total;
+  }
+
+  public long getNodeCount(TomlNodeType nodeType) {
+    return nodeCounts[nodeType.ordinal()];
+  }
+
+  /**
+   * Returns the size of the nodes of {@code nodeType} and of the maps and lists holding their
+   * children, but not of the children themselves, their keys or any text.
+   */
+  public long getNodeBytes(TomlNodeType nodeType) {
+    return nodeBytes[nodeType.ordinal()];
+  }
+
+  public long getKeyCount() {
+    return keyCount;
+  }
+
+  public long getKeyBytes() {
+    return keyBytes;
+  }
+
+  /**
+   * Returns the size of the text of strings and date-times.
+   */
+  public long getStringBytes() {
+    return stringBytes;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("total: ").append(getTotalBytes()).append(" bytes\n");
+    for (TomlNodeType nodeType : TomlNodeType.values()) {
+      if (nodeCounts[nodeType.ordinal()] > 0) {
+        builder.append(nodeType).append(": ").append(nodeCounts[nodeType.ordinal()])
+            .append(" nodes, ").append(nodeBytes[nodeType.ordinal()]).append(" bytes\n");
+      }
+    }
+    builder.append("keys: ").append(keyCount).append(", ").append(keyBytes).append(" bytes\n");
+    builder.append("strings: ").append(stringBytes).append(" bytes");
+    return builder.toString();
+  }
+}
@@ -6,6 +6,10 @@ import org.joda.time.DateTime;
 
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public abstract class TomlNode {
   public boolean isValueNode() {
@@ -110,6 +114,34 @@ public abstract class TomlNode {
     };
   }
 
+  /**
+   * Returns a spliterator over the child nodes of this node, in order. It knows how many there
+   * are, and the arrays, arrays of tables and tables built by the parser split it in halves, so
+   * that their children can be shared out evenly between the threads of a parallel stream.
+   */
+  public Spliterator<TomlNode> spliterator() {
+    if (!isContainerNode()) {
+      return Spliterators.emptySpliterator();
+    }
+    return Spliterators.spliterator(
+        children().iterator(), size(), Spliterator.ORDERED | Spliterator.NONNULL);
+  }
+
+  /**
+   * Returns a sequential stream of the child nodes of this node.
+   */
+  public Stream<TomlNode> stream() {
+    return StreamSupport.stream(spliterator(), false);
+  }
+
+  /**
+   * Returns a parallel stream of the child nodes of this node. The node must not be changed while
+   * the stream is used.
+   */
+  public Stream<TomlNode> parallelStream() {
+    return StreamSupport.stream(spliterator(), true);
+  }
+
   /**
    * Returns the number of child nodes of this node.
    *
@@ -119,6 +151,50 @@ public abstract class TomlNode {
     return 0;
   }
 
+  /**
+   * Returns an immutable copy of this node and everything below it, for documents that are read
+   * often and no longer changed. Its arrays are trimmed to size, each table is hashed so that a
+   * lookup reads a single slot when possible, date-times are parsed once, and it can be shared
+   * between threads without synchronization. Freezing a frozen node returns it.
+   */
+  public TomlNode freeze() {
+    return FrozenNode.of(this);
+  }
+
+  /**
+   * Returns an estimate of the heap taken up by this node and everything below it, including
+   * keys, for budgeting memory. The estimate assumes a 64-bit JVM with compressed references.
+   * It is measured when asked, walking every node below, so it follows later changes.
+   */
+  public long estimatedRetainedBytes() {
+    long bytes = ownBytes() + textBytes();
+    if (isHash()) {
+      for (Map.Entry<String, TomlNode> field : fields()) {
+        bytes += Footprint.stringBytes(field.getKey()) + field.getValue().estimatedRetainedBytes();
+      }
+    } else {
+      for (TomlNode child : children()) {
+        bytes += child.estimatedRetainedBytes();
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * Returns the size of this node and the structure holding its children, but not of the
+   * children, their keys or the text of a string.
+   */
+  long ownBytes() {
+    return Footprint.align(Footprint.OBJECT_HEADER + 2 * Footprint.REFERENCE);
+  }
+
+  /**
+   * Returns the size of the text of a string or date-time.
+   */
+  long textBytes() {
+    return isString() || isDateTime() ? Footprint.stringBytes(asStringValue()) : 0;
+  }
+
   public abstract TomlNodeType getNodeType();
 
   public abstract TomlNode get(int index);
@@ -17,6 +17,16 @@ public class TomlStringNode extends TomlValueNode {
     return new TomlStringNode(value);
   }
 
+  @Override
+  long ownBytes() {
+    return Footprint.align(Footprint.OBJECT_HEADER + Footprint.REFERENCE);
+  }
+
+  @Override
+  long textBytes() {
+    return Footprint.stringBytes(value);
+  }
+
   @Override
   public TomlNodeType getNodeType() {
     return TomlNodeType.STRING;
@@ -3,6 +3,7 @@ package io.industrialist.toml4j.node;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
 
 /**
  * @author John Leacox
@@ -39,11 +40,36 @@ public class TomlTableArrayNode extends TomlNode {
     };
   }
 
+  @Override
+  public Spliterator<TomlNode> spliterator() {
+    return values.spliterator();
+  }
+
   @Override
   public TomlNode get(int index) {
     return values.get(index);
   }
 
+  @Override
+  public long estimatedRetainedBytes() {
+    long bytes = ownBytes();
+    for (TomlNode child : values) {
+      bytes += child.estimatedRetainedBytes();
+    }
+    return bytes;
+  }
+
+  @Override
+  long ownBytes() {
+    return Footprint.align(Footprint.OBJECT_HEADER + Footprint.REFERENCE)
+        + Footprint.arrayListBytes(values.size());
+  }
+
+  @Override
+  long textBytes() {
+    return 0;
+  }
+
   @Override
   public String asStringValue() {
     return "";
@@ -10,4 +10,9 @@ public abstract class TomlValueNode extends TomlNode {
   public TomlNode get(int index) {
     return null;
   }
+
+  @Override
+  public long estimatedRetainedBytes() {
+    return ownBytes() + textBytes();
+  }
 }
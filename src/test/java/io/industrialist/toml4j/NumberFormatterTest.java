@@ -0,0 +1,118 @@
+package io.industrialist.toml4j;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.industrialist.toml4j.node.TomlArrayNode;
+import io.industrialist.toml4j.node.TomlFloatNode;
+import io.industrialist.toml4j.node.TomlHashNode;
+import io.industrialist.toml4j.node.TomlIntegerNode;
+import io.industrialist.toml4j.node.TomlNode;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Random;
+
+public class NumberFormatterTest {
+  private static final Charset US_ASCII = Charset.forName("US-ASCII");
+
+  private static String formatLong(long value) {
+    byte[] buffer = new byte[NumberFormatter.MAX_LENGTH];
+    int length = NumberFormatter.formatLong(value, buffer, 0);
+    return new String(buffer, 0, length, US_ASCII);
+  }
+
+  private static String formatDouble(double value) {
+    byte[] buffer = new byte[NumberFormatter.MAX_LENGTH];
+    int length = NumberFormatter.formatDouble(value, buffer, 0);
+    return new String(buffer, 0, length, US_ASCII);
+  }
+
+  private static int significantDigits(String value) {
+    String mantissa = value.replaceFirst("^-", "").replaceFirst("E.*$", "").replace(".", "")
+        .replaceFirst("^0+", "").replaceFirst("0+$", "");
+    return Math.max(mantissa.length(), 1);
+  }
+
+  @Test
+  public void testLongs() {
+    for (long value : new long[] {0, 1, -1, 9, 10, -10, 1234567890, Long.MAX_VALUE,
+        Long.MIN_VALUE}) {
+      assertEquals(Long.toString(value), formatLong(value));
+    }
+
+    Random random = new Random(1);
+    for (int i = 0; i < 100000; i++) {
+      long value = random.nextLong() >> random.nextInt(64);
+      assertEquals(Long.toString(value), formatLong(value));
+    }
+  }
+
+  @Test
+  public void testDoublesUseTheLayoutOfDoubleToString() {
+    for (double value : new double[] {0.0, -0.0, 1.0, -1.0, 0.5, 372.9821, 3.1415, 100.0,
+        1234567.0, 1.0E7, 1.0E10, 0.001, 1.0E-4, 6.02E23, 1.7976931348623157E308, 4.9E-324,
+        2.2250738585072014E-308, Double.NaN, Double.POSITIVE_INFINITY,
+        Double.NEGATIVE_INFINITY}) {
+      assertEquals(Double.toString(value), formatDouble(value));
+    }
+  }
+
+  @Test
+  public void testDoublesAreShortest() {
+    // Double.toString before JDK 19 writes this as "0.0020"
+    assertEquals("0.002", formatDouble(2.0E-3));
+  }
+
+  @Test
+  public void testRandomDoublesRoundTrip() {
+    Random random = new Random(3);
+    for (int i = 0; i < 500000; i++) {
+      double value = Double.longBitsToDouble(random.nextLong());
+      if (Double.isNaN(value) || Double.isInfinite(value)) {
+        continue;
+      }
+
+      String formatted = formatDouble(value);
+      assertEquals(formatted, Double.doubleToLongBits(value),
+          Double.doubleToLongBits(Double.parseDouble(formatted)));
+      assertTrue(formatted,
+          significantDigits(formatted) <= significantDigits(Double.toString(value)));
+    }
+  }
+
+  @Test
+  public void testParseGenerateParseRoundTrip() throws IOException {
+    Random random = new Random(5);
+    TomlHashNode root = new TomlHashNode();
+    TomlArrayNode floats = new TomlArrayNode();
+    TomlArrayNode integers = new TomlArrayNode();
+    for (int i = 0; i < 10000; i++) {
+      double value = Double.longBitsToDouble(random.nextLong());
+      if (!Double.isNaN(value) && !Double.isInfinite(value)) {
+        floats.add(TomlFloatNode.valueOf(value));
+      }
+      integers.add(TomlIntegerNode.valueOf(random.nextLong()));
+    }
+    root.put("floats", floats).put("integers", integers).put("max", Long.MAX_VALUE)
+        .put("min", Long.MIN_VALUE);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new TomlGenerator().writeTo(out, root);
+    TomlNode parsed = new TomlParser().parse(out.toString("UTF8"));
+
+    assertEquals(floats.size(), parsed.get("floats").size());
+    for (int i = 0; i < floats.size(); i++) {
+      assertEquals(Double.doubleToLongBits(floats.get(i).doubleValue()),
+          Double.doubleToLongBits(parsed.get("floats").get(i).doubleValue()));
+    }
+    for (int i = 0; i < integers.size(); i++) {
+      assertEquals(integers.get(i).longValue(), parsed.get("integers").get(i).longValue());
+    }
+    assertEquals(Long.MAX_VALUE, parsed.get("max").longValue());
+    assertEquals(Long.MIN_VALUE, parsed.get("min").longValue());
+  }
+}
@@ -0,0 +1,134 @@
+package io.industrialist.toml4j;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class NumberScannerTest {
+  private final NumberScanner scanner = new NumberScanner();
+
+  private long scanLong(String value) {
+    assertEquals(value, NumberScanner.INTEGER, scanner.scan(value, 0, value.length()));
+    return scanner.longValue;
+  }
+
+  private double scanDouble(String value) {
+    assertEquals(value, NumberScanner.FLOAT, scanner.scan(value, 0, value.length()));
+    return scanner.doubleValue;
+  }
+
+  private void assertNotANumber(String value) {
+    assertEquals(value, NumberScanner.NOT_A_NUMBER, scanner.scan(value, 0, value.length()));
+  }
+
+  private void assertOutOfRange(String value) {
+    try {
+      scanner.scan(value, 0, value.length());
+      fail(value);
+    } catch (ParseException e) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void testIntegers() {
+    assertEquals(0, scanLong("0"));
+    assertEquals(42, scanLong("42"));
+    assertEquals(42, scanLong("+42"));
+    assertEquals(-17, scanLong("-17"));
+    assertEquals(1000000, scanLong("1_000_000"));
+    assertEquals(Long.MAX_VALUE, scanLong("9223372036854775807"));
+    assertEquals(Long.MIN_VALUE, scanLong("-9223372036854775808"));
+    assertEquals(0xDEADBEEFL, scanLong("0xDEAD_beef"));
+    assertEquals(0755, scanLong("0o755"));
+    assertEquals(5, scanLong("0b101"));
+    assertEquals(Long.MAX_VALUE, scanLong("0x7FFFFFFFFFFFFFFF"));
+  }
+
+  @Test
+  public void testIntegerOverflow() {
+    assertOutOfRange("9223372036854775808");
+    assertOutOfRange("-9223372036854775809");
+    assertOutOfRange("99999999999999999999999");
+    assertOutOfRange("0x8000000000000000");
+    assertOutOfRange("0o1000000000000000000000");
+  }
+
+  @Test
+  public void testFloats() {
+    assertEquals(3.1415, scanDouble("3.1415"), 0.0);
+    assertEquals(-0.01, scanDouble("-0.01"), 0.0);
+    assertEquals(5e+22, scanDouble("5e+22"), 0.0);
+    assertEquals(1e6, scanDouble("1e06"), 0.0);
+    assertEquals(-2e-2, scanDouble("-2E-2"), 0.0);
+    assertEquals(6.626e-34, scanDouble("6.626e-34"), 0.0);
+    assertEquals(9224617.445991228313, scanDouble("9_224_617.445_991_228_313"), 0.0);
+    assertEquals(Double.doubleToLongBits(-0.0), Double.doubleToLongBits(scanDouble("-0.0")));
+    assertEquals(Double.MAX_VALUE, scanDouble("1.7976931348623157e308"), 0.0);
+    assertEquals(Double.MIN_VALUE, scanDouble("4.9e-324"), 0.0);
+    assertEquals(Double.POSITIVE_INFINITY, scanDouble("1e400"), 0.0);
+    assertEquals(0.0, scanDouble("1e-400"), 0.0);
+    assertEquals(0.1, scanDouble("0.1000000000000000000000000001"), 0.0);
+  }
+
+  @Test
+  public void testFloatsMatchDoubleParseDouble() {
+    Random random = new Random(42);
+    for (int i = 0; i < 200000; i++) {
+      StringBuilder builder = new StringBuilder();
+      int integerDigits = 1 + random.nextInt(20);
+      for (int j = 0; j < integerDigits; j++) {
+        builder.append((char) ('0' + random.nextInt(10)));
+      }
+      builder.append('.');
+      int fractionDigits = 1 + random.nextInt(20);
+      for (int j = 0; j < fractionDigits; j++) {
+        builder.append((char) ('0' + random.nextInt(10)));
+      }
+      if (random.nextBoolean()) {
+        builder.append('e').append(random.nextInt(700) - 350);
+      }
+      String value = builder.toString();
+
+      assertEquals(value, Double.doubleToLongBits(Double.parseDouble(value)),
+          Double.doubleToLongBits(scanDouble(value)));
+    }
+  }
+
+  @Test
+  public void testRoundTripOfRandomDoubles() {
+    Random random = new Random(7);
+    for (int i = 0; i < 200000; i++) {
+      double expected = Double.longBitsToDouble(random.nextLong());
+      if (Double.isNaN(expected) || Double.isInfinite(expected)) {
+        continue;
+      }
+      String value = Double.toString(expected);
+
+      assertEquals(value, Double.doubleToLongBits(expected),
+          Double.doubleToLongBits(scanDouble(value)));
+    }
+  }
+
+  @Test
+  public void testNotANumber() {
+    for (String value : new String[] {"", "-", "+", "_1", "1_", "1__0", "1._5", "1.", ".5", "1e",
+        "1e+", "0x", "-0x10", "0xG", "0b102", "1979-05-27T07:32:00Z", "true", "1.5.5", "1e5.5",
+        "٣"}) {
+      assertNotANumber(value);
+    }
+  }
+
+  @Test
+  public void testScansASliceOfTheText() {
+    String line = "ports = [ 8001, 2.5 ]";
+
+    assertEquals(NumberScanner.INTEGER, scanner.scan(line, 10, 14));
+    assertEquals(8001, scanner.longValue);
+    assertEquals(NumberScanner.FLOAT, scanner.scan(line, 16, 19));
+    assertEquals(2.5, scanner.doubleValue, 0.0);
+  }
+}
@@ -0,0 +1,112 @@
+package io.industrialist.toml4j;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import io.industrialist.toml4j.node.TomlNode;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public class ProjectionTest {
+  private TomlNode parseExample(Projection projection) throws IOException {
+    InputStream exampleStream = getClass().getResourceAsStream("/example.toml");
+    try {
+      return new TomlParser().parse(exampleStream, projection);
+    } finally {
+      exampleStream.close();
+    }
+  }
+
+  @Test
+  public void testWholeTableAndSingleKey() throws IOException {
+    TomlNode rootNode = parseExample(Projection.of("database", "servers.beta.ip"));
+
+    assertEquals(4, rootNode.get("database").size());
+    assertEquals(8002, rootNode.get("database").get("ports").get(2).longValue());
+    assertEquals(1, rootNode.get("servers").get("beta").size());
+    assertEquals("10.0.0.2", rootNode.get("servers").get("beta").get("ip").stringValue());
+    assertNull(rootNode.get("servers").get("alpha"));
+    assertNull(rootNode.get("title"));
+    assertNull(rootNode.get("owner"));
+    assertNull(rootNode.get("clients"));
+    assertNull(rootNode.get("products"));
+  }
+
+  @Test
+  public void testTrailingWildcardSelectsSubtree() throws IOException {
+    TomlNode rootNode = parseExample(Projection.of("servers.*"));
+
+    assertEquals("10.0.0.1", rootNode.get("servers").get("alpha").get("ip").stringValue());
+    assertEquals("中国", rootNode.get("servers").get("beta").get("country").stringValue());
+    assertEquals(1, rootNode.size());
+  }
+
+  @Test
+  public void testRootKey() throws IOException {
+    TomlNode rootNode = parseExample(Projection.of("title"));
+
+    assertEquals("TOML Example", rootNode.get("title").stringValue());
+    assertEquals(1, rootNode.size());
+  }
+
+  @Test
+  public void testKeyInArrayOfTables() throws IOException {
+    TomlNode rootNode = parseExample(Projection.of("products.name"));
+
+    TomlNode products = rootNode.get("products");
+    assertEquals(2, products.size());
+    assertEquals("Hammer", products.get(0).get("name").stringValue());
+    assertEquals(1, products.get(0).size());
+    assertEquals("Nail", products.get(1).get("name").stringValue());
+    assertNull(products.get(1).get("color"));
+  }
+
+  @Test
+  public void testMultilineArrayInSkippedKey() throws IOException {
+    TomlNode rootNode = parseExample(Projection.of("clients.data", "products"));
+
+    assertEquals(1, rootNode.get("clients").size());
+    assertEquals("gamma", rootNode.get("clients").get("data").get(0).get(0).stringValue());
+    assertEquals(2, rootNode.get("products").size());
+  }
+
+  @Test
+  public void testSkippedMultilineArrayDoesNotEndSkippedTable() throws IOException {
+    String tomlString = "[skipped]\narray = [\n\"]\",\n[\"[x]\"]\n]\n[kept]\nvalue = 1";
+
+    TomlNode rootNode = new TomlParser().parse(tomlString, Projection.of("kept"));
+
+    assertNull(rootNode.get("skipped"));
+    assertEquals(1, rootNode.get("kept").get("value").longValue());
+  }
+
+  @Test
+  public void testSkippedValuesAreNotDecoded() throws IOException {
+    String tomlString = "[skipped]\nbad = 1.2.3\n[kept]\nvalue = 1";
+
+    TomlNode rootNode = new TomlParser().parse(tomlString, Projection.of("kept.value"));
+
+    assertEquals(1, rootNode.get("kept").get("value").longValue());
+  }
+
+  @Test
+  public void testHardExampleQuotedKey() throws IOException {
+    InputStream exampleStream = getClass().getResourceAsStream("/hard_example.toml");
+
+    TomlNode rootNode =
+        new TomlParser().parse(exampleStream, Projection.of("the.hard.\"bit#\".multi_line_array"));
+
+    TomlNode bit = rootNode.get("the").get("hard").get("\"bit#\"");
+    assertEquals(1, bit.size());
+    assertEquals("]", bit.get("multi_line_array").get(0).stringValue());
+    assertNull(rootNode.get("the").get("test_string"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testEmptyPathIsRejected() {
+    Projection.of("");
+  }
+}
@@ -1,6 +1,7 @@
 package io.industrialist.toml4j;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import org.junit.Test;
 
@@ -20,4 +21,61 @@ public class StringUtilsTest {
 
     StringUtils.unescapeString(value);
   }
+
+  @Test
+  public void testUnescapeStringReturnsCleanStringUnchanged() {
+    String value = "no escapes here";
+
+    assertSame(value, StringUtils.unescapeString(value));
+  }
+
+  @Test
+  public void testUnescapeStringAllEscapes() {
+    String value = "a\\b\\t\\n\\f\\r\\\"\\/\\\\\\u00E9\\u4e2dz";
+
+    assertEquals("a\b\t\n\f\r\"/\\\u00e9\u4e2dz", StringUtils.unescapeString(value));
+  }
+
+  @Test
+  public void testUnescapeStringSlice() {
+    String source = "key = \"x\\ty\" # comment";
+
+    assertEquals("x\ty", StringUtils.unescapeString(source, 7, 11));
+    assertEquals("key", StringUtils.unescapeString(source, 0, 3));
+
+    StringBuilder out = new StringBuilder("> ");
+    StringUtils.unescapeString(source, 7, 11, out);
+    assertEquals("> x\ty", out.toString());
+  }
+
+  @Test(expected = ParseException.class)
+  public void testUnescapeStringThrowsParseExceptionForShortUnicodeEscape() {
+    StringUtils.unescapeString("\\u00e");
+  }
+
+  @Test(expected = ParseException.class)
+  public void testUnescapeStringThrowsParseExceptionForInvalidHexDigit() {
+    StringUtils.unescapeString("\\u+0e9");
+  }
+
+  @Test(expected = ParseException.class)
+  public void testUnescapeStringThrowsParseExceptionForTrailingBackslash() {
+    StringUtils.unescapeString("abc\\");
+  }
+
+  @Test
+  public void testEscapeStringReturnsCleanStringUnchanged() {
+    String value = "no escapes here, \u4e2d\u56fd";
+
+    assertSame(value, StringUtils.escapeString(value));
+  }
+
+  @Test
+  public void testEscapeString() {
+    assertEquals("say \\\"hi\\\"\\n\\tC:\\\\", StringUtils.escapeString("say \"hi\"\n\tC:\\"));
+
+    StringBuilder out = new StringBuilder("x = ");
+    StringUtils.escapeString("a\rb", out);
+    assertEquals("x = a\\rb", out.toString());
+  }
 }
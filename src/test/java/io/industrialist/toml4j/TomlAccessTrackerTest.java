@@ -0,0 +1,128 @@
+package io.industrialist.toml4j;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class TomlAccessTrackerTest {
+  private static final String DOCUMENT = "title = \"tracked\"\n"
+      + "[server]\n"
+      + "host = \"localhost\"\n"
+      + "port = 8080\n"
+      + "ratio = 0.5\n"
+      + "enabled = true\n"
+      + "started = 1979-05-27T07:32:00Z\n"
+      + "ports = [8001, 8002]\n";
+
+  @Test
+  public void testCountsReads() throws IOException {
+    TomlAccessTracker tracker = new TomlAccessTracker();
+    Toml toml = Toml.from(DOCUMENT).withTracker(tracker);
+
+    toml.getString("title");
+    toml.getString("server.host");
+    toml.getLong("server.port");
+    toml.getDouble("server.ratio");
+    toml.getBoolean("server.enabled");
+    toml.getDateTime("server.started");
+    toml.getListOf("server.ports", Long.class);
+    assertNull(toml.getString("server.missing"));
+    Toml server = toml.getKeyGroup("server");
+    assertEquals(8080, server.getLong("port").longValue());
+
+    assertEquals(1, tracker.getCount("title"));
+    assertEquals(1, tracker.getCount("server.host"));
+    assertEquals(2, tracker.getCount("server.port"));
+    assertEquals(1, tracker.getCount("server.ratio"));
+    assertEquals(1, tracker.getCount("server.enabled"));
+    assertEquals(1, tracker.getCount("server.started"));
+    assertEquals(1, tracker.getCount("server.ports"));
+    assertEquals(1, tracker.getCount("server.missing"));
+    assertEquals(1, tracker.getCount("server"));
+    assertEquals(0, tracker.getCount("port"));
+    assertEquals(9, tracker.getCounts().size());
+
+    // Frozen, the document is still tracked
+    toml.freeze().getString("title");
+    assertEquals(2, tracker.getCount("title"));
+  }
+
+  @Test
+  public void testUntrackedDocumentCountsNothing() throws IOException {
+    TomlAccessTracker tracker = new TomlAccessTracker();
+    Toml toml = Toml.from(DOCUMENT);
+    toml.withTracker(tracker);
+
+    toml.getString("title");
+    toml.getKeyGroup("server").getLong("port");
+
+    assertEquals(Collections.emptyMap(), tracker.getCounts());
+  }
+
+  @Test
+  public void testHottest() throws IOException {
+    TomlAccessTracker tracker = new TomlAccessTracker();
+    Toml toml = Toml.from(DOCUMENT).withTracker(tracker);
+    for (int i = 0; i < 5; i++) {
+      toml.getLong("server.port");
+    }
+    for (int i = 0; i < 3; i++) {
+      toml.getString("server.host");
+      toml.getString("title");
+    }
+    toml.getBoolean("server.enabled");
+
+    assertEquals(Arrays.asList(entry("server.port", 5), entry("server.host", 3),
+        entry("title", 3)), tracker.getHottest(3));
+    assertEquals(4, tracker.getHottest(10).size());
+    assertEquals(tracker.getHottest(10), tracker.getHottest(Integer.MAX_VALUE));
+    assertEquals(Collections.emptyList(), tracker.getHottest(0));
+
+    tracker.reset();
+    assertEquals(Collections.emptyList(), tracker.getHottest(3));
+    assertEquals(Collections.emptyList(), tracker.getHottest(Integer.MAX_VALUE));
+  }
+
+  @Test
+  public void testConcurrentReads() throws Exception {
+    final TomlAccessTracker tracker = new TomlAccessTracker();
+    final Toml toml = Toml.from(DOCUMENT).freeze().withTracker(tracker);
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int t = 0; t < 8; t++) {
+      threads.add(new Thread(new Runnable() {
+        @Override
+        public void run() {
+          for (int i = 0; i < 10000; i++) {
+            toml.getLong("server.port");
+            toml.getString("key" + (i % 100));
+          }
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals(80000, tracker.getCount("server.port"));
+    for (int i = 0; i < 100; i++) {
+      assertEquals(800, tracker.getCount("key" + i));
+    }
+    assertEquals("server.port", tracker.getHottest(1).get(0).getKey());
+  }
+
+  private static Map.Entry<String, Long> entry(String key, long count) {
+    return new AbstractMap.SimpleImmutableEntry<String, Long>(key, count);
+  }
+}
@@ -0,0 +1,72 @@
+package io.industrialist.toml4j;
+
+import io.industrialist.toml4j.TomlAppender.SyncPolicy;
+import io.industrialist.toml4j.node.TomlHashNode;
+import io.industrialist.toml4j.node.TomlStringNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures appending entries with each sync policy, from one writer and from several. Not run
+ * with the tests; run its main method to print the entries appended per second for each.
+ */
+public class TomlAppendBenchmark {
+  private static final int RECORDS = 20000;
+
+  public static void main(String[] args) throws Exception {
+    File file = File.createTempFile("appender", ".toml");
+    file.deleteOnExit();
+
+    SyncPolicy[] policies = {
+        SyncPolicy.ON_CLOSE, SyncPolicy.everyInterval(10, TimeUnit.MILLISECONDS),
+        SyncPolicy.everyRecords(100), SyncPolicy.EVERY_RECORD};
+    String[] names = {"on close      ", "every 10 ms   ", "every 100     ", "every record  "};
+    for (int round = 0; round < 2; round++) {
+      for (int i = 0; i < policies.length; i++) {
+        for (int threads : new int[] {1, 8}) {
+          measure(names[i] + threads + " writers", file, policies[i], threads);
+        }
+      }
+    }
+  }
+
+  private static void measure(String name, File file, SyncPolicy policy, int threads)
+      throws Exception {
+    if (!file.delete()) {
+      throw new IOException("Cannot delete " + file);
+    }
+    final TomlAppender appender = TomlAppender.open(file, "events", policy);
+    final int perThread = RECORDS / threads;
+    Thread[] writers = new Thread[threads];
+    for (int t = 0; t < threads; t++) {
+      writers[t] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            for (int i = 0; i < perThread; i++) {
+              appender.append(new TomlHashNode().put("id", i).put("status", 200)
+                  .put("path", TomlStringNode.valueOf("/api/v1/items")));
+            }
+          } catch (IOException e) {
+            throw new RuntimeException(e);
+          }
+        }
+      });
+    }
+
+    long start = System.nanoTime();
+    for (Thread writer : writers) {
+      writer.start();
+    }
+    for (Thread writer : writers) {
+      writer.join();
+    }
+    appender.close();
+    long elapsed = System.nanoTime() - start;
+
+    System.out.println(name + ": " + perThread * threads * 1000000000L / elapsed
+        + " entries per second");
+  }
+}
@@ -0,0 +1,216 @@
+package io.industrialist.toml4j;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.industrialist.toml4j.TomlAppender.SyncPolicy;
+import io.industrialist.toml4j.node.TomlArrayNode;
+import io.industrialist.toml4j.node.TomlHashNode;
+import io.industrialist.toml4j.node.TomlNode;
+import io.industrialist.toml4j.node.TomlStringNode;
+import io.industrialist.toml4j.node.TomlTableArrayNode;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class TomlAppenderTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testAppendRecords() throws IOException {
+    File file = folder.newFile();
+    TomlAppender appender = TomlAppender.open(file, "events", SyncPolicy.EVERY_RECORD);
+    appender.append(new TomlHashNode()
+        .put("details", new TomlHashNode().put("size", 10))
+        .put("id", 1)
+        .put("tags", new TomlTableArrayNode()
+            .add(new TomlHashNode().put("name", TomlStringNode.valueOf("x")))
+            .add(new TomlHashNode().put("name", TomlStringNode.valueOf("y"))))
+        .put("ports", new TomlArrayNode().add(TomlStringNode.valueOf("a\"b"))));
+    appender.append(new TomlHashNode().put("id", 2));
+    appender.close();
+
+    assertEquals("[[events]]\n"
+        + "id = 1\n"
+        + "ports = [\"a\\\"b\"]\n"
+        + "[events.details]\n"
+        + "size = 10\n"
+        + "[[events.tags]]\n"
+        + "name = \"x\"\n"
+        + "[[events.tags]]\n"
+        + "name = \"y\"\n"
+        + "\n"
+        + "[[events]]\n"
+        + "id = 2\n", read(file));
+
+    // Reopened, the entries go on after those already there
+    appender = TomlAppender.open(file, "events", SyncPolicy.ON_CLOSE);
+    appender.append(new TomlHashNode().put("id", 3));
+    appender.close();
+
+    TomlNode events = parse(file).get("events");
+    assertEquals(3, events.size());
+    assertEquals(10, events.get(0).get("details").get("size").longValue());
+    assertEquals("y", events.get(0).get("tags").get(1).get("name").stringValue());
+    assertEquals("a\"b", events.get(0).get("ports").get(0).stringValue());
+    assertEquals(3, events.get(2).get("id").longValue());
+  }
+
+  @Test
+  public void testAppendAfterDocument() throws IOException {
+    File file = folder.newFile();
+    OutputStream out = new FileOutputStream(file);
+    try {
+      out.write("title = \"log\"\n[log]\nname = \"app\"".getBytes("UTF8"));
+    } finally {
+      out.close();
+    }
+
+    TomlAppender appender = TomlAppender.open(file, "log.events", SyncPolicy.everyRecords(2));
+    for (int i = 1; i <= 5; i++) {
+      appender.append(new TomlHashNode().put("id", i));
+    }
+    appender.close();
+
+    InputStream in = new FileInputStream(file);
+    try {
+      TomlRecordReader reader = TomlRecordReader.open(in, "log.events");
+      for (int i = 1; i <= 5; i++) {
+        assertEquals(i, reader.next().get("id").longValue());
+      }
+      assertFalse(reader.hasNext());
+      assertEquals("app", reader.getDocument().get("log").get("name").stringValue());
+    } finally {
+      in.close();
+    }
+  }
+
+  @Test
+  public void testConcurrentAppends() throws Exception {
+    final int threads = 4;
+    final int records = 200;
+    File file = folder.newFile();
+    SyncPolicy[] policies = {
+        SyncPolicy.EVERY_RECORD, SyncPolicy.everyRecords(16),
+        SyncPolicy.everyInterval(1, TimeUnit.MILLISECONDS)};
+
+    for (SyncPolicy policy : policies) {
+      assertTrue(file.delete());
+      final TomlAppender appender = TomlAppender.open(file, "events", policy);
+      final List<Exception> failures = new ArrayList<Exception>();
+      List<Thread> writers = new ArrayList<Thread>();
+      for (int t = 0; t < threads; t++) {
+        final int writer = t;
+        writers.add(new Thread(new Runnable() {
+          @Override
+          public void run() {
+            try {
+              for (int i = 0; i < records; i++) {
+                appender.append(new TomlHashNode().put("writer", writer).put("id", i));
+              }
+            } catch (Exception e) {
+              synchronized (failures) {
+                failures.add(e);
+              }
+            }
+          }
+        }));
+      }
+      for (Thread writer : writers) {
+        writer.start();
+      }
+      for (Thread writer : writers) {
+        writer.join();
+      }
+      appender.close();
+
+      assertEquals(new ArrayList<Exception>(), failures);
+      TomlNode events = parse(file).get("events");
+      assertEquals(threads * records, events.size());
+      // The entries of each writer are in the order it appended them
+      int[] next = new int[threads];
+      for (TomlNode event : events.children()) {
+        int writer = (int) event.get("writer").longValue();
+        assertEquals(next[writer]++, event.get("id").longValue());
+      }
+    }
+  }
+
+  @Test
+  public void testClosed() throws IOException {
+    TomlAppender appender =
+        TomlAppender.open(folder.newFile(), "events", SyncPolicy.everyInterval(1, TimeUnit.HOURS));
+    appender.close();
+    appender.close();
+
+    try {
+      appender.append(new TomlHashNode().put("id", 1));
+      fail();
+    } catch (IOException e) {
+      assertEquals("Appender closed", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testInvalidArguments() throws IOException {
+    TomlAppender appender = TomlAppender.open(folder.newFile(), "events", SyncPolicy.ON_CLOSE);
+    try {
+      appender.append(new TomlArrayNode());
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("record: ARRAY", e.getMessage());
+    } finally {
+      appender.close();
+    }
+
+    try {
+      SyncPolicy.everyRecords(0);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("records: 0", e.getMessage());
+    }
+    try {
+      TomlAppender.open(folder.newFile(), "", SyncPolicy.ON_CLOSE);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Empty path", e.getMessage());
+    }
+  }
+
+  private static TomlNode parse(File file) throws IOException {
+    InputStream in = new FileInputStream(file);
+    try {
+      return new TomlParser().parse(in);
+    } finally {
+      in.close();
+    }
+  }
+
+  private static String read(File file) throws IOException {
+    InputStream in = new FileInputStream(file);
+    try {
+      StringBuilder text = new StringBuilder();
+      byte[] buffer = new byte[4096];
+      for (int read; (read = in.read(buffer)) != -1; ) {
+        text.append(new String(buffer, 0, read, "UTF8"));
+      }
+      return text.toString();
+    } finally {
+      in.close();
+    }
+  }
+}
@@ -0,0 +1,139 @@
+package io.industrialist.toml4j;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+public class TomlCacheTest {
+  @Test
+  public void testSharesFrozenDocuments() throws IOException {
+    TomlCache cache = new TomlCache(1 << 20);
+
+    Toml first = cache.get("[server]\nhost = \"localhost\"");
+    Toml second = cache.get(new String("[server]\nhost = \"localhost\""));
+
+    assertSame(first, second);
+    assertSame(first, first.freeze());
+    assertEquals("localhost", second.getString("server.host"));
+    assertNotSame(first, cache.get("[server]\nhost = \"example.com\""));
+    assertEquals(1, cache.getHitCount());
+    assertEquals(2, cache.getMissCount());
+    assertEquals(2, cache.getEntryCount());
+    assertTrue(cache.getEstimatedBytes() > 0);
+
+    cache.invalidateAll();
+    assertEquals(0, cache.getEntryCount());
+    assertEquals(0, cache.getEstimatedBytes());
+    assertNotSame(first, cache.get("[server]\nhost = \"localhost\""));
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsed() throws IOException {
+    TomlCache sizing = new TomlCache(1 << 20);
+    sizing.get("a = 1");
+    long documentBytes = sizing.getEstimatedBytes();
+
+    // Room for two of the documents below, which all have the same size
+    TomlCache cache = new TomlCache(2 * documentBytes);
+    Toml a = cache.get("a = 1");
+    Toml b = cache.get("b = 1");
+    assertSame(a, cache.get("a = 1"));
+    cache.get("c = 1");
+
+    assertEquals(1, cache.getEvictionCount());
+    assertEquals(2, cache.getEntryCount());
+    assertEquals(2 * documentBytes, cache.getEstimatedBytes());
+    assertSame(a, cache.get("a = 1"));
+    assertNotSame(b, cache.get("b = 1"));
+    assertEquals(2, cache.getEvictionCount());
+
+    // A document larger than the cache is returned without being kept
+    TomlCache tiny = new TomlCache(1);
+    Toml large = tiny.get("a = 1");
+    assertEquals(1, large.getLong("a").longValue());
+    assertEquals(0, tiny.getEntryCount());
+    assertEquals(1, tiny.getEvictionCount());
+  }
+
+  @Test
+  public void testConcurrentRequestsParseOnce() throws Exception {
+    final TomlCache cache = new TomlCache(1 << 20);
+    StringBuilder document = new StringBuilder();
+    for (int i = 0; i < 2000; i++) {
+      document.append("[table").append(i).append("]\nkey = \"value\"\n");
+    }
+    final String tomlString = document.toString();
+
+    final CountDownLatch start = new CountDownLatch(1);
+    final List<Toml> results = new ArrayList<Toml>();
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int t = 0; t < 8; t++) {
+      threads.add(new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+            Toml toml = cache.get(new String(tomlString));
+            synchronized (results) {
+              results.add(toml);
+            }
+          } catch (Exception e) {
+            throw new RuntimeException(e);
+          }
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals(8, results.size());
+    for (Toml toml : results) {
+      assertSame(results.get(0), toml);
+    }
+    assertEquals(1, cache.getMissCount());
+    assertEquals(7, cache.getHitCount());
+  }
+
+  @Test
+  public void testFailedParseIsNotCached() throws IOException {
+    TomlCache cache = new TomlCache(1 << 20);
+    for (int i = 0; i < 2; i++) {
+      try {
+        cache.get("a = 1\na = 2");
+        fail();
+      } catch (ParseException e) {
+        assertEquals(0, cache.getEntryCount());
+      }
+    }
+    assertEquals(2, cache.getMissCount());
+    assertEquals(0, cache.getEstimatedBytes());
+  }
+
+  @Test
+  public void testContentHash() {
+    assertEquals(TomlCache.contentHash("a = 1"), TomlCache.contentHash(new String("a = 1")));
+    assertNotEquals(TomlCache.contentHash("a = 1"), TomlCache.contentHash("a = 2"));
+    assertNotEquals(TomlCache.contentHash("a = 1"), TomlCache.contentHash("a = 1 "));
+    assertNotEquals(TomlCache.contentHash(""), TomlCache.contentHash("\u0000"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidSize() {
+    new TomlCache(0);
+  }
+}
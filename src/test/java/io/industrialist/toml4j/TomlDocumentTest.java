@@ -0,0 +1,206 @@
+package io.industrialist.toml4j;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public class TomlDocumentTest {
+  private static final String DOCUMENT = "# Build settings\n"
+      + "name = \"widget\"   # the artifact\n"
+      + "\n"
+      + "[project]\n"
+      + "  version = \"1.2.9\"\n"
+      + "  owner = \"Jürgen\"\n"
+      + "  modules = [\n"
+      + "    \"core\",  # always\n"
+      + "    \"cli\"\n"
+      + "  ]  # end\n"
+      + "  count=3\n"
+      + "\n"
+      + "[[products]]\n"
+      + "sku = 1\n"
+      + "[[products]]\n"
+      + "sku = 2\n"
+      + "[products.details]\n"
+      + "weight = 1.5\n";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private File write(String toml) throws IOException {
+    File file = folder.newFile();
+    OutputStream out = new FileOutputStream(file);
+    try {
+      out.write(toml.getBytes("UTF8"));
+    } finally {
+      out.close();
+    }
+    return file;
+  }
+
+  private static String read(File file) throws IOException {
+    InputStream in = new FileInputStream(file);
+    try {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[4096];
+      for (int read; (read = in.read(buffer)) != -1; ) {
+        out.write(buffer, 0, read);
+      }
+      return out.toString("UTF8");
+    } finally {
+      in.close();
+    }
+  }
+
+  private static String text(String toml, TomlDocument.Span span) throws IOException {
+    byte[] bytes = toml.getBytes("UTF8");
+    return new String(bytes, (int) span.getStart(), (int) (span.getEnd() - span.getStart()),
+        "UTF8");
+  }
+
+  @Test
+  public void testSpans() throws IOException {
+    TomlDocument document = TomlDocument.parse(DOCUMENT);
+
+    assertEquals("name", text(DOCUMENT, document.getKeySpan("name")));
+    assertEquals("\"widget\"", text(DOCUMENT, document.getValueSpan("name")));
+    assertEquals("\"1.2.9\"", text(DOCUMENT, document.getValueSpan("project.version")));
+    // After a multi-byte character, offsets are in bytes
+    assertEquals("\"Jürgen\"", text(DOCUMENT, document.getValueSpan("project.owner")));
+    assertEquals("[\n    \"core\",  # always\n    \"cli\"\n  ]",
+        text(DOCUMENT, document.getValueSpan("project.modules")));
+    assertEquals("count", text(DOCUMENT, document.getKeySpan("project.count")));
+    assertEquals("3", text(DOCUMENT, document.getValueSpan("project.count")));
+    assertEquals("2", text(DOCUMENT, document.getValueSpan("products[1].sku")));
+    assertEquals("1.5", text(DOCUMENT, document.getValueSpan("products[1].details.weight")));
+    assertNull(document.getValueSpan("project.missing"));
+  }
+
+  @Test
+  public void testSameLengthChangeIsWrittenInPlace() throws IOException {
+    File file = write(DOCUMENT);
+    TomlDocument document = TomlDocument.open(file);
+
+    document.set("project.version", "1.3.0").set("products[0].sku", 7);
+    assertTrue(document.isModified());
+    assertEquals("1.3.0", document.toToml().getString("project.version"));
+    document.save();
+
+    assertFalse(document.isModified());
+    assertEquals(DOCUMENT.replace("1.2.9", "1.3.0").replace("sku = 1", "sku = 7"), read(file));
+  }
+
+  @Test
+  public void testChangesThatMoveTheRestOfTheFile() throws IOException {
+    File file = write(DOCUMENT);
+    TomlDocument document = TomlDocument.open(file);
+
+    document.set("name", "a much longer artifact name")
+        .set("project.modules", "core")
+        .set("project.version", "1.2.10")
+        .set("products[1].details.weight", 12.25);
+    document.save();
+
+    String expected = DOCUMENT.replace("\"widget\"", "\"a much longer artifact name\"")
+        .replace("[\n    \"core\",  # always\n    \"cli\"\n  ]", "\"core\"")
+        .replace("1.2.9", "1.2.10")
+        .replace("1.5", "12.25");
+    assertEquals(expected, read(file));
+
+    // The spans follow the moved values, so the document can be changed again
+    assertEquals("\"1.2.10\"", text(expected, document.getValueSpan("project.version")));
+    assertEquals("count", text(expected, document.getKeySpan("project.count")));
+    document.set("project.count", 42).save();
+    assertEquals(expected.replace("count=3", "count=42"), read(file));
+    assertEquals(42, TomlDocument.open(file).toToml().getLong("project.count").longValue());
+  }
+
+  @Test
+  public void testLargeFile() throws IOException {
+    StringBuilder toml = new StringBuilder("version = \"1.0\"\n");
+    for (int i = 0; i < 5000; i++) {
+      toml.append("[table").append(i).append("]\nvalue = \"").append(i).append("\"\n");
+    }
+    String original = toml.toString();
+    File file = write(original);
+
+    // Growing early and shrinking late needs the bytes in between held back, then moved back
+    TomlDocument document = TomlDocument.open(file);
+    StringBuilder longVersion = new StringBuilder();
+    for (int i = 0; i < 20000; i++) {
+      longVersion.append('x');
+    }
+    document.set("version", longVersion.toString()).set("table4000.value", 1);
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    document.writeTo(expected);
+    document.save();
+
+    String saved = read(file);
+    assertEquals(expected.toString("UTF8"), saved);
+    assertEquals(original.replace("\"1.0\"", "\"" + longVersion + "\"")
+        .replace("value = \"4000\"", "value = 1"), saved);
+
+    document.set("version", "2.0").set("table10.value", "ten").save();
+    assertEquals(original.replace("\"1.0\"", "\"2.0\"")
+        .replace("value = \"10\"", "value = \"ten\"")
+        .replace("value = \"4000\"", "value = 1"), read(file));
+  }
+
+  @Test
+  public void testWriteTo() throws IOException {
+    TomlDocument document = TomlDocument.parse(DOCUMENT);
+    document.set("project.owner", "Zoë \"Z\"").set("products[1].sku", true);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    document.writeTo(out);
+    assertEquals(DOCUMENT.replace("\"Jürgen\"", "\"Zoë \\\"Z\\\"\"")
+        .replace("sku = 2", "sku = true"), out.toString("UTF8"));
+    assertEquals("Zoë \"Z\"", Toml.from(out.toString("UTF8")).getString("project.owner"));
+  }
+
+  @Test
+  public void testErrors() throws IOException {
+    TomlDocument document = TomlDocument.parse(DOCUMENT);
+    try {
+      document.set("project.missing", 1);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Matching value of key 'project.missing' is null", e.getMessage());
+    }
+    try {
+      document.set("name", 1).save();
+      fail();
+    } catch (IllegalStateException e) {
+      assertEquals("Document was not opened from a file", e.getMessage());
+    }
+
+    File file = write(DOCUMENT);
+    TomlDocument opened = TomlDocument.open(file);
+    OutputStream out = new FileOutputStream(file, true);
+    try {
+      out.write("extra = 1\n".getBytes("UTF8"));
+    } finally {
+      out.close();
+    }
+    try {
+      opened.set("name", "changed").save();
+      fail();
+    } catch (IOException e) {
+      assertEquals("File has been modified since it was opened: " + file, e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,203 @@
+package io.industrialist.toml4j;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import io.industrialist.toml4j.node.TomlNode;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TomlFeedParserTest {
+  private static final Charset UTF8 = Charset.forName("UTF8");
+
+  private static byte[] readResource(String name) throws IOException {
+    InputStream inputStream = TomlFeedParserTest.class.getResourceAsStream(name);
+    try {
+      ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+      byte[] buffer = new byte[4096];
+      int read;
+      while ((read = inputStream.read(buffer)) != -1) {
+        outputStream.write(buffer, 0, read);
+      }
+      return outputStream.toByteArray();
+    } finally {
+      inputStream.close();
+    }
+  }
+
+  private static TomlNode feedInChunks(TomlFeedParser parser, byte[] bytes, int chunkSize) {
+    for (int offset = 0; offset < bytes.length; offset += chunkSize) {
+      int length = Math.min(chunkSize, bytes.length - offset);
+      parser.feed(ByteBuffer.wrap(bytes, offset, length));
+    }
+    return parser.endOfInput();
+  }
+
+  @Test
+  public void testFeedExampleOneByteAtATime() throws IOException {
+    byte[] bytes = readResource("/example.toml");
+
+    TomlFeedParser parser = new TomlFeedParser();
+    TomlNode tomlNode = feedInChunks(parser, bytes, 1);
+
+    assertEquals("中国", tomlNode.get("servers").get("beta").get("country").stringValue());
+    assertEquals(bytes.length, parser.getBytesConsumed());
+  }
+
+  @Test
+  public void testFeedMatchesBlockingParseForEveryChunkSize() throws IOException {
+    byte[] bytes = readResource("/hard_example.toml");
+    String expected = new TomlParser().parse(new String(bytes, UTF8)).toString();
+
+    for (int chunkSize = 1; chunkSize <= 64; chunkSize++) {
+      TomlNode tomlNode = feedInChunks(new TomlFeedParser(), bytes, chunkSize);
+
+      assertEquals("chunk size " + chunkSize, expected, tomlNode.toString());
+    }
+  }
+
+  @Test
+  public void testFeedMultilineArraySplitAcrossChunks() {
+    TomlFeedParser parser = new TomlFeedParser();
+    parser.feed(ByteBuffer.wrap("array = [\n1 ,".getBytes(UTF8)));
+    parser.feed(ByteBuffer.wrap(" \n2,\n 3".getBytes(UTF8)));
+    parser.feed(ByteBuffer.wrap(",4]".getBytes(UTF8)));
+    TomlNode tomlNode = parser.endOfInput();
+
+    TomlNode array = tomlNode.get("array");
+    assertEquals(4, array.size());
+    assertEquals(4, array.get(3).longValue());
+  }
+
+  @Test
+  public void testFeedCarriageReturnLineFeedSplitAcrossChunks() {
+    TomlFeedParser parser = new TomlFeedParser();
+    parser.feed(ByteBuffer.wrap("a = 1\r".getBytes(UTF8)));
+    parser.feed(ByteBuffer.wrap("\nb = 2\r\n".getBytes(UTF8)));
+    TomlNode tomlNode = parser.endOfInput();
+
+    assertEquals(1, tomlNode.get("a").longValue());
+    assertEquals(2, tomlNode.get("b").longValue());
+    assertEquals(2, parser.getLinesConsumed());
+  }
+
+  @Test
+  public void testFeedReportsEventsAsLinesComplete() {
+    final List<String> events = new ArrayList<String>();
+    TomlFeedParser parser = new TomlFeedParser(new TomlParseListener() {
+      @Override
+      public void onTable(String[] keys) {
+        events.add("table " + TomlTreeBuilder.join(keys));
+      }
+
+      @Override
+      public void onArrayOfTables(String[] keys) {
+        events.add("array of tables " + TomlTreeBuilder.join(keys));
+      }
+
+      @Override
+      public void onKeyValue(String key, TomlNode value) {
+        events.add(key + " = " + value);
+      }
+
+      @Override
+      public void onEndOfDocument() {
+        events.add("end");
+      }
+    });
+
+    parser.feed(ByteBuffer.wrap("[server]\nport = 80".getBytes(UTF8)));
+    assertEquals(1, events.size());
+    parser.feed(ByteBuffer.wrap("80\n[[hosts]]\nname = \"a\"".getBytes(UTF8)));
+    assertEquals(3, events.size());
+    parser.endOfInput();
+
+    assertEquals("table server", events.get(0));
+    assertEquals("port = 8080", events.get(1));
+    assertEquals("array of tables hosts", events.get(2));
+    assertEquals("name = \"a\"", events.get(3));
+    assertEquals("end", events.get(4));
+  }
+
+  @Test
+  public void testFeedKeepsCallerBufferFreeForReuse() {
+    byte[] bytes = "name = \"José\"".getBytes(UTF8);
+    ByteBuffer buffer = ByteBuffer.allocate(bytes.length);
+
+    TomlFeedParser parser = new TomlFeedParser();
+    // Split inside the two byte sequence for 'é' and overwrite the buffer between calls
+    int split = bytes.length - 2;
+    buffer.put(bytes, 0, split).flip();
+    parser.feed(buffer);
+    buffer.clear();
+    buffer.put(bytes, split, bytes.length - split).flip();
+    parser.feed(buffer);
+    TomlNode tomlNode = parser.endOfInput();
+
+    assertEquals("José", tomlNode.get("name").stringValue());
+  }
+
+  @Test(expected = ParseException.class)
+  public void testFeedThrowsParseExceptionForInvalidUtf8() {
+    TomlFeedParser parser = new TomlFeedParser();
+    parser.feed(ByteBuffer.wrap(new byte[] {'a', ' ', '=', ' ', '"', (byte) 0xff, '"'}));
+    parser.endOfInput();
+  }
+
+  @Test
+  public void testInvalidUtf8OffsetIgnoresBufferStartPosition() {
+    byte[] bytes = {'x', 'x', 'x', 'a', ' ', '=', ' ', '"', (byte) 0xff, '"'};
+    TomlFeedParser parser = new TomlFeedParser();
+    try {
+      parser.feed(ByteBuffer.wrap(bytes, 3, bytes.length - 3));
+      fail("Expected ParseException");
+    } catch (ParseException e) {
+      assertEquals("Invalid UTF-8 sequence near byte 5", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testInvalidUtf8OffsetAcrossSplitSequence() {
+    TomlFeedParser parser = new TomlFeedParser();
+    parser.feed(ByteBuffer.wrap(new byte[] {'a', ' ', '=', ' ', '"', (byte) 0xc3}));
+    try {
+      parser.feed(ByteBuffer.wrap(new byte[] {'"'}));
+      fail("Expected ParseException");
+    } catch (ParseException e) {
+      assertEquals("Invalid UTF-8 sequence near byte 5", e.getMessage());
+    }
+  }
+
+  @Test(expected = ParseException.class)
+  public void testEndOfInputThrowsParseExceptionForTruncatedUtf8() {
+    TomlFeedParser parser = new TomlFeedParser();
+    parser.feed(ByteBuffer.wrap(new byte[] {'a', ' ', '=', ' ', '"', (byte) 0xc3}));
+    parser.endOfInput();
+  }
+
+  @Test(expected = ParseException.class)
+  public void testEndOfInputThrowsParseExceptionForUnclosedArray() {
+    TomlFeedParser parser = new TomlFeedParser();
+    parser.feed(ByteBuffer.wrap("array = [1,\n2".getBytes(UTF8)));
+    parser.endOfInput();
+  }
+
+  @Test
+  public void testFeedAfterEndOfInputIsRejected() {
+    TomlFeedParser parser = new TomlFeedParser();
+    parser.endOfInput();
+    try {
+      parser.feed(ByteBuffer.wrap("a = 1".getBytes(UTF8)));
+      fail("Expected IllegalStateException");
+    } catch (IllegalStateException e) {
+    }
+  }
+}
@@ -0,0 +1,156 @@
+package io.industrialist.toml4j;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import io.industrialist.toml4j.node.TomlNode;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+public class TomlIndexTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private File copyExample() throws IOException {
+    File file = folder.newFile("example.toml");
+    InputStream in = getClass().getResourceAsStream("/example.toml");
+    OutputStream out = new FileOutputStream(file);
+    try {
+      byte[] buffer = new byte[4096];
+      for (int read; (read = in.read(buffer)) != -1; ) {
+        out.write(buffer, 0, read);
+      }
+    } finally {
+      in.close();
+      out.close();
+    }
+    return file;
+  }
+
+  private File write(String name, String toml) throws IOException {
+    File file = new File(folder.getRoot(), name);
+    OutputStream out = new FileOutputStream(file);
+    try {
+      out.write(toml.getBytes("UTF8"));
+    } finally {
+      out.close();
+    }
+    return file;
+  }
+
+  @Test
+  public void testTableIncludesSubTables() throws IOException {
+    TomlIndex index = TomlIndex.open(copyExample());
+
+    TomlNode servers = index.table("servers");
+    assertEquals(2, servers.size());
+    assertEquals("10.0.0.1", servers.get("alpha").get("ip").stringValue());
+    assertEquals("中国", servers.get("beta").get("country").stringValue());
+
+    TomlNode database = index.table("database");
+    assertEquals(8002, database.get("ports").get(2).longValue());
+    assertEquals("eqdc10", index.table("servers.beta").get("dc").stringValue());
+    assertNull(index.table("nothing"));
+    assertNull(index.table("serv"));
+  }
+
+  @Test
+  public void testMultilineArrayIsNotTakenForAHeader() throws IOException {
+    TomlIndex index = TomlIndex.open(copyExample());
+
+    assertEquals(
+        Arrays.asList("owner", "database", "servers", "servers.alpha", "servers.beta", "clients",
+            "products", "products"),
+        index.getTablePaths());
+    assertEquals("omega", index.table("clients").get("hosts").get(1).stringValue());
+  }
+
+  @Test
+  public void testTableArrayEntries() throws IOException {
+    TomlIndex index = TomlIndex.open(copyExample());
+
+    assertEquals(2, index.tableArraySize("products"));
+    assertEquals("Hammer", index.tableArrayEntry("products", 0).get("name").stringValue());
+    assertEquals("gray", index.tableArrayEntry("products", 1).get("color").stringValue());
+    assertNull(index.tableArrayEntry("products", 2));
+    assertEquals(2, index.table("products").size());
+  }
+
+  @Test
+  public void testTableArrayEntryIncludesItsSubTables() throws IOException {
+    File file = write("fruit.toml", "[[fruit]]\nname = \"apple\"\n[fruit.physical]\n"
+        + "color = \"red\"\n[[fruit]]\nname = \"banana\"\n");
+    TomlIndex index = TomlIndex.open(file);
+
+    TomlNode apple = index.tableArrayEntry("fruit", 0);
+    assertEquals("red", apple.get("physical").get("color").stringValue());
+    TomlNode banana = index.tableArrayEntry("fruit", 1);
+    assertEquals("banana", banana.get("name").stringValue());
+    assertNull(banana.get("physical"));
+  }
+
+  @Test
+  public void testTableInsideArrayOfTablesIsReadFromTheLastEntry() throws IOException {
+    File file = write("nested.toml", "[[a]]\nx = 1\n[a.b]\ny = 1\nonly = true\n"
+        + "[[a]]\nx = 2\n[a.b]\ny = 2\n[[a.c]]\nz = 1\n[[a]]\nx = 3\n[[a.c]]\nz = 3\n");
+    TomlIndex index = TomlIndex.open(file);
+
+    // The last [[a]] has no [a.b], so there is none to read
+    assertNull(index.table("a.b"));
+    assertEquals(1, index.table("a.c").size());
+    assertEquals(3, index.table("a.c").get(0).get("z").longValue());
+
+    File twoEntries = write("two.toml", "[[a]]\nx = 1\n[a.b]\ny = 1\nonly = true\n"
+        + "[[a]]\nx = 2\n[a.b]\ny = 2\n");
+    TomlNode b = TomlIndex.open(twoEntries).table("a.b");
+    assertEquals(2, b.get("y").longValue());
+    assertNull(b.get("only"));
+  }
+
+  @Test
+  public void testIndexIsPersistedAndReused() throws IOException {
+    File file = copyExample();
+    File indexFile = new File(file.getPath() + ".idx");
+    TomlIndex.open(file);
+    assertTrue(indexFile.isFile());
+
+    long lastModified = indexFile.lastModified();
+    TomlIndex reopened = TomlIndex.open(file);
+    assertEquals(lastModified, indexFile.lastModified());
+    assertEquals("GitHub", reopened.table("owner").get("organization").stringValue());
+  }
+
+  @Test
+  public void testIndexIsRebuiltWhenSourceChanges() throws IOException {
+    File file = write("tenants.toml", "[tenants.acme]\nplan = \"gold\"\n");
+    TomlIndex index = TomlIndex.open(file);
+    assertEquals("gold", index.table("tenants.acme").get("plan").stringValue());
+
+    write("tenants.toml",
+        "[tenants.initech]\nplan = \"free\"\n\n[tenants.acme]\nplan = \"silver\"\n");
+    assertEquals("silver", index.table("tenants.acme").get("plan").stringValue());
+    assertEquals(
+        "silver", TomlIndex.open(file).table("tenants.acme").get("plan").stringValue());
+  }
+
+  @Test
+  public void testCorruptIndexIsRebuilt() throws IOException {
+    File file = write("tenants.toml", "[tenants.acme]\nplan = \"gold\"\n");
+    File indexFile = write("tenants.toml.idx", "garbage");
+
+    assertEquals(
+        "gold", TomlIndex.open(file, indexFile).table("tenants.acme").get("plan").stringValue());
+    assertFalse(indexFile.length() == "garbage".length());
+  }
+}
@@ -0,0 +1,111 @@
+package io.industrialist.toml4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Compares converting TOML to JSON through the transcoder with parsing it into a tree and
+ * writing the tree. Not run with the tests; run its main method to print the time and bytes
+ * allocated per document for each route.
+ */
+public class TomlJsonTranscoderBenchmark {
+  private static final int WARMUP_ITERATIONS = 200;
+  private static final int ITERATIONS = 1000;
+
+  public static void main(String[] args) throws IOException {
+    byte[] document = document(2000).getBytes("UTF-8");
+    System.out.println("Document: " + document.length + " bytes");
+
+    for (int round = 0; round < 3; round++) {
+      measure("tree     ", document, false);
+      measure("streaming", document, true);
+    }
+  }
+
+  private static void measure(String name, byte[] document, boolean streaming)
+      throws IOException {
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      convert(document, streaming);
+    }
+
+    long allocatedBefore = allocatedBytes();
+    long start = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      convert(document, streaming);
+    }
+    long elapsed = System.nanoTime() - start;
+    long allocated = allocatedBytes() - allocatedBefore;
+
+    System.out.println(name + ": " + elapsed / ITERATIONS / 1000 + " us, "
+        + allocated / ITERATIONS / 1024 + " KiB allocated per document");
+  }
+
+  private static void convert(byte[] document, boolean streaming) throws IOException {
+    Writer json = new DiscardingWriter();
+    if (streaming) {
+      TomlJsonTranscoder.tomlToJson(new ByteArrayInputStream(document), json);
+    } else {
+      TomlJsonTranscoder.writeJson(
+          new TomlParser().parse(new ByteArrayInputStream(document)), json);
+    }
+  }
+
+  private static long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+        .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  // Keeps the output out of the measurement
+  private static class DiscardingWriter extends Writer {
+    @Override
+    public void write(char[] buffer, int offset, int length) {
+    }
+
+    @Override
+    public void write(int character) {
+    }
+
+    @Override
+    public void write(String string, int offset, int length) {
+    }
+
+    @Override
+    public Writer append(CharSequence sequence) {
+      return this;
+    }
+
+    @Override
+    public Writer append(CharSequence sequence, int start, int end) {
+      return this;
+    }
+
+    @Override
+    public Writer append(char character) {
+      return this;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  private static String document(int entries) {
+    StringBuilder toml = new StringBuilder("title = \"benchmark\"\n");
+    for (int i = 0; i < entries; i++) {
+      toml.append("\n[[servers]]\n")
+          .append("name = \"server-").append(i).append("\"\n")
+          .append("port = ").append(8000 + i).append('\n')
+          .append("weight = ").append(i / 7.0).append('\n')
+          .append("tags = [ \"a\", \"b\", \"c\" ]\n")
+          .append("[servers.limits]\n")
+          .append("connections = ").append(i * 10).append('\n');
+    }
+    return toml.toString();
+  }
+}
@@ -0,0 +1,259 @@
+package io.industrialist.toml4j;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.industrialist.toml4j.node.TomlNode;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class TomlJsonTranscoderTest {
+  private static final String OUT_OF_ORDER = "title = \"example\"\n"
+      + "[owner]\n"
+      + "name = \"Tom\"\n"
+      + "[database]\n"
+      + "ports = [ 8001, 8002 ]\n"
+      + "enabled = true\n"
+      + "[owner.contact]\n"
+      + "email = \"tom@example.com\"\n"
+      + "[[products]]\n"
+      + "name = \"Hammer\"\n"
+      + "[products.details]\n"
+      + "weight = 1.5\n"
+      + "[[products]]\n"
+      + "name = \"Nail\"\n"
+      + "[[products.variants]]\n"
+      + "size = 3\n"
+      + "[[products.variants]]\n"
+      + "size = 5\n"
+      + "[database.replica]\n"
+      + "host = \"b\"\n";
+
+  @Test
+  public void testInOrderDocument() throws IOException {
+    String toml = "a = 1\n"
+        + "b = \"two \\\"quoted\\\"\\n\"\n"
+        + "c = [ [ 1, 2 ], [ \"x\" ] ]\n"
+        + "[d]\n"
+        + "e = -2.5\n"
+        + "f = 1979-05-27T07:32:00Z\n"
+        + "[d.g]\n"
+        + "h = false\n"
+        + "[[i]]\n"
+        + "j = 1\n"
+        + "[[i]]\n"
+        + "j = 2\n";
+    String expected = "{\"a\":1,\"b\":\"two \\\"quoted\\\"\\n\",\"c\":[[1,2],[\"x\"]],"
+        + "\"d\":{\"e\":-2.5,\"f\":\"1979-05-27T07:32:00Z\",\"g\":{\"h\":false}},"
+        + "\"i\":[{\"j\":1},{\"j\":2}]}";
+
+    assertEquals(expected, streamToJson(toml));
+    assertEquals(expected, fileToJson(toml));
+  }
+
+  @Test
+  public void testOutOfOrderDocument() throws IOException {
+    String expected = canonical(new TomlParser().parse(OUT_OF_ORDER));
+
+    assertEquals(expected, canonical(fromJson(streamToJson(OUT_OF_ORDER))));
+    assertEquals(expected, canonical(fromJson(fileToJson(OUT_OF_ORDER))));
+  }
+
+  @Test
+  public void testFileOnlyHoldsBackOutOfOrderTables() throws IOException {
+    // Only database, which is added to after products, is held back and written at the end
+    String json = fileToJson(OUT_OF_ORDER);
+    assertTrue(json, json.startsWith("{\"title\":\"example\",\"owner\":{\"name\":\"Tom\","
+        + "\"contact\":{\"email\":\"tom@example.com\"}},\"products\":[{\"name\":\"Hammer\","));
+    assertTrue(json, json.endsWith("\"database\":{\"ports\":[8001,8002],\"enabled\":true,"
+        + "\"replica\":{\"host\":\"b\"}}}"));
+  }
+
+  @Test
+  public void testMatchesTreeRoute() throws IOException {
+    String toml = "[x]\n"
+        + "a = 1\n"
+        + "[y.z]\n"
+        + "b = 2\n"
+        + "[x.w]\n"
+        + "c = 3\n"
+        + "[y]\n"
+        + "d = 4\n";
+    StringBuilder tree = new StringBuilder();
+    TomlJsonTranscoder.writeJson(new TomlParser().parse(toml), tree);
+
+    assertEquals(canonical(fromJson(tree.toString())), canonical(fromJson(streamToJson(toml))));
+    assertEquals(canonical(fromJson(tree.toString())), canonical(fromJson(fileToJson(toml))));
+  }
+
+  @Test
+  public void testDuplicateKey() throws IOException {
+    try {
+      streamToJson("[a]\nb = 1\nb = 2\n");
+      fail();
+    } catch (ParseException e) {
+      assertEquals("Duplicate key found", e.getMessage());
+    }
+    try {
+      streamToJson("[a]\n[[a]]\n");
+      fail();
+    } catch (ParseException e) {
+      assertEquals("Duplicate key found: a", e.getMessage());
+    }
+    try {
+      streamToJson("[[a]]\n[a]\n");
+      fail();
+    } catch (ParseException e) {
+      assertEquals("Duplicate key found: a", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testJsonToToml() throws IOException {
+    String json = "{ \"name\" : \"a\\tb\\u0041\", \"count\": 12, \"ratio\": 1e2,\n"
+        + "  \"server\": { \"host\": \"localhost\", \"tags\": [\"x\", \"y\"],\n"
+        + "    \"limits\": { \"max\": 10 } },\n"
+        + "  \"flag\": true, \"empty\": [],\n"
+        + "  \"products\": [ { \"sku\": 1 }, { \"sku\": 2, \"nested\": [[1], [2.5]] } ] }";
+    StringWriter toml = new StringWriter();
+    TomlJsonTranscoder.jsonToToml(new StringReader(json), toml);
+
+    assertEquals("name = \"a\\tbA\"\n"
+        + "count = 12\n"
+        + "ratio = 100.0\n"
+        + "flag = true\n"
+        + "empty = [ ]\n"
+        + "\n[server]\n"
+        + "host = \"localhost\"\n"
+        + "tags = [ \"x\", \"y\" ]\n"
+        + "\n[server.limits]\n"
+        + "max = 10\n"
+        + "\n[[products]]\n"
+        + "sku = 1\n"
+        + "\n[[products]]\n"
+        + "sku = 2\n"
+        + "nested = [ [ 1 ], [ 2.5 ] ]\n", toml.toString());
+
+    TomlNode tomlNode = new TomlParser().parse(toml.toString());
+    assertEquals(10, tomlNode.get("server").get("limits").get("max").longValue());
+    assertEquals(2, tomlNode.get("products").size());
+  }
+
+  @Test
+  public void testArrayBracketAtEndOfBuffer() throws IOException {
+    // Pads the document so the array's '[' is the last character of the first 8192-char read
+    String prefix = "{\"pad\": \"";
+    String key = "\", \"a\": ";
+    StringBuilder padding = new StringBuilder();
+    while (prefix.length() + padding.length() + key.length() < 8191) {
+      padding.append('x');
+    }
+    String head = prefix + padding + key;
+    assertEquals(8191, head.length());
+
+    // Enough elements that the read after the bracket fills the buffer too
+    StringBuilder values = new StringBuilder("[0");
+    StringBuilder tables = new StringBuilder("[{\"b\": 0}");
+    for (int i = 1; i < 2000; i++) {
+      values.append(", ").append(i);
+      tables.append(", {\"b\": ").append(i).append('}');
+    }
+
+    TomlNode valuesNode = fromJson(head + values + "]}");
+    assertEquals(2000, valuesNode.get("a").size());
+    assertEquals(1999, valuesNode.get("a").get(1999).longValue());
+
+    TomlNode tablesNode = fromJson(head + tables + "]}");
+    assertEquals(2000, tablesNode.get("a").size());
+    assertEquals(1999, tablesNode.get("a").get(1999).get("b").longValue());
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    TomlNode original = new TomlParser().parse(OUT_OF_ORDER);
+    TomlNode roundTripped = fromJson(fileToJson(OUT_OF_ORDER));
+
+    assertEquals(canonical(original), canonical(roundTripped));
+  }
+
+  @Test
+  public void testUnrepresentableJson() throws IOException {
+    assertJsonError("[1]", "Invalid JSON at offset 0: expected a JSON object");
+    assertJsonError("{\"a\": null}", "null cannot be represented in TOML: a");
+    assertJsonError("{\"a b\": 1}", "Key cannot be represented in TOML: a b");
+    assertJsonError("{\"a\": [1, {\"b\": 2}]}",
+        "Object inside an array cannot be represented in TOML: a");
+    assertJsonError("{\"a\": 1,}", "Invalid JSON at offset 8: expected '\"'");
+    assertJsonError("{\"a\": 1} 2", "Invalid JSON at offset 9: expected the end of the document");
+    assertJsonError("{\"a\": 99999999999999999999}",
+        "Integer value out of range: 99999999999999999999");
+  }
+
+  private static void assertJsonError(String json, String message) throws IOException {
+    try {
+      TomlJsonTranscoder.jsonToToml(new StringReader(json), new StringWriter());
+      fail(json);
+    } catch (ParseException e) {
+      assertEquals(message, e.getMessage());
+    }
+  }
+
+  private static String streamToJson(String toml) throws IOException {
+    StringWriter json = new StringWriter();
+    TomlJsonTranscoder.tomlToJson(new ByteArrayInputStream(toml.getBytes()), json);
+    return json.toString();
+  }
+
+  private static String fileToJson(String toml) throws IOException {
+    File file = File.createTempFile("transcoder", ".toml");
+    try {
+      OutputStream outputStream = new FileOutputStream(file);
+      try {
+        outputStream.write(toml.getBytes());
+      } finally {
+        outputStream.close();
+      }
+      StringWriter json = new StringWriter();
+      TomlJsonTranscoder.tomlToJson(file, json);
+      return json.toString();
+    } finally {
+      file.delete();
+    }
+  }
+
+  private static TomlNode fromJson(String json) throws IOException {
+    StringWriter toml = new StringWriter();
+    TomlJsonTranscoder.jsonToToml(new StringReader(json), toml);
+    return new TomlParser().parse(toml.toString());
+  }
+
+  // Formats a tree with its keys sorted, as JSON loses the order TOML's tables were defined in
+  private static String canonical(TomlNode tomlNode) {
+    if (tomlNode.isContainerNode() && tomlNode.fields().iterator().hasNext()) {
+      Map<String, String> sorted = new TreeMap<String, String>();
+      for (Map.Entry<String, TomlNode> field : tomlNode.fields()) {
+        sorted.put(field.getKey(), canonical(field.getValue()));
+      }
+      return sorted.toString();
+    }
+    if (tomlNode.isContainerNode()) {
+      StringBuilder children = new StringBuilder("[");
+      for (TomlNode child : tomlNode.children()) {
+        children.append(canonical(child)).append(',');
+      }
+      return children.append(']').toString();
+    }
+    return tomlNode.getNodeType() + ":" + tomlNode.asStringValue();
+  }
+}
@@ -0,0 +1,164 @@
+package io.industrialist.toml4j;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.industrialist.toml4j.node.TomlNode;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+public class TomlLimitsTest {
+  private static final Charset UTF8 = Charset.forName("UTF8");
+
+  private static String parseFailure(TomlLimits limits, String tomlString) throws IOException {
+    try {
+      new TomlParser(limits).parse(tomlString);
+      fail("Expected ParseException");
+      return null;
+    } catch (ParseException e) {
+      return e.getMessage();
+    }
+  }
+
+  @Test
+  public void testUnlimitedParsesExample() throws IOException {
+    InputStream exampleStream = getClass().getResourceAsStream("/example.toml");
+
+    TomlNode rootNode = new TomlParser(TomlLimits.UNLIMITED).parse(exampleStream);
+
+    assertEquals("TOML Example", rootNode.get("title").stringValue());
+  }
+
+  @Test
+  public void testDocumentWithinLimitsParses() throws IOException {
+    TomlLimits limits = TomlLimits.UNLIMITED.withMaxDocumentBytes(64).withMaxLineLength(20)
+        .withMaxStringLength(4).withMaxArrayLength(3).withMaxNestingDepth(2).withMaxNodeCount(10);
+
+    TomlNode rootNode = new TomlParser(limits).parse("[a.b]\nc = [[1], [2, 3]]\nd = \"abcd\"");
+
+    assertEquals(3, rootNode.get("a").get("b").get("c").get(1).get(1).longValue());
+  }
+
+  @Test
+  public void testMaxDocumentBytesForString() throws IOException {
+    String message = parseFailure(TomlLimits.UNLIMITED.withMaxDocumentBytes(10), "a = \"中国\"");
+
+    assertTrue(message, message.contains("maximum of 10 bytes"));
+  }
+
+  @Test
+  public void testMaxDocumentBytesForInputStream() throws IOException {
+    byte[] bytes = new byte[100000];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = '\n';
+    }
+
+    try {
+      new TomlParser(TomlLimits.UNLIMITED.withMaxDocumentBytes(1000))
+          .parse(new ByteArrayInputStream(bytes));
+      fail("Expected ParseException");
+    } catch (ParseException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("maximum of 1000 bytes"));
+    }
+  }
+
+  @Test
+  public void testMaxDocumentBytesForFeedParser() {
+    TomlFeedParser parser =
+        new TomlFeedParser(TomlLimits.UNLIMITED.withMaxDocumentBytes(8), null);
+    parser.feed(ByteBuffer.wrap("a = 1\n".getBytes(UTF8)));
+    try {
+      parser.feed(ByteBuffer.wrap("b = 2\n".getBytes(UTF8)));
+      fail("Expected ParseException");
+    } catch (ParseException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("maximum of 8 bytes"));
+    }
+  }
+
+  @Test
+  public void testMaxLineLength() throws IOException {
+    String message = parseFailure(
+        TomlLimits.UNLIMITED.withMaxLineLength(10), "a = 1\nb = \"0123456789\"\nc = 2");
+
+    assertTrue(message, message.startsWith("Line 2:"));
+    assertTrue(message, message.contains("maximum of 10 characters"));
+  }
+
+  @Test
+  public void testMaxLineLengthAcrossFeedChunks() {
+    TomlFeedParser parser = new TomlFeedParser(TomlLimits.UNLIMITED.withMaxLineLength(8), null);
+    parser.feed(ByteBuffer.wrap("a = 1\nb = ".getBytes(UTF8)));
+    try {
+      parser.feed(ByteBuffer.wrap("12345".getBytes(UTF8)));
+      fail("Expected ParseException");
+    } catch (ParseException e) {
+      assertTrue(e.getMessage(), e.getMessage().startsWith("Line 2:"));
+    }
+  }
+
+  @Test
+  public void testMaxStringLength() throws IOException {
+    String message =
+        parseFailure(TomlLimits.UNLIMITED.withMaxStringLength(3), "a = [\"abc\", \"abcd\"]");
+
+    assertTrue(message, message.contains("maximum of 3 characters"));
+  }
+
+  @Test
+  public void testMaxArrayLength() throws IOException {
+    String message = parseFailure(TomlLimits.UNLIMITED.withMaxArrayLength(3), "a = [1, 2, 3, 4]");
+
+    assertTrue(message, message.contains("maximum of 3 elements"));
+  }
+
+  @Test
+  public void testMaxArrayLengthFailsBeforeMultilineArrayIsComplete() throws IOException {
+    String message = parseFailure(
+        TomlLimits.UNLIMITED.withMaxArrayLength(3), "a = [\n1,\n2,\n3,\n4,\n5,\n6\n");
+
+    assertTrue(message, message.startsWith("Line 5:"));
+  }
+
+  @Test
+  public void testMaxNestingDepthForTables() throws IOException {
+    String message = parseFailure(TomlLimits.UNLIMITED.withMaxNestingDepth(2), "[a.b.c]\nd = 1");
+
+    assertTrue(message, message.contains("maximum of 2 levels"));
+  }
+
+  @Test
+  public void testMaxNestingDepthForArrays() throws IOException {
+    String message = parseFailure(TomlLimits.UNLIMITED.withMaxNestingDepth(2), "a = [[[1]]]");
+
+    assertTrue(message, message.contains("maximum of 2 levels"));
+  }
+
+  @Test
+  public void testMaxNestingDepthFailsBeforeMultilineArrayIsComplete() throws IOException {
+    String message =
+        parseFailure(TomlLimits.UNLIMITED.withMaxNestingDepth(2), "a = [\n[\n[\n1]]]");
+
+    assertTrue(message, message.startsWith("Line 3:"));
+  }
+
+  @Test
+  public void testMaxNodeCount() throws IOException {
+    String message =
+        parseFailure(TomlLimits.UNLIMITED.withMaxNodeCount(4), "a = 1\nb = 2\n[c]\nd = 3");
+
+    assertTrue(message, message.startsWith("Line 4:"));
+    assertTrue(message, message.contains("more than 4 nodes"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testLimitsMustBePositive() {
+    TomlLimits.UNLIMITED.withMaxLineLength(0);
+  }
+}
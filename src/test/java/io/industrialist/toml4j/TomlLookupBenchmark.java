@@ -0,0 +1,50 @@
+package io.industrialist.toml4j;
+
+import java.io.IOException;
+
+/**
+ * Compares looking up keys in a parsed document with looking them up once it is frozen, and once
+ * its reads are tracked. Not run with the tests; run its main method to print the time per lookup
+ * for each.
+ */
+public class TomlLookupBenchmark {
+  private static final int WARMUP_ITERATIONS = 2000000;
+  private static final int ITERATIONS = 10000000;
+
+  private static final String[] KEYS = {
+      "title", "owner.name", "database.server", "servers.alpha.ip", "servers.beta.dc",
+      "clients.hosts", "database.missing"};
+
+  public static void main(String[] args) throws IOException {
+    Toml toml = Toml.from(TomlLookupBenchmark.class.getResourceAsStream("/example.toml"));
+    Toml frozen = toml.freeze();
+    Toml tracked = frozen.withTracker(new TomlAccessTracker());
+
+    for (int round = 0; round < 3; round++) {
+      measure("tree   ", toml);
+      measure("frozen ", frozen);
+      measure("tracked", tracked);
+    }
+  }
+
+  private static void measure(String name, Toml toml) {
+    lookUp(toml, WARMUP_ITERATIONS);
+
+    long start = System.nanoTime();
+    int found = lookUp(toml, ITERATIONS);
+    long elapsed = System.nanoTime() - start;
+
+    System.out.println(name + ": " + elapsed * 1000 / ITERATIONS / 1000.0 + " ns per lookup, "
+        + found + " found");
+  }
+
+  private static int lookUp(Toml toml, int iterations) {
+    int found = 0;
+    for (int i = 0; i < iterations; i++) {
+      if (toml.getAsString(KEYS[i % KEYS.length]) != null) {
+        found++;
+      }
+    }
+    return found;
+  }
+}
@@ -0,0 +1,96 @@
+package io.industrialist.toml4j;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.industrialist.toml4j.node.TomlNode;
+import io.industrialist.toml4j.node.TomlNodeType;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+public class TomlMetricsAggregatorTest {
+  @Test
+  public void testParseExample() throws IOException {
+    TomlMetricsAggregator aggregator = new TomlMetricsAggregator();
+
+    InputStream exampleStream = getClass().getResourceAsStream("/example.toml");
+    new TomlParser(aggregator).parse(exampleStream);
+
+    assertEquals(1, aggregator.getDocumentsParsed());
+    assertEquals(874, aggregator.getBytesRead());
+    assertEquals(47, aggregator.getLinesRead());
+    assertEquals(9, aggregator.getNodesParsed(TomlNodeType.HASH));
+    assertEquals(1, aggregator.getNodesParsed(TomlNodeType.ARRAY_OF_TABLES));
+    assertEquals(5, aggregator.getNodesParsed(TomlNodeType.ARRAY));
+    assertEquals(17, aggregator.getNodesParsed(TomlNodeType.STRING));
+    assertEquals(8, aggregator.getNodesParsed(TomlNodeType.INTEGER));
+    assertEquals(1, aggregator.getNodesParsed(TomlNodeType.BOOLEAN));
+    assertEquals(1, aggregator.getNodesParsed(TomlNodeType.DATETIME));
+    assertEquals(0, aggregator.getNodesParsed(TomlNodeType.FLOAT));
+    assertEquals(2, aggregator.getTableDepth().getMax());
+    assertEquals(1, aggregator.getParseNanos().getCount());
+    assertTrue(aggregator.getPhaseNanos(TomlPhase.VALUE_DECODING) > 0);
+  }
+
+  @Test
+  public void testParseStringCountsUtf8Bytes() throws IOException {
+    TomlMetricsAggregator aggregator = new TomlMetricsAggregator();
+
+    new TomlParser(aggregator).parse("country = \"中国\"\n[a.b.c]\nx = 1");
+
+    assertEquals(32, aggregator.getBytesRead());
+    assertEquals(3, aggregator.getLinesRead());
+    assertEquals(3, aggregator.getTableDepth().getMax());
+  }
+
+  @Test
+  public void testGenerateCountsBytesWritten() throws IOException {
+    TomlMetricsAggregator aggregator = new TomlMetricsAggregator();
+    TomlNode rootNode = new TomlParser().parse("[server]\nhost = \"中国\"\nports = [80, 443]");
+
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    new TomlGenerator(aggregator).writeTo(outputStream, rootNode);
+
+    assertEquals(1, aggregator.getDocumentsGenerated());
+    assertEquals(outputStream.size(), aggregator.getBytesWritten());
+    assertEquals(1, aggregator.getGeneratedBytes().getCount());
+    assertEquals(0, aggregator.getDocumentsParsed());
+  }
+
+  @Test
+  public void testAggregatesAcrossDocuments() throws IOException {
+    TomlMetricsAggregator aggregator = new TomlMetricsAggregator();
+    TomlParser parser = new TomlParser(aggregator);
+
+    parser.parse("a = 1");
+    parser.parse("a = 1\nb = 2");
+    parser.parse("a = [1, 2, 3]");
+
+    assertEquals(3, aggregator.getDocumentsParsed());
+    assertEquals(6, aggregator.getNodesParsed(TomlNodeType.INTEGER));
+    assertEquals(3, aggregator.getParsedNodes().getCount());
+    assertEquals(5, aggregator.getParsedNodes().getMax());
+  }
+
+  @Test
+  public void testHistogramPercentiles() {
+    TomlHistogram histogram = new TomlHistogram();
+    for (int i = 1; i <= 100; i++) {
+      histogram.record(i);
+    }
+
+    assertEquals(100, histogram.getCount());
+    assertEquals(5050, histogram.getSum());
+    assertEquals(100, histogram.getMax());
+    assertEquals(50.5, histogram.getMean(), 0.0001);
+    assertEquals(63, histogram.getPercentile(50));
+    assertEquals(100, histogram.getPercentile(99));
+    assertEquals(1, histogram.getPercentile(0));
+    assertEquals(1, histogram.getBucketCount(1));
+    assertEquals(2, histogram.getBucketCount(2));
+  }
+}
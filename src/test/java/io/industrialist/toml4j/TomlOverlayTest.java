@@ -0,0 +1,177 @@
+package io.industrialist.toml4j;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.industrialist.toml4j.node.TomlNode;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class TomlOverlayTest {
+  private static final String DEFAULTS = "name = \"service\"\n"
+      + "[server]\n"
+      + "host = \"localhost\"\n"
+      + "port = 8080\n"
+      + "[server.tls]\n"
+      + "enabled = false\n"
+      + "[database]\n"
+      + "pool = 10\n";
+
+  private static final String REGION = "[server]\n"
+      + "host = \"eu.example.com\"\n"
+      + "[server.tls]\n"
+      + "enabled = true\n";
+
+  private static final String HOST = "[database]\n"
+      + "pool = 50\n"
+      + "replicas = [ \"a\", \"b\" ]\n";
+
+  @Test
+  public void testTopmostValueWins() throws IOException {
+    Toml toml = Toml.overlay(Toml.from(DEFAULTS), Toml.from(REGION), Toml.from(HOST));
+
+    assertEquals("service", toml.getString("name"));
+    assertEquals("eu.example.com", toml.getString("server.host"));
+    assertEquals(Long.valueOf(8080), toml.getLong("server.port"));
+    assertTrue(toml.getBoolean("server.tls.enabled"));
+    assertEquals(Long.valueOf(50), toml.getLong("database.pool"));
+    assertEquals(Arrays.<Object>asList("a", "b"), toml.getList("database.replicas"));
+    assertNull(toml.getString("server.missing"));
+  }
+
+  @Test
+  public void testTablesMergeInLayerOrder() throws IOException {
+    Toml toml = Toml.overlay(Toml.from(DEFAULTS), Toml.from(REGION));
+
+    List<String> keys = new ArrayList<String>();
+    Map<String, Object> server = toml.getMapView("server");
+    for (String key : server.keySet()) {
+      keys.add(key);
+    }
+    assertEquals(Arrays.asList("host", "port", "tls"), keys);
+    assertEquals("eu.example.com", server.get("host"));
+    assertEquals(1, toml.getKeyGroup("server").getMapView("tls").size());
+  }
+
+  @Test
+  public void testValueShadowsTablesBelow() throws IOException {
+    Toml toml = Toml.overlay(
+        Toml.from("[a.b]\nc = 1\nd = 2\n"), Toml.from("[a]\nb = 5\n"), Toml.from("[a.b]\ne = 3\n"));
+
+    assertEquals(Long.valueOf(3), toml.getLong("a.b.e"));
+    assertNull(toml.getLong("a.b.c"));
+
+    Toml valueOnTop = Toml.overlay(Toml.from("[a.b]\nc = 1\n"), Toml.from("[a]\nb = 5\n"));
+    assertEquals(Long.valueOf(5), valueOnTop.getLong("a.b"));
+  }
+
+  @Test
+  public void testResolvedPathsAreCached() throws IOException {
+    TomlOverlay toml = Toml.overlay(Toml.from(DEFAULTS), Toml.from(REGION));
+
+    TomlNode server = toml.getRootNode().get("server");
+    assertSame(server, toml.getRootNode().get("server"));
+    assertSame(server.get("tls"), server.get("tls"));
+  }
+
+  @Test
+  public void testSetLayerInvalidatesAffectedPaths() throws IOException {
+    TomlOverlay toml =
+        Toml.overlay(Toml.from(DEFAULTS), Toml.from(REGION), Toml.from(HOST));
+    assertEquals("eu.example.com", toml.getString("server.host"));
+    assertEquals(Long.valueOf(50), toml.getLong("database.pool"));
+    assertEquals("service", toml.getString("name"));
+    TomlNode server = toml.getRootNode().get("server");
+    TomlNode database = toml.getRootNode().get("database");
+    int cachedSize = toml.cachedSize();
+
+    toml.setLayer(2, Toml.from("[database]\npool = 75\n"));
+    // Only database.pool is dropped, the merged database table is updated in place
+    assertEquals(cachedSize - 1, toml.cachedSize());
+
+    assertEquals(Long.valueOf(75), toml.getLong("database.pool"));
+    assertNull(toml.getList("database.replicas"));
+    // The server table and name come from other layers and stay cached
+    assertSame(server, toml.getRootNode().get("server"));
+    assertSame(database, toml.getRootNode().get("database"));
+
+    toml.setLayer(1, Toml.from("[server]\nhost = \"us.example.com\"\n"));
+
+    assertEquals("us.example.com", toml.getString("server.host"));
+    assertFalse(toml.getBoolean("server.tls.enabled"));
+    assertSame(server, toml.getRootNode().get("server"));
+    assertEquals(3, toml.getLayerCount());
+  }
+
+  @Test
+  public void testSetLayerReplacesTableWithValue() throws IOException {
+    TomlOverlay toml = Toml.overlay(Toml.from(DEFAULTS), Toml.from(REGION));
+    assertTrue(toml.getBoolean("server.tls.enabled"));
+
+    toml.setLayer(1, Toml.from("server = 1\n"));
+
+    assertEquals(Long.valueOf(1), toml.getLong("server"));
+
+    toml.setLayer(1, Toml.from(REGION));
+
+    assertEquals(Long.valueOf(8080), toml.getLong("server.port"));
+    assertTrue(toml.getBoolean("server.tls.enabled"));
+  }
+
+  @Test
+  public void testGeneratesMergedDocument() throws IOException {
+    Toml toml = Toml.overlay(Toml.from(DEFAULTS), Toml.from(REGION));
+
+    TomlNode merged = new TomlParser().parse(toml.getRootNode().toString());
+    assertEquals("eu.example.com", merged.get("server").get("host").stringValue());
+    assertEquals(8080, merged.get("server").get("port").longValue());
+    assertEquals(10, merged.get("database").get("pool").longValue());
+  }
+
+  @Test
+  public void testLayersCannotBeChangedThroughTheOverlay() throws IOException {
+    Toml base = Toml.from(DEFAULTS);
+    TomlOverlay toml = Toml.overlay(base, Toml.from(HOST));
+
+    assertReadOnly(toml, "name");
+    assertReadOnly(toml.getKeyGroup("server"), "host");
+    assertReadOnly(toml.withTracker(new TomlAccessTracker()), "name");
+    assertEquals("service", base.getString("name"));
+    assertEquals("localhost", base.getString("server.host"));
+  }
+
+  private static void assertReadOnly(Toml toml, String key) {
+    try {
+      toml.replaceString(key, "changed");
+      fail("Expected UnsupportedOperationException");
+    } catch (UnsupportedOperationException e) {
+    }
+  }
+
+  @Test
+  public void testInvalidLayers() throws IOException {
+    try {
+      Toml.overlay(Toml.from(DEFAULTS), null);
+      fail();
+    } catch (NullPointerException e) {
+      assertEquals("layer: null", e.getMessage());
+    }
+
+    try {
+      Toml.overlay(Toml.from(new TomlParser().parse("a = [ 1 ]").get("a")));
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Layer is not a table", e.getMessage());
+    }
+  }
+}
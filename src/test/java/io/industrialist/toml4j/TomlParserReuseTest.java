@@ -0,0 +1,143 @@
+package io.industrialist.toml4j;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+import io.industrialist.toml4j.node.TomlNode;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+public class TomlParserReuseTest {
+  private static final String DOCUMENT = "title = \"example\"\n"
+      + "[owner]\n"
+      + "name = \"Tom\"\n"
+      + "ports = [\n  8001,\n  8002\n]\n"
+      + "[[products]]\n"
+      + "sku = 738594937\n"
+      + "[[products]]\n"
+      + "sku = 284758393\n";
+
+  @Test
+  public void testRepeatedParses() throws IOException {
+    TomlParser parser = new TomlParser();
+    for (int i = 0; i < 3; i++) {
+      assertDocument(parser.parse(DOCUMENT));
+      assertDocument(parser.parse(new ByteArrayInputStream(DOCUMENT.getBytes("UTF-8"))));
+    }
+  }
+
+  @Test
+  public void testParseAfterFailure() throws IOException {
+    TomlParser parser = new TomlParser();
+    try {
+      parser.parse("ports = [\n  8001,\n  ?\n");
+      fail();
+    } catch (ParseException e) {
+      // Expected
+    }
+
+    assertDocument(parser.parse(DOCUMENT));
+  }
+
+  @Test
+  public void testLimitsAndProjectionDoNotCarryOver() throws IOException {
+    TomlParser limitedParser =
+        new TomlParser(TomlLimits.UNLIMITED.withMaxLineLength(10));
+    try {
+      limitedParser.parse(DOCUMENT);
+      fail();
+    } catch (ParseException e) {
+      // Expected
+    }
+
+    TomlParser parser = new TomlParser();
+    TomlNode projected = parser.parse(DOCUMENT, Projection.of("owner"));
+    assertNull(projected.get("title"));
+    assertEquals("Tom", projected.get("owner").get("name").stringValue());
+
+    assertDocument(parser.parse(DOCUMENT));
+  }
+
+  @Test
+  public void testNestedParse() throws IOException {
+    final TomlParser parser = new TomlParser();
+    final byte[] bytes = DOCUMENT.getBytes("UTF-8");
+    InputStream inputStream = new InputStream() {
+      private int position;
+
+      @Override
+      public int read() throws IOException {
+        // Parse another document while this one is half read
+        if (position == bytes.length / 2) {
+          assertDocument(parser.parse(DOCUMENT));
+        }
+        return position < bytes.length ? bytes[position++] & 0xFF : -1;
+      }
+    };
+
+    assertDocument(parser.parse(inputStream));
+  }
+
+  @Test
+  public void testWarmParsesAllocateLess() throws IOException {
+    ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean);
+    com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threadMXBean;
+    assumeTrue(allocations.isThreadAllocatedMemorySupported()
+        && allocations.isThreadAllocatedMemoryEnabled());
+
+    final TomlParser parser = new TomlParser();
+    long threadId = Thread.currentThread().getId();
+
+    // A fresh thread has no reader context yet
+    final long[] coldBytes = new long[1];
+    final com.sun.management.ThreadMXBean bean = allocations;
+    Thread thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          long id = Thread.currentThread().getId();
+          long before = bean.getThreadAllocatedBytes(id);
+          parser.parse(DOCUMENT);
+          coldBytes[0] = bean.getThreadAllocatedBytes(id) - before;
+        } catch (IOException e) {
+          throw new AssertionError(e);
+        }
+      }
+    });
+    thread.start();
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      throw new AssertionError(e);
+    }
+
+    for (int i = 0; i < 100; i++) {
+      parser.parse(DOCUMENT);
+    }
+    long before = allocations.getThreadAllocatedBytes(threadId);
+    parser.parse(DOCUMENT);
+    long warmBytes = allocations.getThreadAllocatedBytes(threadId) - before;
+
+    assertFalse(coldBytes[0] == 0);
+    assertTrue(warmBytes + " >= " + coldBytes[0], warmBytes < coldBytes[0]);
+  }
+
+  private static void assertDocument(TomlNode tomlNode) {
+    assertEquals("example", tomlNode.get("title").stringValue());
+    assertEquals("Tom", tomlNode.get("owner").get("name").stringValue());
+    assertEquals(8002, tomlNode.get("owner").get("ports").get(1).longValue());
+    assertEquals(2, tomlNode.get("products").size());
+    assertEquals(284758393, tomlNode.get("products").get(1).get("sku").longValue());
+  }
+}
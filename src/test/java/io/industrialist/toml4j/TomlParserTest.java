@@ -164,6 +164,23 @@ public class TomlParserTest {
     assertEquals(372.9821, tomlNode.get("floatvalue").doubleValue(), 0.00001);
   }
 
+  @Test
+  public void testNumberForms() throws IOException {
+    TomlNode tomlNode = new TomlParser().parse(
+        "big = 1_000_000\nhex = 0xff\nexp = 6.02e23\nports = [ 0o17, 0b11 ]");
+
+    assertEquals(1000000, tomlNode.get("big").longValue());
+    assertEquals(255, tomlNode.get("hex").longValue());
+    assertEquals(6.02e23, tomlNode.get("exp").doubleValue(), 0.0);
+    assertEquals(15, tomlNode.get("ports").get(0).longValue());
+    assertEquals(3, tomlNode.get("ports").get(1).longValue());
+  }
+
+  @Test(expected = ParseException.class)
+  public void testIntegerValueOutOfRange() throws IOException {
+    new TomlParser().parse("tooBig = 9223372036854775808");
+  }
+
   @Test
   public void testFloatValueNegative() throws IOException {
     String tomlString = "floatvalue = -372.9821";
@@ -325,4 +342,122 @@ public class TomlParserTest {
     } catch (ParseException e) {
     }
   }
+
+  @Test
+  public void testNestedArrayOfTables() throws IOException {
+    String tomlString =
+        "[[fruit]]\nname = \"apple\"\n[[fruit.variety]]\nname = \"red delicious\"\n"
+            + "[[fruit.variety]]\nname = \"granny smith\"\n[[fruit]]\nname = \"banana\"";
+
+    TomlParser parser = new TomlParser();
+    TomlNode tomlNode = parser.parse(tomlString);
+
+    TomlNode fruit = tomlNode.get("fruit");
+    assertEquals(2, fruit.size());
+    assertEquals(2, fruit.get(0).get("variety").size());
+    assertEquals("granny smith", fruit.get(0).get("variety").get(1).get("name").stringValue());
+    assertEquals("banana", fruit.get(1).get("name").stringValue());
+  }
+
+  @Test
+  public void testArrayOfStringsContainingSeparators() throws IOException {
+    String tomlString = "array = [\"a, b\", \"c]\", \"[d\\\"]\"]";
+
+    TomlParser parser = new TomlParser();
+    TomlNode array = parser.parse(tomlString).get("array");
+
+    assertEquals(3, array.size());
+    assertEquals("a, b", array.get(0).stringValue());
+    assertEquals("c]", array.get(1).stringValue());
+    assertEquals("[d\"]", array.get(2).stringValue());
+  }
+
+  @Test
+  public void testNestedArraysOfStringsContainingSeparators() throws IOException {
+    String tomlString = "array = [[\"],\", \"x\"], [\"[\"]]";
+
+    TomlParser parser = new TomlParser();
+    TomlNode array = parser.parse(tomlString).get("array");
+
+    assertEquals(2, array.size());
+    assertEquals("],", array.get(0).get(0).stringValue());
+    assertEquals("x", array.get(0).get(1).stringValue());
+    assertEquals("[", array.get(1).get(0).stringValue());
+  }
+
+  @Test
+  public void testEmptyArray() throws IOException {
+    String tomlString = "array = [ ]";
+
+    TomlParser parser = new TomlParser();
+    TomlNode tomlNode = parser.parse(tomlString);
+
+    assertEquals(0, tomlNode.get("array").size());
+  }
+
+  @Test
+  public void testMultilineArrayWithTrailingCommaAndComments() throws IOException {
+    String tomlString = "array = [ # first\n  \"a\", # ] not the end\n  \"b\",\n]";
+
+    TomlParser parser = new TomlParser();
+    TomlNode array = parser.parse(tomlString).get("array");
+
+    assertEquals(2, array.size());
+    assertEquals("a", array.get(0).stringValue());
+    assertEquals("b", array.get(1).stringValue());
+  }
+
+  @Test
+  public void testMultilineNestedArrayWithInnerLineEndingInBracket() throws IOException {
+    String tomlString = "array = [\n[1, 3]\n, [2]]\nafter = 1";
+
+    TomlParser parser = new TomlParser();
+    TomlNode tomlNode = parser.parse(tomlString);
+    TomlNode array = tomlNode.get("array");
+
+    assertEquals(2, array.size());
+    assertEquals(2, array.get(0).size());
+    assertEquals(2, array.get(1).get(0).longValue());
+    assertEquals(1, tomlNode.get("after").longValue());
+  }
+
+  @Test(expected = ParseException.class)
+  public void testNestedArrayWithMixedTypesIsInvalid() throws IOException {
+    String tomlString = "array = [[1, 2], [\"a\", 3]]";
+
+    TomlParser parser = new TomlParser();
+    parser.parse(tomlString);
+  }
+
+  @Test(expected = ParseException.class)
+  public void testArrayWithMissingSeparatorIsInvalid() throws IOException {
+    String tomlString = "array = [\"a\" \"b\"]";
+
+    TomlParser parser = new TomlParser();
+    parser.parse(tomlString);
+  }
+
+  @Test(expected = ParseException.class)
+  public void testArrayWithTrailingValueIsInvalid() throws IOException {
+    String tomlString = "array = [1, 2] 3";
+
+    TomlParser parser = new TomlParser();
+    parser.parse(tomlString);
+  }
+
+  @Test
+  public void testLargeArray() throws IOException {
+    int size = 200000;
+    StringBuilder tomlBuilder = new StringBuilder("array = [");
+    for (int i = 0; i < size; i++) {
+      tomlBuilder.append(i).append(i % 100 == 99 ? ",\n" : ", ");
+    }
+    tomlBuilder.append("]");
+
+    TomlParser parser = new TomlParser();
+    TomlNode array = parser.parse(tomlBuilder.toString()).get("array");
+
+    assertEquals(size, array.size());
+    assertEquals(size - 1, array.get(size - 1).longValue());
+  }
 }
@@ -0,0 +1,163 @@
+package io.industrialist.toml4j;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import io.industrialist.toml4j.node.TomlNode;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TomlQueryTest {
+  private static final String SERVERS = ""
+      + "[[servers]]\n"
+      + "name = \"a\"\n"
+      + "region = \"eu\"\n"
+      + "ip = \"10.0.0.1\"\n"
+      + "weight = 10\n"
+      + "enabled = true\n"
+      + "started = 2014-01-01T00:00:00Z\n"
+      + "[[servers]]\n"
+      + "name = \"b\"\n"
+      + "region = \"us\"\n"
+      + "ip = \"10.0.0.2\"\n"
+      + "weight = 5\n"
+      + "enabled = true\n"
+      + "started = 2014-06-01T00:00:00Z\n"
+      + "[[servers]]\n"
+      + "name = \"c\"\n"
+      + "region = \"eu\"\n"
+      + "ip = \"10.0.0.3\"\n"
+      + "weight = 2.5\n"
+      + "enabled = false\n"
+      + "started = 2015-01-01T00:00:00Z\n"
+      + "[servers.limits]\n"
+      + "cpu = 4\n";
+
+  private TomlNode servers;
+  private TomlNode example;
+
+  @Before
+  public void setUp() throws IOException {
+    servers = new TomlParser().parse(SERVERS);
+    InputStream exampleStream = getClass().getResourceAsStream("/example.toml");
+    try {
+      example = new TomlParser().parse(exampleStream);
+    } finally {
+      exampleStream.close();
+    }
+  }
+
+  private List<String> strings(String expression, TomlNode root) {
+    List<String> results = new ArrayList<String>();
+    for (TomlNode node : TomlQuery.compile(expression).select(root)) {
+      results.add(node.asStringValue());
+    }
+    return results;
+  }
+
+  @Test
+  public void testKeysAndWildcards() {
+    assertEquals(Arrays.asList("10.0.0.1"), strings("servers.alpha.ip", example));
+    assertEquals(Arrays.asList("10.0.0.1", "10.0.0.2"), strings("servers.*.ip", example));
+    assertEquals(Arrays.asList("10.0.0.1", "10.0.0.2"), strings("servers[*].ip", example));
+    assertEquals(Arrays.asList("gamma", "delta", "1", "2"), strings("clients.data[*][*]", example));
+    assertEquals(Arrays.asList("Tom Preston-Werner"), strings("\"owner\".name", example));
+    assertEquals(Arrays.asList(), strings("servers.gamma.ip", example));
+  }
+
+  @Test
+  public void testArrayOfTablesIsIteratedByKey() {
+    assertEquals(Arrays.asList("Hammer", "Nail"), strings("products.name", example));
+    assertEquals(Arrays.asList("a", "b", "c"), strings("servers.name", servers));
+    assertEquals(Arrays.asList("4"), strings("servers.limits.cpu", servers));
+  }
+
+  @Test
+  public void testIndexes() {
+    assertEquals(Arrays.asList("8002"), strings("database.ports[2]", example));
+    assertEquals(Arrays.asList("8002"), strings("database.ports[-1]", example));
+    assertEquals(Arrays.asList(), strings("database.ports[3]", example));
+    assertEquals(Arrays.asList("Nail"), strings("products[1].name", example));
+  }
+
+  @Test
+  public void testPredicates() {
+    assertEquals(Arrays.asList("10.0.0.1", "10.0.0.3"),
+        strings("servers[region = \"eu\"].ip", servers));
+    assertEquals(Arrays.asList("a"),
+        strings("servers[region = \"eu\" && weight >= 10].name", servers));
+    assertEquals(Arrays.asList("a", "c"), strings("servers[weight > 5 || !enabled].name", servers));
+    assertEquals(Arrays.asList("c"), strings("servers[weight < 5.0].name", servers));
+    assertEquals(Arrays.asList("b"), strings("servers[region != \"eu\"].name", servers));
+    assertEquals(Arrays.asList("a", "b"), strings("servers[enabled].name", servers));
+    assertEquals(Arrays.asList("c"), strings("servers[limits.cpu = 4].name", servers));
+    assertEquals(Arrays.asList("b", "c"),
+        strings("servers[started > \"2014-03-01T00:00:00Z\"].name", servers));
+    assertEquals(Arrays.asList("a"),
+        strings("servers[(region = \"eu\") && enabled = true].name", servers));
+    assertEquals(Arrays.asList("GitHub"),
+        strings("owner[name = \"Tom Preston-Werner\"].organization", example));
+    assertEquals(Arrays.asList(), strings("owner[name = \"Someone\"].organization", example));
+  }
+
+  @Test
+  public void testProjection() {
+    List<TomlNode> results =
+        TomlQuery.compile("servers[region = \"eu\"]{name, limits.cpu}").select(servers);
+
+    assertEquals(2, results.size());
+    assertEquals(1, results.get(0).size());
+    assertEquals("a", results.get(0).get("name").stringValue());
+    assertEquals(2, results.get(1).size());
+    assertEquals(4, results.get(1).get("limits.cpu").longValue());
+  }
+
+  @Test
+  public void testFirstStopsEarly() {
+    final int[] visits = new int[1];
+    TomlQuery query = TomlQuery.compile("servers.name");
+    query.forEach(servers, new TomlQuery.Visitor() {
+      @Override
+      public boolean visit(TomlNode node) {
+        visits[0]++;
+        return false;
+      }
+    });
+
+    assertEquals(1, visits[0]);
+    assertEquals("a", query.first(servers).stringValue());
+    assertNull(TomlQuery.compile("missing").first(servers));
+  }
+
+  @Test
+  public void testCompiledQueriesAreReusableValues() {
+    TomlQuery query = TomlQuery.compile("servers[region = \"eu\"].ip");
+
+    assertEquals(query, TomlQuery.compile("servers[region = \"eu\"].ip"));
+    assertEquals(query.hashCode(), TomlQuery.compile("servers[region = \"eu\"].ip").hashCode());
+    assertFalse(query.equals(TomlQuery.compile("servers.ip")));
+    assertEquals(query.select(servers), query.select(servers));
+  }
+
+  @Test
+  public void testInvalidQueries() {
+    for (String expression : Arrays.asList("servers.", "servers[", "servers[region = ]",
+        "servers[region = \"eu]", "servers]", "servers{name} x", "servers[region = eu]")) {
+      try {
+        TomlQuery.compile(expression);
+        fail(expression);
+      } catch (ParseException e) {
+        // Expected
+      }
+    }
+  }
+}
@@ -0,0 +1,187 @@
+package io.industrialist.toml4j;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.industrialist.toml4j.node.TomlHashNode;
+import io.industrialist.toml4j.node.TomlNode;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+
+public class TomlRecordReaderTest {
+  private static final String DOCUMENT = "title = \"events\"\n"
+      + "[meta]\n"
+      + "version = 2\n"
+      + "[[events]]\n"
+      + "id = 1\n"
+      + "[events.details]\n"
+      + "source = \"a\"\n"
+      + "[[events.tags]]\n"
+      + "name = \"x\"\n"
+      + "[[events.tags]]\n"
+      + "name = \"y\"\n"
+      + "[[events]]\n"
+      + "id = 2\n"
+      + "[footer]\n"
+      + "count = 2\n"
+      + "[[events]]\n"
+      + "id = 3\n";
+
+  @Test
+  public void testReadRecords() throws IOException {
+    for (int readAhead : new int[] {0, 1, 4}) {
+      TomlRecordReader reader = TomlRecordReader.open(stream(DOCUMENT), "events", readAhead);
+
+      TomlNode document = reader.getDocument();
+      assertEquals("events", document.get("title").stringValue());
+      assertEquals(2, document.get("meta").get("version").longValue());
+      assertNull(document.get("events"));
+      assertNull(document.get("footer"));
+
+      TomlHashNode first = reader.next();
+      assertEquals(1, first.get("id").longValue());
+      assertEquals("a", first.get("details").get("source").stringValue());
+      assertEquals("y", first.get("tags").get(1).get("name").stringValue());
+      assertEquals(2, reader.next().get("id").longValue());
+      assertTrue(reader.hasNext());
+      assertEquals(3, reader.next().get("id").longValue());
+      assertFalse(reader.hasNext());
+
+      // Tables after the first entry are added once the entries have all been read
+      assertSame(document, reader.getDocument());
+      assertEquals(2, document.get("footer").get("count").longValue());
+      assertNull(document.get("events"));
+      reader.close();
+    }
+  }
+
+  @Test
+  public void testDottedPath() throws IOException {
+    TomlRecordReader reader = TomlRecordReader.open(
+        stream("[log]\nname = \"app\"\n[[log.events]]\nid = 1\n[[log.events]]\nid = 2"),
+        "log.events");
+
+    assertEquals(1, reader.next().get("id").longValue());
+    assertEquals(2, reader.next().get("id").longValue());
+    assertFalse(reader.hasNext());
+    assertEquals("app", reader.getDocument().get("log").get("name").stringValue());
+  }
+
+  @Test
+  public void testRecordsAreNotKept() throws IOException {
+    TomlRecordReader reader = TomlRecordReader.open(new GeneratingInputStream(100000), "events");
+
+    WeakReference<TomlHashNode> first = new WeakReference<TomlHashNode>(reader.next());
+    long count = 1;
+    while (reader.hasNext()) {
+      count++;
+      assertEquals(count, reader.next().get("id").longValue());
+    }
+
+    assertEquals(100000, count);
+    System.gc();
+    assertNull(first.get());
+  }
+
+  @Test
+  public void testTableBeforeFirstRecord() throws IOException {
+    TomlRecordReader reader = TomlRecordReader.open(
+        stream("[events.details]\nsource = \"a\"\n[[events]]\nid = 1"), "events");
+    try {
+      reader.hasNext();
+      fail();
+    } catch (ParseException e) {
+      assertEquals("Duplicate key found: events.details", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testTableAtPath() throws IOException {
+    TomlRecordReader reader = TomlRecordReader.open(stream("[events]\nid = 1"), "events", 1);
+    try {
+      reader.hasNext();
+      fail();
+    } catch (ParseException e) {
+      assertEquals("Duplicate key found: events", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testReadFailure() throws IOException {
+    for (int readAhead : new int[] {0, 2}) {
+      InputStream failing = new InputStream() {
+        @Override
+        public int read() throws IOException {
+          throw new IOException("Disk on fire");
+        }
+      };
+      TomlRecordReader reader = TomlRecordReader.open(failing, "events", readAhead);
+      try {
+        reader.hasNext();
+        fail();
+      } catch (TomlRecordReader.ReadException e) {
+        assertEquals("Disk on fire", e.getCause().getMessage());
+      }
+      assertFalse(reader.hasNext());
+    }
+  }
+
+  @Test
+  public void testCloseStopsReadingAhead() throws Exception {
+    GeneratingInputStream input = new GeneratingInputStream(100000);
+    TomlRecordReader reader = TomlRecordReader.open(input, "events", 2);
+    assertEquals(1, reader.next().get("id").longValue());
+
+    reader.close();
+
+    assertTrue(input.closed);
+    assertFalse(reader.hasNext());
+  }
+
+  private static InputStream stream(String document) {
+    return new ByteArrayInputStream(document.getBytes());
+  }
+
+  // Writes the entries as they are read, so that the document is never held in memory
+  private static class GeneratingInputStream extends InputStream {
+    private final int entries;
+    private int written;
+    private byte[] entry = new byte[0];
+    private int position;
+    private volatile boolean closed;
+
+    GeneratingInputStream(int entries) {
+      this.entries = entries;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (closed) {
+        throw new IOException("Closed");
+      }
+      if (position == entry.length) {
+        if (written == entries) {
+          return -1;
+        }
+        written++;
+        entry = ("[[events]]\nid = " + written + "\nname = \"event\"\n").getBytes();
+        position = 0;
+      }
+      return entry[position++];
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+}
@@ -0,0 +1,146 @@
+package io.industrialist.toml4j;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import io.industrialist.toml4j.node.TomlNode;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks {@link TomlNode#estimatedRetainedBytes()} against the heap that parsed documents
+ * actually keep, for the trees, their copies on a tape and their frozen copies.
+ */
+public class TomlRetainedSizeTest {
+  private static final int COPIES = 5000;
+  private static final int ATTEMPTS = 3;
+  // How far the estimate may be from the measurement
+  private static final double TOLERANCE = 0.1;
+
+  private static final String[] DOCUMENTS = {
+      "array = [1, 2, 3]",
+      "nestedarray = [[1,3, 5],[2,4],[7]]",
+      "superarray = [\n[1,3],\n[2\n,4\n,6],[3\n,5]]",
+      "key = \"tab \\t unicode \\u00E9 \\u4E2D\"\n"
+          + "pi = 3.14159\nenabled = true\ndob = 1979-05-27T07:32:00Z\n"
+          + "[group]\nsub = \"string\"\n[[things]]\nname = \"a\"\n[[things]]\nname = \"b\"\n",
+  };
+
+  private enum Form {
+    TREE, TAPE, FROZEN;
+
+    TomlNode copy(TomlNode tomlNode) {
+      switch (this) {
+        case TAPE:
+          return TomlTape.copyOf(tomlNode);
+        case FROZEN:
+          return tomlNode.freeze();
+        default:
+          return tomlNode;
+      }
+    }
+  }
+
+  @Test
+  public void testTreeEstimates() throws IOException {
+    assumeCompressedReferences();
+
+    for (String document : documents()) {
+      measure(document, Form.TREE);
+    }
+  }
+
+  @Test
+  public void testTapeEstimates() throws IOException {
+    assumeCompressedReferences();
+
+    for (String document : documents()) {
+      measure(document, Form.TAPE);
+    }
+  }
+
+  @Test
+  public void testFrozenEstimates() throws IOException {
+    assumeCompressedReferences();
+
+    for (String document : documents()) {
+      measure(document, Form.FROZEN);
+    }
+  }
+
+  private static void measure(String document, Form form) throws IOException {
+    TomlParser parser = new TomlParser();
+    long estimate = form.copy(parser.parse(document)).estimatedRetainedBytes();
+
+    // Measure with the copies held and again once they are released, so that garbage left
+    // from before does not count. Garbage freed late by the collector can still skew one
+    // measurement, so it is taken again before failing.
+    long measured = 0;
+    for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+      List<TomlNode> copies = new ArrayList<TomlNode>(COPIES);
+      for (int i = 0; i < COPIES; i++) {
+        copies.add(form.copy(parser.parse(document)));
+      }
+      long withCopies = usedHeap();
+      copies.clear();
+      measured = (withCopies - usedHeap()) / COPIES;
+      if (Math.abs(estimate - measured) <= TOLERANCE * measured) {
+        return;
+      }
+    }
+
+    String message = form + " estimated " + estimate + " bytes, measured "
+        + measured + " bytes for:\n" + document;
+    assertTrue(message, Math.abs(estimate - measured) <= TOLERANCE * measured);
+  }
+
+  private static List<String> documents() throws IOException {
+    List<String> documents = new ArrayList<String>();
+    for (String document : DOCUMENTS) {
+      documents.add(document);
+    }
+    documents.add(resource("/example.toml"));
+    documents.add(resource("/hard_example.toml"));
+    return documents;
+  }
+
+  private static String resource(String name) throws IOException {
+    InputStream in = TomlRetainedSizeTest.class.getResourceAsStream(name);
+    try {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[4096];
+      for (int read; (read = in.read(buffer)) != -1; ) {
+        out.write(buffer, 0, read);
+      }
+      return out.toString("UTF8");
+    } finally {
+      in.close();
+    }
+  }
+
+  private static void assumeCompressedReferences() {
+    HotSpotDiagnosticMXBean diagnostics =
+        ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+    assumeTrue(diagnostics != null
+        && "true".equals(diagnostics.getVMOption("UseCompressedOops").getValue()));
+  }
+
+  private static long usedHeap() {
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    long used = Long.MAX_VALUE;
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+      used = Math.min(used, memory.getHeapMemoryUsage().getUsed());
+    }
+    return used;
+  }
+}
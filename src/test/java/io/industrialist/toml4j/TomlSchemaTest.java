@@ -0,0 +1,157 @@
+package io.industrialist.toml4j;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.industrialist.toml4j.node.TomlNode;
+import io.industrialist.toml4j.node.TomlNodeType;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TomlSchemaTest {
+  private static final TomlSchema SCHEMA = TomlSchema.EMPTY
+      .required("name", TomlNodeType.STRING).length("name", 1, 16)
+      .required("server.host", TomlNodeType.STRING)
+      .required("server.port", TomlNodeType.INTEGER).range("server.port", 1, 65535)
+      .optional("server.weight", TomlNodeType.FLOAT).range("server.weight", 0.0, 1.0)
+      .optional("replicas", TomlNodeType.ARRAY).length("replicas", 1, 3)
+      .optional("products", TomlNodeType.ARRAY_OF_TABLES).length("products", 0, 2)
+      .required("products.sku", TomlNodeType.INTEGER);
+
+  @Test
+  public void testValidDocument() throws IOException {
+    TomlSchemaValidator validator = SCHEMA.newValidator(TomlSchema.Mode.COLLECT_ALL);
+    TomlNode tomlNode = new TomlParser().parse("name = \"tenant\"\n"
+        + "replicas = [ \"a\", \"b\" ]\n"
+        + "[server]\n"
+        + "host = \"localhost\"\n"
+        + "port = 8080\n"
+        + "weight = 0.5\n"
+        + "extra = true\n"
+        + "[[products]]\n"
+        + "sku = 1\n"
+        + "[products.details]\n"
+        + "color = \"gray\"\n"
+        + "[[products]]\n"
+        + "sku = 2\n", validator);
+
+    assertTrue(validator.getViolations().toString(), validator.isValid());
+    assertEquals(8080, tomlNode.get("server").get("port").longValue());
+  }
+
+  @Test
+  public void testCollectAll() throws IOException {
+    TomlSchemaValidator validator = SCHEMA.newValidator(TomlSchema.Mode.COLLECT_ALL);
+    new TomlParser().parse("name = 42\n"
+        + "replicas = [ ]\n"
+        + "[server]\n"
+        + "port = 70000\n"
+        + "weight = 1.5\n"
+        + "[[products]]\n"
+        + "name = \"no sku\"\n"
+        + "[[products]]\n"
+        + "sku = \"2\"\n"
+        + "[[products]]\n"
+        + "sku = 3\n", validator);
+
+    assertFalse(validator.isValid());
+    assertEquals(Arrays.asList(
+        "name: Expected STRING but was INTEGER",
+        "replicas: Expected a length from 1 to 3 but was 0",
+        "server.port: Expected a value from 1 to 65535 but was 70000",
+        "server.weight: Expected a value from 0.0 to 1.0 but was 1.5",
+        "products[0].sku: Missing required key",
+        "products[1].sku: Expected INTEGER but was STRING",
+        "products: Expected a length from 0 to 2 but was 3",
+        "server.host: Missing required key"), toStrings(validator.getViolations()));
+  }
+
+  @Test
+  public void testFailFast() throws IOException {
+    TomlSchemaValidator validator = SCHEMA.newValidator(TomlSchema.Mode.FAIL_FAST);
+    try {
+      new TomlParser().parse("name = \"tenant\"\n[server]\nport = 0\nhost = 1\n", validator);
+      fail();
+    } catch (ParseException e) {
+      assertEquals(
+          "Schema violation: server.port: Expected a value from 1 to 65535 but was 0",
+          e.getMessage());
+    }
+  }
+
+  @Test
+  public void testMissingTable() throws IOException {
+    TomlSchemaValidator validator = SCHEMA.newValidator(TomlSchema.Mode.COLLECT_ALL);
+    new TomlParser().parse(
+        new ByteArrayInputStream("name = \"tenant\"\n".getBytes("UTF-8")), validator);
+
+    assertEquals(Arrays.asList("server: Missing required key"),
+        toStrings(validator.getViolations()));
+  }
+
+  @Test
+  public void testTableTypes() throws IOException {
+    TomlSchemaValidator validator = SCHEMA.newValidator(TomlSchema.Mode.COLLECT_ALL);
+    new TomlParser().parse("name = \"tenant\"\n"
+        + "server = 1\n"
+        + "[products]\n"
+        + "sku = 1\n", validator);
+
+    assertEquals(Arrays.asList(
+        "server: Expected a table but was INTEGER",
+        "products: Expected ARRAY_OF_TABLES but was HASH"), toStrings(validator.getViolations()));
+  }
+
+  @Test
+  public void testFeedParser() {
+    TomlSchemaValidator validator = SCHEMA.newValidator(TomlSchema.Mode.COLLECT_ALL);
+    TomlFeedParser parser = new TomlFeedParser(validator);
+    parser.feed(ByteBuffer.wrap("name = \"\"\n[server]\nhost = \"h\"\nport = 1\n".getBytes()));
+    parser.endOfInput();
+
+    assertEquals(Arrays.asList("name: Expected a length from 1 to 16 but was 0"),
+        toStrings(validator.getViolations()));
+  }
+
+  @Test
+  public void testInvalidRules() {
+    try {
+      TomlSchema.EMPTY.optional("port", TomlNodeType.STRING).range("port", 1, 2);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Not of type INTEGER: port", e.getMessage());
+    }
+
+    try {
+      TomlSchema.EMPTY.range("port", 1, 2);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("No rule for port", e.getMessage());
+    }
+
+    try {
+      TomlSchema.EMPTY.optional("server.port", TomlNodeType.INTEGER)
+          .optional("server", TomlNodeType.STRING);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Not a table: server", e.getMessage());
+    }
+  }
+
+  private static List<String> toStrings(List<TomlSchemaValidator.Violation> violations) {
+    List<String> strings = new ArrayList<String>();
+    for (TomlSchemaValidator.Violation violation : violations) {
+      strings.add(violation.toString());
+    }
+    return strings;
+  }
+}
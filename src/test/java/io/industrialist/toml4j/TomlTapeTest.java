@@ -0,0 +1,187 @@
+package io.industrialist.toml4j;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.industrialist.toml4j.node.TomlNode;
+
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+
+public class TomlTapeTest {
+  private static final String DOCUMENT = "title = \"TOML \\\"Example\\\" 中国\"\n"
+      + "count = 42\n"
+      + "big = -9223372036854775808\n"
+      + "ratio = 0.25\n"
+      + "enabled = true\n"
+      + "created = 1979-05-27T07:32:00Z\n"
+      + "[owner]\n"
+      + "name = \"Tom\"\n"
+      + "[servers.alpha]\n"
+      + "ports = [ 8001, 8002 ]\n"
+      + "matrix = [ [ 1, 2 ], [ \"a\" ] ]\n"
+      + "[[products]]\n"
+      + "sku = 738594937\n"
+      + "[[products]]\n"
+      + "sku = 284758393\n"
+      + "[[products.variants]]\n"
+      + "color = \"gray\"\n"
+      + "[owner.address]\n"
+      + "city = \"Boston\"\n";
+
+  @Test
+  public void testValues() throws IOException {
+    TomlNode root = new TomlParser().parseCompact(DOCUMENT);
+
+    assertTrue(root.isHash());
+    assertEquals("TOML \"Example\" 中国", root.get("title").stringValue());
+    assertEquals(42, root.get("count").longValue());
+    assertEquals(42.0, root.get("count").doubleValue(), 0.0);
+    assertEquals(Long.MIN_VALUE, root.get("big").longValue());
+    assertTrue(root.get("ratio").isFloat());
+    assertEquals(0.25, root.get("ratio").doubleValue(), 0.0);
+    assertTrue(root.get("enabled").booleanValue());
+    assertEquals(new DateTime("1979-05-27T07:32:00Z").getMillis(),
+        root.get("created").dateTimeValue().getMillis());
+    assertEquals("1979-05-27T07:32:00Z", root.get("created").asStringValue());
+    assertNull(root.get("missing"));
+    assertNull(root.get("title").get("missing"));
+  }
+
+  @Test
+  public void testContainers() throws IOException {
+    TomlNode root = new TomlParser().parseCompact(DOCUMENT);
+
+    assertEquals("Tom", root.get("owner").get("name").stringValue());
+    assertEquals("Boston", root.get("owner").get("address").get("city").stringValue());
+
+    TomlNode ports = root.get("servers").get("alpha").get("ports");
+    assertTrue(ports.isArray());
+    assertEquals(2, ports.size());
+    assertEquals(8002, ports.get(1).longValue());
+    assertEquals("a", root.get("servers").get("alpha").get("matrix").get(1).get(0).stringValue());
+
+    TomlNode products = root.get("products");
+    assertTrue(products.isArrayOfTables());
+    assertEquals(2, products.size());
+    assertEquals(284758393, products.get(1).get("sku").longValue());
+    assertEquals("gray", products.get(1).get("variants").get(0).get("color").stringValue());
+
+    try {
+      ports.get(2);
+      fail();
+    } catch (IndexOutOfBoundsException e) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void testFieldsKeepDocumentOrder() throws IOException {
+    TomlNode root = new TomlParser().parseCompact(DOCUMENT);
+
+    Iterator<Map.Entry<String, TomlNode>> fields = root.fields().iterator();
+    String[] expected = {
+        "title", "count", "big", "ratio", "enabled", "created", "owner", "servers", "products"};
+    for (String key : expected) {
+      assertEquals(key, fields.next().getKey());
+    }
+    assertFalse(fields.hasNext());
+
+    int sum = 0;
+    for (TomlNode port : root.get("servers").get("alpha").get("ports").children()) {
+      sum += port.longValue();
+    }
+    assertEquals(16003, sum);
+  }
+
+  @Test
+  public void testMatchesTree() throws IOException {
+    TomlParser parser = new TomlParser();
+    TomlNode tree = parser.parse(DOCUMENT);
+
+    assertEquals(generate(tree), generate(parser.parseCompact(DOCUMENT)));
+    assertEquals(generate(tree), generate(TomlTape.copyOf(tree)));
+    assertEquals(generate(tree), generate(
+        parser.parseCompact(new ByteArrayInputStream(DOCUMENT.getBytes("UTF-8")))));
+    assertEquals(tree.get("owner").toString(), parser.parseCompact(DOCUMENT).get("owner")
+        .toString());
+  }
+
+  @Test
+  public void testLargeTable() throws IOException {
+    StringBuilder document = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      document.append("key").append(i).append(" = ").append(i).append('\n');
+    }
+    TomlNode root = new TomlParser().parseCompact(document.toString());
+
+    assertEquals(100, root.size());
+    for (int i = 0; i < 100; i++) {
+      assertEquals(i, root.get("key" + i).longValue());
+    }
+
+    try {
+      new TomlParser().parseCompact(document.append("key50 = 1\n").toString());
+      fail();
+    } catch (ParseException e) {
+      assertEquals("Duplicate key found", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testDuplicateTable() throws IOException {
+    try {
+      new TomlParser().parseCompact("a = 1\n[a]\nb = 2\n");
+      fail();
+    } catch (ParseException e) {
+      assertEquals("Duplicate key found: a", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testProjection() throws IOException {
+    TomlNode root = new TomlParser().parseCompact(DOCUMENT, Projection.of("owner"));
+
+    assertNull(root.get("title"));
+    assertEquals("Boston", root.get("owner").get("address").get("city").stringValue());
+  }
+
+  @Test
+  public void testLayout() throws IOException {
+    StringBuilder document = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      document.append("[[items]]\nid = ").append(i).append("\nname = \"item\"\n");
+    }
+    TomlNode root = new TomlParser().parseCompact(document.toString());
+
+    TomlTape tape = TomlTape.tapeOf(root);
+    // The root and its key, the array of tables, then per table its header, two keys and values
+    assertEquals(2 + 1 + 2 + 1000 * (2 + 2 + 2), tape.tape.length);
+    // Keys are stored once, strings once per value
+    assertEquals((2 + 5) + (2 + 2) + (2 + 4) + 1000 * (2 + 4), tape.chars.length);
+  }
+
+  @Test
+  public void testTomlGetters() throws IOException {
+    Toml toml = Toml.from(new TomlParser().parseCompact(DOCUMENT));
+
+    assertEquals("Tom", toml.getString("owner.name"));
+    assertEquals(8001L, toml.getList("servers.alpha.ports").get(0));
+    assertEquals(Long.valueOf(42), toml.getLong("count"));
+  }
+
+  private static String generate(TomlNode node) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    new TomlGenerator().writeTo(outputStream, node);
+    return outputStream.toString("UTF-8");
+  }
+}
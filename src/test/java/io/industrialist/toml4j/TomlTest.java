@@ -3,6 +3,8 @@ package io.industrialist.toml4j;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import io.industrialist.toml4j.node.TomlNode;
 
@@ -11,8 +13,11 @@ import org.joda.time.DateTimeZone;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 public class TomlTest {
   @Test
@@ -261,4 +266,129 @@ public class TomlTest {
     assertEquals(284758393L, products.get(2).get("sku"));
     assertEquals("gray", products.get(2).get("color"));
   }
+
+  @Test
+  public void testGetListView() throws IOException {
+    Toml toml = Toml.from("superarray = [[1, 2, 3], [\"one\", \"two\"]]\nflat = [1.5, 2.5]");
+
+    List<Object> superarray = toml.getListView("superarray");
+    assertEquals(2, superarray.size());
+    assertEquals(Arrays.asList(1L, 2L, 3L), superarray.get(0));
+    assertEquals(Arrays.asList("one", "two"), superarray.get(1));
+    assertEquals(Arrays.asList(1.5, 2.5), toml.getListView("flat"));
+    assertEquals(toml.getList("superarray"), superarray);
+    assertNull(toml.getListView("missing"));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testListViewIsReadOnly() throws IOException {
+    Toml.from("flat = [1, 2]").getListView("flat").add(3L);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetListViewOfNonArray() throws IOException {
+    Toml.from("flat = 1").getListView("flat");
+  }
+
+  @Test
+  public void testGetMapView() throws Exception {
+    Toml toml = Toml.from(
+        "[server]\n"
+            + "host = \"localhost\"\n"
+            + "ports = [8001, 8002]\n"
+            + "[server.tls]\n"
+            + "enabled = true\n"
+            + "[[server.routes]]\n"
+            + "path = \"/a\"\n"
+            + "[[server.routes]]\n"
+            + "path = \"/b\"");
+
+    Map<String, Object> server = toml.getMapView("server");
+
+    assertEquals(4, server.size());
+    assertEquals(Arrays.asList("host", "ports", "tls", "routes"),
+        new ArrayList<String>(server.keySet()));
+    assertEquals("localhost", server.get("host"));
+    assertEquals(Arrays.asList(8001L, 8002L), server.get("ports"));
+    assertEquals(true, ((Map) server.get("tls")).get("enabled"));
+    assertEquals("/b", ((Map) ((List) server.get("routes")).get(1)).get("path"));
+    assertTrue(server.containsKey("tls"));
+    assertFalse(server.containsKey("missing"));
+    assertNull(server.get("missing"));
+    assertNull(server.get(1));
+    assertNull(toml.getMapView("missing"));
+  }
+
+  @Test
+  public void testMapViewReflectsTheTree() throws Exception {
+    Toml toml = Toml.from("[server]\nhost = \"localhost\"");
+    Map<String, Object> server = toml.getMapView("server");
+
+    toml.replaceString("server.host", "example.com");
+
+    assertEquals("example.com", server.get("host"));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testMapViewIsReadOnly() throws IOException {
+    Toml.from("[server]\nhost = \"localhost\"").getMapView("server").put("port", 80L);
+  }
+
+  @Test
+  public void testFreeze() throws IOException {
+    Toml toml = Toml.from(
+        "title = \"frozen\"\n"
+            + "[server]\n"
+            + "host = \"localhost\"\n"
+            + "ports = [8001, 8002]\n"
+            + "[server.tls]\n"
+            + "enabled = true\n"
+            + "[[server.routes]]\n"
+            + "path = \"/a\"");
+
+    Toml frozen = toml.freeze();
+
+    assertSame(frozen, frozen.freeze());
+    assertEquals("frozen", frozen.getString("title"));
+    assertEquals("localhost", frozen.getString("server.host"));
+    assertEquals(Arrays.asList(8001L, 8002L), frozen.getList("server.ports"));
+    assertEquals(true, frozen.getBoolean("server.tls.enabled"));
+    assertEquals("/a", ((Map) frozen.getListView("server.routes").get(0)).get("path"));
+    // Key groups share the document's index, so they are frozen already
+    Toml server = frozen.getKeyGroup("server");
+    assertSame(server, server.freeze());
+    assertEquals(true, server.getBoolean("tls.enabled"));
+    assertEquals(true, server.getKeyGroup("tls").getBoolean("enabled"));
+    assertNull(server.getString("title"));
+    // Dotted keys with empty parts are split the same way as before freezing
+    assertEquals(true, frozen.getKeyGroup("server.tls.").getBoolean("enabled"));
+    assertNull(frozen.getString("server.missing"));
+    assertNull(frozen.getString("title.missing"));
+
+    toml.replaceString("server.host", "example.com");
+    assertEquals("localhost", frozen.getString("server.host"));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testFrozenIsReadOnly() throws IOException {
+    Toml.from("host = \"localhost\"").freeze().replaceString("host", "example.com");
+  }
+
+  @Test
+  public void testStreams() throws IOException {
+    Toml toml = Toml.from("title = \"streams\"\nports = [8001, 8002, 8003]\n"
+        + "[[routes]]\npath = \"/a\"\n[[routes]]\npath = \"/b\"");
+
+    for (Toml document : new Toml[] {toml, toml.freeze()}) {
+      assertEquals(24006, document.parallelStream("ports").mapToLong(TomlNode::longValue).sum());
+      assertEquals(Arrays.asList("/a", "/b"), document.stream("routes")
+          .map(route -> route.get("path").stringValue()).collect(Collectors.toList()));
+      assertNull(document.stream("missing"));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testStreamOfValue() throws IOException {
+    Toml.from("title = \"streams\"").stream("title");
+  }
 }
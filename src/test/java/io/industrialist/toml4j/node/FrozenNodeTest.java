@@ -0,0 +1,84 @@
+package io.industrialist.toml4j.node;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import io.industrialist.toml4j.TomlParser;
+import io.industrialist.toml4j.TomlTape;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.Map;
+
+public class FrozenNodeTest {
+  @Test
+  public void testFreezeExample() throws IOException {
+    InputStream exampleStream = getClass().getResourceAsStream("/example.toml");
+    TomlNode rootNode = new TomlParser().parse(exampleStream);
+
+    TomlNode frozenNode = rootNode.freeze();
+
+    assertEquals(rootNode.toString(), frozenNode.toString());
+    assertEquals(rootNode.toString(), TomlTape.copyOf(rootNode).freeze().toString());
+    assertSame(frozenNode, frozenNode.freeze());
+    assertEquals(rootNode.size(), frozenNode.size());
+
+    TomlNode owner = frozenNode.get("owner");
+    assertTrue(owner.isHash());
+    assertEquals("Tom Preston-Werner", owner.get("name").stringValue());
+    assertEquals(rootNode.get("owner").get("dob").dateTimeValue(),
+        owner.get("dob").dateTimeValue());
+    assertNull(owner.get("dob").stringValue());
+    assertSame(owner.get("dob").dateTimeValue(), owner.get("dob").dateTimeValue());
+    assertEquals(8002, frozenNode.get("database").get("ports").get(2).longValue());
+    assertEquals("Nail", frozenNode.get("products").get(1).get("name").stringValue());
+    assertTrue(frozenNode.get("products").isArrayOfTables());
+    assertNull(frozenNode.get("missing"));
+    assertNull(frozenNode.get(null));
+  }
+
+  @Test
+  public void testFreezeKeepsOrderAndFindsEveryKey() {
+    // "Aa" and "BB" share a hash, so no multiplier gives every key a slot of its own
+    TomlHashNode hashNode = new TomlHashNode();
+    hashNode.put("Aa", 1).put("BB", 2);
+    for (int i = 0; i < 100; i++) {
+      hashNode.put("key" + i, i);
+    }
+
+    TomlNode frozenNode = hashNode.freeze();
+
+    assertEquals(102, frozenNode.size());
+    assertEquals(1, frozenNode.get("Aa").longValue());
+    assertEquals(2, frozenNode.get("BB").longValue());
+    for (int i = 0; i < 100; i++) {
+      assertEquals(i, frozenNode.get("key" + i).longValue());
+    }
+    assertNull(frozenNode.get("key100"));
+
+    Iterator<Map.Entry<String, TomlNode>> fields = frozenNode.fields().iterator();
+    assertEquals("Aa", fields.next().getKey());
+    assertEquals("BB", fields.next().getKey());
+    for (int i = 0; i < 100; i++) {
+      assertEquals("key" + i, fields.next().getKey());
+    }
+    assertFalse(fields.hasNext());
+  }
+
+  @Test
+  public void testFrozenStringIsACopy() {
+    TomlStringNode stringNode = TomlStringNode.valueOf("before");
+    TomlNode frozenNode = new TomlHashNode().put("name", stringNode).freeze();
+
+    stringNode.setString("after");
+
+    assertEquals("before", frozenNode.get("name").stringValue());
+    assertEquals("name = \"before\"", frozenNode.toString());
+  }
+}
@@ -1,6 +1,7 @@
 package io.industrialist.toml4j.node;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 import io.industrialist.toml4j.TomlParser;
 
@@ -8,6 +9,8 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Iterator;
+import java.util.Map;
 
 public class TomlHashNodeTest {
   @Test
@@ -70,4 +73,78 @@ public class TomlHashNodeTest {
 
     assertEquals(expectedString, rootNode.toString());
   }
+
+  @Test
+  public void testPutAndGetKeepInsertionOrder() {
+    // Enough keys to go past the tables that are scanned, and to grow the index twice
+    TomlHashNode hashNode = new TomlHashNode();
+    for (int i = 0; i < 40; i++) {
+      hashNode.put("key" + (39 - i), i);
+      assertEquals(i + 1, hashNode.size());
+    }
+    // Replacing a value keeps its key where it was
+    hashNode.put("key39", TomlStringNode.valueOf("first"));
+    hashNode.put("key0", TomlStringNode.valueOf("last"));
+
+    assertEquals(40, hashNode.size());
+    assertEquals("first", hashNode.get("key39").stringValue());
+    assertEquals("last", hashNode.get("key0").stringValue());
+    for (int i = 1; i < 39; i++) {
+      assertEquals(i, hashNode.get("key" + (39 - i)).longValue());
+    }
+    assertNull(hashNode.get("key40"));
+    assertNull(hashNode.get(null));
+
+    int i = 0;
+    for (Map.Entry<String, TomlNode> field : hashNode.fields()) {
+      assertEquals("key" + (39 - i), field.getKey());
+      assertEquals(hashNode.get(field.getKey()), field.getValue());
+      i++;
+    }
+    assertEquals(40, i);
+  }
+
+  @Test
+  public void testFieldsSupportRemoveAndSetValue() {
+    TomlHashNode hashNode = new TomlHashNode();
+    for (int i = 0; i < 20; i++) {
+      hashNode.put("key" + i, i);
+    }
+
+    Iterator<Map.Entry<String, TomlNode>> fields = hashNode.fields().iterator();
+    while (fields.hasNext()) {
+      Map.Entry<String, TomlNode> field = fields.next();
+      long value = field.getValue().longValue();
+      if (value % 2 == 0) {
+        fields.remove();
+      } else {
+        assertEquals(value, field.setValue(TomlIntegerNode.valueOf(value * 10)).longValue());
+        assertEquals(value * 10, field.getValue().longValue());
+      }
+    }
+
+    assertEquals(10, hashNode.size());
+    for (int i = 0; i < 20; i++) {
+      TomlNode node = hashNode.get("key" + i);
+      if (i % 2 == 0) {
+        assertNull(node);
+      } else {
+        assertEquals(i * 10, node.longValue());
+      }
+    }
+
+    // Removing down to a scanned table and growing again keeps every key reachable
+    Iterator<TomlNode> children = hashNode.children().iterator();
+    children.next();
+    children.remove();
+    children.next();
+    children.remove();
+    for (int i = 20; i < 30; i++) {
+      hashNode.put("key" + i, i);
+    }
+    assertEquals(18, hashNode.size());
+    assertNull(hashNode.get("key1"));
+    assertEquals(50, hashNode.get("key5").longValue());
+    assertEquals(29, hashNode.get("key29").longValue());
+  }
 }
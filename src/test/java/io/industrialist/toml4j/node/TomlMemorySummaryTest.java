@@ -0,0 +1,69 @@
+package io.industrialist.toml4j.node;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.industrialist.toml4j.TomlParser;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public class TomlMemorySummaryTest {
+  @Test
+  public void testPartsAddUpToTheEstimate() throws IOException {
+    InputStream exampleStream = getClass().getResourceAsStream("/example.toml");
+    TomlNode rootNode = new TomlParser().parse(exampleStream);
+
+    TomlMemorySummary summary = TomlMemorySummary.of(rootNode);
+
+    assertEquals(rootNode.estimatedRetainedBytes(), summary.getTotalBytes());
+    long parts = summary.getKeyBytes() + summary.getStringBytes();
+    for (TomlNodeType nodeType : TomlNodeType.values()) {
+      parts += summary.getNodeBytes(nodeType);
+    }
+    assertEquals(summary.getTotalBytes(), parts);
+    assertEquals(2, summary.getNodeCount(TomlNodeType.ARRAY_OF_TABLES)
+        + summary.getNodeCount(TomlNodeType.DATETIME));
+    assertTrue(summary.getStringBytes() > 0);
+    assertTrue(summary.toString(), summary.toString().startsWith(
+        "total: " + summary.getTotalBytes() + " bytes\nHASH: "));
+  }
+
+  @Test
+  public void testEstimateFollowsChanges() {
+    TomlHashNode table = new TomlHashNode();
+    long empty = table.estimatedRetainedBytes();
+
+    table.put("name", TomlStringNode.valueOf("a"));
+    long withName = table.estimatedRetainedBytes();
+    assertTrue(withName > empty);
+
+    // Replacing a value counts the new one instead of the old
+    table.put("name", TomlStringNode.valueOf("a much longer name"));
+    assertEquals(
+        withName - Footprint.stringBytes("a") + Footprint.stringBytes("a much longer name"),
+        table.estimatedRetainedBytes());
+    table.put("name", TomlStringNode.valueOf("a"));
+    assertEquals(withName, table.estimatedRetainedBytes());
+
+    // A nested table is measured when asked, so values added to it later count
+    TomlHashNode nested = new TomlHashNode();
+    table.put("nested", nested);
+    long withNested = table.estimatedRetainedBytes();
+    long emptyNested = nested.estimatedRetainedBytes();
+    nested.put("count", 1);
+    assertEquals(withNested + nested.estimatedRetainedBytes() - emptyNested,
+        table.estimatedRetainedBytes());
+    assertEquals(TomlMemorySummary.of(table).getTotalBytes(), table.estimatedRetainedBytes());
+
+    // As does a string changed in place
+    TomlStringNode name = (TomlStringNode) table.get("name");
+    name.setString("a much longer name");
+    assertEquals(TomlMemorySummary.of(table).getTotalBytes(), table.estimatedRetainedBytes());
+    assertEquals(withNested + nested.estimatedRetainedBytes() - emptyNested
+        - Footprint.stringBytes("a") + Footprint.stringBytes("a much longer name"),
+        table.estimatedRetainedBytes());
+  }
+}
@@ -1,8 +1,14 @@
 package io.industrialist.toml4j.node;
 import io.industrialist.toml4j.TomlParser;
+import io.industrialist.toml4j.TomlTape;
 import org.junit.Test;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class TomlNodeTest {
@@ -16,4 +22,53 @@ public class TomlNodeTest {
         assertTrue(rootNode.get("servers").isContainerNode());
 
     }
+
+    @Test
+    public void testSpliteratorsSplitInHalves() {
+        TomlTableArrayNode tables = new TomlTableArrayNode();
+        for (int i = 0; i < 10000; i++) {
+            tables.add(new TomlHashNode().put("id", i));
+        }
+
+        for (TomlNode node : new TomlNode[] {tables, tables.freeze()}) {
+            Spliterator<TomlNode> spliterator = node.spliterator();
+            assertTrue(spliterator.hasCharacteristics(
+                Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.ORDERED));
+            Spliterator<TomlNode> prefix = spliterator.trySplit();
+            assertEquals(5000, prefix.getExactSizeIfKnown());
+            assertEquals(5000, spliterator.getExactSizeIfKnown());
+            assertTrue(prefix.tryAdvance(table -> assertEquals(0, table.get("id").longValue())));
+        }
+        assertTrue(tables.freeze().spliterator().hasCharacteristics(Spliterator.IMMUTABLE));
+        assertTrue(new TomlHashNode().put("a", 1).put("b", 2).spliterator()
+            .hasCharacteristics(Spliterator.SUBSIZED));
+    }
+
+    @Test
+    public void testParallelStreams() throws IOException {
+        TomlTableArrayNode tables = new TomlTableArrayNode();
+        for (int i = 0; i < 10000; i++) {
+            tables.add(new TomlHashNode().put("id", i));
+        }
+        TomlNode document = new TomlHashNode().put("tables", tables);
+        long expected = 9999L * 10000 / 2;
+
+        for (TomlNode node : new TomlNode[] {
+            document, document.freeze(), TomlTape.copyOf(document)}) {
+            TomlNode array = node.get("tables");
+            assertEquals(expected,
+                array.parallelStream().mapToLong(table -> table.get("id").longValue()).sum());
+            assertEquals(10000, array.spliterator().getExactSizeIfKnown());
+            assertEquals(array.get(9999).toString(),
+                array.stream().reduce((first, second) -> second).get().toString());
+        }
+
+        InputStream exampleStream = getClass().getResourceAsStream("/example.toml");
+        TomlNode rootNode = new TomlParser().parse(exampleStream);
+        assertEquals(Arrays.asList(TomlNodeType.STRING, TomlNodeType.HASH, TomlNodeType.HASH,
+            TomlNodeType.HASH, TomlNodeType.HASH, TomlNodeType.ARRAY_OF_TABLES),
+            rootNode.parallelStream().map(TomlNode::getNodeType).collect(Collectors.toList()));
+        assertEquals(0, rootNode.get("title").stream().count());
+        assertNull(rootNode.get("title").spliterator().trySplit());
+    }
 }